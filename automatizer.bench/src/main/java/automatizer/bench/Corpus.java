@@ -0,0 +1,90 @@
+package automatizer.bench;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.utils.DotWriter;
+
+import com.etao.lz.automaton.Automaton;
+import com.etao.lz.recollection.JavaRegExp;
+import com.etao.lz.recollection.ast.Converter;
+
+/**
+ * 基准测试使用的正则表达式及 DOT 语料，按规模分为三组
+ * 
+ * @author wxz
+ * 
+ */
+public enum Corpus {
+
+    SMALL("abc", "a|b", "[0-9]+", "(ab)*c", "[a-f][0-9]?"),
+
+    MEDIUM("[A-Za-z_][A-Za-z0-9_]*",
+            "-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?",
+            "\"([^\"\\\\]|\\\\.)*\"",
+            "[a-z0-9._%+-]+@[a-z0-9.-]+\\.[a-z][a-z]+",
+            "(https?|ftp)://[a-z0-9.-]+(:[0-9]+)?(/[a-zA-Z0-9._~%-]*)*",
+            "(if|else|while|for|return|break|continue|switch|case|default)"),
+
+    PATHOLOGICAL("(a|b)*a(a|b){12}", "(a|aa|aaa|aaaa)*b", "(x+x+)+y",
+            "((a|b)(c|d)|(e|f)(g|h)){6}", "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private final String[] regexps;
+
+    private Corpus(String... res) {
+        regexps = res;
+    }
+
+    public String[] regexps() {
+        return regexps.clone();
+    }
+
+    /**
+     * 将各正则表达式转换为 ε-free NFA
+     * 
+     * @return
+     */
+    public Automaton[] nfas() {
+        Automaton[] atms = new Automaton[regexps.length];
+        for (int i = 0; i < regexps.length; i++) {
+            atms[i] = new JavaRegExp(regexps[i]).toAutomaton(false);
+        }
+        return atms;
+    }
+
+    /**
+     * 将各正则表达式转换为视图中展示的状态机
+     * 
+     * @param minimize
+     *            是否转换为最小化 DFA
+     * @return
+     */
+    public IndexedAutomaton[] transformed(boolean minimize) {
+        Automaton[] nfas = nfas();
+        IndexedAutomaton[] atms = new IndexedAutomaton[nfas.length];
+        for (int i = 0; i < nfas.length; i++) {
+            atms[i] = IndexedAutomaton.fromAutomaton(Converter
+                    .transformAutomaton(nfas[i], minimize, false));
+        }
+        return atms;
+    }
+
+    /**
+     * 生成各正则表达式对应 ε-free NFA 的 DOT 文本
+     * 
+     * @return
+     * @throws IOException
+     */
+    public String[] dots() throws IOException {
+        IndexedAutomaton[] atms = transformed(false);
+        String[] dots = new String[atms.length];
+        for (int i = 0; i < atms.length; i++) {
+            StringWriter sw = new StringWriter();
+            new DotWriter(sw).write(atms[i]);
+            dots[i] = sw.toString();
+        }
+        return dots;
+    }
+
+}
@@ -0,0 +1,60 @@
+package automatizer.bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import automatizer.core.utils.GraphvizUtils;
+
+/**
+ * DOT 文本解析，同时对比旧的基于完整语法树的实现
+ * 
+ * @author wxz
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DotBenchmark {
+
+    @Param({ "SMALL", "MEDIUM", "PATHOLOGICAL" })
+    public Corpus corpus;
+
+    private String[] dots;
+
+    @Setup
+    public void setup() throws IOException {
+        dots = corpus.dots();
+    }
+
+    @Benchmark
+    public void dotToFsa(Blackhole bh) throws Exception {
+        for (String dot : dots) {
+            bh.consume(GraphvizUtils.dotToFsa(new StringReader(dot)));
+        }
+    }
+
+    @Benchmark
+    public void dotToFsaLegacy(Blackhole bh) throws Exception {
+        for (String dot : dots) {
+            bh.consume(LegacyDotParser.dotToFsa(new StringBuffer(dot)));
+        }
+    }
+
+}
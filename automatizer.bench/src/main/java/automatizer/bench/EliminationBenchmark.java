@@ -0,0 +1,126 @@
+package automatizer.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.regexps.EliminationOrder;
+import automatizer.core.regexps.MinDegreeOrder;
+import automatizer.core.regexps.StateEliminator;
+import automatizer.core.regexps.WeightOrder;
+
+import com.etao.lz.recollection.utils.AutomatonTool;
+
+/**
+ * 状态机到正则表达式的转换，对比 AutomatonTool.aToRe 与不同消去顺序的 StateEliminator。
+ * 
+ * 输出表达式的长度由 main() 打印。
+ * 
+ * @author wxz
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EliminationBenchmark {
+
+    // 基准测试中只为避免失控而设置的宽松预算
+    private static final int MAX_LENGTH = 1 << 24;
+    private static final long TIMEOUT = 60000;
+
+    @Param({ "SMALL", "MEDIUM", "PATHOLOGICAL" })
+    public Corpus corpus;
+
+    @Param({ "false", "true" })
+    public boolean minimize;
+
+    private IndexedAutomaton[] atms;
+    private StateEliminator minDegree;
+    private StateEliminator weight;
+
+    @Setup
+    public void setup() {
+        atms = corpus.transformed(minimize);
+        minDegree = new StateEliminator(new MinDegreeOrder(), MAX_LENGTH,
+                TIMEOUT);
+        weight = new StateEliminator(new WeightOrder(), MAX_LENGTH, TIMEOUT);
+    }
+
+    @Benchmark
+    public void aToRe(Blackhole bh) {
+        for (IndexedAutomaton atm : atms) {
+            bh.consume(AutomatonTool.aToRe(atm.toAutomaton()));
+        }
+    }
+
+    @Benchmark
+    public void minDegree(Blackhole bh) {
+        for (IndexedAutomaton atm : atms) {
+            bh.consume(minDegree.toRegexp(atm));
+        }
+    }
+
+    @Benchmark
+    public void weight(Blackhole bh) {
+        for (IndexedAutomaton atm : atms) {
+            bh.consume(weight.toRegexp(atm));
+        }
+    }
+
+    /**
+     * 打印各语料在不同转换方式下得到的表达式总长度及单次转换耗时
+     * 
+     * @param args
+     */
+    public static void main(String[] args) {
+        EliminationOrder[] orders = { new MinDegreeOrder(), new WeightOrder() };
+        System.out.printf("%-14s %-8s %-12s %12s %12s%n", "corpus",
+                "minimize", "method", "length", "time(us)");
+        for (Corpus corpus : Corpus.values()) {
+            for (boolean minimize : new boolean[] { false, true }) {
+                IndexedAutomaton[] atms = corpus.transformed(minimize);
+
+                long len = 0;
+                long t0 = System.nanoTime();
+                for (IndexedAutomaton atm : atms) {
+                    len += AutomatonTool.aToRe(atm.toAutomaton()).length();
+                }
+                print(corpus, minimize, "aToRe", len, System.nanoTime() - t0);
+
+                for (EliminationOrder order : orders) {
+                    StateEliminator e = new StateEliminator(order, MAX_LENGTH,
+                            TIMEOUT);
+                    len = 0;
+                    t0 = System.nanoTime();
+                    for (IndexedAutomaton atm : atms) {
+                        len += e.toRegexp(atm).length();
+                    }
+                    print(corpus, minimize, order.toString(), len,
+                            System.nanoTime() - t0);
+                }
+            }
+        }
+    }
+
+    private static void print(Corpus corpus, boolean minimize, String method,
+            long len, long nanos) {
+        System.out.printf("%-14s %-8s %-12s %12d %12d%n", corpus, minimize,
+                method, len, nanos / 1000);
+    }
+
+}
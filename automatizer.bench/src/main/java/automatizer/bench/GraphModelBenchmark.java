@@ -0,0 +1,56 @@
+package automatizer.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import automatizer.core.models.GraphModelBuilder;
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 状态机到转移图 model 的转换，即 AutomataGraphContentProvider.getElements 的全部工作（不含 Zest
+ * 部分，以便在无 workbench 的环境下运行）
+ * 
+ * @author wxz
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphModelBenchmark {
+
+    @Param({ "SMALL", "MEDIUM", "PATHOLOGICAL" })
+    public Corpus corpus;
+
+    @Param({ "false", "true" })
+    public boolean minimize;
+
+    private IndexedAutomaton[] atms;
+
+    @Setup
+    public void setup() {
+        atms = corpus.transformed(minimize);
+    }
+
+    @Benchmark
+    public void getElements(Blackhole bh) {
+        for (IndexedAutomaton atm : atms) {
+            bh.consume(GraphModelBuilder.build(atm).toArray());
+        }
+    }
+
+}
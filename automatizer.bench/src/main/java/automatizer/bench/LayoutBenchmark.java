@@ -0,0 +1,72 @@
+package automatizer.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import automatizer.core.layouts.GraphLayout;
+import automatizer.core.layouts.LayeredLayout;
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 分层布局算法在随机生成的大规模状态机上的耗时
+ * 
+ * @author wxz
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutBenchmark {
+
+    @Param({ "100", "1000", "5000" })
+    public int states;
+
+    private IndexedAutomaton atm;
+
+    /**
+     * 生成每个状态有一条指向下一状态的边及两条随机边的状态机
+     * 
+     * @param n
+     * @param seed
+     * @return
+     */
+    static IndexedAutomaton randomAutomaton(int n, long seed) {
+        Random rnd = new Random(seed);
+        IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+        for (int i = 0; i < n; i++) {
+            b.addState(rnd.nextInt(5) == 0);
+        }
+        for (int i = 0; i < n; i++) {
+            b.addTransition(i, 'a', 'a', (i + 1) % n);
+            b.addTransition(i, 'b', 'b', rnd.nextInt(n));
+            b.addTransition(i, 'c', 'c', rnd.nextInt(n));
+        }
+        return b.build();
+    }
+
+    @Setup
+    public void setup() {
+        atm = randomAutomaton(states, 42);
+    }
+
+    @Benchmark
+    public GraphLayout layered() {
+        return new LayeredLayout().layout(atm);
+    }
+
+}
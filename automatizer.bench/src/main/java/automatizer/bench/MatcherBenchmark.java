@@ -0,0 +1,138 @@
+package automatizer.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import automatizer.core.matchers.ShiftAndMatcher;
+import automatizer.core.matchers.TableMatcher;
+import automatizer.core.models.IndexedAutomaton;
+
+import com.etao.lz.automaton.Automaton;
+
+/**
+ * 长输入上的匹配，对比位并行匹配器、表驱动 DFA 匹配器与 java.util.regex。
+ *
+ * 只使用 Glushkov NFA 位置数不超过 {@link ShiftAndMatcher#MAX_POSITIONS} 的正则表达式；输入沿 NFA 的转移边随机游走生成，
+ * 匹配过程中状态机始终有可用转移。java.util.regex 在长输入上栈溢出的表达式不参与其对比。
+ *
+ * @author wxz
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherBenchmark {
+
+    @Param({ "SMALL", "MEDIUM", "PATHOLOGICAL" })
+    public Corpus corpus;
+
+    @Param({ "1024", "65536" })
+    public int length;
+
+    private ShiftAndMatcher[] shiftAnd;
+    private TableMatcher[] tables;
+    private String[] inputs;
+    private Pattern[] patterns; // 栈溢出的表达式为 null
+
+    @Setup
+    public void setup() {
+        String[] res = corpus.regexps();
+        Automaton[] nfas = corpus.nfas();
+        List<ShiftAndMatcher> sa = new ArrayList<ShiftAndMatcher>();
+        List<TableMatcher> tm = new ArrayList<TableMatcher>();
+        List<String> in = new ArrayList<String>();
+        List<Pattern> ps = new ArrayList<Pattern>();
+        Random rnd = new Random(length);
+        for (int i = 0; i < res.length; i++) {
+            IndexedAutomaton atm = IndexedAutomaton.fromAutomaton(nfas[i]);
+            ShiftAndMatcher m = ShiftAndMatcher.compile(atm);
+            if (m == null) {
+                continue;
+            }
+            String input = walk(atm, length, rnd);
+            Pattern p = Pattern.compile(res[i]);
+            try {
+                p.matcher(input).matches();
+            } catch (StackOverflowError e) {
+                p = null;
+            }
+            sa.add(m);
+            tm.add(TableMatcher.compile(atm));
+            in.add(input);
+            ps.add(p);
+        }
+        shiftAnd = sa.toArray(new ShiftAndMatcher[sa.size()]);
+        tables = tm.toArray(new TableMatcher[tm.size()]);
+        inputs = in.toArray(new String[in.size()]);
+        patterns = ps.toArray(new Pattern[ps.size()]);
+    }
+
+    @Benchmark
+    public void shiftAnd(Blackhole bh) {
+        for (int i = 0; i < inputs.length; i++) {
+            bh.consume(shiftAnd[i].match(inputs[i]));
+        }
+    }
+
+    @Benchmark
+    public void table(Blackhole bh) {
+        for (int i = 0; i < inputs.length; i++) {
+            bh.consume(tables[i].match(inputs[i]));
+        }
+    }
+
+    @Benchmark
+    public void javaRegex(Blackhole bh) {
+        for (int i = 0; i < inputs.length; i++) {
+            if (patterns[i] != null) {
+                bh.consume(patterns[i].matcher(inputs[i]).matches());
+            }
+        }
+    }
+
+    /**
+     * 从 init 状态出发沿随机选择的转移边生成输入，到达没有出边的状态时提前结束
+     *
+     * @param atm
+     * @param length
+     *            最大长度
+     * @param rnd
+     * @return
+     */
+    static String walk(IndexedAutomaton atm, int length, Random rnd) {
+        StringBuilder sb = new StringBuilder(length);
+        int s = atm.getInitialState();
+        while (sb.length() < length) {
+            int from = atm.getTransitionStart(s);
+            int count = atm.getTransitionEnd(s) - from;
+            if (count == 0) {
+                break;
+            }
+            int t = from + rnd.nextInt(count);
+            int span = atm.getMax(t) - atm.getMin(t) + 1;
+            sb.append((char) (atm.getMin(t) + rnd.nextInt(span)));
+            s = atm.getDest(t);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,211 @@
+package automatizer.bench;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import automatizer.core.minimizers.AutoMinimizer;
+import automatizer.core.minimizers.BrzozowskiMinimizer;
+import automatizer.core.minimizers.DfaMinimizer;
+import automatizer.core.minimizers.DfaTable;
+import automatizer.core.minimizers.HopcroftMinimizer;
+import automatizer.core.minimizers.ValmariMinimizer;
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * DFA 最小化，对比各最小化算法与 Converter 内置的最小化（后者包含确定化耗时）。
+ *
+ * main() 校验各算法的结果与 Converter 的最小 DFA 接受相同语言且状态数相同，并打印单次最小化耗时及自动选择的算法。
+ *
+ * @author wxz
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinimizationBenchmark {
+
+    @Param({ "SMALL", "MEDIUM", "PATHOLOGICAL" })
+    public Corpus corpus;
+
+    @Param({ "hopcroft", "valmari", "brzozowski", "auto" })
+    public String engine;
+
+    private DfaTable[] dfas;
+    private DfaMinimizer minimizer;
+
+    @Setup
+    public void setup() {
+        dfas = determinize(corpus.transformed(false));
+        minimizer = minimizer(engine);
+    }
+
+    @Benchmark
+    public void minimize(Blackhole bh) {
+        for (DfaTable dfa : dfas) {
+            bh.consume(minimizer.minimize(dfa));
+        }
+    }
+
+    @Benchmark
+    public void converter(Blackhole bh) {
+        bh.consume(corpus.transformed(true));
+    }
+
+    private static DfaTable[] determinize(IndexedAutomaton[] nfas) {
+        DfaTable[] dfas = new DfaTable[nfas.length];
+        for (int i = 0; i < nfas.length; i++) {
+            dfas[i] = DfaTable.determinize(nfas[i], DfaTable.MAX_STATES);
+        }
+        return dfas;
+    }
+
+    private static DfaMinimizer minimizer(String engine) {
+        if ("hopcroft".equals(engine)) {
+            return new HopcroftMinimizer();
+        } else if ("valmari".equals(engine)) {
+            return new ValmariMinimizer();
+        } else if ("brzozowski".equals(engine)) {
+            return new BrzozowskiMinimizer();
+        }
+        return new AutoMinimizer();
+    }
+
+    /**
+     * 校验各算法的结果并打印各语料的状态数及单次最小化耗时
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        String[] engines = { "hopcroft", "valmari", "brzozowski", "auto" };
+        AutoMinimizer auto = new AutoMinimizer();
+        System.out.printf("%-14s %-12s %10s %10s %12s%n", "corpus", "engine",
+                "dfa", "min", "time(us)");
+        for (Corpus corpus : Corpus.values()) {
+            String[] res = corpus.regexps();
+            IndexedAutomaton[] nfas = corpus.transformed(false);
+            DfaTable[] dfas = determinize(nfas);
+            // Converter 的结果可能保留 dead 状态，去除后再比较
+            IndexedAutomaton[] expected = corpus.transformed(true);
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = DfaTable.determinize(expected[i],
+                        DfaTable.MAX_STATES).trim().toAutomaton();
+            }
+
+            for (String engine : engines) {
+                DfaMinimizer m = minimizer(engine);
+                long dfaStates = 0;
+                long minStates = 0;
+                long t0 = System.nanoTime();
+                for (int i = 0; i < dfas.length; i++) {
+                    DfaTable min;
+                    try {
+                        min = m.minimize(dfas[i]);
+                    } catch (IllegalStateException e) {
+                        // Brzozowski 算法的中间结果超出状态数上限
+                        System.out.printf("  %s overflows on %s%n", engine,
+                                res[i]);
+                        continue;
+                    }
+                    dfaStates += dfas[i].getStateCount();
+                    minStates += min.getStateCount();
+                    IndexedAutomaton atm = min.toAutomaton();
+                    if (atm.getStateCount() != expected[i].getStateCount()
+                            || !sameLanguage(atm, expected[i])) {
+                        throw new AssertionError(engine + " differs from "
+                                + "Converter on " + res[i]);
+                    }
+                }
+                System.out.printf("%-14s %-12s %10d %10d %12d%n", corpus,
+                        engine, dfaStates, minStates,
+                        (System.nanoTime() - t0) / 1000);
+            }
+
+            for (int i = 0; i < dfas.length; i++) {
+                System.out.printf("  %-40s -> %s%n", res[i],
+                        auto.select(dfas[i]));
+            }
+        }
+    }
+
+    /**
+     * 在两个 DFA 的乘积上广度优先遍历，比较可达状态对的 accept 属性及转移是否一致
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    static boolean sameLanguage(IndexedAutomaton a, IndexedAutomaton b) {
+        Set<Long> seen = new HashSet<Long>();
+        Deque<long[]> queue = new ArrayDeque<long[]>();
+        queue.add(new long[] { a.getInitialState(), b.getInitialState() });
+        seen.add(pair(a.getInitialState(), b.getInitialState()));
+        while (!queue.isEmpty()) {
+            long[] p = queue.poll();
+            int s = (int) p[0];
+            int t = (int) p[1];
+            if (a.isAccept(s) != b.isAccept(t)) {
+                return false;
+            }
+            // 两状态全部转移边的端点将字符集划分为若干区间，逐一比较
+            TreeSet<Integer> points = new TreeSet<Integer>();
+            collect(a, s, points);
+            collect(b, t, points);
+            for (int c : points) {
+                if (c > Character.MAX_VALUE) {
+                    continue;
+                }
+                int ds = step(a, s, (char) c);
+                int dt = step(b, t, (char) c);
+                if ((ds < 0) != (dt < 0)) {
+                    return false;
+                }
+                if (ds >= 0 && seen.add(pair(ds, dt))) {
+                    queue.add(new long[] { ds, dt });
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void collect(IndexedAutomaton atm, int s,
+            Set<Integer> points) {
+        for (int i = atm.getTransitionStart(s); i < atm.getTransitionEnd(s); i++) {
+            points.add((int) atm.getMin(i));
+            points.add(atm.getMax(i) + 1);
+        }
+    }
+
+    private static int step(IndexedAutomaton atm, int s, char c) {
+        for (int i = atm.getTransitionStart(s); i < atm.getTransitionEnd(s); i++) {
+            if (atm.getMin(i) <= c && c <= atm.getMax(i)) {
+                return atm.getDest(i);
+            }
+        }
+        return -1;
+    }
+
+    private static long pair(int s, int t) {
+        return ((long) s << 32) | t;
+    }
+
+}
@@ -0,0 +1,209 @@
+package automatizer.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import automatizer.core.minimizers.DfaTable;
+import automatizer.core.minimizers.HopcroftMinimizer;
+import automatizer.core.minimizers.ParallelDeterminizer;
+import automatizer.core.minimizers.ParallelMinimizer;
+import automatizer.core.models.IndexedAutomaton;
+
+import com.etao.lz.recollection.JavaRegExp;
+import com.etao.lz.recollection.ast.Converter;
+
+/**
+ * 并行子集构造及并行划分细化在不同线程数下的耗时。
+ *
+ * 输入为确定化后有数万个状态的正则表达式。main() 校验各线程数下的结果与顺序确定化及 Hopcroft 算法完全相同，
+ * 并打印 1 至 CPU 数个线程的耗时及相对单线程的加速比。
+ *
+ * @author wxz
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+
+    static final String[] REGEXPS = { "(a|b)*a(a|b){15}",
+            "[a-h]*a[a-h][a-h][a-h][a-h][a-h]",
+            "((a|b)(c|d)|(e|f)(g|h)|[i-p]q)*[a-f]{2}(a|c|e)[a-z]{3}" };
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    private ForkJoinPool pool;
+    private IndexedAutomaton[] nfas;
+    private DfaTable[] dfas;
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        nfas = nfas();
+        dfas = new DfaTable[nfas.length];
+        for (int i = 0; i < nfas.length; i++) {
+            dfas[i] = DfaTable.determinize(nfas[i], DfaTable.MAX_STATES);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public void determinize(Blackhole bh) {
+        ParallelDeterminizer d = new ParallelDeterminizer(pool);
+        for (IndexedAutomaton nfa : nfas) {
+            bh.consume(d.determinize(nfa, DfaTable.MAX_STATES));
+        }
+    }
+
+    @Benchmark
+    public void minimize(Blackhole bh) {
+        ParallelMinimizer m = new ParallelMinimizer(pool);
+        for (DfaTable dfa : dfas) {
+            bh.consume(m.minimize(dfa));
+        }
+    }
+
+    static IndexedAutomaton[] nfas() {
+        IndexedAutomaton[] atms = new IndexedAutomaton[REGEXPS.length];
+        for (int i = 0; i < REGEXPS.length; i++) {
+            atms[i] = IndexedAutomaton.fromAutomaton(Converter
+                    .transformAutomaton(
+                            new JavaRegExp(REGEXPS[i]).toAutomaton(false),
+                            false, false));
+        }
+        return atms;
+    }
+
+    /**
+     * 校验并行结果并打印各线程数下的耗时及加速比
+     *
+     * @param args
+     *            可选的最大线程数，默认为 CPU 数
+     */
+    public static void main(String[] args) {
+        int max = args.length > 0 ? Integer.parseInt(args[0]) : Runtime
+                .getRuntime().availableProcessors();
+        IndexedAutomaton[] nfas = nfas();
+        DfaTable[] dfas = new DfaTable[nfas.length];
+        IndexedAutomaton[] expected = new IndexedAutomaton[nfas.length];
+        for (int i = 0; i < nfas.length; i++) {
+            dfas[i] = DfaTable.determinize(nfas[i], DfaTable.MAX_STATES);
+            expected[i] = new HopcroftMinimizer().minimize(dfas[i])
+                    .toAutomaton();
+            System.out.printf("%-56s %8d dfa %8d min%n", REGEXPS[i],
+                    dfas[i].getStateCount(), expected[i].getStateCount());
+        }
+
+        System.out.printf("%8s %14s %8s %14s %8s%n", "threads", "determinize",
+                "speedup", "minimize", "speedup");
+        long baseDet = 0;
+        long baseMin = 0;
+        for (int t = 1; t <= max; t = t < max && 2 * t > max ? max : 2 * t) {
+            ForkJoinPool pool = new ForkJoinPool(t);
+            try {
+                ParallelDeterminizer d = new ParallelDeterminizer(pool);
+                ParallelMinimizer m = new ParallelMinimizer(pool);
+                long det = Long.MAX_VALUE;
+                long min = Long.MAX_VALUE;
+                for (int round = 0; round < 5; round++) {
+                    long t0 = System.nanoTime();
+                    DfaTable[] res = new DfaTable[nfas.length];
+                    for (int i = 0; i < nfas.length; i++) {
+                        res[i] = d.determinize(nfas[i], DfaTable.MAX_STATES);
+                    }
+                    long t1 = System.nanoTime();
+                    IndexedAutomaton[] mins = new IndexedAutomaton[nfas.length];
+                    for (int i = 0; i < nfas.length; i++) {
+                        mins[i] = m.minimize(res[i]).toAutomaton();
+                    }
+                    long t2 = System.nanoTime();
+                    det = Math.min(det, t1 - t0);
+                    min = Math.min(min, t2 - t1);
+                    for (int i = 0; i < nfas.length; i++) {
+                        if (!sameTable(dfas[i], res[i])
+                                || !sameAutomaton(expected[i], mins[i])) {
+                            throw new AssertionError("Parallel result differs"
+                                    + " on " + REGEXPS[i] + " with " + t
+                                    + " threads");
+                        }
+                    }
+                }
+                if (t == 1) {
+                    baseDet = det;
+                    baseMin = min;
+                }
+                System.out.printf("%8d %12.1fms %7.2fx %12.1fms %7.2fx%n", t,
+                        det / 1e6, (double) baseDet / det, min / 1e6,
+                        (double) baseMin / min);
+            } finally {
+                pool.shutdown();
+            }
+            if (t == max) {
+                break;
+            }
+        }
+    }
+
+    private static boolean sameTable(DfaTable a, DfaTable b) {
+        if (a.getStateCount() != b.getStateCount()
+                || a.getClassCount() != b.getClassCount()) {
+            return false;
+        }
+        for (int s = 0; s < a.getStateCount(); s++) {
+            if (a.isAccept(s) != b.isAccept(s)
+                    || !Arrays.equals(a.getStateSet(s), b.getStateSet(s))) {
+                return false;
+            }
+            for (int c = 0; c < a.getClassCount(); c++) {
+                if (a.getNext(s, c) != b.getNext(s, c)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameAutomaton(IndexedAutomaton a, IndexedAutomaton b) {
+        if (a.getStateCount() != b.getStateCount()
+                || a.getTransitionCount() != b.getTransitionCount()
+                || a.getInitialState() != b.getInitialState()) {
+            return false;
+        }
+        for (int s = 0; s < a.getStateCount(); s++) {
+            if (a.isAccept(s) != b.isAccept(s)) {
+                return false;
+            }
+        }
+        for (int t = 0; t < a.getTransitionCount(); t++) {
+            if (a.getMin(t) != b.getMin(t) || a.getMax(t) != b.getMax(t)
+                    || a.getDest(t) != b.getDest(t)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,100 @@
+package automatizer.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import automatizer.core.models.IndexedAutomaton;
+
+import com.etao.lz.automaton.Automaton;
+import com.etao.lz.recollection.JavaRegExp;
+import com.etao.lz.recollection.ast.Converter;
+import com.etao.lz.recollection.utils.AutomatonTool;
+
+/**
+ * 正则表达式到状态机的各转换阶段
+ * 
+ * @author wxz
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexpBenchmark {
+
+    @Param({ "SMALL", "MEDIUM", "PATHOLOGICAL" })
+    public Corpus corpus;
+
+    @Param({ "false", "true" })
+    public boolean minimize;
+
+    @Param({ "false", "true" })
+    public boolean streaming;
+
+    private String[] regexps;
+    private Automaton[] nfas;
+    private Automaton[] transformed;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        regexps = corpus.regexps();
+        transformed = new Automaton[regexps.length];
+        for (int i = 0; i < regexps.length; i++) {
+            Automaton nfa = new JavaRegExp(regexps[i]).toAutomaton(false);
+            transformed[i] = Converter.transformAutomaton(nfa, minimize,
+                    streaming);
+        }
+    }
+
+    /**
+     * transformAutomaton 可能修改传入的状态机，每次调用前重新生成 NFA
+     */
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        nfas = corpus.nfas();
+    }
+
+    @Benchmark
+    public void toAutomaton(Blackhole bh) {
+        for (String re : regexps) {
+            bh.consume(new JavaRegExp(re).toAutomaton(false));
+        }
+    }
+
+    @Benchmark
+    public void transformAutomaton(Blackhole bh) {
+        for (Automaton nfa : nfas) {
+            bh.consume(Converter.transformAutomaton(nfa, minimize, streaming));
+        }
+    }
+
+    @Benchmark
+    public void aToRe(Blackhole bh) {
+        for (Automaton atm : transformed) {
+            bh.consume(AutomatonTool.aToRe(atm));
+        }
+    }
+
+    @Benchmark
+    public void fromAutomaton(Blackhole bh) {
+        for (Automaton atm : transformed) {
+            bh.consume(IndexedAutomaton.fromAutomaton(atm));
+        }
+    }
+
+}
@@ -4,6 +4,8 @@ import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
+import automatizer.core.compilers.DiskAutomataCache;
+
 /**
  * The activator class controls the plug-in life cycle
  */
@@ -17,6 +19,8 @@ public class AutomatizerActivator extends AbstractUIPlugin {
 
     boolean started;
 
+    private DiskAutomataCache diskCache;
+
     public AutomatizerActivator() {
     }
 
@@ -29,6 +33,12 @@ public class AutomatizerActivator extends AbstractUIPlugin {
 
     @Override
     public void stop(BundleContext context) throws Exception {
+        synchronized (this) {
+            if (diskCache != null) {
+                diskCache.close();
+                diskCache = null;
+            }
+        }
         plugin = null;
         started = false;
         super.stop(context);
@@ -43,6 +53,21 @@ public class AutomatizerActivator extends AbstractUIPlugin {
         return plugin;
     }
 
+    /**
+     * 返回保存在插件状态目录中的转换结果磁盘缓存，首次调用时创建，其中的条目在首次访问时才扫描
+     * 
+     * @return
+     */
+    public synchronized DiskAutomataCache getDiskCache() {
+        if (diskCache == null) {
+            diskCache = new DiskAutomataCache(getStateLocation()
+                    .append("automata").toFile(),
+                    DiskAutomataCache.DEFAULT_CAPACITY, getBundle()
+                            .getVersion().toString());
+        }
+        return diskCache;
+    }
+
     /**
      * Returns an image descriptor for the image file at the given plug-in
      * relative path
@@ -1,21 +1,17 @@
 package automatizer.core.adapters;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.zest.core.viewers.IGraphContentProvider;
 
+import automatizer.core.models.AlphabetPartition;
 import automatizer.core.models.ConnectionData;
-import automatizer.core.models.StateData;
-
-import com.etao.lz.automaton.Automaton;
-import com.etao.lz.automaton.State;
-import com.etao.lz.automaton.Transition;
+import automatizer.core.models.GraphModelBuilder;
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.profiling.Stage;
+import automatizer.core.profiling.StageProfiler;
 
 /**
- * 供 Zest 使用的 Automaton 向 graph model 转换适配器
+ * 供 Zest 使用的状态机快照向 graph model 转换适配器
  * 
  * @author wxz
  * 
@@ -24,6 +20,18 @@ public class AutomataGraphContentProvider implements IGraphContentProvider {
 
     final static Object[] EMPTY_ARRAY = new Object[] {};
 
+    private AlphabetPartition alphabet; // 以字符类表示转移条件时的字符类划分，可为 null
+
+    /**
+     * 设置以字符类表示转移条件时使用的字符类划分，须在设置 viewer 输入之前调用
+     *
+     * @param partition
+     *            输入状态机的字符类划分，为 null 时以字符范围表示
+     */
+    public void setAlphabet(AlphabetPartition partition) {
+        alphabet = partition;
+    }
+
     @Override
     public void dispose() {
     }
@@ -34,20 +42,13 @@ public class AutomataGraphContentProvider implements IGraphContentProvider {
 
     @Override
     public Object[] getElements(Object inputElement) {
-        List<Object> results = new ArrayList<Object>();
-        if (inputElement instanceof Automaton) {
-            Automaton atm = (Automaton) inputElement;
-            State initState = atm.getInitialState();
-            Set<State> states = atm.getStates();
-            for (State srcState : states) {
-                List<Transition> trans = srcState.getSortedTransitions(false);
-                for (Transition tran : trans) {
-                    results.add(new ConnectionData(new StateData(srcState,
-                            srcState == initState), new StateData(tran
-                            .getDest(), tran.getDest() == initState), tran));
-                }
-            }
-            return results.toArray();
+        if (inputElement instanceof IndexedAutomaton) {
+            IndexedAutomaton atm = (IndexedAutomaton) inputElement;
+            long t = StageProfiler.start();
+            Object[] elements = GraphModelBuilder.build(atm, alphabet).toArray();
+            StageProfiler.stop(Stage.CONTENT, t);
+            StageProfiler.count(StageProfiler.Counter.EDGES, elements.length);
+            return elements;
         }
         return EMPTY_ARRAY;
     }
@@ -1,7 +1,10 @@
 package automatizer.core.adapters;
 
+import java.util.BitSet;
+
 import org.eclipse.draw2d.ColorConstants;
 import org.eclipse.draw2d.IFigure;
+import org.eclipse.draw2d.Label;
 import org.eclipse.jface.viewers.IColorProvider;
 import org.eclipse.jface.viewers.ILabelProvider;
 import org.eclipse.jface.viewers.ILabelProviderListener;
@@ -24,6 +27,18 @@ import automatizer.core.models.StateData;
 public class AutomataLabelProvider implements ILabelProvider, IColorProvider,
         IEntityConnectionStyleProvider, IFigureProvider {
 
+    private BitSet frontier; // 尚未展开的边界状态，可为 null
+
+    /**
+     * 设置以虚线轮廓显示的边界状态，须在设置 viewer 输入之前调用
+     *
+     * @param frontierStates
+     *            可为 null
+     */
+    public void setFrontier(BitSet frontierStates) {
+        frontier = frontierStates;
+    }
+
     @Override
     public void addListener(ILabelProviderListener listener) {
     }
@@ -97,6 +112,14 @@ public class AutomataLabelProvider implements ILabelProvider, IColorProvider,
 
     @Override
     public IFigure getTooltip(Object entity) {
+        if (entity instanceof ConnectionData) {
+            // 以字符类表示的转移条件附带其字符范围
+            ConnectionData conn = (ConnectionData) entity;
+            String ranges = conn.getRangeLabel();
+            if (!conn.isEpsilon() && !ranges.equals(conn.getLabel())) {
+                return new Label(ranges);
+            }
+        }
         return null;
     }
 
@@ -104,9 +127,9 @@ public class AutomataLabelProvider implements ILabelProvider, IColorProvider,
     public IFigure getFigure(Object element) {
         if (element instanceof StateData) {
             StateData state = (StateData) element;
-            StateFigure f = new StateFigure(state.getLabel(),
-                    state.isInit(), state.isAccept());
-            f.setSize(f.getPreferredSize());
+            StateFigure f = new StateFigure(state.getLabel(), state.isInit(),
+                    state.isAccept());
+            f.setFrontier(frontier != null && frontier.get(state.getId()));
             return f;
         }
         return null;
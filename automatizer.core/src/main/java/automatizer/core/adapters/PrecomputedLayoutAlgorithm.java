@@ -0,0 +1,99 @@
+package automatizer.core.adapters;
+
+import org.eclipse.zest.core.widgets.GraphNode;
+import org.eclipse.zest.layouts.LayoutStyles;
+import org.eclipse.zest.layouts.algorithms.AbstractLayoutAlgorithm;
+import org.eclipse.zest.layouts.dataStructures.InternalNode;
+import org.eclipse.zest.layouts.dataStructures.InternalRelationship;
+
+import automatizer.core.layouts.GraphLayout;
+import automatizer.core.models.StateData;
+
+/**
+ * 将后台线程中预先计算好的 {@link GraphLayout} 坐标直接应用到 Zest 节点上的布局算法，在 UI 线程中只做坐标赋值。
+ * 
+ * 状态圆位于节点区域右侧边长为节点高度的正方形内，节点位置由圆心坐标换算得到；不缩放到可视区域，超出部分通过滚动条查看。
+ * 
+ * @author wxz
+ * 
+ */
+public class PrecomputedLayoutAlgorithm extends AbstractLayoutAlgorithm {
+
+    private volatile GraphLayout layout;
+
+    public PrecomputedLayoutAlgorithm() {
+        super(LayoutStyles.NO_LAYOUT_NODE_RESIZING);
+    }
+
+    /**
+     * 设置下一次布局使用的坐标，须在 viewer.setInput() 之前调用
+     * 
+     * @param l
+     */
+    public void setLayout(GraphLayout l) {
+        layout = l;
+    }
+
+    public GraphLayout getLayout() {
+        return layout;
+    }
+
+    @Override
+    public void setLayoutArea(double x, double y, double width, double height) {
+    }
+
+    @Override
+    protected boolean isValidConfiguration(boolean asynchronous,
+            boolean continuous) {
+        return true;
+    }
+
+    @Override
+    protected void applyLayoutInternal(InternalNode[] entitiesToLayout,
+            InternalRelationship[] relationshipsToConsider, double boundsX,
+            double boundsY, double boundsWidth, double boundsHeight) {
+        GraphLayout l = layout;
+        if (l == null) {
+            return;
+        }
+        for (InternalNode node : entitiesToLayout) {
+            Object data = node.getLayoutEntity().getGraphData();
+            if (data instanceof GraphNode) {
+                data = ((GraphNode) data).getData();
+            }
+            if (!(data instanceof StateData)) {
+                continue;
+            }
+            int id = ((StateData) data).getId();
+            if (id >= l.getStateCount()) {
+                continue;
+            }
+            double w = node.getInternalWidth();
+            double h = node.getInternalHeight();
+            node.setInternalLocation(l.getX(id) - (w - h / 2), l.getY(id) - h
+                    / 2);
+        }
+    }
+
+    @Override
+    protected void preLayoutAlgorithm(InternalNode[] entitiesToLayout,
+            InternalRelationship[] relationshipsToConsider, double x,
+            double y, double width, double height) {
+    }
+
+    @Override
+    protected void postLayoutAlgorithm(InternalNode[] entitiesToLayout,
+            InternalRelationship[] relationshipsToConsider) {
+    }
+
+    @Override
+    protected int getTotalNumberOfLayoutSteps() {
+        return 1;
+    }
+
+    @Override
+    protected int getCurrentLayoutStep() {
+        return 1;
+    }
+
+}
@@ -0,0 +1,31 @@
+package automatizer.core.batch;
+
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * 以 Eclipse application 方式运行 {@link BatchConverter}，例如：
+ * 
+ * <pre>
+ * eclipse -nosplash -application automatizer.core.batch -dfa -regexp in out
+ * </pre>
+ * 
+ * @author wxz
+ * 
+ */
+public class BatchApplication implements IApplication {
+
+    @Override
+    public Object start(IApplicationContext context) throws Exception {
+        String[] args = (String[]) context.getArguments().get(
+                IApplicationContext.APPLICATION_ARGS);
+        int code = BatchConverter.run(args != null ? args : new String[0],
+                System.out);
+        return code == 0 ? IApplication.EXIT_OK : Integer.valueOf(code);
+    }
+
+    @Override
+    public void stop() {
+    }
+
+}
@@ -0,0 +1,467 @@
+package automatizer.core.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import automatizer.core.compilers.AutomataCompiler;
+import automatizer.core.models.AutomataType;
+import automatizer.core.models.Budget;
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.regexps.StateEliminator;
+import automatizer.core.regexps.WeightOrder;
+import automatizer.core.utils.DotWriter;
+
+/**
+ * 不依赖 UI 的批量转换工具：在 fork-join 线程池中遍历目录树，将其中的正则表达式及 DOT 文件按与视图相同的选项转换后写出
+ * DOT（及可选的正则表达式）文件，并报告每个文件的耗时和总吞吐量。
+ * 
+ * 输入文件内容匹配 Graphviz DOT 格式时按 DOT 解析，否则整个文件（去掉末尾换行）作为一个正则表达式。输出文件保持输入目录的
+ * 相对路径，命名为 &lt;原文件名&gt;.&lt;nfa|dfa&gt;.dot 及 &lt;原文件名&gt;.&lt;nfa|dfa&gt;.regexp。
+ * 
+ * 每个文件在各自的资源限制（见 {@link Budget}）内转换，超出限制或转换出错的文件记为失败，不影响其他文件。正则表达式的长度上限单独设置，
+ * 耗时上限与转换相同；只有正则表达式超出上限时 DOT 文件照常写出，该文件不记为失败。
+ * 
+ * @author wxz
+ * 
+ */
+public class BatchConverter {
+
+    /**
+     * 默认处理的输入文件扩展名
+     */
+    public static final String DEFAULT_EXTENSIONS = "dot,gv,re";
+
+    private static final String USAGE = "Usage: BatchConverter [-dfa|-reduce] [-streaming] [-regexp]"
+            + " [-threads N] [-ext dot,gv,re] [-max-nfa N] [-max-dfa N] [-max-transitions N]"
+            + " [-timeout MS] [-max-regexp N] <input file or dir> <output dir>\n"
+            + "Limits apply to each file, 0 means unlimited";
+
+    private final AutomataType type;
+    private final boolean streamingMode;
+    private final boolean showRegexp;
+    private final int parallelism;
+    private final Set<String> extensions = new HashSet<String>();
+    private Budget limits = new Budget(Budget.DEFAULT_NFA_STATES,
+            Budget.DEFAULT_DFA_STATES, Budget.DEFAULT_TRANSITIONS,
+            Budget.DEFAULT_MILLIS);
+    private int maxRegexpLength;
+
+    /**
+     * @param atmType
+     *            目标状态机类型
+     * @param streaming
+     *            是否转换为可流式匹配的状态机
+     * @param regexp
+     *            是否同时写出状态机对应的正则表达式
+     * @param threads
+     *            并行线程数，不大于 0 时使用全部 CPU
+     */
+    public BatchConverter(AutomataType atmType, boolean streaming,
+            boolean regexp, int threads) {
+        type = atmType;
+        streamingMode = streaming;
+        showRegexp = regexp;
+        parallelism = threads > 0 ? threads : Runtime.getRuntime()
+                .availableProcessors();
+        setExtensions(DEFAULT_EXTENSIONS);
+    }
+
+    /**
+     * @param exts
+     *            以逗号分隔的输入文件扩展名
+     */
+    public void setExtensions(String exts) {
+        extensions.clear();
+        for (String ext : exts.split(",")) {
+            if (!ext.trim().isEmpty()) {
+                extensions.add(ext.trim().toLowerCase(Locale.ENGLISH));
+            }
+        }
+    }
+
+    /**
+     * @param budget
+     *            每个文件转换时的资源限制，默认使用 {@link Budget} 中的默认值
+     */
+    public void setBudget(Budget budget) {
+        limits = budget;
+    }
+
+    public Budget getBudget() {
+        return limits;
+    }
+
+    /**
+     * @param maxLength
+     *            写出的正则表达式的长度上限，不大于 0 时不限制（默认）
+     */
+    public void setMaxRegexpLength(int maxLength) {
+        maxRegexpLength = maxLength;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 转换给定文件或目录树中的全部输入文件
+     * 
+     * @param input
+     *            输入文件或目录
+     * @param output
+     *            输出目录
+     * @return 按相对路径排序的转换结果
+     */
+    public List<BatchResult> convert(File input, File output) {
+        Queue<BatchResult> results = new ConcurrentLinkedQueue<BatchResult>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            if (input.isDirectory()) {
+                pool.invoke(new DirTask(input, "", output, results));
+            } else {
+                pool.invoke(new FileTask(input, input.getName(), output,
+                        results));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        List<BatchResult> sorted = new ArrayList<BatchResult>(results);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private boolean accepts(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0
+                && extensions.contains(name.substring(dot + 1).toLowerCase(
+                        Locale.ENGLISH));
+    }
+
+    /**
+     * 转换单个文件
+     * 
+     * @param file
+     * @param relPath
+     * @param output
+     * @return
+     */
+    BatchResult convertFile(File file, String relPath, File output) {
+        BatchResult result = new BatchResult(relPath, file.length());
+        long t0 = System.nanoTime();
+        try {
+            String txt = readText(file);
+            if (!AutomataCompiler.isGraphviz(txt)) {
+                txt = stripLineEnd(txt);
+            }
+            Budget budget = limits.start();
+            IndexedAutomaton atm = AutomataCompiler.transform(
+                    AutomataCompiler.parse(txt, budget), type, streamingMode,
+                    budget);
+            result.states = atm.getStateCount();
+            result.transitions = atm.getTransitionCount();
+
+            String base = relPath + "."
+                    + (type == AutomataType.MIN_DFA ? "dfa" : "nfa");
+            File dotFile = new File(output, base + ".dot");
+            dotFile.getParentFile().mkdirs();
+            FileOutputStream fos = new FileOutputStream(dotFile);
+            DotWriter writer = new DotWriter(fos.getChannel());
+            try {
+                writer.write(atm);
+            } finally {
+                writer.close();
+            }
+
+            if (showRegexp) {
+                writeRegexp(atm, new File(output, base + ".regexp"), result);
+            }
+        } catch (Exception e) {
+            result.error = describe(e);
+        } catch (StackOverflowError e) {
+            // 嵌套过深的正则表达式只使该文件失败，不中止整个线程池
+            result.error = describe(e);
+        }
+        result.nanos = System.nanoTime() - t0;
+        return result;
+    }
+
+    /**
+     * 写出状态机对应的正则表达式，超出长度或耗时上限时只记录原因
+     * 
+     * @param atm
+     * @param file
+     * @param result
+     * @throws IOException
+     */
+    private void writeRegexp(IndexedAutomaton atm, File file,
+            BatchResult result) throws IOException {
+        String regex;
+        try {
+            // StateEliminator 不是线程安全的，每个文件使用各自的实例
+            regex = new StateEliminator(new WeightOrder(), maxRegexpLength,
+                    limits.getMaxMillis()).toRegexp(atm);
+        } catch (IllegalStateException e) {
+            result.regexpError = e.getMessage();
+            return;
+        }
+        Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            w.write(regex);
+            w.write('\n');
+        } finally {
+            w.close();
+        }
+    }
+
+    private static String describe(Throwable e) {
+        return e.getClass().getSimpleName()
+                + (e.getMessage() != null ? ": " + e.getMessage() : "");
+    }
+
+    private static String readText(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(
+                    (int) file.length());
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                bos.write(buf, 0, n);
+            }
+            return bos.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String stripLineEnd(String txt) {
+        int end = txt.length();
+        while (end > 0
+                && (txt.charAt(end - 1) == '\n' || txt.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return txt.substring(0, end);
+    }
+
+    /**
+     * 打印每个文件的转换结果及汇总的吞吐量
+     * 
+     * @param results
+     * @param wallNanos
+     *            批量转换的总耗时
+     * @param out
+     */
+    public static void printReport(List<BatchResult> results, long wallNanos,
+            PrintStream out) {
+        long bytes = 0;
+        long cpuNanos = 0;
+        int failed = 0;
+        int noRegexp = 0;
+        for (BatchResult r : results) {
+            bytes += r.bytes;
+            cpuNanos += r.nanos;
+            if (r.error != null) {
+                failed++;
+                out.printf("%10.2f ms  %s  FAILED %s%n", r.nanos / 1e6,
+                        r.path, r.error);
+            } else if (r.regexpError != null) {
+                noRegexp++;
+                out.printf(
+                        "%10.2f ms  %s  %d states, %d transitions, no regexp: %s%n",
+                        r.nanos / 1e6, r.path, r.states, r.transitions,
+                        r.regexpError);
+            } else {
+                out.printf("%10.2f ms  %s  %d states, %d transitions%n",
+                        r.nanos / 1e6, r.path, r.states, r.transitions);
+            }
+        }
+        if (noRegexp > 0) {
+            out.printf("%d files converted without regexp%n", noRegexp);
+        }
+
+        double secs = Math.max(wallNanos, 1) / 1e9;
+        out.printf("%d files (%d failed), %d bytes in %.3f s: "
+                + "%.1f files/s, %.2f MB/s, effective parallelism %.2f%n",
+                results.size(), failed, bytes, secs, results.size() / secs,
+                bytes / secs / (1024 * 1024), cpuNanos / 1e9 / secs);
+    }
+
+    /**
+     * 解析命令行参数并执行批量转换
+     * 
+     * @param args
+     * @param out
+     * @return 退出码：0 表示全部成功，1 表示有文件转换失败，2 表示参数错误
+     */
+    public static int run(String[] args, PrintStream out) {
+        AutomataType type = AutomataType.EPS_FREE_NFA;
+        boolean streaming = false;
+        boolean regexp = false;
+        int threads = 0;
+        int maxNfa = Budget.DEFAULT_NFA_STATES;
+        int maxDfa = Budget.DEFAULT_DFA_STATES;
+        int maxTransitions = Budget.DEFAULT_TRANSITIONS;
+        long timeout = Budget.DEFAULT_MILLIS;
+        int maxRegexp = 0;
+        String exts = DEFAULT_EXTENSIONS;
+        List<String> paths = new ArrayList<String>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-dfa".equals(args[i])) {
+                    type = AutomataType.MIN_DFA;
+                } else if ("-reduce".equals(args[i])) {
+                    type = AutomataType.REDUCED_NFA;
+                } else if ("-streaming".equals(args[i])) {
+                    streaming = true;
+                } else if ("-regexp".equals(args[i])) {
+                    regexp = true;
+                } else if ("-threads".equals(args[i])) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if ("-ext".equals(args[i])) {
+                    exts = args[++i];
+                } else if ("-max-nfa".equals(args[i])) {
+                    maxNfa = Integer.parseInt(args[++i]);
+                } else if ("-max-dfa".equals(args[i])) {
+                    maxDfa = Integer.parseInt(args[++i]);
+                } else if ("-max-transitions".equals(args[i])) {
+                    maxTransitions = Integer.parseInt(args[++i]);
+                } else if ("-timeout".equals(args[i])) {
+                    timeout = Long.parseLong(args[++i]);
+                } else if ("-max-regexp".equals(args[i])) {
+                    maxRegexp = Integer.parseInt(args[++i]);
+                } else if (args[i].startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option "
+                            + args[i]);
+                } else {
+                    paths.add(args[i]);
+                }
+            }
+            if (paths.size() != 2) {
+                throw new IllegalArgumentException("Expected 2 paths, got "
+                        + paths.size());
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            out.println("Missing value for " + args[args.length - 1]);
+            out.println(USAGE);
+            return 2;
+        } catch (RuntimeException e) {
+            out.println(e.getMessage());
+            out.println(USAGE);
+            return 2;
+        }
+
+        File input = new File(paths.get(0));
+        if (!input.exists()) {
+            out.println("Input not found: " + input);
+            return 2;
+        }
+
+        BatchConverter converter = new BatchConverter(type, streaming, regexp,
+                threads);
+        converter.setExtensions(exts);
+        converter.setBudget(new Budget(maxNfa, maxDfa, maxTransitions, timeout));
+        converter.setMaxRegexpLength(maxRegexp);
+        out.println("Converting " + input + " to " + type
+                + (streaming ? " (streaming)" : "") + " with "
+                + converter.getParallelism() + " threads");
+        long t0 = System.nanoTime();
+        List<BatchResult> results = converter.convert(input,
+                new File(paths.get(1)));
+        printReport(results, System.nanoTime() - t0, out);
+
+        for (BatchResult r : results) {
+            if (r.error != null) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out));
+    }
+
+    /**
+     * 遍历一个目录，为其中的子目录和输入文件分别派生任务
+     */
+    @SuppressWarnings("serial")
+    private class DirTask extends RecursiveAction {
+
+        private final File dir;
+        private final String relPath;
+        private final File output;
+        private final Queue<BatchResult> results;
+
+        DirTask(File dir, String relPath, File output,
+                Queue<BatchResult> results) {
+            this.dir = dir;
+            this.relPath = relPath;
+            this.output = output;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            File[] children = dir.listFiles();
+            if (children == null) {
+                return;
+            }
+            Arrays.sort(children);
+            List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+            for (File child : children) {
+                String childPath = relPath.isEmpty() ? child.getName()
+                        : relPath + "/" + child.getName();
+                if (child.isDirectory()) {
+                    tasks.add(new DirTask(child, childPath, output, results));
+                } else if (accepts(child.getName())) {
+                    tasks.add(new FileTask(child, childPath, output, results));
+                }
+            }
+            invokeAll(tasks);
+        }
+
+    }
+
+    @SuppressWarnings("serial")
+    private class FileTask extends RecursiveAction {
+
+        private final File file;
+        private final String relPath;
+        private final File output;
+        private final Queue<BatchResult> results;
+
+        FileTask(File file, String relPath, File output,
+                Queue<BatchResult> results) {
+            this.file = file;
+            this.relPath = relPath;
+            this.output = output;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            results.add(convertFile(file, relPath, output));
+        }
+
+    }
+
+}
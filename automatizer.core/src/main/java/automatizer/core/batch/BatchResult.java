@@ -0,0 +1,70 @@
+package automatizer.core.batch;
+
+/**
+ * 批量转换中单个文件的转换结果
+ * 
+ * @author wxz
+ * 
+ */
+public class BatchResult implements Comparable<BatchResult> {
+
+    String path;
+    long bytes;
+    long nanos;
+    int states;
+    int transitions;
+    String error;
+    String regexpError;
+
+    public BatchResult(String relPath, long size) {
+        path = relPath;
+        bytes = size;
+    }
+
+    /**
+     * @return 相对于输入目录的路径
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return 转换耗时（纳秒），含读写文件
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int getStates() {
+        return states;
+    }
+
+    public int getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * @return 转换失败的原因，成功时为 null
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return 未能写出正则表达式的原因（如超出长度或耗时上限），此时 DOT 文件已写出，转换本身仍算成功；未要求写出或写出成功时为
+     *         null
+     */
+    public String getRegexpError() {
+        return regexpError;
+    }
+
+    @Override
+    public int compareTo(BatchResult o) {
+        return path.compareTo(o.path);
+    }
+
+}
@@ -0,0 +1,424 @@
+package automatizer.core.compilers;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import automatizer.core.matchers.DfaExplorer;
+import automatizer.core.matchers.LazyDfa;
+import automatizer.core.minimizers.AutoMinimizer;
+import automatizer.core.minimizers.DfaMinimizer;
+import automatizer.core.minimizers.DfaTable;
+import automatizer.core.minimizers.ParallelDeterminizer;
+import automatizer.core.models.AutomataType;
+import automatizer.core.models.Budget;
+import automatizer.core.models.BudgetExceededException;
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.models.SimulationReducer;
+import automatizer.core.profiling.Stage;
+import automatizer.core.profiling.StageProfiler;
+import automatizer.core.utils.DotReader;
+import automatizer.core.utils.GraphvizUtils;
+
+import com.etao.lz.automaton.Automaton;
+import com.etao.lz.recollection.JavaRegExp;
+import com.etao.lz.recollection.ast.Converter;
+
+/**
+ * 将选中文本（正则表达式或 Graphviz DOT）转换为待展示状态机的处理流程，不依赖 UI 线程
+ * 
+ * @author wxz
+ * 
+ */
+public class AutomataCompiler {
+
+    // 用于识别 Graphviz DOT 格式文本的正则模式
+    private static final Pattern GRAPHVIZ_PATTERN = Pattern
+            .compile("^\\s*digraph\\s+\\w+\\s*\\{");
+
+    /**
+     * 判断给定文本是否应作为 Graphviz DOT 处理
+     * 
+     * @param txt
+     * @return
+     */
+    public static boolean isGraphviz(String txt) {
+        Matcher matcher = GRAPHVIZ_PATTERN.matcher(txt);
+        return matcher.find();
+    }
+
+    /**
+     * 将选中文本转换为指定类型的状态机，并生成按从起始状态开始的层次顺序编号的快照
+     * 
+     * @param txt
+     *            选中文本，为空时返回 null
+     * @param type
+     *            目标状态机类型
+     * @param streamingMode
+     *            是否转换为可流式匹配的状态机
+     * @return 转换后的状态机快照，DOT 文本解析失败或不是合法的正则表达式时返回 null
+     */
+    public static IndexedAutomaton compile(String txt, AutomataType type,
+            boolean streamingMode) {
+        return compile(txt, type, streamingMode, Budget.UNLIMITED);
+    }
+
+    /**
+     * 在给定资源限制内将选中文本转换为指定类型的状态机。解析及 Converter 转换本身无法中途打断，解析前先按正则表达式中的字面量个数估算
+     * NFA 规模，各在完成后再检查一次 NFA 规模及耗时，确定化过程中每生成一个状态检查一次。
+     * 
+     * @param txt
+     *            选中文本，为空时返回 null
+     * @param type
+     *            目标状态机类型
+     * @param streamingMode
+     *            是否转换为可流式匹配的状态机
+     * @param budget
+     *            资源限制，应已调用 {@link Budget#start()}
+     * @return 转换后的状态机快照，DOT 文本解析失败或不是合法的正则表达式时返回 null
+     * @throws BudgetExceededException
+     *             超出资源限制
+     */
+    public static IndexedAutomaton compile(String txt, AutomataType type,
+            boolean streamingMode, Budget budget) {
+        if (txt != null && !txt.isEmpty()) {
+            IndexedAutomaton eps = null;
+            Automaton atm = null;
+            long t = StageProfiler.start();
+            try {
+                if (type == AutomataType.EPS_NFA && isGraphviz(txt)) {
+                    eps = parseEpsilonNfa(txt);
+                } else {
+                    atm = parse(txt, budget);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            } catch (ParseException e) {
+                e.printStackTrace();
+                return null;
+            } catch (BudgetExceededException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // 不是合法的正则表达式，或 DOT 文本中的转移条件无法识别
+                return null;
+            } finally {
+                StageProfiler.stop(Stage.PARSE, t);
+            }
+            if (eps != null) {
+                if (eps.hasEpsilons()) {
+                    budget.checkNfa(Stage.PARSE, eps.getStateCount(),
+                            eps.getTransitionCount() + eps.getEpsilonCount());
+                    return eps;
+                }
+                atm = eps.toAutomaton();
+            }
+            budget.checkNfa(Stage.PARSE, atm);
+            return transform(atm, type, streamingMode, budget);
+        }
+
+        return null;
+    }
+
+    /**
+     * 将文本解析为 ε-free NFA：匹配 Graphviz DOT 格式的文本按 DOT 解析，否则作为正则表达式处理
+     * 
+     * @param txt
+     * @return
+     * @throws IOException
+     * @throws ParseException
+     *             DOT 文本格式错误
+     */
+    public static Automaton parse(String txt) throws IOException,
+            ParseException {
+        if (isGraphviz(txt)) {
+            return GraphvizUtils.dotToFsa(new StringReader(txt));
+        }
+        JavaRegExp jre = new JavaRegExp(txt);
+        return jre.toAutomaton(false);
+    }
+
+    /**
+     * 与 {@link #parse(String)} 相同，但正则表达式对应 NFA 规模的下限已超出资源限制时不再解析
+     * 
+     * @param txt
+     * @param budget
+     * @return
+     * @throws IOException
+     * @throws ParseException
+     *             DOT 文本格式错误
+     * @throws BudgetExceededException
+     *             超出资源限制
+     */
+    public static Automaton parse(String txt, Budget budget)
+            throws IOException, ParseException {
+        if (!isGraphviz(txt)) {
+            checkPositions(txt, budget);
+        }
+        return parse(txt);
+    }
+
+    /**
+     * 解析前检查正则表达式对应 NFA 规模的下限，明显过大的输入不再交给无法中途打断的 JavaRegExp 解析
+     * 
+     * @param re
+     * @param budget
+     * @throws BudgetExceededException
+     */
+    private static void checkPositions(String re, Budget budget) {
+        long limit = Math.max(budget.getMaxNfaStates(),
+                budget.getMaxTransitions());
+        if (limit <= 0) {
+            return;
+        }
+        int positions = (int) Math.min(estimatePositions(re, limit),
+                Integer.MAX_VALUE - 1);
+        // 每个位置对应一个状态及至少一条进入该状态的转移边，另有 init 状态
+        budget.checkNfa(Stage.PARSE, positions + 1, positions);
+    }
+
+    /**
+     * 估算正则表达式按 Glushkov 方式构造的 NFA 中的位置数（不含 init 状态）。转义字符、字符类及其他普通字符各计一个位置，有限次重复
+     * {n,m} 按 m 倍计入其前面的字符或分组，* + ? 不重复计入，因此结果通常不超过实际位置数。
+     * 
+     * @param re
+     * @param limit
+     *            位置数超出此值时立即返回
+     * @return
+     */
+    static long estimatePositions(String re, long limit) {
+        Deque<Long> outer = new ArrayDeque<Long>(); // 各外层分组中已计入的位置数
+        long base = 0; // outer 中各项之和
+        long cur = 0; // 当前分组中的位置数
+        long last = 0; // 上一个字符或分组的位置数，即重复次数作用的对象
+        int len = re.length();
+        for (int i = 0; i < len && base + cur <= limit; i++) {
+            char c = re.charAt(i);
+            switch (c) {
+            case '\\':
+                i++;
+                cur++;
+                last = 1;
+                break;
+            case '[':
+                i = skipClass(re, i);
+                cur++;
+                last = 1;
+                break;
+            case '(':
+                outer.push(cur);
+                base += cur;
+                cur = 0;
+                last = 0;
+                if (i + 2 < len && re.charAt(i + 1) == '?'
+                        && ":=!".indexOf(re.charAt(i + 2)) >= 0) {
+                    i += 2;
+                }
+                break;
+            case ')':
+                if (!outer.isEmpty()) {
+                    last = cur;
+                    long o = outer.pop();
+                    base -= o;
+                    cur += o;
+                }
+                break;
+            case '{':
+                int end = re.indexOf('}', i);
+                int times = end > 0 ? parseRepeat(re, i + 1, end) : -1;
+                if (times < 0) {
+                    cur++;
+                    last = 1;
+                } else {
+                    cur += last * Math.max(times - 1, 0);
+                    last = 0;
+                    i = end;
+                }
+                break;
+            case '|':
+            case '*':
+            case '+':
+            case '?':
+                last = 0;
+                break;
+            case '^':
+            case '$':
+                break;
+            default:
+                cur++;
+                last = 1;
+            }
+        }
+        return base + cur;
+    }
+
+    /**
+     * @param re
+     * @param i
+     *            字符类开头 [ 的下标
+     * @return 与之匹配的 ] 的下标，未闭合时为文本末尾
+     */
+    private static int skipClass(String re, int i) {
+        int len = re.length();
+        int j = i + 1;
+        if (j < len && re.charAt(j) == '^') {
+            j++;
+        }
+        if (j < len && re.charAt(j) == ']') {
+            j++;
+        }
+        for (; j < len; j++) {
+            char c = re.charAt(j);
+            if (c == '\\') {
+                j++;
+            } else if (c == '[') {
+                j = skipClass(re, j);
+            } else if (c == ']') {
+                return j;
+            }
+        }
+        return len - 1;
+    }
+
+    /**
+     * @param re
+     * @param from
+     *            { 之后的下标
+     * @param to
+     *            } 的下标
+     * @return 重复次数 {n}、{n,} 或 {n,m} 的上限（{n,} 按 n 计），不是合法的重复次数时返回 -1
+     */
+    private static int parseRepeat(String re, int from, int to) {
+        int times = -1;
+        int value = -1;
+        for (int j = from; j < to; j++) {
+            char c = re.charAt(j);
+            if (c >= '0' && c <= '9') {
+                value = (int) Math.min(Math.max(value, 0) * 10L + (c - '0'),
+                        Integer.MAX_VALUE);
+            } else if (c == ',' && times < 0 && value >= 0) {
+                times = value;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (times < 0) {
+            return value;
+        }
+        return Math.max(times, value);
+    }
+
+    /**
+     * 将 DOT 文本解析为保留 ε 转移边的状态机快照
+     * 
+     * @param txt
+     * @return
+     * @throws IOException
+     * @throws ParseException
+     *             DOT 文本格式错误
+     */
+    public static IndexedAutomaton parseEpsilonNfa(String txt)
+            throws IOException, ParseException {
+        IndexedAutomaton atm = new DotReader(new StringReader(txt))
+                .readEpsilonNfa();
+        if (atm == null) {
+            throw new ParseException("No graph found", 0);
+        }
+        return atm;
+    }
+
+    /**
+     * 将 ε-free NFA 转换为指定类型的状态机快照。{@link AutomataType#EPS_NFA} 与
+     * {@link AutomataType#EPS_FREE_NFA} 相同：正则表达式按 Glushkov 方式构造，本身不含 ε 转移边，只有 DOT
+     * 文本中的 ε 转移边会在 {@link #compile(String, AutomataType, boolean)} 中保留（此时不做流式转换）。
+     * {@link AutomataType#REDUCED_NFA} 在 ε-free NFA 的基础上按模拟关系约简状态数，{@link AutomataType#MIN_DFA}
+     * 将 ε-free NFA 在共享的 ForkJoinPool 上并行确定化后由 {@link AutoMinimizer} 选择的算法（大型 DFA 为并行算法）最小化，{@link AutomataType#LAZY_DFA}
+     * 只按需确定化从 init 状态开始的前 {@link DfaExplorer#DEFAULT_BUDGET} 个状态。
+     * 
+     * @param atm
+     * @param type
+     * @param streamingMode
+     * @return
+     */
+    public static IndexedAutomaton transform(Automaton atm, AutomataType type,
+            boolean streamingMode) {
+        return transform(atm, type, streamingMode, Budget.UNLIMITED);
+    }
+
+    /**
+     * 在给定资源限制内将 ε-free NFA 转换为指定类型的状态机快照
+     * 
+     * @param atm
+     * @param type
+     * @param streamingMode
+     * @param budget
+     * @return
+     * @throws BudgetExceededException
+     *             超出资源限制
+     */
+    public static IndexedAutomaton transform(Automaton atm, AutomataType type,
+            boolean streamingMode, Budget budget) {
+        long t = StageProfiler.start();
+        atm = Converter.transformAutomaton(atm, false, streamingMode);
+        StageProfiler.stop(Stage.TRANSFORM, t);
+        budget.checkNfa(Stage.TRANSFORM, atm);
+
+        t = StageProfiler.start();
+        IndexedAutomaton res = IndexedAutomaton.fromAutomaton(atm);
+        StageProfiler.stop(Stage.SNAPSHOT, t);
+
+        t = StageProfiler.start();
+        if (type == AutomataType.REDUCED_NFA) {
+            res = SimulationReducer.reduce(res, budget);
+            budget.checkTime(Stage.REDUCE, res.getStateCount(),
+                    res.getTransitionCount());
+        } else if (type == AutomataType.MIN_DFA) {
+            res = minimize(res, new AutoMinimizer(ParallelDeterminizer
+                    .getDefaultPool()), budget);
+        } else if (type == AutomataType.LAZY_DFA) {
+            DfaExplorer explorer = new DfaExplorer(new LazyDfa(res));
+            explorer.expandTo(DfaExplorer.DEFAULT_BUDGET);
+            res = explorer.getAutomaton();
+        }
+        if (type != AutomataType.EPS_NFA && type != AutomataType.EPS_FREE_NFA) {
+            StageProfiler.stop(Stage.REDUCE, t);
+        }
+        return res;
+    }
+
+    /**
+     * 将状态机确定化后用给定算法最小化
+     * 
+     * @param atm
+     * @param minimizer
+     * @return
+     * @throws IllegalStateException
+     *             确定化后的状态数超过 {@link DfaTable#MAX_STATES}
+     */
+    public static IndexedAutomaton minimize(IndexedAutomaton atm,
+            DfaMinimizer minimizer) {
+        return minimize(atm, minimizer, Budget.UNLIMITED);
+    }
+
+    /**
+     * 在给定资源限制内将状态机并行确定化（见 {@link ParallelDeterminizer}，结果与顺序确定化相同）后用给定算法最小化
+     * 
+     * @param atm
+     * @param minimizer
+     * @param budget
+     * @return
+     * @throws BudgetExceededException
+     *             确定化过程超出资源限制
+     */
+    public static IndexedAutomaton minimize(IndexedAutomaton atm,
+            DfaMinimizer minimizer, Budget budget) {
+        DfaTable dfa = new ParallelDeterminizer().determinize(atm, budget);
+        return minimizer.minimize(dfa).toAutomaton();
+    }
+
+}
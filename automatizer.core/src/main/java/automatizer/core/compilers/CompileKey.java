@@ -0,0 +1,66 @@
+package automatizer.core.compilers;
+
+import automatizer.core.models.AutomataType;
+
+/**
+ * 标识一次文本转换的键值：选中文本、目标状态机类型及是否流式匹配
+ * 
+ * @author wxz
+ * 
+ */
+public final class CompileKey {
+
+    final String text;
+    final AutomataType type;
+    final boolean streamingMode;
+
+    public CompileKey(String txt, AutomataType atmType, boolean streaming) {
+        text = txt;
+        type = atmType;
+        streamingMode = streaming;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public AutomataType getType() {
+        return type;
+    }
+
+    public boolean isStreamingMode() {
+        return streamingMode;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((text == null) ? 0 : text.hashCode());
+        result = prime * result + ((type == null) ? 0 : type.hashCode());
+        result = prime * result + (streamingMode ? 1231 : 1237);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        CompileKey other = (CompileKey) obj;
+        if (text == null) {
+            if (other.text != null)
+                return false;
+        } else if (!text.equals(other.text))
+            return false;
+        if (type != other.type)
+            return false;
+        if (streamingMode != other.streamingMode)
+            return false;
+        return true;
+    }
+
+}
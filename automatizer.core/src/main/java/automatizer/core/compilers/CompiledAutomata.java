@@ -0,0 +1,128 @@
+package automatizer.core.compilers;
+
+import automatizer.core.layouts.GraphLayout;
+import automatizer.core.matchers.AutomataMatcher;
+import automatizer.core.matchers.DfaExplorer;
+import automatizer.core.models.BudgetExceededException;
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 一次转换得到的结果：待展示的状态机、对应的正则表达式、用于测试输入的匹配器及转移图布局，约简或最小化得到的状态机还记录约简前的状态数及所用方法，
+ * 按需确定化的 DFA 还保存其展开过程。构造过程超出资源限制或意外失败时只有超限或失败说明，不含状态机
+ * 
+ * @author wxz
+ * 
+ */
+public class CompiledAutomata {
+
+    IndexedAutomaton automaton;
+    String regexp;
+    AutomataMatcher matcher;
+    GraphLayout layout;
+    int sourceStateCount = -1;
+    String reduction;
+    DfaExplorer explorer;
+    BudgetExceededException overflow;
+    String failure;
+
+    public CompiledAutomata(BudgetExceededException exceeded) {
+        this(null, "");
+        overflow = exceeded;
+    }
+
+    public CompiledAutomata(String failed) {
+        this(null, "");
+        failure = failed;
+    }
+
+    public CompiledAutomata(IndexedAutomaton atm, String re) {
+        this(atm, re, null);
+    }
+
+    public CompiledAutomata(IndexedAutomaton atm, String re, AutomataMatcher m) {
+        this(atm, re, m, null);
+    }
+
+    public CompiledAutomata(IndexedAutomaton atm, String re, AutomataMatcher m,
+            GraphLayout l) {
+        automaton = atm;
+        regexp = re;
+        matcher = m;
+        layout = l;
+    }
+
+    public CompiledAutomata(IndexedAutomaton atm, String re, AutomataMatcher m,
+            GraphLayout l, int sourceStates, String reducedBy) {
+        this(atm, re, m, l);
+        sourceStateCount = sourceStates;
+        reduction = reducedBy;
+    }
+
+    public CompiledAutomata(IndexedAutomaton atm, String re, AutomataMatcher m,
+            GraphLayout l, int sourceStates, String reducedBy,
+            DfaExplorer exploration) {
+        this(atm, re, m, l, sourceStates, reducedBy);
+        explorer = exploration;
+    }
+
+    public IndexedAutomaton getAutomaton() {
+        return automaton;
+    }
+
+    /**
+     * @return 状态机对应的正则表达式，尚未转换时为 null
+     */
+    public String getRegexp() {
+        return regexp;
+    }
+
+    /**
+     * @return 状态机编译成的匹配器，尚未编译或状态数过多无法编译时为 null
+     */
+    public AutomataMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * @return 转移图布局，尚未计算时为 null
+     */
+    public GraphLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return 约简前的状态数，状态机未经约简时为 -1
+     */
+    public int getSourceStateCount() {
+        return sourceStateCount;
+    }
+
+    /**
+     * @return 约简或最小化方法的说明，状态机未经约简时为 null
+     */
+    public String getReduction() {
+        return reduction;
+    }
+
+    /**
+     * @return 按需确定化的 DFA 的展开过程，其他类型的状态机为 null
+     */
+    public DfaExplorer getExplorer() {
+        return explorer;
+    }
+
+    /**
+     * @return 构造状态机时超出的资源限制，未超限时为 null
+     */
+    public BudgetExceededException getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * @return 转换过程中意外失败的说明，未失败时为 null
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+}
@@ -0,0 +1,183 @@
+package automatizer.core.compilers;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import automatizer.core.matchers.AutomataMatcher;
+import automatizer.core.matchers.DfaExplorer;
+import automatizer.core.matchers.LazyDfa;
+
+/**
+ * 按估算内存占用限制容量的 LRU 缓存，保存已转换的状态机及其对应的正则表达式、匹配器和布局
+ * 
+ * 缓存中的状态机快照会被多次展示共享，使用者不得修改其内容。所有方法均可在任意线程中调用。
+ * 
+ * 条目的占用在放入时估算，之后不再更新。按需确定化的匹配器及 DFA 展开过程在放入后仍会增长，因此按其容量上限计算，放入缓存的
+ * {@link LazyDfa} 应使用较小的容量（见 {@link LazyDfa#CACHED_CAPACITY}）；展开新状态后需重新放入以更新估算值。
+ * 
+ * @author wxz
+ * 
+ */
+public class CompiledAutomataCache {
+
+    /**
+     * 默认容量（估算字节数）
+     */
+    public static final long DEFAULT_CAPACITY = 16L * 1024 * 1024;
+
+    // 估算内存占用时每个条目（键、值及 LinkedHashMap 表项）的固定开销（字节）
+    private static final int ENTRY_COST = 128;
+
+    private final long capacity;
+    private final LinkedHashMap<CompileKey, CompiledAutomata> entries;
+    private final Map<CompileKey, Long> weights;
+    private long weight;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public CompiledAutomataCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CompiledAutomataCache(long maxWeight) {
+        capacity = maxWeight;
+        // 按访问顺序排列，表头即为最久未使用的条目
+        entries = new LinkedHashMap<CompileKey, CompiledAutomata>(16, 0.75f,
+                true);
+        weights = new HashMap<CompileKey, Long>();
+    }
+
+    /**
+     * 查找缓存的转换结果
+     * 
+     * @param key
+     * @return 缓存的结果，其中的正则表达式可能尚未转换（为 null）；未命中时返回 null
+     */
+    public synchronized CompiledAutomata get(CompileKey key) {
+        CompiledAutomata res = entries.get(key);
+        if (res != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return res;
+    }
+
+    /**
+     * 保存转换结果，必要时按 LRU 顺序淘汰旧条目。状态机为 null 的结果不会被缓存。
+     * 
+     * @param key
+     * @param value
+     */
+    public synchronized void put(CompileKey key, CompiledAutomata value) {
+        if (value == null || value.getAutomaton() == null) {
+            return;
+        }
+
+        remove(key);
+
+        long w = estimateWeight(key, value);
+        if (w > capacity) {
+            // 单个结果已超出缓存容量，不缓存
+            return;
+        }
+
+        entries.put(key, value);
+        weights.put(key, w);
+        weight += w;
+
+        Iterator<Map.Entry<CompileKey, CompiledAutomata>> it = entries
+                .entrySet().iterator();
+        while (weight > capacity && it.hasNext()) {
+            CompileKey eldest = it.next().getKey();
+            it.remove();
+            weight -= weights.remove(eldest);
+            evictionCount++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weights.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "Automata cache: %d hits, %d misses, %d evictions, %d entries, %d/%d KB",
+                hitCount, missCount, evictionCount, entries.size(),
+                weight / 1024, capacity / 1024);
+    }
+
+    private void remove(CompileKey key) {
+        if (entries.remove(key) != null) {
+            weight -= weights.remove(key);
+        }
+    }
+
+    /**
+     * 估算缓存条目占用的内存大小
+     * 
+     * @param key
+     * @param value
+     * @return
+     */
+    private static long estimateWeight(CompileKey key, CompiledAutomata value) {
+        long w = ENTRY_COST;
+        if (key.getText() != null) {
+            w += 2L * key.getText().length();
+        }
+        if (value.getRegexp() != null) {
+            w += 2L * value.getRegexp().length();
+        }
+        DfaExplorer explorer = value.getExplorer();
+        if (explorer != null) {
+            w += explorer.estimateSize();
+        }
+        AutomataMatcher matcher = value.getMatcher();
+        if (matcher instanceof LazyDfa) {
+            // 展开过程中的 LazyDfa 已计入
+            if (explorer == null || explorer.getLazyDfa() != matcher) {
+                w += ((LazyDfa) matcher).estimateMaxSize();
+            }
+        } else if (matcher != null) {
+            w += matcher.estimateSize();
+        }
+        if (value.getLayout() != null) {
+            w += value.getLayout().estimateSize();
+        }
+
+        w += value.getAutomaton().estimateSize();
+        return w;
+    }
+
+}
@@ -0,0 +1,498 @@
+package automatizer.core.compilers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import automatizer.core.layouts.GraphLayout;
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 保存在磁盘目录中的转换结果缓存，使重新打开视图或重启后可直接展示之前转换过的状态机而不必重新转换及布局
+ *
+ * 每个条目是一个以 (插件版本, 状态机类型, 是否流式匹配, 选中文本) 的 SHA-1 摘要命名的文件，内容为 Deflate 压缩的二进制数据：
+ * 完整的键、状态机快照（见 {@link IndexedAutomaton#write(DataOutput)}）、正则表达式、布局坐标、约简前的状态数及约简方法。
+ * 匹配器及按需确定化的展开过程不保存，前者在需要时重新编译，后者的结果不写入缓存。插件升级后旧版本的条目不再命中，按 LRU 顺序逐渐淘汰。
+ *
+ * 目录中的条目在首次访问时才扫描，按文件修改时间恢复 LRU 顺序，命中时更新修改时间；文件总大小超过容量时删除最久未使用的条目。
+ * 写入在单个后台线程中进行，先写临时文件再改名，读取时不会看到写了一半的文件；损坏或与键不符的条目视为未命中并被删除。所有方法均可在任意线程中调用。
+ *
+ * @author wxz
+ *
+ */
+public class DiskAutomataCache {
+
+    /**
+     * 默认容量（文件总字节数）
+     */
+    public static final long DEFAULT_CAPACITY = 32L * 1024 * 1024;
+
+    private static final int MAGIC = 0x41544d43; // "ATMC"
+    private static final int FORMAT = 1;
+    private static final String SUFFIX = ".atm";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File dir;
+    private final long capacity;
+    private final String version;
+    private final ExecutorService writer;
+
+    // 按访问顺序排列的文件名及其大小，表头即为最久未使用的条目；首次访问前为 null
+    private LinkedHashMap<String, Long> files;
+    private long weight;
+
+    private long hitCount;
+    private long missCount;
+    private long writeCount;
+    private long evictionCount;
+
+    /**
+     * @param directory
+     *            缓存目录，不存在时在首次写入时创建
+     * @param maxBytes
+     *            文件总大小上限
+     * @param pluginVersion
+     *            插件版本，参与计算条目的键
+     */
+    public DiskAutomataCache(File directory, long maxBytes,
+            String pluginVersion) {
+        dir = directory;
+        capacity = maxBytes;
+        version = pluginVersion;
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Automata disk cache writer");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * 从磁盘读取缓存的转换结果
+     *
+     * @param key
+     * @return 缓存的结果，不含匹配器，其中的正则表达式及布局可能为 null；未命中时返回 null
+     */
+    public CompiledAutomata get(CompileKey key) {
+        if (key.getText() == null) {
+            return null;
+        }
+        final String name = fileName(key);
+        synchronized (this) {
+            if (index().get(name) == null) {
+                missCount++;
+                return null;
+            }
+        }
+
+        final File file = new File(dir, name);
+        CompiledAutomata res = null;
+        try {
+            InputStream in = new InflaterInputStream(new BufferedInputStream(
+                    new FileInputStream(file)));
+            try {
+                res = decode(key, version, new DataInputStream(in));
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // 文件已被删除或已损坏
+            res = null;
+        }
+
+        synchronized (this) {
+            if (res == null) {
+                missCount++;
+                remove(name);
+                return null;
+            }
+            hitCount++;
+        }
+        // 更新修改时间，使 LRU 顺序在重启后得以保留
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                file.setLastModified(System.currentTimeMillis());
+            }
+        });
+        return res;
+    }
+
+    /**
+     * 在后台线程中保存转换结果。状态机为 null 或带有按需确定化展开过程的结果、选中文本为 null 的键不会被缓存
+     *
+     * @param key
+     * @param value
+     *            其中的状态机、正则表达式及布局在写入完成前不得修改
+     */
+    public void put(final CompileKey key, final CompiledAutomata value) {
+        if (key.getText() == null || value == null
+                || value.getAutomaton() == null || value.getExplorer() != null) {
+            return;
+        }
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                write(key, value);
+            }
+        });
+    }
+
+    /**
+     * 等待已提交的写入完成
+     */
+    public void flush() {
+        try {
+            writer.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // 空任务不会失败
+        } catch (RejectedExecutionException e) {
+            // 已关闭
+        }
+    }
+
+    /**
+     * 完成已提交的写入后停止后台线程，之后的写入被忽略
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 删除所有缓存文件
+     */
+    public synchronized void clear() {
+        for (String name : index().keySet()) {
+            new File(dir, name).delete();
+        }
+        files.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return index().size();
+    }
+
+    public synchronized long getWeight() {
+        index();
+        return weight;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (files == null) {
+            return "Disk cache: not loaded";
+        }
+        return String.format(
+                "Disk cache: %d hits, %d misses, %d writes, %d evictions, %d entries, %d/%d KB",
+                hitCount, missCount, writeCount, evictionCount, files.size(),
+                weight / 1024, capacity / 1024);
+    }
+
+    private void submit(Runnable task) {
+        try {
+            writer.execute(task);
+        } catch (RejectedExecutionException e) {
+            // 已关闭，放弃写入
+        }
+    }
+
+    /**
+     * 在后台线程中编码并写入一个条目，再按容量淘汰旧条目
+     */
+    private void write(CompileKey key, CompiledAutomata value) {
+        String name = fileName(key);
+        File tmp = new File(dir, name + TEMP_SUFFIX);
+        File file = new File(dir, name);
+        synchronized (this) {
+            // 先扫描目录，以免把本次写入的临时文件当作上次残留的文件删除
+            index();
+        }
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                return;
+            }
+            OutputStream out = new DeflaterOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                encode(key, version, value, new DataOutputStream(out));
+            } finally {
+                out.close();
+            }
+            long size = tmp.length();
+            synchronized (this) {
+                if (size > capacity) {
+                    // 单个条目已超出缓存容量，不缓存
+                    tmp.delete();
+                    return;
+                }
+                remove(name);
+                if (!tmp.renameTo(file)) {
+                    tmp.delete();
+                    return;
+                }
+                files.put(name, size);
+                weight += size;
+                writeCount++;
+
+                Iterator<Map.Entry<String, Long>> it = files.entrySet()
+                        .iterator();
+                while (weight > capacity && it.hasNext()) {
+                    Map.Entry<String, Long> eldest = it.next();
+                    new File(dir, eldest.getKey()).delete();
+                    weight -= eldest.getValue();
+                    it.remove();
+                    evictionCount++;
+                }
+            }
+        } catch (IOException e) {
+            // 磁盘缓存只是加速手段，写入失败时放弃该条目
+            tmp.delete();
+        }
+    }
+
+    private void remove(String name) {
+        Long size = files.remove(name);
+        if (size != null) {
+            new File(dir, name).delete();
+            weight -= size;
+        }
+    }
+
+    /**
+     * 首次访问时扫描缓存目录，按修改时间恢复 LRU 顺序，并删除上次未写完的临时文件
+     */
+    private LinkedHashMap<String, Long> index() {
+        if (files != null) {
+            return files;
+        }
+        files = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        weight = 0;
+        File[] list = dir.listFiles();
+        if (list == null) {
+            return files;
+        }
+        final long[] modified = new long[list.length];
+        Integer[] order = new Integer[list.length];
+        for (int i = 0; i < list.length; i++) {
+            modified[i] = list[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                long x = modified[a];
+                long y = modified[b];
+                return x < y ? -1 : (x == y ? 0 : 1);
+            }
+        });
+        for (int i : order) {
+            File f = list[i];
+            if (f.getName().endsWith(TEMP_SUFFIX)) {
+                f.delete();
+            } else if (f.isFile() && f.getName().endsWith(SUFFIX)) {
+                long size = f.length();
+                files.put(f.getName(), size);
+                weight += size;
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @param key
+     * @return 条目的文件名：键及插件版本的 SHA-1 摘要
+     */
+    private String fileName(CompileKey key) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        md.update(version.getBytes(UTF8));
+        md.update((byte) 0);
+        md.update(key.getType().name().getBytes(UTF8));
+        md.update((byte) (key.isStreamingMode() ? 1 : 0));
+        md.update(key.getText().getBytes(UTF8));
+        StringBuilder sb = new StringBuilder(40 + SUFFIX.length());
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.append(SUFFIX).toString();
+    }
+
+    /**
+     * 写出一个条目的内容
+     *
+     * @param key
+     * @param pluginVersion
+     * @param value
+     * @param out
+     * @throws IOException
+     */
+    static void encode(CompileKey key, String pluginVersion,
+            CompiledAutomata value, DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        writeString(out, pluginVersion);
+        writeString(out, key.getType().name());
+        out.writeBoolean(key.isStreamingMode());
+        writeString(out, key.getText());
+
+        value.getAutomaton().write(out);
+        writeString(out, value.getRegexp());
+        GraphLayout layout = value.getLayout();
+        out.writeBoolean(layout != null);
+        if (layout != null) {
+            int n = layout.getStateCount();
+            out.writeInt(n);
+            for (int s = 0; s < n; s++) {
+                out.writeFloat((float) layout.getX(s));
+                out.writeFloat((float) layout.getY(s));
+            }
+            out.writeDouble(layout.getWidth());
+            out.writeDouble(layout.getHeight());
+        }
+        out.writeInt(value.getSourceStateCount());
+        writeString(out, value.getReduction());
+    }
+
+    /**
+     * 读入 {@link #encode(CompileKey, String, CompiledAutomata, DataOutput)} 写出的条目
+     *
+     * @param key
+     * @param pluginVersion
+     * @param in
+     * @return 条目的键与给定键不符（摘要冲突）时返回 null
+     * @throws IOException
+     *             读取失败或数据已损坏
+     */
+    static CompiledAutomata decode(CompileKey key, String pluginVersion,
+            DataInput in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+            throw new IOException("Not an automata cache entry");
+        }
+        String ver = readString(in);
+        String type = readString(in);
+        boolean streaming = in.readBoolean();
+        String text = readString(in);
+        if (!pluginVersion.equals(ver)
+                || !key.getType().name().equals(type)
+                || key.isStreamingMode() != streaming
+                || !key.getText().equals(text)) {
+            return null;
+        }
+
+        IndexedAutomaton atm = IndexedAutomaton.read(in);
+        String regexp = readString(in);
+        GraphLayout layout = null;
+        if (in.readBoolean()) {
+            int n = in.readInt();
+            if (n != atm.getStateCount()) {
+                throw new IOException("Layout does not match automaton");
+            }
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            for (int s = 0; s < n; s++) {
+                xs[s] = in.readFloat();
+                ys[s] = in.readFloat();
+            }
+            layout = new GraphLayout(xs, ys, in.readDouble(), in.readDouble());
+        }
+        int sourceStates = in.readInt();
+        String reduction = readString(in);
+        return new CompiledAutomata(atm, regexp, null, layout, sourceStates,
+                reduction);
+    }
+
+    /**
+     * 写出可为 null 的字符串：长度（null 为 -1）及各字符，不受 {@link DataOutput#writeUTF(String)} 的长度限制
+     */
+    private static void writeString(DataOutput out, String s)
+            throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        if (len > 1 << 26) {
+            throw new IOException("Corrupted string length " + len);
+        }
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+
+}
@@ -1,114 +1,170 @@
 package automatizer.core.figures;
 
-import org.eclipse.draw2d.Border;
 import org.eclipse.draw2d.ColorConstants;
 import org.eclipse.draw2d.Figure;
 import org.eclipse.draw2d.Graphics;
-import org.eclipse.draw2d.Label;
 import org.eclipse.draw2d.LightweightSystem;
-import org.eclipse.draw2d.MarginBorder;
-import org.eclipse.draw2d.Shape;
-import org.eclipse.draw2d.StackLayout;
 import org.eclipse.draw2d.XYLayout;
 import org.eclipse.draw2d.geometry.Point;
 import org.eclipse.draw2d.geometry.Rectangle;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Canvas;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 
-public class StateFigure extends Shape {
+/**
+ * 状态图形，自行绘制状态圆、accept 状态内圆、init 状态箭头及状态编号，不含子图形、布局管理器及边框。可通过
+ * {@link #setState(String, boolean, boolean)} 复用于其他状态。尚未展开的边界状态（见 {@link #setFrontier(boolean)}）以虚线轮廓及右上角的
+ * “+” 标记表示。
+ *
+ * 文本宽度由按字体共享的字符宽度缓存计算；缩放比例低于 {@link #DETAIL_SCALE} 时不绘制文本及箭头，只保留圆形轮廓。
+ *
+ * @author wxz
+ *
+ */
+public class StateFigure extends Figure {
 
     final static int ARROW_WIDTH = 8;
     final static int ARROW_HEIGHT = 8;
-    final static int ARROW_LINE_LEN = 15;
+    public final static int ARROW_LINE_LEN = 15;
     final static int GAP = 5;
-    final static int SIZE = 30;
+    public final static int SIZE = 30;
+
+    /**
+     * 低于此缩放比例时文本已难以辨认，不再绘制文本及箭头
+     */
+    public static final double DETAIL_SCALE = 0.5;
 
     boolean init;
     boolean accept;
+    boolean frontier;
     String text;
 
+    private Font textFont; // 计算 textWidth 时使用的字体
+    private int textWidth;
+    private int textHeight;
+
     public StateFigure(String label, boolean isInit, boolean isAccept) {
+        setState(label, isInit, isAccept);
+    }
+
+    /**
+     * 更新图形展示的状态，图形大小随之改变
+     *
+     * @param label
+     * @param isInit
+     * @param isAccept
+     */
+    public void setState(String label, boolean isInit, boolean isAccept) {
         text = label;
         init = isInit;
         accept = isAccept;
+        frontier = false;
+        textFont = null;
 
-        int leftMargin = isInit ? ARROW_LINE_LEN : 0;
-        Border border = new MarginBorder(0, leftMargin, 1, 1);
-        setBorder(border);
-        setPreferredSize(SIZE + leftMargin, SIZE);
+        int w = getWidth(isInit);
+        setPreferredSize(w, SIZE);
+        setSize(w, SIZE);
+        repaint();
+    }
 
-        // 手工计算文本包围框太麻烦，直接用现成的控件
-        setLayoutManager(new StackLayout());
-        add(new Label(text));
+    /**
+     * 标记状态是否为尚未展开的边界状态，{@link #setState(String, boolean, boolean)} 会清除此标记
+     *
+     * @param isFrontier
+     */
+    public void setFrontier(boolean isFrontier) {
+        if (frontier != isFrontier) {
+            frontier = isFrontier;
+            repaint();
+        }
     }
 
-    @Override
-    protected void outlineShape(Graphics graphics) {
-        graphics.drawOval(getClientArea());
+    /**
+     * @param isInit
+     * @return 状态图形的宽度，init 状态包含左侧箭头
+     */
+    public static int getWidth(boolean isInit) {
+        return SIZE + (isInit ? ARROW_LINE_LEN : 0);
+    }
 
-        if (init) {
-            drawInitToken(graphics);
+    @Override
+    protected void paintFigure(Graphics graphics) {
+        Rectangle b = getBounds();
+        int left = init ? ARROW_LINE_LEN : 0;
+        Rectangle oval = Rectangle.SINGLETON.setBounds(b.x + left, b.y,
+                SIZE - 1, SIZE - 1);
+        boolean detail = graphics.getAbsoluteScale() >= DETAIL_SCALE;
+
+        graphics.fillOval(oval);
+        if (frontier) {
+            graphics.pushState();
+            graphics.setLineStyle(SWT.LINE_DASH);
+            graphics.drawOval(oval);
+            graphics.popState();
+        } else {
+            graphics.drawOval(oval);
         }
         if (accept) {
-            drawAcceptToken(graphics);
+            oval.shrink(GAP, GAP);
+            graphics.drawOval(oval);
         }
-        drawLabel(graphics);
-    }
-
-    @Override
-    protected void fillShape(Graphics graphics) {
-        graphics.fillOval(getClientArea());
 
+        int cx = b.x + left + (SIZE - 1) / 2;
+        int cy = b.y + (SIZE - 1) / 2;
         if (init) {
-            drawInitToken(graphics);
+            drawInitToken(graphics, b.x + left, cy, detail);
         }
-        if (accept) {
-            drawAcceptToken(graphics);
+        if (detail) {
+            drawLabel(graphics, cx, cy);
+            if (frontier) {
+                drawExpandToken(graphics, b.x + left + SIZE - 1 - GAP, b.y + GAP);
+            }
         }
-        drawLabel(graphics);
     }
 
     /**
-     * 绘制状态文本内容
-     * 
+     * 绘制以 (x, y) 为中心的 “+” 标记
+     *
      * @param graphics
      */
-    private void drawLabel(Graphics graphics) {
-        // graphics.drawText(text, getClientArea().getCenter());
+    private void drawExpandToken(Graphics graphics, int x, int y) {
+        graphics.drawLine(x - GAP + 1, y, x + GAP - 1, y);
+        graphics.drawLine(x, y - GAP + 1, x, y + GAP - 1);
     }
 
     /**
-     * 绘制 accept 状态内圆
-     * 
+     * 绘制以 (cx, cy) 为中心的状态文本内容
+     *
      * @param graphics
      */
-    private void drawAcceptToken(Graphics graphics) {
-        Rectangle r = Rectangle.SINGLETON.setBounds(getClientArea());
-        r.shrink(GAP, GAP);
-        graphics.drawOval(r);
+    private void drawLabel(Graphics graphics, int cx, int cy) {
+        Font font = getFont();
+        if (font == null) {
+            return;
+        }
+        if (font != textFont) {
+            textFont = font;
+            textWidth = TextMetrics.getWidth(text, font);
+            textHeight = TextMetrics.getHeight(font);
+        }
+        graphics.drawString(text, cx - textWidth / 2, cy - textHeight / 2);
     }
 
     /**
-     * 绘制水平方向指向 init 状态外圆的箭头
-     * 
+     * 绘制水平方向指向 init 状态外圆左端 (x, y) 的箭头，不绘制细节时只画直线
+     *
      * @param graphics
      */
-    private void drawInitToken(Graphics graphics) {
-        Rectangle clientArea = getClientArea();
-        Point p1 = new Point(clientArea.x - ARROW_LINE_LEN,
-                clientArea.getLeft().y);
-        Point p2 = clientArea.getLeft();
-        Point a1 = new Point(p2).translate(-ARROW_WIDTH, -ARROW_HEIGHT / 2);
-        Point a2 = new Point(p2).translate(-ARROW_WIDTH, ARROW_HEIGHT / 2);
-
-        // 绘制箭头
-        graphics.drawLine(p1, p2);
-        graphics.drawLine(p2, a1);
-        graphics.drawLine(p2, a2);
+    private void drawInitToken(Graphics graphics, int x, int y, boolean detail) {
+        graphics.drawLine(x - ARROW_LINE_LEN, y, x, y);
+        if (detail) {
+            graphics.drawLine(x, y, x - ARROW_WIDTH, y - ARROW_HEIGHT / 2);
+            graphics.drawLine(x, y, x - ARROW_WIDTH, y + ARROW_HEIGHT / 2);
+        }
     }
 
     public static void main(String[] args) {
@@ -123,17 +179,11 @@ public class StateFigure extends Shape {
         XYLayout layout = new XYLayout();
         root.setLayoutManager(layout);
 
-        StateFigure state = new StateFigure("0", false, false);
-        state.setSize(state.getPreferredSize());
+        StateFigure state = new StateFigure("0", true, true);
+        state.setBackgroundColor(ColorConstants.white);
         root.add(state, new Rectangle(new Point(10, 10), state.getBounds()
                 .getSize()));
 
-        // RectangleFigure rect = new RectangleFigure();
-        // rect.setSize(state.getBounds().getSize());
-        // rect.setFill(false);
-        // root.add(rect, new Rectangle(new Point(10, 10), rect.getBounds()
-        // .getSize()));
-
         Canvas canvas = new Canvas(shell, SWT.DOUBLE_BUFFERED);
         canvas.setBackground(ColorConstants.white);
         canvas.setLayoutData(new GridData(GridData.FILL_BOTH));
@@ -0,0 +1,59 @@
+package automatizer.core.figures;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.draw2d.FigureUtilities;
+import org.eclipse.swt.graphics.Font;
+
+/**
+ * 按字体缓存 ASCII 字符宽度及文本高度，供各图形计算状态编号、转移边标签等短文本的大小，只能在 UI 线程中使用
+ *
+ * @author wxz
+ *
+ */
+final class TextMetrics {
+
+    // 各字体下 ASCII 字符的宽度，数组末尾为文本高度
+    private static final Map<Font, int[]> METRICS = new HashMap<Font, int[]>();
+
+    private TextMetrics() {
+    }
+
+    /**
+     * 计算文本宽度，非 ASCII 字符单独测量
+     *
+     * @param text
+     * @param font
+     * @return
+     */
+    static int getWidth(String text, Font font) {
+        int[] metrics = metricsOf(font);
+        int w = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            w += c < 128 ? metrics[c] : FigureUtilities.getTextWidth(
+                    String.valueOf(c), font);
+        }
+        return w;
+    }
+
+    static int getHeight(Font font) {
+        return metricsOf(font)[128];
+    }
+
+    private static int[] metricsOf(Font font) {
+        int[] metrics = METRICS.get(font);
+        if (metrics == null) {
+            metrics = new int[129];
+            for (char c = ' '; c < 128; c++) {
+                metrics[c] = FigureUtilities.getTextWidth(String.valueOf(c),
+                        font);
+            }
+            metrics[128] = FigureUtilities.getFontMetrics(font).getHeight();
+            METRICS.put(font, metrics);
+        }
+        return metrics;
+    }
+
+}
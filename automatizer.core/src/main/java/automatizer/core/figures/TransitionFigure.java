@@ -0,0 +1,126 @@
+package automatizer.core.figures;
+
+import org.eclipse.draw2d.Figure;
+import org.eclipse.draw2d.Graphics;
+import org.eclipse.draw2d.geometry.Rectangle;
+import org.eclipse.swt.graphics.Font;
+
+/**
+ * 转移边图形，自行绘制两状态圆之间的直线（自环为状态上方的圆弧）、箭头及标签，可通过
+ * {@link #setTransition(double, double, double, double, String, Font)} 复用于其他转移边。
+ *
+ * 缩放比例低于 {@link StateFigure#DETAIL_SCALE} 时只绘制连线。
+ *
+ * @author wxz
+ *
+ */
+public class TransitionFigure extends Figure {
+
+    final static int ARROW_WIDTH = 8;
+    final static int ARROW_HEIGHT = 8;
+    final static int LOOP_SIZE = 16;
+
+    private static final int RADIUS = StateFigure.SIZE / 2;
+
+    private int x1;
+    private int y1;
+    private int x2;
+    private int y2;
+    private boolean loop;
+    private String text;
+    private int textX;
+    private int textY;
+
+    /**
+     * 更新图形展示的转移边，参数为两端状态的圆心坐标
+     *
+     * @param sx
+     * @param sy
+     * @param dx
+     * @param dy
+     * @param label
+     * @param font
+     *            计算标签大小所用的字体，为 null 时按字符数估算
+     */
+    public void setTransition(double sx, double sy, double dx, double dy,
+            String label, Font font) {
+        text = label;
+        int tw = font != null ? TextMetrics.getWidth(label, font)
+                : 7 * label.length();
+        int th = font != null ? TextMetrics.getHeight(font) : 14;
+
+        int left;
+        int top;
+        int right;
+        int bottom;
+        loop = sx == dx && sy == dy;
+        if (loop) {
+            // 自环为圆心在状态圆顶端的圆弧，标签位于其上方
+            x1 = (int) Math.round(sx);
+            y1 = (int) Math.round(sy) - RADIUS;
+            textX = x1 - tw / 2;
+            textY = y1 - LOOP_SIZE / 2 - th;
+            left = Math.min(x1 - LOOP_SIZE / 2, textX);
+            top = textY;
+            right = Math.max(x1 + LOOP_SIZE / 2, textX + tw);
+            bottom = y1 + LOOP_SIZE / 2;
+        } else {
+            // 连线两端位于状态圆周上
+            double len = Math.hypot(dx - sx, dy - sy);
+            double ux = (dx - sx) / len;
+            double uy = (dy - sy) / len;
+            x1 = (int) Math.round(sx + ux * RADIUS);
+            y1 = (int) Math.round(sy + uy * RADIUS);
+            x2 = (int) Math.round(dx - ux * RADIUS);
+            y2 = (int) Math.round(dy - uy * RADIUS);
+            textX = (x1 + x2) / 2 - tw / 2;
+            textY = (y1 + y2) / 2 - th;
+            left = Math.min(Math.min(x1, x2) - ARROW_WIDTH, textX);
+            top = Math.min(Math.min(y1, y2) - ARROW_HEIGHT, textY);
+            right = Math.max(Math.max(x1, x2) + ARROW_WIDTH, textX + tw);
+            bottom = Math.max(y1, y2) + ARROW_HEIGHT;
+        }
+        setBounds(new Rectangle(left, top, right - left + 1, bottom - top + 1));
+        repaint();
+    }
+
+    @Override
+    protected void paintFigure(Graphics graphics) {
+        boolean detail = graphics.getAbsoluteScale() >= StateFigure.DETAIL_SCALE;
+        if (loop) {
+            graphics.drawArc(x1 - LOOP_SIZE / 2, y1 - LOOP_SIZE / 2,
+                    LOOP_SIZE, LOOP_SIZE, -30, 240);
+        } else {
+            graphics.drawLine(x1, y1, x2, y2);
+            if (detail) {
+                drawArrow(graphics);
+            }
+        }
+        if (detail) {
+            graphics.drawString(text, textX, textY);
+        }
+    }
+
+    /**
+     * 绘制指向目标状态圆周的箭头
+     *
+     * @param graphics
+     */
+    private void drawArrow(Graphics graphics) {
+        double len = Math.hypot(x2 - x1, y2 - y1);
+        if (len == 0) {
+            return;
+        }
+        double ux = (x2 - x1) / len;
+        double uy = (y2 - y1) / len;
+        double bx = x2 - ux * ARROW_WIDTH;
+        double by = y2 - uy * ARROW_WIDTH;
+        double nx = -uy * ARROW_HEIGHT / 2;
+        double ny = ux * ARROW_HEIGHT / 2;
+        graphics.drawLine(x2, y2, (int) Math.round(bx + nx),
+                (int) Math.round(by + ny));
+        graphics.drawLine(x2, y2, (int) Math.round(bx - nx),
+                (int) Math.round(by - ny));
+    }
+
+}
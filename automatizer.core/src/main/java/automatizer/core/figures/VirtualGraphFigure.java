@@ -0,0 +1,483 @@
+package automatizer.core.figures;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.draw2d.Figure;
+import org.eclipse.draw2d.FigureListener;
+import org.eclipse.draw2d.IFigure;
+import org.eclipse.draw2d.Label;
+import org.eclipse.draw2d.Viewport;
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.draw2d.geometry.Rectangle;
+
+import automatizer.core.layouts.GraphLayout;
+import automatizer.core.models.AlphabetPartition;
+import automatizer.core.models.ConnectionData;
+import automatizer.core.models.EdgeGrouper;
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.profiling.Stage;
+import automatizer.core.profiling.StageProfiler;
+
+/**
+ * 只为可见区域内的状态及转移边生成图形的转移图。
+ *
+ * 完整的状态机及布局只以坐标数组形式保存，并按 {@link #CELL_SIZE} 大小的网格建立索引。可见区域（外加
+ * {@link #MARGIN} 的预留范围）变化时，只为与其相交的状态及转移边生成 {@link StateFigure} 及
+ * {@link TransitionFigure}，移出区域的图形回收至对象池供之后复用，因此图形数量及绘制开销只与可见部分的大小有关。
+ * 同一对状态间的转移边合并为一条，标签格式与 Zest 转移图一致。只能在 UI 线程中使用。
+ *
+ * @author wxz
+ *
+ */
+public class VirtualGraphFigure extends Figure {
+
+    /**
+     * 可见区域四周额外生成图形的范围，避免小幅滚动时频繁生成图形
+     */
+    public static final int MARGIN = 200;
+
+    /**
+     * 空间索引网格的边长
+     */
+    public static final int CELL_SIZE = 256;
+
+    // 包围框覆盖超过此数量网格的转移边不进入网格索引，改按其覆盖的行带索引
+    private static final int MAX_EDGE_CELLS = 16;
+
+    // 长转移边索引中每个行带包含的网格行数
+    private static final int BAND_ROWS = 4;
+
+    private static final int EXTENT = StateFigure.SIZE;
+
+    private static final char[] NO_RANGES = new char[0];
+
+    private IndexedAutomaton automaton;
+    private GraphLayout layout;
+    private BitSet frontier; // 尚未展开的边界状态，可为 null
+    private AlphabetPartition alphabet; // 以字符类表示转移条件时的字符类划分，可为 null
+
+    // 合并后的转移边，ε 转移边的字符范围为空数组
+    private int edgeCount;
+    private int[] edgeSrc;
+    private int[] edgeDst;
+    private char[][] edgeRanges;
+
+    // 网格索引，以 CSR 形式存放各网格中的状态及转移边
+    private int cols;
+    private int rows;
+    private int[] stateCellStart;
+    private int[] stateCells;
+    private int[] edgeCellStart;
+    private int[] edgeCells;
+    private int[] longBandStart;
+    private int[] longEdges;
+
+    // 每次更新时递增的标记，用于免清零地判断状态及转移边在本次更新中是否可见
+    private int generation;
+    private int[] stateMark;
+    private int[] edgeMark;
+
+    private final Map<Integer, StateFigure> shownStates = new HashMap<Integer, StateFigure>();
+    private final Map<Integer, TransitionFigure> shownEdges = new HashMap<Integer, TransitionFigure>();
+    private final List<StateFigure> statePool = new ArrayList<StateFigure>();
+    private final List<TransitionFigure> edgePool = new ArrayList<TransitionFigure>();
+
+    private final Rectangle visibleArea = new Rectangle();
+
+    /**
+     * 设置以字符类表示转移条件时使用的字符类划分，此时转移边的提示信息为其字符范围。须在 setModel() 之前调用
+     *
+     * @param partition
+     *            状态机的字符类划分，为 null 时以字符范围表示
+     */
+    public void setAlphabet(AlphabetPartition partition) {
+        alphabet = partition;
+    }
+
+    /**
+     * 设置展示的状态机及其布局，之前生成的图形全部回收
+     *
+     * @param atm
+     *            为 null 时清空转移图
+     * @param graphLayout
+     */
+    public void setModel(IndexedAutomaton atm, GraphLayout graphLayout) {
+        setModel(atm, graphLayout, null);
+    }
+
+    /**
+     * 设置展示的状态机、布局及其中尚未展开的边界状态，之前生成的图形全部回收
+     *
+     * @param atm
+     *            为 null 时清空转移图
+     * @param graphLayout
+     * @param frontierStates
+     *            以虚线轮廓显示的边界状态，可为 null
+     */
+    public void setModel(IndexedAutomaton atm, GraphLayout graphLayout,
+            BitSet frontierStates) {
+        recycleAll();
+        frontier = frontierStates;
+        automaton = atm;
+        layout = atm != null ? graphLayout : null;
+        if (layout == null) {
+            automaton = null;
+            edgeSrc = edgeDst = null;
+            edgeRanges = null;
+            stateCellStart = stateCells = edgeCellStart = edgeCells = null;
+            longBandStart = longEdges = null;
+            stateMark = edgeMark = null;
+            edgeCount = 0;
+            setPreferredSize(new Dimension(0, 0));
+            revalidate();
+            return;
+        }
+
+        long t = StageProfiler.start();
+        groupEdges();
+        buildIndex();
+        StageProfiler.stop(Stage.CONTENT, t);
+        StageProfiler.count(StageProfiler.Counter.EDGES, edgeCount);
+        stateMark = new int[atm.getStateCount()];
+        edgeMark = new int[edgeCount];
+        generation = 0;
+        setPreferredSize(new Dimension((int) Math.ceil(layout.getWidth()),
+                (int) Math.ceil(layout.getHeight())));
+        revalidate();
+        setVisibleArea(visibleArea);
+    }
+
+    public IndexedAutomaton getAutomaton() {
+        return automaton;
+    }
+
+    public GraphLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return 当前已生成的状态及转移边图形个数
+     */
+    public int getFigureCount() {
+        return shownStates.size() + shownEdges.size();
+    }
+
+    /**
+     * 跟随视口的滚动及大小变化更新可见区域
+     *
+     * @param viewport
+     *            以本图形为内容的视口
+     */
+    public void hookViewport(final Viewport viewport) {
+        PropertyChangeListener rangeListener = new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                updateVisibleArea(viewport);
+            }
+        };
+        viewport.getHorizontalRangeModel().addPropertyChangeListener(
+                rangeListener);
+        viewport.getVerticalRangeModel().addPropertyChangeListener(
+                rangeListener);
+        viewport.addFigureListener(new FigureListener() {
+            @Override
+            public void figureMoved(IFigure source) {
+                updateVisibleArea(viewport);
+            }
+        });
+    }
+
+    private void updateVisibleArea(Viewport viewport) {
+        Dimension size = viewport.getClientArea().getSize();
+        setVisibleArea(new Rectangle(viewport.getViewLocation(), size));
+    }
+
+    /**
+     * @return 最近一次设置的可见区域
+     */
+    public Rectangle getVisibleArea() {
+        return visibleArea.getCopy();
+    }
+
+    /**
+     * 按给定的可见区域（本图形坐标）生成及回收图形
+     *
+     * @param area
+     */
+    public void setVisibleArea(Rectangle area) {
+        visibleArea.setBounds(area);
+        if (layout == null) {
+            return;
+        }
+
+        generation++;
+        int left = area.x - MARGIN;
+        int top = area.y - MARGIN;
+        int right = area.x + area.width + MARGIN;
+        int bottom = area.y + area.height + MARGIN;
+
+        int c0 = clamp((left - EXTENT) / CELL_SIZE, cols);
+        int c1 = clamp((right + EXTENT) / CELL_SIZE, cols);
+        int r0 = clamp((top - EXTENT) / CELL_SIZE, rows);
+        int r1 = clamp((bottom + EXTENT) / CELL_SIZE, rows);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                for (int i = stateCellStart[cell]; i < stateCellStart[cell + 1]; i++) {
+                    int s = stateCells[i];
+                    if (stateMark[s] != generation
+                            && inside(layout.getX(s), layout.getY(s), left,
+                                    top, right, bottom)) {
+                        stateMark[s] = generation;
+                        showState(s);
+                    }
+                }
+                for (int i = edgeCellStart[cell]; i < edgeCellStart[cell + 1]; i++) {
+                    checkEdge(edgeCells[i], left, top, right, bottom);
+                }
+            }
+        }
+        // 长转移边只检查与可见区域所在行带相交的部分，同一条边可能出现在多个行带中
+        for (int i = longBandStart[r0 / BAND_ROWS]; i < longBandStart[r1
+                / BAND_ROWS + 1]; i++) {
+            checkEdge(longEdges[i], left, top, right, bottom);
+        }
+
+        Iterator<Map.Entry<Integer, StateFigure>> sit = shownStates
+                .entrySet().iterator();
+        while (sit.hasNext()) {
+            Map.Entry<Integer, StateFigure> entry = sit.next();
+            if (stateMark[entry.getKey()] != generation) {
+                remove(entry.getValue());
+                statePool.add(entry.getValue());
+                sit.remove();
+            }
+        }
+        Iterator<Map.Entry<Integer, TransitionFigure>> eit = shownEdges
+                .entrySet().iterator();
+        while (eit.hasNext()) {
+            Map.Entry<Integer, TransitionFigure> entry = eit.next();
+            if (edgeMark[entry.getKey()] != generation) {
+                remove(entry.getValue());
+                edgePool.add(entry.getValue());
+                eit.remove();
+            }
+        }
+    }
+
+    private static int clamp(int v, int limit) {
+        return Math.max(0, Math.min(v, limit - 1));
+    }
+
+    private static boolean inside(double x, double y, int left, int top,
+            int right, int bottom) {
+        return x + EXTENT >= left && x - EXTENT <= right && y + EXTENT >= top
+                && y - EXTENT <= bottom;
+    }
+
+    private void checkEdge(int e, int left, int top, int right, int bottom) {
+        if (edgeMark[e] == generation) {
+            return;
+        }
+        double x1 = layout.getX(edgeSrc[e]);
+        double y1 = layout.getY(edgeSrc[e]);
+        double x2 = layout.getX(edgeDst[e]);
+        double y2 = layout.getY(edgeDst[e]);
+        if (Math.max(x1, x2) + EXTENT < left
+                || Math.min(x1, x2) - EXTENT > right
+                || Math.max(y1, y2) + EXTENT < top
+                || Math.min(y1, y2) - EXTENT > bottom) {
+            return;
+        }
+        edgeMark[e] = generation;
+        if (!shownEdges.containsKey(e)) {
+            TransitionFigure f = edgePool.isEmpty() ? new TransitionFigure()
+                    : edgePool.remove(edgePool.size() - 1);
+            char[] ranges = edgeRanges[e];
+            if (alphabet != null) {
+                f.setTransition(x1, y1, x2, y2, alphabet.makeLabel(ranges),
+                        getFont());
+                f.setToolTip(ranges.length > 0 ? new Label(
+                        ConnectionData.makeLabel(ranges)) : null);
+            } else {
+                f.setTransition(x1, y1, x2, y2,
+                        ConnectionData.makeLabel(ranges), getFont());
+                f.setToolTip(null);
+            }
+            // 转移边位于状态图形之下
+            add(f, 0);
+            shownEdges.put(e, f);
+        }
+    }
+
+    private void showState(int s) {
+        if (shownStates.containsKey(s)) {
+            return;
+        }
+        boolean init = automaton.isInitial(s);
+        StateFigure f;
+        if (statePool.isEmpty()) {
+            f = new StateFigure(String.valueOf(s), init, automaton.isAccept(s));
+        } else {
+            f = statePool.remove(statePool.size() - 1);
+            f.setState(String.valueOf(s), init, automaton.isAccept(s));
+        }
+        f.setFrontier(frontier != null && frontier.get(s));
+        int w = StateFigure.getWidth(init);
+        int h = StateFigure.SIZE;
+        f.setLocation(new Point((int) Math.round(layout.getX(s)
+                - (w - h / 2.0)), (int) Math.round(layout.getY(s) - h / 2.0)));
+        add(f);
+        shownStates.put(s, f);
+    }
+
+    /**
+     * @param p
+     *            本图形坐标系中的位置
+     * @return 该位置上已生成图形的状态，没有时返回 -1
+     */
+    public int getStateAt(Point p) {
+        for (Map.Entry<Integer, StateFigure> entry : shownStates.entrySet()) {
+            if (entry.getValue().containsPoint(p)) {
+                return entry.getKey();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 回收全部已生成的图形
+     */
+    private void recycleAll() {
+        for (StateFigure f : shownStates.values()) {
+            remove(f);
+            statePool.add(f);
+        }
+        for (TransitionFigure f : shownEdges.values()) {
+            remove(f);
+            edgePool.add(f);
+        }
+        shownStates.clear();
+        shownEdges.clear();
+    }
+
+    /**
+     * 合并同一对状态间的转移边
+     */
+    private void groupEdges() {
+        int cap = Math.max(automaton.getTransitionCount()
+                + automaton.getEpsilonCount(), 1);
+        edgeSrc = new int[cap];
+        edgeDst = new int[cap];
+        edgeRanges = new char[cap][];
+        edgeCount = 0;
+        EdgeGrouper grouper = new EdgeGrouper(automaton);
+        for (int s = 0; s < automaton.getStateCount(); s++) {
+            int groups = grouper.group(s);
+            for (int g = 0; g < groups; g++) {
+                edgeSrc[edgeCount] = s;
+                edgeDst[edgeCount] = grouper.getDest(g);
+                edgeRanges[edgeCount] = grouper.getRanges(g);
+                edgeCount++;
+            }
+            for (int e = automaton.getEpsilonStart(s); e < automaton
+                    .getEpsilonEnd(s); e++) {
+                edgeSrc[edgeCount] = s;
+                edgeDst[edgeCount] = automaton.getEpsilonDest(e);
+                edgeRanges[edgeCount] = NO_RANGES;
+                edgeCount++;
+            }
+        }
+        edgeSrc = Arrays.copyOf(edgeSrc, edgeCount);
+        edgeDst = Arrays.copyOf(edgeDst, edgeCount);
+        edgeRanges = Arrays.copyOf(edgeRanges, edgeCount);
+    }
+
+    /**
+     * 建立状态及转移边的网格索引，状态按圆心所在网格，转移边按两端圆心包围框覆盖的各网格；覆盖网格过多的长转移边按其覆盖的各行带
+     * （每 {@link #BAND_ROWS} 行网格一个）索引
+     */
+    private void buildIndex() {
+        cols = Math.max(1, (int) Math.ceil(layout.getWidth() / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(layout.getHeight() / CELL_SIZE));
+        int n = automaton.getStateCount();
+
+        int[] stateCell = new int[n];
+        stateCellStart = new int[cols * rows + 1];
+        for (int s = 0; s < n; s++) {
+            stateCell[s] = cellOf(layout.getX(s), layout.getY(s));
+            stateCellStart[stateCell[s] + 1]++;
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            stateCellStart[c + 1] += stateCellStart[c];
+        }
+        stateCells = new int[n];
+        int[] fill = Arrays.copyOf(stateCellStart, cols * rows);
+        for (int s = 0; s < n; s++) {
+            stateCells[fill[stateCell[s]]++] = s;
+        }
+
+        // 两遍处理：第一遍计数，第二遍填充
+        int bands = (rows + BAND_ROWS - 1) / BAND_ROWS;
+        edgeCellStart = new int[cols * rows + 1];
+        longBandStart = new int[bands + 1];
+        int[] longFill = null;
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                for (int c = 0; c < cols * rows; c++) {
+                    edgeCellStart[c + 1] += edgeCellStart[c];
+                }
+                edgeCells = new int[edgeCellStart[cols * rows]];
+                fill = Arrays.copyOf(edgeCellStart, cols * rows);
+                for (int b = 0; b < bands; b++) {
+                    longBandStart[b + 1] += longBandStart[b];
+                }
+                longEdges = new int[longBandStart[bands]];
+                longFill = Arrays.copyOf(longBandStart, bands);
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                int a = stateCell[edgeSrc[e]];
+                int b = stateCell[edgeDst[e]];
+                int c0 = Math.min(a % cols, b % cols);
+                int c1 = Math.max(a % cols, b % cols);
+                int r0 = Math.min(a / cols, b / cols);
+                int r1 = Math.max(a / cols, b / cols);
+                if ((c1 - c0 + 1) * (r1 - r0 + 1) > MAX_EDGE_CELLS) {
+                    for (int b = r0 / BAND_ROWS; b <= r1 / BAND_ROWS; b++) {
+                        if (pass == 0) {
+                            longBandStart[b + 1]++;
+                        } else {
+                            longEdges[longFill[b]++] = e;
+                        }
+                    }
+                    continue;
+                }
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) {
+                        if (pass == 0) {
+                            edgeCellStart[r * cols + c + 1]++;
+                        } else {
+                            edgeCells[fill[r * cols + c]++] = e;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int cellOf(double x, double y) {
+        int c = clamp((int) (x / CELL_SIZE), cols);
+        int r = clamp((int) (y / CELL_SIZE), rows);
+        return r * cols + c;
+    }
+
+}
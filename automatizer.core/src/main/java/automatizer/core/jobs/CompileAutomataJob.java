@@ -0,0 +1,362 @@
+package automatizer.core.jobs;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import automatizer.core.compilers.AutomataCompiler;
+import automatizer.core.compilers.CompileKey;
+import automatizer.core.compilers.CompiledAutomata;
+import automatizer.core.compilers.CompiledAutomataCache;
+import automatizer.core.compilers.DiskAutomataCache;
+import automatizer.core.layouts.GraphLayout;
+import automatizer.core.layouts.LayoutCache;
+import automatizer.core.matchers.AutomataMatcher;
+import automatizer.core.matchers.DfaExplorer;
+import automatizer.core.matchers.LazyDfa;
+import automatizer.core.matchers.ShiftAndMatcher;
+import automatizer.core.matchers.TableMatcher;
+import automatizer.core.minimizers.AutoMinimizer;
+import automatizer.core.minimizers.DfaMinimizer;
+import automatizer.core.minimizers.DfaTable;
+import automatizer.core.minimizers.ParallelDeterminizer;
+import automatizer.core.models.AutomataType;
+import automatizer.core.models.Budget;
+import automatizer.core.models.BudgetExceededException;
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.models.SimulationReducer;
+import automatizer.core.profiling.Stage;
+import automatizer.core.profiling.StageProfiler;
+import automatizer.core.regexps.StateEliminator;
+
+/**
+ * 在后台线程中将选中文本转换为状态机的任务，可随时取消
+ * 
+ * 各转换阶段之间会检查取消标志，被取消的任务不会产生结果，以免过时的结果覆盖较新的选中内容；各阶段耗时由 {@link StageProfiler} 记录。
+ * 状态机的构造受 {@link Budget} 限制，超出时结果中只有超限说明（见 {@link CompiledAutomata#getOverflow()}），且不进入缓存；
+ * 各阶段意外抛出的异常及栈溢出、内存不足同样转为只含失败说明的结果（见 {@link CompiledAutomata#getFailure()}）。
+ * 内存缓存未命中时再查找磁盘缓存，本次新计算出状态机、布局或正则表达式时在任务结束前提交写入磁盘缓存
+ * 
+ * @author wxz
+ * 
+ */
+public class CompileAutomataJob extends Job {
+
+    /**
+     * 所有状态机转换任务所属的 job family
+     */
+    public static final Object FAMILY = CompileAutomataJob.class;
+
+    private final CompileKey key;
+    private final boolean showRegexp;
+    private final boolean buildMatcher;
+    private final CompiledAutomataCache cache;
+    private final DiskAutomataCache diskCache;
+    private final LayoutCache layoutCache;
+    private final Budget limits;
+    private final StateEliminator eliminator = new StateEliminator();
+
+    private volatile CompiledAutomata result;
+    private final ParallelDeterminizer determinizer = new ParallelDeterminizer();
+    private final AutoMinimizer minimizer = new AutoMinimizer(
+            ParallelDeterminizer.getDefaultPool());
+    private int sourceStates = -1; // 约简前的状态数
+    private String reduction; // 约简或最小化方法
+    private DfaExplorer explorer; // 按需确定化的 DFA 的展开过程
+    private boolean dirty; // 是否计算出了磁盘缓存中没有的内容
+
+    /**
+     * @param txt
+     *            待转换文本
+     * @param atmType
+     *            目标状态机类型
+     * @param streaming
+     *            是否转换为可流式匹配的状态机
+     * @param regexp
+     *            是否同时转换出状态机对应的正则表达式
+     * @param matcher
+     *            是否同时编译用于测试输入的匹配器
+     * @param atmCache
+     *            转换结果缓存，为 null 时不使用缓存
+     * @param disk
+     *            转换结果的磁盘缓存，为 null 时不使用
+     * @param layouts
+     *            布局缓存，用于在结构相同或相近的状态机间保持状态位置
+     * @param budget
+     *            构造状态机时的资源限制，耗时从任务开始运行时计算
+     */
+    public CompileAutomataJob(String txt, AutomataType atmType,
+            boolean streaming, boolean regexp, boolean matcher,
+            CompiledAutomataCache atmCache, DiskAutomataCache disk,
+            LayoutCache layouts, Budget budget) {
+        super("Compiling automata");
+        key = new CompileKey(txt, atmType, streaming);
+        showRegexp = regexp;
+        buildMatcher = matcher;
+        cache = atmCache;
+        diskCache = disk;
+        layoutCache = layouts;
+        limits = budget;
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        monitor.beginTask("Compiling automata", 4);
+        try {
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+
+            CompiledAutomata cached = lookup(key);
+
+            IndexedAutomaton atm;
+            String regex = null;
+            AutomataMatcher matcher = null;
+            GraphLayout layout = null;
+            if (cached != null) {
+                atm = cached.getAutomaton();
+                regex = cached.getRegexp();
+                matcher = cached.getMatcher();
+                layout = cached.getLayout();
+                sourceStates = cached.getSourceStateCount();
+                reduction = cached.getReduction();
+                explorer = cached.getExplorer();
+                if (explorer != null && explorer.getAutomaton() != atm) {
+                    // 缓存之后又在视图中展开了新状态，布局及正则表达式需按新快照重新计算
+                    atm = explorer.getAutomaton();
+                    regex = null;
+                    layout = null;
+                }
+            } else {
+                Budget budget = limits.start();
+                try {
+                    if (key.getType() == AutomataType.REDUCED_NFA
+                            || key.getType() == AutomataType.MIN_DFA
+                            || key.getType() == AutomataType.LAZY_DFA) {
+                        atm = reduce(monitor, budget);
+                    } else {
+                        atm = AutomataCompiler.compile(key.getText(),
+                                key.getType(), key.isStreamingMode(), budget);
+                    }
+                } catch (BudgetExceededException e) {
+                    // 不展示也不缓存超限的状态机（含确定化后超过 DfaTable.MAX_STATES 的情况），放宽限制后可重新转换
+                    result = new CompiledAutomata(e);
+                    return Status.OK_STATUS;
+                }
+                // 选中文本不是合法的正则表达式时 atm 为 null，清空当前转移图；其他阶段的异常由外层作为失败报告
+                dirty = true;
+                putCache(atm, null, null, null);
+            }
+            monitor.worked(1);
+
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+
+            if (atm != null) {
+                StageProfiler.count(StageProfiler.Counter.STATES,
+                        atm.getStateCount());
+                StageProfiler.count(StageProfiler.Counter.TRANSITIONS,
+                        atm.getTransitionCount() + atm.getEpsilonCount());
+            }
+            if (atm != null && layout == null) {
+                monitor.subTask("Laying out diagram");
+                long t = StageProfiler.start();
+                layout = layoutCache.layout(atm);
+                StageProfiler.stop(Stage.LAYOUT, t);
+                dirty = true;
+                putCache(atm, regex, matcher, layout);
+            }
+            monitor.worked(1);
+
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+
+            String regexText = regex;
+            if (showRegexp && atm != null && regex == null) {
+                monitor.subTask("Converting automata to regexp");
+                long t = StageProfiler.start();
+                try {
+                    regex = eliminator.toRegexp(atm);
+                    regexText = regex;
+                    dirty = true;
+                    putCache(atm, regex, matcher, layout);
+                } catch (IllegalStateException e) {
+                    // 超出长度或耗时预算，以说明信息代替正则表达式且不缓存
+                    regexText = e.getMessage();
+                } finally {
+                    StageProfiler.stop(Stage.REGEXP, t);
+                }
+            }
+            monitor.worked(1);
+
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+
+            if (buildMatcher && atm != null && matcher == null) {
+                monitor.subTask("Compiling matcher");
+                long t = StageProfiler.start();
+                if (explorer != null) {
+                    // 匹配时继续按需确定化，快照只是其中已展开的部分
+                    matcher = explorer.getLazyDfa();
+                } else {
+                    // 位置数较少时用位并行匹配器，省去确定化
+                    matcher = ShiftAndMatcher.compile(atm);
+                    if (matcher == null) {
+                        try {
+                            // 缓存命中时同样需要限制确定化的规模及耗时
+                            matcher = TableMatcher.compile(atm,
+                                    limits.start());
+                        } catch (BudgetExceededException e) {
+                            // 确定化后状态数过多或耗时过长，改为匹配时按需确定化
+                            matcher = new LazyDfa(atm,
+                                    LazyDfa.CACHED_CAPACITY);
+                        }
+                    }
+                }
+                StageProfiler.stop(Stage.MATCHER, t);
+                putCache(atm, regex, matcher, layout);
+            }
+            monitor.worked(1);
+
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+
+            if (dirty && diskCache != null) {
+                // 匹配器不写入磁盘，需要时重新编译
+                diskCache.put(key, new CompiledAutomata(atm, regex, null,
+                        layout, sourceStates, reduction, explorer));
+            }
+
+            if (!showRegexp || regexText == null) {
+                regexText = "";
+            }
+            result = new CompiledAutomata(atm, regexText, matcher, layout,
+                    sourceStates, reduction, explorer);
+            return Status.OK_STATUS;
+        } catch (RuntimeException e) {
+            return fail(e);
+        } catch (StackOverflowError e) {
+            return fail(e);
+        } catch (OutOfMemoryError e) {
+            return fail(e);
+        } finally {
+            monitor.done();
+        }
+    }
+
+    /**
+     * 以失败说明代替转换结果，使视图能展示失败原因并可再次转换
+     * 
+     * @param e
+     * @return
+     */
+    private IStatus fail(Throwable e) {
+        result = new CompiledAutomata(e.getClass().getSimpleName()
+                + (e.getMessage() != null ? ": " + e.getMessage() : ""));
+        return Status.OK_STATUS;
+    }
+
+    /**
+     * 按模拟关系约简选中文本对应的 ε-free NFA，或将其确定化后用自动选择的算法最小化，或从 init 状态开始按需确定化前
+     * {@link DfaExplorer#DEFAULT_BUDGET} 个状态，已缓存的 ε-free NFA 直接复用
+     * 
+     * @param monitor
+     * @param budget
+     * @return
+     * @throws BudgetExceededException
+     */
+    private IndexedAutomaton reduce(IProgressMonitor monitor, Budget budget) {
+        CompileKey nfaKey = new CompileKey(key.getText(),
+                AutomataType.EPS_FREE_NFA, key.isStreamingMode());
+        CompiledAutomata nfa = lookup(nfaKey);
+        IndexedAutomaton src = nfa != null ? nfa.getAutomaton()
+                : AutomataCompiler.compile(key.getText(),
+                        AutomataType.EPS_FREE_NFA, key.isStreamingMode(),
+                        budget);
+        if (src == null) {
+            return null;
+        }
+        long t = StageProfiler.start();
+        try {
+            if (key.getType() == AutomataType.REDUCED_NFA) {
+                monitor.subTask("Reducing NFA");
+                sourceStates = src.getStateCount();
+                reduction = "Reduced NFA";
+                IndexedAutomaton res = SimulationReducer.reduce(src, budget);
+                budget.checkTime(Stage.REDUCE, res.getStateCount(),
+                        res.getTransitionCount());
+                return res;
+            }
+            if (key.getType() == AutomataType.LAZY_DFA) {
+                monitor.subTask("Exploring DFA");
+                sourceStates = src.getStateCount();
+                reduction = "Lazy DFA";
+                explorer = new DfaExplorer(new LazyDfa(src,
+                        LazyDfa.CACHED_CAPACITY));
+                explorer.expandTo(DfaExplorer.DEFAULT_BUDGET);
+                return explorer.getAutomaton();
+            }
+
+            monitor.subTask("Minimizing DFA");
+            DfaTable dfa = determinizer.determinize(src, budget);
+            DfaMinimizer m = minimizer.select(dfa);
+            sourceStates = dfa.getStateCount();
+            reduction = "Min DFA (" + m + ")";
+            return m.minimize(dfa).toAutomaton();
+        } finally {
+            StageProfiler.stop(Stage.REDUCE, t);
+        }
+    }
+
+    /**
+     * 依次在内存缓存及磁盘缓存中查找转换结果，磁盘缓存命中的结果同时放入内存缓存
+     * 
+     * @param k
+     * @return 未命中时返回 null
+     */
+    private CompiledAutomata lookup(CompileKey k) {
+        CompiledAutomata res = cache != null ? cache.get(k) : null;
+        if (res == null && diskCache != null) {
+            long t = StageProfiler.start();
+            res = diskCache.get(k);
+            StageProfiler.stop(Stage.DISK, t);
+            if (res != null && cache != null) {
+                cache.put(k, res);
+            }
+        }
+        return res;
+    }
+
+    private void putCache(IndexedAutomaton atm, String regex,
+            AutomataMatcher matcher, GraphLayout layout) {
+        if (cache != null) {
+            cache.put(key, new CompiledAutomata(atm, regex, matcher, layout,
+                    sourceStates, reduction, explorer));
+        }
+    }
+
+    @Override
+    public boolean belongsTo(Object family) {
+        return family == FAMILY;
+    }
+
+    /**
+     * @return 是否要求编译匹配器
+     */
+    public boolean isBuildMatcher() {
+        return buildMatcher;
+    }
+
+    /**
+     * @return 转换结果，任务未成功完成时为 null
+     */
+    public CompiledAutomata getCompiledAutomata() {
+        return result;
+    }
+
+}
@@ -0,0 +1,61 @@
+package automatizer.core.layouts;
+
+/**
+ * 布局计算结果：每个状态圆心的坐标及整个转移图的大小，状态按 {@link automatizer.core.models.IndexedAutomaton}
+ * 中的编号索引。实例创建后不再修改，可在线程间共享。
+ * 
+ * @author wxz
+ * 
+ */
+public final class GraphLayout {
+
+    private final double[] xs;
+    private final double[] ys;
+    private final double width;
+    private final double height;
+
+    public GraphLayout(double[] x, double[] y, double w, double h) {
+        xs = x;
+        ys = y;
+        width = w;
+        height = h;
+    }
+
+    public int getStateCount() {
+        return xs.length;
+    }
+
+    /**
+     * @param state
+     * @return 状态圆心的横坐标
+     */
+    public double getX(int state) {
+        return xs[state];
+    }
+
+    /**
+     * @param state
+     * @return 状态圆心的纵坐标
+     */
+    public double getY(int state) {
+        return ys[state];
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * 估算占用的内存字节数
+     * 
+     * @return
+     */
+    public long estimateSize() {
+        return 48 + 16L * xs.length;
+    }
+
+}
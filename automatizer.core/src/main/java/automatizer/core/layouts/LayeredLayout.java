@@ -0,0 +1,459 @@
+package automatizer.core.layouts;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 从左到右分层（Sugiyama 方式）的转移图布局算法，结果接近 Graphviz dot 的 rankdir=LR 布局。
+ * 
+ * 依次执行：
+ * <ol>
+ * <li>环消除：按广度优先编号从小到大确定边的方向，将回边反向</li>
+ * <li>分层：在得到的有向无环图上按最长路径分层</li>
+ * <li>交叉减少：按邻居平均位置（barycenter）交替向右、向左扫描排序各层</li>
+ * <li>坐标分配：各层状态向其邻居平均位置靠拢，同时保持层内顺序及最小间距</li>
+ * </ol>
+ * 
+ * 跨越多层的边不插入虚拟节点（Zest 的连线本身也只是直线），其两端直接参与 barycenter 计算，因此每一步的开销与边数成
+ * 线性关系，排序步骤为 O(n log n)。算法只读取状态机快照，可在任意线程中执行。
+ * 
+ * @author wxz
+ * 
+ */
+public class LayeredLayout {
+
+    /**
+     * 状态圆的直径
+     */
+    public static final int NODE_SIZE = 30;
+
+    /**
+     * 相邻两层圆心的水平距离
+     */
+    public static final int LAYER_SPACING = 100;
+
+    /**
+     * 同层相邻状态圆心的最小垂直距离
+     */
+    public static final int NODE_SPACING = 60;
+
+    /**
+     * 转移图四周的留白，左侧额外留出起始状态箭头的位置
+     */
+    public static final int MARGIN = 20;
+
+    private static final int INIT_ARROW = 15;
+    private static final int SWEEPS = 4;
+
+    private int n;
+    // 去除自环及重复边后的有向无环图，以 CSR 形式存放正向及反向邻接表
+    private int[] succStart;
+    private int[] succ;
+    private int[] predStart;
+    private int[] pred;
+
+    private int[] layer;
+    private int layerCount;
+    private int[][] layers; // 每层中按顺序排列的状态
+    private int[] pos; // 状态在所在层中的序号
+    private double[] ys;
+
+    /**
+     * 计算给定状态机的布局
+     * 
+     * @param atm
+     * @return
+     */
+    public GraphLayout layout(IndexedAutomaton atm) {
+        return layout(atm, null, null);
+    }
+
+    /**
+     * 增量布局：在之前布局中已有对应状态的状态保持原坐标不变，只为新状态分配位置。
+     * 
+     * 新状态所在的层与完整布局相同，纵坐标取已放置邻居的平均值，并在同一列中避开已占用的位置。坐标整体超出左上边界时所有状态
+     * 一起平移。
+     * 
+     * @param atm
+     * @param base
+     *            之前的布局，为 null 时做完整布局
+     * @param baseIndex
+     *            各状态在 base 中对应的状态编号，没有对应状态时为 -1
+     * @return
+     */
+    public GraphLayout layout(IndexedAutomaton atm, GraphLayout base,
+            int[] baseIndex) {
+        n = atm.getStateCount();
+        if (n == 0) {
+            return new GraphLayout(new double[0], new double[0], 2 * MARGIN,
+                    2 * MARGIN);
+        }
+        buildAcyclicGraph(atm);
+        assignLayers();
+        reduceCrossings();
+        assignCoordinates();
+
+        double[] xs = new double[n];
+        for (int s = 0; s < n; s++) {
+            xs[s] = columnX(layer[s]);
+        }
+        if (base != null) {
+            placeIncrementally(xs, base, baseIndex);
+        }
+        GraphLayout result = normalize(xs, ys);
+
+        succStart = succ = predStart = pred = null;
+        layer = pos = null;
+        layers = null;
+        ys = null;
+        return result;
+    }
+
+    private static double columnX(int layer) {
+        return MARGIN + INIT_ARROW + NODE_SIZE / 2.0 + layer * LAYER_SPACING;
+    }
+
+    /**
+     * 保留已有状态的坐标，按编号顺序逐个放置新状态
+     */
+    private void placeIncrementally(double[] xs, GraphLayout base,
+            int[] baseIndex) {
+        Map<Double, TreeSet<Double>> columns = new HashMap<Double, TreeSet<Double>>();
+        boolean[] placed = new boolean[n];
+        for (int s = 0; s < n; s++) {
+            int b = baseIndex[s];
+            if (b >= 0 && b < base.getStateCount()) {
+                xs[s] = base.getX(b);
+                ys[s] = base.getY(b);
+                placed[s] = true;
+                column(columns, xs[s]).add(ys[s]);
+            }
+        }
+
+        for (int s = 0; s < n; s++) {
+            if (placed[s]) {
+                continue;
+            }
+            double sum = 0;
+            int count = 0;
+            for (int i = predStart[s]; i < predStart[s + 1]; i++) {
+                if (placed[pred[i]]) {
+                    sum += ys[pred[i]];
+                    count++;
+                }
+            }
+            for (int i = succStart[s]; i < succStart[s + 1]; i++) {
+                if (placed[succ[i]]) {
+                    sum += ys[succ[i]];
+                    count++;
+                }
+            }
+            double desired = count > 0 ? sum / count : ys[s];
+            TreeSet<Double> col = column(columns, xs[s]);
+            ys[s] = freeSlot(col, desired);
+            col.add(ys[s]);
+            placed[s] = true;
+        }
+    }
+
+    private static TreeSet<Double> column(Map<Double, TreeSet<Double>> columns,
+            double x) {
+        TreeSet<Double> col = columns.get(x);
+        if (col == null) {
+            col = new TreeSet<Double>();
+            columns.put(x, col);
+        }
+        return col;
+    }
+
+    /**
+     * 在列中寻找离期望位置最近、与已有状态保持最小间距的纵坐标
+     */
+    private static double freeSlot(TreeSet<Double> col, double desired) {
+        double step = NODE_SPACING / 2.0;
+        for (int k = 0;; k++) {
+            if (isFree(col, desired + k * step)) {
+                return desired + k * step;
+            }
+            if (k > 0 && isFree(col, desired - k * step)) {
+                return desired - k * step;
+            }
+        }
+    }
+
+    private static boolean isFree(TreeSet<Double> col, double y) {
+        Double lo = col.floor(y);
+        Double hi = col.ceiling(y);
+        return (lo == null || y - lo >= NODE_SPACING)
+                && (hi == null || hi - y >= NODE_SPACING);
+    }
+
+    /**
+     * 平移坐标使其左上角留出边距，并计算转移图大小
+     */
+    private static GraphLayout normalize(double[] xs, double[] ys) {
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int s = 0; s < xs.length; s++) {
+            minX = Math.min(minX, xs[s]);
+            minY = Math.min(minY, ys[s]);
+            maxX = Math.max(maxX, xs[s]);
+            maxY = Math.max(maxY, ys[s]);
+        }
+        double dx = Math.max(0, columnX(0) - minX);
+        double dy = Math.max(0, MARGIN + NODE_SIZE / 2.0 - minY);
+        if (dx > 0 || dy > 0) {
+            for (int s = 0; s < xs.length; s++) {
+                xs[s] += dx;
+                ys[s] += dy;
+            }
+        }
+        return new GraphLayout(xs, ys, maxX + dx + NODE_SIZE / 2.0 + MARGIN,
+                maxY + dy + NODE_SIZE / 2.0 + MARGIN);
+    }
+
+    /**
+     * 去除自环及重复边，并将回边反向得到有向无环图
+     * 
+     * @param atm
+     */
+    private void buildAcyclicGraph(IndexedAutomaton atm) {
+        // 去重后的原图邻接表，ε 转移边与普通转移边同等对待
+        int[] outStart = new int[n + 1];
+        int[] out = new int[atm.getTransitionCount() + atm.getEpsilonCount()];
+        int[] stamp = new int[n];
+        Arrays.fill(stamp, -1);
+        int m = 0;
+        for (int s = 0; s < n; s++) {
+            stamp[s] = s;
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                int d = atm.getDest(t);
+                if (stamp[d] != s) {
+                    stamp[d] = s;
+                    out[m++] = d;
+                }
+            }
+            for (int e = atm.getEpsilonStart(s); e < atm.getEpsilonEnd(s); e++) {
+                int d = atm.getEpsilonDest(e);
+                if (stamp[d] != s) {
+                    stamp[d] = s;
+                    out[m++] = d;
+                }
+            }
+            outStart[s + 1] = m;
+        }
+
+        // 状态编号即广度优先顺序，将所有边统一为从小编号指向大编号即得到无环图，指回较早状态的回边被反向
+        int[] edgeFrom = new int[m];
+        int[] edgeTo = new int[m];
+        for (int s = 0; s < n; s++) {
+            for (int e = outStart[s]; e < outStart[s + 1]; e++) {
+                int d = out[e];
+                edgeFrom[e] = Math.min(s, d);
+                edgeTo[e] = Math.max(s, d);
+            }
+        }
+
+        succStart = new int[n + 1];
+        predStart = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            succStart[edgeFrom[e] + 1]++;
+            predStart[edgeTo[e] + 1]++;
+        }
+        for (int s = 0; s < n; s++) {
+            succStart[s + 1] += succStart[s];
+            predStart[s + 1] += predStart[s];
+        }
+        succ = new int[m];
+        pred = new int[m];
+        int[] sfill = Arrays.copyOf(succStart, n);
+        int[] pfill = Arrays.copyOf(predStart, n);
+        for (int e = 0; e < m; e++) {
+            succ[sfill[edgeFrom[e]]++] = edgeTo[e];
+            pred[pfill[edgeTo[e]]++] = edgeFrom[e];
+        }
+    }
+
+    /**
+     * 按拓扑顺序计算最长路径分层，并以状态编号（即广度优先顺序）作为各层的初始顺序
+     */
+    private void assignLayers() {
+        layer = new int[n];
+        int[] indeg = new int[n];
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int s = 0; s < n; s++) {
+            indeg[s] = predStart[s + 1] - predStart[s];
+            if (indeg[s] == 0) {
+                queue[tail++] = s;
+            }
+        }
+        layerCount = 1;
+        for (int head = 0; head < tail; head++) {
+            int s = queue[head];
+            for (int i = succStart[s]; i < succStart[s + 1]; i++) {
+                int d = succ[i];
+                if (layer[s] + 1 > layer[d]) {
+                    layer[d] = layer[s] + 1;
+                    layerCount = Math.max(layerCount, layer[d] + 1);
+                }
+                if (--indeg[d] == 0) {
+                    queue[tail++] = d;
+                }
+            }
+        }
+
+        int[] sizes = new int[layerCount];
+        for (int s = 0; s < n; s++) {
+            sizes[layer[s]]++;
+        }
+        layers = new int[layerCount][];
+        for (int l = 0; l < layerCount; l++) {
+            layers[l] = new int[sizes[l]];
+            sizes[l] = 0;
+        }
+        pos = new int[n];
+        for (int s = 0; s < n; s++) {
+            pos[s] = sizes[layer[s]];
+            layers[layer[s]][sizes[layer[s]]++] = s;
+        }
+    }
+
+    /**
+     * 交替向右、向左扫描，按相邻方向上邻居的平均序号对各层重新排序
+     */
+    private void reduceCrossings() {
+        double[] keys = new double[n];
+        for (int sweep = 0; sweep < SWEEPS; sweep++) {
+            boolean forward = sweep % 2 == 0;
+            for (int i = 1; i < layerCount; i++) {
+                int l = forward ? i : layerCount - 1 - i;
+                int[] nodes = layers[l];
+                for (int s : nodes) {
+                    keys[s] = forward ? barycenter(s, predStart, pred)
+                            : barycenter(s, succStart, succ);
+                }
+                sortLayer(nodes, keys);
+                for (int j = 0; j < nodes.length; j++) {
+                    pos[nodes[j]] = j;
+                }
+            }
+        }
+    }
+
+    private double barycenter(int s, int[] start, int[] adj) {
+        int from = start[s];
+        int to = start[s + 1];
+        if (from == to) {
+            return pos[s];
+        }
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += pos[adj[i]];
+        }
+        return sum / (to - from);
+    }
+
+    /**
+     * 按 key 对层内状态稳定排序
+     */
+    private static void sortLayer(int[] nodes, double[] keys) {
+        if (nodes.length <= 1) {
+            return;
+        }
+        final double[] k = new double[nodes.length];
+        Integer[] order = new Integer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            k[i] = keys[nodes[i]];
+            order[i] = i;
+        }
+        // key 相同时保持原顺序
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int c = Double.compare(k[a], k[b]);
+                return c != 0 ? c : a - b;
+            }
+        });
+        int[] copy = nodes.clone();
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = copy[order[i]];
+        }
+    }
+
+    /**
+     * 先按层内顺序等距排列，再交替向前驱、后继的平均纵坐标靠拢，每次调整保持层内顺序及最小间距
+     */
+    private void assignCoordinates() {
+        ys = new double[n];
+        for (int l = 0; l < layerCount; l++) {
+            int[] nodes = layers[l];
+            for (int j = 0; j < nodes.length; j++) {
+                ys[nodes[j]] = j * NODE_SPACING;
+            }
+        }
+
+        double[] desired = new double[n];
+        for (int sweep = 0; sweep < SWEEPS; sweep++) {
+            boolean forward = sweep % 2 == 0;
+            for (int i = 1; i < layerCount; i++) {
+                int l = forward ? i : layerCount - 1 - i;
+                int[] nodes = layers[l];
+                for (int s : nodes) {
+                    desired[s] = forward ? averageY(s, predStart, pred)
+                            : averageY(s, succStart, succ);
+                }
+                placeLayer(nodes, desired);
+            }
+        }
+
+        double min = Double.MAX_VALUE;
+        for (int s = 0; s < n; s++) {
+            min = Math.min(min, ys[s]);
+        }
+        double offset = MARGIN + NODE_SIZE / 2.0 - min;
+        for (int s = 0; s < n; s++) {
+            ys[s] += offset;
+        }
+    }
+
+    private double averageY(int s, int[] start, int[] adj) {
+        int from = start[s];
+        int to = start[s + 1];
+        if (from == to) {
+            return ys[s];
+        }
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += ys[adj[i]];
+        }
+        return sum / (to - from);
+    }
+
+    /**
+     * 按顺序将层内状态放到不早于其期望位置且与前一状态保持最小间距的位置，再整体上移使平均偏差为零
+     */
+    private void placeLayer(int[] nodes, double[] desired) {
+        double prev = -Double.MAX_VALUE;
+        double shift = 0;
+        for (int s : nodes) {
+            double y = Math.max(desired[s], prev + NODE_SPACING);
+            ys[s] = y;
+            shift += desired[s] - y;
+            prev = y;
+        }
+        shift /= nodes.length;
+        for (int s : nodes) {
+            ys[s] += shift;
+        }
+    }
+
+}
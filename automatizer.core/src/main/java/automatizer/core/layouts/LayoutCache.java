@@ -0,0 +1,237 @@
+package automatizer.core.layouts;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 按状态机结构缓存转移图布局，使在视图间切换或重新选择相同文本时状态位置保持不变。
+ *
+ * 以状态机快照的结构散列（状态数、accept 状态及全部转移边，含 ε 转移边）作为键，结构相同的状态机直接返回同一布局而不重新计算。未命中时以最近
+ * 使用的布局为基础做增量布局：两个状态机中从起始状态出发、沿广度优先生成树上相同字符范围序列到达的状态视为同一状态，保持其原有
+ * 坐标，只为新增状态分配位置；对应状态不足一半时做完整布局。所有方法均可在任意线程中调用。
+ *
+ * @author wxz
+ *
+ */
+public class LayoutCache {
+
+    /**
+     * 默认缓存的布局个数
+     */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private final int capacity;
+    // 按访问顺序排列，表尾为最近使用的条目
+    private final LinkedHashMap<Long, Entry> entries;
+
+    private long hitCount;
+    private long incrementalCount;
+    private long missCount;
+
+    public LayoutCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LayoutCache(int maxEntries) {
+        capacity = maxEntries;
+        entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+    }
+
+    /**
+     * 获取给定状态机的布局，未缓存时计算并保存
+     *
+     * @param atm
+     * @return
+     */
+    public GraphLayout layout(IndexedAutomaton atm) {
+        long hash = structureHash(atm);
+        Entry base;
+        synchronized (this) {
+            Entry e = entries.get(hash);
+            if (e != null && e.stateCount == atm.getStateCount()
+                    && e.transitionCount == atm.getTransitionCount()) {
+                hitCount++;
+                return e.layout;
+            }
+            base = last();
+        }
+
+        // 布局计算较慢，不持有锁
+        long[] keys = pathKeys(atm);
+        GraphLayout layout = null;
+        if (base != null) {
+            int[] baseIndex = match(keys, base.keys);
+            if (baseIndex != null) {
+                layout = new LayeredLayout().layout(atm, base.layout,
+                        baseIndex);
+            }
+        }
+        boolean incremental = layout != null;
+        if (layout == null) {
+            layout = new LayeredLayout().layout(atm);
+        }
+
+        synchronized (this) {
+            if (incremental) {
+                incrementalCount++;
+            } else {
+                missCount++;
+            }
+            entries.put(hash, new Entry(atm, keys, layout));
+            Iterator<Long> it = entries.keySet().iterator();
+            while (entries.size() > capacity && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        return layout;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getIncrementalCount() {
+        return incrementalCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "Layout cache: %d hits, %d incremental, %d misses, %d entries",
+                hitCount, incrementalCount, missCount, entries.size());
+    }
+
+    private Entry last() {
+        Entry res = null;
+        for (Entry e : entries.values()) {
+            res = e;
+        }
+        return res;
+    }
+
+    /**
+     * 按路径键将状态对应到之前布局中的状态
+     *
+     * @return 各状态在之前布局中的编号（无对应时为 -1），对应状态不足一半时返回 null
+     */
+    private static int[] match(long[] keys, long[] baseKeys) {
+        Map<Long, Integer> index = new HashMap<Long, Integer>(
+                baseKeys.length * 2);
+        for (int s = 0; s < baseKeys.length; s++) {
+            index.put(baseKeys[s], s);
+        }
+        // NFA 中同一状态经相同字符范围可到达多个状态，其路径键相同，每个之前的状态只对应一次
+        boolean[] used = new boolean[baseKeys.length];
+        int[] res = new int[keys.length];
+        int matched = 0;
+        for (int s = 0; s < keys.length; s++) {
+            Integer b = index.get(keys[s]);
+            if (b != null && !used[b]) {
+                used[b] = true;
+                res[s] = b;
+                matched++;
+            } else {
+                res[s] = -1;
+            }
+        }
+        return matched * 2 >= keys.length ? res : null;
+    }
+
+    /**
+     * 计算状态机快照的结构散列
+     *
+     * @param atm
+     * @return
+     */
+    static long structureHash(IndexedAutomaton atm) {
+        int n = atm.getStateCount();
+        long h = mix(n, atm.getTransitionCount());
+        for (int s = 0; s < n; s++) {
+            h = mix(h, atm.isAccept(s) ? 1 : 0);
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                h = mix(h, ((long) atm.getMin(t) << 48)
+                        | ((long) atm.getMax(t) << 32) | atm.getDest(t));
+            }
+            for (int e = atm.getEpsilonStart(s); e < atm.getEpsilonEnd(s); e++) {
+                h = mix(h, ~(long) atm.getEpsilonDest(e));
+            }
+            h = mix(h, -1);
+        }
+        return h;
+    }
+
+    /**
+     * 计算各状态的路径键：起始状态为固定值，其余状态由首次发现它的状态（按编号的广度优先顺序）的键及所经转移边的字符范围得出
+     */
+    static long[] pathKeys(IndexedAutomaton atm) {
+        int n = atm.getStateCount();
+        long[] keys = new long[n];
+        boolean[] seen = new boolean[n];
+        if (n == 0) {
+            return keys;
+        }
+        keys[0] = mix(0, 1);
+        seen[0] = true;
+        for (int s = 0; s < n; s++) {
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                int d = atm.getDest(t);
+                if (!seen[d]) {
+                    seen[d] = true;
+                    keys[d] = mix(keys[s], ((long) atm.getMin(t) << 16)
+                            | atm.getMax(t));
+                }
+            }
+            for (int e = atm.getEpsilonStart(s); e < atm.getEpsilonEnd(s); e++) {
+                int d = atm.getEpsilonDest(e);
+                if (!seen[d]) {
+                    seen[d] = true;
+                    keys[d] = mix(keys[s], -1);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static long mix(long h, long v) {
+        long x = (h ^ v) * 0x9E3779B97F4A7C15L;
+        x ^= x >>> 32;
+        x *= 0xD6E8FEB86659FD93L;
+        return x ^ (x >>> 29);
+    }
+
+    private static final class Entry {
+
+        final int stateCount;
+        final int transitionCount;
+        final long[] keys;
+        final GraphLayout layout;
+
+        Entry(IndexedAutomaton atm, long[] keys, GraphLayout layout) {
+            stateCount = atm.getStateCount();
+            transitionCount = atm.getTransitionCount();
+            this.keys = keys;
+            this.layout = layout;
+        }
+
+    }
+
+}
@@ -0,0 +1,24 @@
+package automatizer.core.matchers;
+
+/**
+ * 用状态机匹配输入文本的匹配器
+ * 
+ * @author wxz
+ * 
+ */
+public interface AutomataMatcher {
+
+    /**
+     * 从起始状态开始逐字符运行状态机，直至输入结束或无可用转移
+     * 
+     * @param input
+     * @return 匹配结果
+     */
+    MatchResult match(CharSequence input);
+
+    /**
+     * @return 估算的内存占用字节数
+     */
+    long estimateSize();
+
+}
@@ -0,0 +1,188 @@
+package automatizer.core.matchers;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import automatizer.core.models.AlphabetPartition;
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 从 init 状态开始逐步展开 {@link LazyDfa} 的过程，用于在转移图中按需显示确定化结果。
+ *
+ * 已展开的状态以原状态机状态集合记录，不受 LazyDfa 缓存清空的影响；{@link #getAutomaton()} 返回的快照只包含已展开状态及其直接后继，
+ * 后者组成尚未展开的边界（frontier），在快照中没有出边。每次展开后重新生成快照，之前的快照及边界不会被修改。
+ *
+ * @author wxz
+ *
+ */
+public class DfaExplorer {
+
+    /**
+     * 新建展开过程时默认展开的状态数
+     */
+    public static final int DEFAULT_BUDGET = 32;
+
+    private final LazyDfa dfa;
+    private final Set<BitSet> expanded = new HashSet<BitSet>();
+
+    private IndexedAutomaton automaton;
+    private BitSet frontier;
+    private List<BitSet> stateSets; // 快照中各状态对应的原状态机状态集合
+
+    public DfaExplorer(LazyDfa lazyDfa) {
+        dfa = lazyDfa;
+        snapshot();
+    }
+
+    /**
+     * 展开快照中的一个边界状态
+     *
+     * @param state
+     *            快照中的状态编号
+     * @return 该状态原本是否属于边界
+     */
+    public synchronized boolean expand(int state) {
+        if (!frontier.get(state)) {
+            return false;
+        }
+        expanded.add(stateSets.get(state));
+        snapshot();
+        return true;
+    }
+
+    /**
+     * 展开当前全部边界状态
+     *
+     * @return 展开的状态数
+     */
+    public synchronized int expandFrontier() {
+        int count = 0;
+        for (int s = frontier.nextSetBit(0); s >= 0; s = frontier
+                .nextSetBit(s + 1)) {
+            expanded.add(stateSets.get(s));
+            count++;
+        }
+        if (count > 0) {
+            snapshot();
+        }
+        return count;
+    }
+
+    /**
+     * 按广度优先顺序逐层展开边界状态，直至已展开状态数达到给定值或没有边界状态
+     *
+     * @param budget
+     *            已展开状态数的上限
+     */
+    public synchronized void expandTo(int budget) {
+        while (expanded.size() < budget && !frontier.isEmpty()) {
+            for (int s = frontier.nextSetBit(0); s >= 0
+                    && expanded.size() < budget; s = frontier.nextSetBit(s + 1)) {
+                expanded.add(stateSets.get(s));
+            }
+            snapshot();
+        }
+    }
+
+    /**
+     * 从 init 状态出发重新生成快照。状态按广度优先顺序加入，转移边按字符升序加入，
+     * 与 {@link IndexedAutomaton.Builder#build()} 的编号顺序一致，因此快照中的状态编号即加入顺序。
+     */
+    private void snapshot() {
+        Map<BitSet, Integer> ids = new HashMap<BitSet, Integer>();
+        List<BitSet> order = new ArrayList<BitSet>();
+        BitSet front = new BitSet();
+        IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+        AlphabetPartition alphabet = dfa.getAlphabet();
+        int k = alphabet.getClassCount();
+        int intervals = alphabet.getIntervalCount();
+        BitSet[] targets = new BitSet[k];
+
+        BitSet init = dfa.getInitialSet();
+        ids.put(init, b.addState(dfa.isAccept(init)));
+        order.add(init);
+        b.setInitialState(0);
+        for (int s = 0; s < order.size(); s++) {
+            BitSet cur = order.get(s);
+            if (!expanded.contains(cur)) {
+                front.set(s);
+                continue;
+            }
+            for (int cls = 0; cls < k; cls++) {
+                targets[cls] = dfa.next(cur, cls);
+            }
+            // 按字符顺序扫描基本区间，同一目标状态的相邻区间合并为一条转移边
+            BitSet prev = null;
+            int from = 0;
+            for (int i = 0; i <= intervals; i++) {
+                BitSet next = i < intervals ? targets[alphabet
+                        .getIntervalClass(i)] : null;
+                if (i < intervals && next != null && next.equals(prev)) {
+                    continue;
+                }
+                if (prev != null) {
+                    b.addTransition(s, alphabet.getIntervalStart(from),
+                            alphabet.getIntervalEnd(i - 1), ids.get(prev));
+                }
+                if (next != null && !ids.containsKey(next)) {
+                    ids.put(next, b.addState(dfa.isAccept(next)));
+                    order.add(next);
+                }
+                prev = next;
+                from = i;
+            }
+        }
+
+        automaton = b.build();
+        frontier = front;
+        stateSets = order;
+    }
+
+    /**
+     * @return 已展开部分的快照
+     */
+    public synchronized IndexedAutomaton getAutomaton() {
+        return automaton;
+    }
+
+    /**
+     * @return 快照中尚未展开的边界状态，不应修改
+     */
+    public synchronized BitSet getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * @param state
+     *            快照中的状态编号
+     * @return 对应的原状态机状态集合，不应修改
+     */
+    public synchronized BitSet getStateSet(int state) {
+        return stateSets.get(state);
+    }
+
+    public synchronized int getExpandedCount() {
+        return expanded.size();
+    }
+
+    public LazyDfa getLazyDfa() {
+        return dfa;
+    }
+
+    /**
+     * 估算内存占用，不含快照本身。按需确定化的 DFA 按其容量上限计，已展开部分按当前状态集合计，之后的展开需重新估算
+     * 
+     * @return 估算的内存占用字节数
+     */
+    public synchronized long estimateSize() {
+        return dfa.estimateMaxSize()
+                + (long) (expanded.size() + stateSets.size())
+                * dfa.estimateSetSize();
+    }
+
+}
@@ -0,0 +1,321 @@
+package automatizer.core.matchers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import automatizer.core.models.AlphabetPartition;
+import automatizer.core.models.EpsilonClosure;
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 按需确定化的 DFA 匹配器：只在匹配或展开过程中实际到达某个状态集合时才生成对应的 DFA 状态，转移表按 (状态, 字符类) 逐格填充。
+ *
+ * 已生成的 DFA 状态保存在容量有限的缓存中，缓存满时整体清空并从当前状态集合重新开始，因此确定化后状态数再多也只占用固定内存，
+ * 代价是清空后已计算过的转移需要重新计算。清空会使之前得到的状态编号失效，调用者只应持有最近一次 {@link #start()}、
+ * {@link #step(int, int)} 或 {@link #stateOf(BitSet)} 返回的编号；跨越多步需要保存的状态应使用其状态集合。
+ *
+ * 字符类的划分（见 {@link AlphabetPartition}）与 {@link TableMatcher} 相同，含 ε 转移边的状态机直接使用 ε 闭包，匹配结果中的状态编号对应原状态机。
+ *
+ * @author wxz
+ *
+ */
+public final class LazyDfa implements AutomataMatcher {
+
+    /**
+     * 默认缓存的 DFA 状态数
+     */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    /**
+     * 放入转换结果缓存的 LazyDfa 缓存的 DFA 状态数，使其最大内存占用在放入缓存时即可确定
+     */
+    public static final int CACHED_CAPACITY = 1024;
+
+    /**
+     * 无转移
+     */
+    public static final int DEAD = -1;
+
+    private static final int UNKNOWN = -2; // 尚未计算的转移
+
+    private final IndexedAutomaton nfa;
+    private final EpsilonClosure closure;
+    private final AlphabetPartition alphabet;
+    private final char[] representatives; // 各字符类中的最小字符，同一字符类中的字符转移结果相同
+    private final int classCount;
+    private final int capacity;
+    private final BitSet initSet;
+
+    private final Map<BitSet, Integer> ids = new HashMap<BitSet, Integer>();
+    private final List<BitSet> sets = new ArrayList<BitSet>();
+    private final BitSet accept = new BitSet();
+    private int[] table; // 以 状态 * classCount + 字符类 索引，UNKNOWN 表示尚未计算
+    private int flushes;
+
+    /**
+     * @param atm
+     *            待确定化的状态机，可含 ε 转移边
+     * @param cacheCapacity
+     *            缓存的 DFA 状态数上限，至少为 1
+     */
+    public LazyDfa(IndexedAutomaton atm, int cacheCapacity) {
+        if (cacheCapacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive");
+        }
+        nfa = atm;
+        closure = atm.hasEpsilons() ? new EpsilonClosure(atm) : null;
+        capacity = cacheCapacity;
+
+        alphabet = AlphabetPartition.of(atm);
+        classCount = alphabet.getClassCount();
+        representatives = new char[classCount];
+        for (int cls = 0; cls < classCount; cls++) {
+            representatives[cls] = alphabet.getRepresentative(cls);
+        }
+
+        initSet = new BitSet(atm.getStateCount());
+        initSet.set(atm.getInitialState());
+        if (closure != null) {
+            closure.close(initSet);
+        }
+        table = new int[Math.min(capacity, 16) * classCount];
+    }
+
+    public LazyDfa(IndexedAutomaton atm) {
+        this(atm, DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public synchronized MatchResult match(CharSequence input) {
+        final AlphabetPartition a = alphabet;
+        int len = input.length();
+        int state = start();
+        for (int i = 0; i < len; i++) {
+            int cls = a.classOf(input.charAt(i));
+            int next = table[state * classCount + cls];
+            if (next == UNKNOWN) {
+                next = step(state, cls);
+            }
+            if (next == DEAD) {
+                return new MatchResult(false, i, len, new int[0]);
+            }
+            state = next;
+        }
+        return new MatchResult(accept.get(state), len, len, toArray(sets
+                .get(state)));
+    }
+
+    /**
+     * @return init 状态的 ε 闭包对应的 DFA 状态
+     */
+    public synchronized int start() {
+        return stateOf(initSet);
+    }
+
+    /**
+     * 查找或生成状态集合对应的 DFA 状态，缓存已满时先清空缓存
+     *
+     * @param set
+     *            已做 ε 闭包的非空状态集合，调用后不应再修改
+     * @return
+     */
+    public synchronized int stateOf(BitSet set) {
+        Integer id = ids.get(set);
+        if (id != null) {
+            return id;
+        }
+        if (sets.size() >= capacity) {
+            flush();
+        }
+        int s = sets.size();
+        ids.put(set, s);
+        sets.add(set);
+        if ((s + 1) * classCount > table.length) {
+            int rows = Math.min(capacity, Math.max(s + 1, 2 * sets.size()));
+            table = Arrays.copyOf(table, rows * classCount);
+        }
+        Arrays.fill(table, s * classCount, (s + 1) * classCount, UNKNOWN);
+        for (int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1)) {
+            if (nfa.isAccept(q)) {
+                accept.set(s);
+                break;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * 计算（或从缓存中取出）DFA 状态在字符类上的目标状态
+     *
+     * @param state
+     * @param cls
+     * @return 目标状态，无转移时为 {@link #DEAD}；生成目标状态时可能清空缓存，此后只有返回的编号有效
+     */
+    public synchronized int step(int state, int cls) {
+        int pos = state * classCount + cls;
+        int next = table[pos];
+        if (next != UNKNOWN) {
+            return next;
+        }
+        BitSet target = successor(sets.get(state), cls);
+        if (target == null) {
+            table[pos] = DEAD;
+            return DEAD;
+        }
+        int before = flushes;
+        next = stateOf(target);
+        if (flushes == before) {
+            table[pos] = next;
+        }
+        return next;
+    }
+
+    /**
+     * 按状态集合计算目标状态集合，结果同样进入缓存
+     *
+     * @param set
+     * @param cls
+     * @return 目标状态集合，无转移时为 null
+     */
+    public synchronized BitSet next(BitSet set, int cls) {
+        int t = step(stateOf(set), cls);
+        return t == DEAD ? null : sets.get(t);
+    }
+
+    /**
+     * 不经缓存计算状态集合在字符类上的后继（含 ε 闭包）
+     *
+     * @param set
+     * @param cls
+     * @return 后继集合，为空时返回 null
+     */
+    private BitSet successor(BitSet set, int cls) {
+        char c = representatives[cls];
+        BitSet res = null;
+        for (int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1)) {
+            for (int t = nfa.getTransitionStart(q); t < nfa
+                    .getTransitionEnd(q); t++) {
+                if (nfa.getMin(t) <= c && c <= nfa.getMax(t)) {
+                    if (res == null) {
+                        res = new BitSet(nfa.getStateCount());
+                    }
+                    res.set(nfa.getDest(t));
+                }
+            }
+        }
+        if (res != null && closure != null) {
+            closure.close(res);
+        }
+        return res;
+    }
+
+    /**
+     * 清空已生成的全部 DFA 状态
+     */
+    private void flush() {
+        ids.clear();
+        sets.clear();
+        accept.clear();
+        flushes++;
+    }
+
+    private static int[] toArray(BitSet set) {
+        int[] res = new int[set.cardinality()];
+        int i = 0;
+        for (int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1)) {
+            res[i++] = q;
+        }
+        return res;
+    }
+
+    /**
+     * @param state
+     * @return DFA 状态对应的原状态机状态集合，不应修改
+     */
+    public synchronized BitSet getStateSet(int state) {
+        return sets.get(state);
+    }
+
+    public synchronized boolean isAccept(int state) {
+        return accept.get(state);
+    }
+
+    /**
+     * @param set
+     * @return 状态集合中是否含原状态机的 accept 状态
+     */
+    public boolean isAccept(BitSet set) {
+        for (int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1)) {
+            if (nfa.isAccept(q)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return init 状态的 ε 闭包，不应修改
+     */
+    public BitSet getInitialSet() {
+        return initSet;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * @return 转移表各列对应的字符类划分
+     */
+    public AlphabetPartition getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * @return 当前缓存的 DFA 状态数
+     */
+    public synchronized int getStateCount() {
+        return sets.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return 缓存已满而清空的次数
+     */
+    public synchronized int getFlushCount() {
+        return flushes;
+    }
+
+    @Override
+    public synchronized long estimateSize() {
+        return estimateSize(table.length, sets.size());
+    }
+
+    /**
+     * @return 缓存达到容量上限时估算的内存占用字节数，匹配或展开过程中不会超出
+     */
+    public long estimateMaxSize() {
+        return estimateSize((long) capacity * classCount, capacity);
+    }
+
+    /**
+     * @return 估算的单个状态集合占用的字节数
+     */
+    long estimateSetSize() {
+        // 按位图大小计，另加哈希表项开销
+        return nfa.getStateCount() / 8 + 64;
+    }
+
+    private long estimateSize(long tableLength, int setCount) {
+        return 4L * tableLength + alphabet.estimateSize() + 2L
+                * representatives.length + setCount * estimateSetSize();
+    }
+
+}
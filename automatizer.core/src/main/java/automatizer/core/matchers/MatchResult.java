@@ -0,0 +1,71 @@
+package automatizer.core.matchers;
+
+/**
+ * 状态机运行结果：是否接受输入、实际消耗的字符数及最终所处的状态
+ * 
+ * @author wxz
+ * 
+ */
+public class MatchResult {
+
+    boolean accepted;
+    int consumed;
+    int length;
+    int[] states;
+
+    /**
+     * @param isAccepted
+     *            输入是否被接受
+     * @param consumedChars
+     *            运行停止前消耗的字符数
+     * @param inputLength
+     *            输入总长度
+     * @param finalStates
+     *            最终所处的状态编号（NFA 可能同时处于多个状态），无可用转移而停止时为空数组
+     */
+    public MatchResult(boolean isAccepted, int consumedChars, int inputLength,
+            int[] finalStates) {
+        accepted = isAccepted;
+        consumed = consumedChars;
+        length = inputLength;
+        states = finalStates;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public int getConsumed() {
+        return consumed;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int[] getStates() {
+        return states;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(accepted ? "Accepted" : "Rejected");
+        if (consumed < length) {
+            sb.append(", no transition at offset ").append(consumed);
+        } else if (states.length == 1) {
+            sb.append(", final state ").append(states[0]);
+        } else {
+            sb.append(", final states {");
+            for (int i = 0; i < states.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(states[i]);
+            }
+            sb.append("}");
+        }
+        return sb.toString();
+    }
+
+}
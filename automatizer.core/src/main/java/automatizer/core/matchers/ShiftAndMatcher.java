@@ -0,0 +1,260 @@
+package automatizer.core.matchers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import automatizer.core.models.AlphabetPartition;
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 位并行的 NFA 匹配器（Glushkov 自动机上的 Shift-And），不做确定化，适合位置数不超过 64 的小型模式。
+ *
+ * Glushkov 自动机进入每个位置（状态）的转移边都带有相同的字符集合，因此一步转移可拆为“全部活跃状态的后继集合”与“当前字符可进入的位置集合”之交：
+ * 活跃状态集合保存在一个 long 中，每个字符类预先计算可进入的位置掩码，编号相邻的位置间的转移边用一次移位处理，
+ * 其余转移边按 8 位分块查表；模式为线性时每个字符只需一次移位、一次与及一次或运算。
+ *
+ * 进入同一状态的转移边字符集合不同时（如 DFA），按来源状态的字符集合拆分该状态，拆分后超过 64 个位置时不能使用本匹配器。
+ * 匹配结果中的状态编号对应原状态机。
+ *
+ * @author wxz
+ *
+ */
+public final class ShiftAndMatcher implements AutomataMatcher {
+
+    /**
+     * 最多可表示的位置数
+     */
+    public static final int MAX_POSITIONS = 64;
+
+    private final AlphabetPartition alphabet;
+
+    private final long[] classMasks; // 各字符类可进入的位置
+    private final long shiftMask; // 存在 i -> i+1 转移边的位置 i+1
+    private final long[][] follow; // 其余转移边：follow[j][b] 为第 j 个 8 位分块取值为 b 时的后继位置，无此类转移边的分块为 null
+    private final long initial;
+    private final long accept;
+    private final int[] states; // 各位置对应的原状态编号
+    private final int positions;
+
+    private ShiftAndMatcher(AlphabetPartition alphabet, long[] classMasks,
+            long shiftMask, long[][] follow, long initial, long accept,
+            int[] states) {
+        this.alphabet = alphabet;
+        this.classMasks = classMasks;
+        this.shiftMask = shiftMask;
+        this.follow = follow;
+        this.initial = initial;
+        this.accept = accept;
+        this.states = states;
+        positions = states.length;
+    }
+
+    /**
+     * 将 ε-free NFA 编译为位并行匹配器
+     *
+     * @param atm
+     * @return 含 ε 转移边或位置数超过 {@link #MAX_POSITIONS} 时返回 null
+     */
+    public static ShiftAndMatcher compile(IndexedAutomaton atm) {
+        if (atm.hasEpsilons()) {
+            return null;
+        }
+        int n = atm.getStateCount();
+
+        AlphabetPartition alphabet = AlphabetPartition.of(atm);
+        int k = alphabet.getClassCount();
+
+        // 按 (目标状态, 来源状态到目标状态的字符类集合) 拆分位置，init 状态另占一个只能作为起点的位置
+        Map<List<Object>, Integer> ids = new HashMap<List<Object>, Integer>();
+        List<Integer> origin = new ArrayList<Integer>();
+        List<BitSet> labels = new ArrayList<BitSet>();
+        origin.add(atm.getInitialState());
+        labels.add(new BitSet());
+        int[][] edgeTargets = new int[n][];
+        for (int s = 0; s < n; s++) {
+            // 同一来源状态到同一目标状态的多条转移边合并为一个字符类集合
+            Map<Integer, BitSet> byDest = new HashMap<Integer, BitSet>();
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                BitSet set = byDest.get(atm.getDest(t));
+                if (set == null) {
+                    set = new BitSet(k);
+                    byDest.put(atm.getDest(t), set);
+                }
+                alphabet.addClasses(atm.getMin(t), atm.getMax(t), set);
+            }
+            int[] targets = new int[byDest.size()];
+            int i = 0;
+            for (Map.Entry<Integer, BitSet> e : byDest.entrySet()) {
+                List<Object> key = Arrays.<Object> asList(e.getKey(),
+                        e.getValue());
+                Integer id = ids.get(key);
+                if (id == null) {
+                    if (origin.size() >= MAX_POSITIONS) {
+                        return null;
+                    }
+                    id = origin.size();
+                    ids.put(key, id);
+                    origin.add(e.getKey());
+                    labels.add(e.getValue());
+                }
+                targets[i++] = id;
+            }
+            Arrays.sort(targets);
+            edgeTargets[s] = targets;
+        }
+
+        // 按深度优先先序编号，使链状的转移边尽量落在相邻位置上
+        int m = origin.size();
+        int[] order = new int[m];
+        Arrays.fill(order, -1);
+        int[] stack = new int[m + 1];
+        int sp = 0;
+        int next = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int p = stack[--sp];
+            if (order[p] >= 0) {
+                continue;
+            }
+            order[p] = next++;
+            int[] targets = edgeTargets[origin.get(p)];
+            for (int i = targets.length - 1; i >= 0; i--) {
+                if (order[targets[i]] < 0) {
+                    if (sp == stack.length) {
+                        stack = Arrays.copyOf(stack, sp * 2);
+                    }
+                    stack[sp++] = targets[i];
+                }
+            }
+        }
+        for (int p = 0; p < m; p++) {
+            // 原状态机中的状态均从 init 状态可达，此处只是防御
+            if (order[p] < 0) {
+                order[p] = next++;
+            }
+        }
+
+        long[] classMasks = new long[k];
+        long[] succ = new long[m];
+        long accept = 0;
+        int[] states = new int[m];
+        for (int p = 0; p < m; p++) {
+            int bit = order[p];
+            int q = origin.get(p);
+            states[bit] = q;
+            if (atm.isAccept(q)) {
+                accept |= 1L << bit;
+            }
+            BitSet label = labels.get(p);
+            for (int cls = label.nextSetBit(0); cls >= 0; cls = label
+                    .nextSetBit(cls + 1)) {
+                classMasks[cls] |= 1L << bit;
+            }
+            for (int target : edgeTargets[q]) {
+                succ[bit] |= 1L << order[target];
+            }
+        }
+
+        // 相邻位置间的转移边由移位处理，其余的按 8 位分块建表
+        long shiftMask = 0;
+        for (int bit = 0; bit + 1 < m; bit++) {
+            if ((succ[bit] & (1L << (bit + 1))) != 0) {
+                shiftMask |= 1L << (bit + 1);
+                succ[bit] &= ~(1L << (bit + 1));
+            }
+        }
+        long[][] follow = new long[(m + 7) / 8][];
+        for (int j = 0; j < follow.length; j++) {
+            boolean any = false;
+            for (int bit = 8 * j; bit < Math.min(8 * j + 8, m); bit++) {
+                any |= succ[bit] != 0;
+            }
+            if (!any) {
+                continue;
+            }
+            long[] table = new long[256];
+            for (int b = 1; b < 256; b++) {
+                int low = Integer.numberOfTrailingZeros(b);
+                long s = 8 * j + low < m ? succ[8 * j + low] : 0;
+                table[b] = table[b & (b - 1)] | s;
+            }
+            follow[j] = table;
+        }
+
+        return new ShiftAndMatcher(alphabet, classMasks, shiftMask, follow,
+                1L << order[0], accept, states);
+    }
+
+    @Override
+    public MatchResult match(CharSequence input) {
+        final long[] masks = classMasks;
+        final long[][] tables = follow;
+        final long shift = shiftMask;
+        final AlphabetPartition a = alphabet;
+        int len = input.length();
+        long d = initial;
+        for (int i = 0; i < len; i++) {
+            char c = input.charAt(i);
+            long f = (d << 1) & shift;
+            for (int j = 0; j < tables.length; j++) {
+                if (tables[j] != null) {
+                    f |= tables[j][(int) (d >>> (8 * j)) & 0xff];
+                }
+            }
+            d = f & masks[a.classOf(c)];
+            if (d == 0) {
+                return new MatchResult(false, i, len, new int[0]);
+            }
+        }
+        return new MatchResult((d & accept) != 0, len, len, statesOf(d));
+    }
+
+    /**
+     * @param d
+     * @return 活跃位置对应的原状态编号，升序排列且无重复
+     */
+    private int[] statesOf(long d) {
+        int[] res = new int[Long.bitCount(d)];
+        int i = 0;
+        for (long bits = d; bits != 0; bits &= bits - 1) {
+            res[i++] = states[Long.numberOfTrailingZeros(bits)];
+        }
+        Arrays.sort(res);
+        int m = 0;
+        for (int j = 0; j < i; j++) {
+            if (m == 0 || res[j] != res[m - 1]) {
+                res[m++] = res[j];
+            }
+        }
+        return Arrays.copyOf(res, m);
+    }
+
+    @Override
+    public long estimateSize() {
+        long size = 8L * classMasks.length + alphabet.estimateSize() + 4L
+                * states.length;
+        for (long[] table : follow) {
+            if (table != null) {
+                size += 8L * table.length;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return 位置数
+     */
+    public int getPositionCount() {
+        return positions;
+    }
+
+    public int getClassCount() {
+        return alphabet.getClassCount();
+    }
+
+}
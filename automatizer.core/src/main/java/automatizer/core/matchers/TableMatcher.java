@@ -0,0 +1,132 @@
+package automatizer.core.matchers;
+
+import java.util.BitSet;
+
+import automatizer.core.minimizers.DfaTable;
+import automatizer.core.models.AlphabetPartition;
+import automatizer.core.models.Budget;
+import automatizer.core.models.BudgetExceededException;
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 表驱动的 DFA 匹配器。
+ *
+ * 编译时先将字符集按全部转移边划分为若干字符类（见 {@link AlphabetPartition}），再通过子集构造（见
+ * {@link DfaTable#determinize(IndexedAutomaton, int)}）得到以字符类为列的 int[] 转移表，匹配时每个字符只需查一次字符类和一次转移表。字符类查找对较小的字符范围使用直接索引的数组，
+ * 超出部分（宽字符范围）使用对区间边界的二分查找。含 ε 转移边的状态机在子集构造时直接使用 ε 闭包，
+ * 匹配结果中的状态编号仍对应原状态机。
+ *
+ * @author wxz
+ *
+ */
+public final class TableMatcher implements AutomataMatcher {
+
+    /**
+     * 允许生成的 DFA 状态数上限
+     */
+    public static final int MAX_STATES = DfaTable.MAX_STATES;
+
+    private static final int DEAD = -1;
+
+    private final AlphabetPartition alphabet;
+    private final int classCount;
+
+    private final int[] table; // 以 状态行偏移 + 字符类 索引，值为目标状态行偏移，DEAD 表示无转移
+    private final BitSet accept; // 按状态序号标记 accept 状态
+    private final int[][] stateSets; // 每个 DFA 状态对应的原状态机状态编号
+
+    private TableMatcher(AlphabetPartition alphabet, int[] table,
+            BitSet accept, int[][] stateSets) {
+        this.alphabet = alphabet;
+        classCount = alphabet.getClassCount();
+        this.table = table;
+        this.accept = accept;
+        this.stateSets = stateSets;
+    }
+
+    /**
+     * 将状态机编译为转移表，NFA（含 ε-NFA）会被确定化
+     *
+     * @param atm
+     * @return
+     * @throws BudgetExceededException
+     *             确定化后的状态数超过 {@link #MAX_STATES}
+     */
+    public static TableMatcher compile(IndexedAutomaton atm) {
+        return compile(atm, Budget.UNLIMITED);
+    }
+
+    /**
+     * 在给定资源限制内将状态机编译为转移表
+     *
+     * @param atm
+     * @param budget
+     *            资源限制，应已调用 {@link Budget#start()}
+     * @return
+     * @throws BudgetExceededException
+     *             确定化后的状态数超过 {@link #MAX_STATES} 或超出资源限制
+     */
+    public static TableMatcher compile(IndexedAutomaton atm, Budget budget) {
+        DfaTable dfa = DfaTable.determinize(atm, budget);
+        int size = dfa.getStateCount();
+        int k = dfa.getClassCount();
+
+        // 转移表中保存目标状态的行偏移，匹配时省去乘法
+        int[] table = new int[size * k];
+        BitSet accept = new BitSet(size);
+        int[][] stateSets = new int[size][];
+        for (int d = 0; d < size; d++) {
+            for (int cls = 0; cls < k; cls++) {
+                int target = dfa.getNext(d, cls);
+                table[d * k + cls] = target == DfaTable.NONE ? DEAD : target
+                        * k;
+            }
+            if (dfa.isAccept(d)) {
+                accept.set(d);
+            }
+            stateSets[d] = dfa.getStateSet(d);
+        }
+
+        return new TableMatcher(dfa.getAlphabet(), table, accept, stateSets);
+    }
+
+    @Override
+    public MatchResult match(CharSequence input) {
+        final int[] t = table;
+        final AlphabetPartition a = alphabet;
+        int len = input.length();
+        int row = 0;
+        int i = 0;
+        for (; i < len; i++) {
+            int next = t[row + a.classOf(input.charAt(i))];
+            if (next == DEAD) {
+                return new MatchResult(false, i, len, new int[0]);
+            }
+            row = next;
+        }
+
+        int state = row / classCount;
+        return new MatchResult(accept.get(state), len, len, stateSets[state]);
+    }
+
+    public int getStateCount() {
+        return stateSets.length;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    @Override
+    public long estimateSize() {
+        return 4L * table.length + alphabet.estimateSize();
+    }
+
+    /**
+     * @return 转移表占用的 int 元素个数
+     */
+    public int getTableSize() {
+        return table.length;
+    }
+
+}
@@ -0,0 +1,79 @@
+package automatizer.core.minimizers;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 按状态数、字符类数及转移表稠密程度自动选择最小化算法：
+ *
+ * <ul>
+ * <li>给定 ForkJoinPool 且其并行度大于 1 时，状态数不少于 {@link #PARALLEL_STATES} 的 DFA 用 {@link ParallelMinimizer}</li>
+ * <li>状态数及字符类数都很少时用 Brzozowski 算法，中间结果的状态数有较小的上界，且省去建立划分结构的开销</li>
+ * <li>转移表中有目标状态的项不足一半时用 Valmari 算法，其耗时只与实际存在的转移边数有关</li>
+ * <li>否则用 Hopcroft 算法，补充 sink 状态的代价很小，且不需要维护转移边划分</li>
+ * </ul>
+ *
+ * @author wxz
+ *
+ */
+public class AutoMinimizer implements DfaMinimizer {
+
+    // 使用 Brzozowski 算法的状态数及字符类数上限
+    static final int SMALL_STATES = 8;
+    static final int SMALL_CLASSES = 4;
+
+    /**
+     * 使用并行算法的状态数下限
+     */
+    public static final int PARALLEL_STATES = 4096;
+
+    private final DfaMinimizer hopcroft = new HopcroftMinimizer();
+    private final DfaMinimizer valmari = new ValmariMinimizer();
+    private final DfaMinimizer brzozowski = new BrzozowskiMinimizer();
+    private final DfaMinimizer parallel; // 不使用并行算法时为 null
+
+    /**
+     * 只选择顺序算法
+     */
+    public AutoMinimizer() {
+        parallel = null;
+    }
+
+    /**
+     * @param pool
+     *            大型 DFA 使用的 ForkJoinPool
+     */
+    public AutoMinimizer(ForkJoinPool pool) {
+        parallel = pool.getParallelism() > 1 ? new ParallelMinimizer(pool)
+                : null;
+    }
+
+    /**
+     * @param dfa
+     * @return 适合给定 DFA 的最小化算法
+     */
+    public DfaMinimizer select(DfaTable dfa) {
+        int n = dfa.getStateCount();
+        int k = dfa.getClassCount();
+        if (parallel != null && n >= PARALLEL_STATES) {
+            return parallel;
+        }
+        if (n <= SMALL_STATES && k <= SMALL_CLASSES) {
+            return brzozowski;
+        }
+        if (2L * dfa.getTransitionCount() < (long) n * k) {
+            return valmari;
+        }
+        return hopcroft;
+    }
+
+    @Override
+    public DfaTable minimize(DfaTable dfa) {
+        return select(dfa).minimize(dfa);
+    }
+
+    @Override
+    public String toString() {
+        return "auto";
+    }
+
+}
@@ -0,0 +1,136 @@
+package automatizer.core.minimizers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brzozowski 算法：将 DFA 反转后确定化，再重复一次，结果即为最小 DFA。
+ *
+ * 最坏情况下中间结果的状态数是指数级的，但实现简单且不需要划分结构，适合状态数很少的 DFA。
+ *
+ * @author wxz
+ *
+ */
+public class BrzozowskiMinimizer implements DfaMinimizer {
+
+    private final int maxStates;
+
+    public BrzozowskiMinimizer() {
+        this(DfaTable.MAX_STATES);
+    }
+
+    /**
+     * @param maxStates
+     *            中间结果允许的状态数上限
+     */
+    public BrzozowskiMinimizer(int maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             中间结果的状态数超过上限
+     */
+    @Override
+    public DfaTable minimize(DfaTable dfa) {
+        dfa = dfa.trim();
+        if (dfa.accept.isEmpty()) {
+            return dfa;
+        }
+        return reverse(reverse(dfa));
+    }
+
+    /**
+     * 确定化反转后的 DFA：init 状态为原 accept 状态集合，含原 init 状态的集合为 accept 状态
+     *
+     * @param dfa
+     * @return
+     */
+    private DfaTable reverse(DfaTable dfa) {
+        int n = dfa.stateCount;
+        int k = dfa.classCount;
+
+        // 各 (目标状态, 字符类) 的来源状态
+        int[] inStart = new int[n * k + 1];
+        for (int i = 0; i < n * k; i++) {
+            int d = dfa.next[i];
+            if (d != DfaTable.NONE) {
+                inStart[d * k + i % k + 1]++;
+            }
+        }
+        for (int i = 0; i < n * k; i++) {
+            inStart[i + 1] += inStart[i];
+        }
+        int[] pred = new int[inStart[n * k]];
+        int[] fill = Arrays.copyOf(inStart, n * k);
+        for (int i = 0; i < n * k; i++) {
+            int d = dfa.next[i];
+            if (d != DfaTable.NONE) {
+                pred[fill[d * k + i % k]++] = i / k;
+            }
+        }
+
+        Map<BitSet, Integer> ids = new HashMap<BitSet, Integer>();
+        List<BitSet> sets = new ArrayList<BitSet>();
+        BitSet init = (BitSet) dfa.accept.clone();
+        ids.put(init, 0);
+        sets.add(init);
+
+        int[] table = new int[16 * k];
+        for (int d = 0; d < sets.size(); d++) {
+            BitSet cur = sets.get(d);
+            for (int c = 0; c < k; c++) {
+                BitSet nextSet = null;
+                for (int q = cur.nextSetBit(0); q >= 0; q = cur
+                        .nextSetBit(q + 1)) {
+                    for (int i = inStart[q * k + c]; i < inStart[q * k + c + 1]; i++) {
+                        if (nextSet == null) {
+                            nextSet = new BitSet(n);
+                        }
+                        nextSet.set(pred[i]);
+                    }
+                }
+
+                int target = DfaTable.NONE;
+                if (nextSet != null) {
+                    Integer id = ids.get(nextSet);
+                    if (id == null) {
+                        if (sets.size() >= maxStates) {
+                            throw DfaTable.tooManyStates(maxStates);
+                        }
+                        id = sets.size();
+                        ids.put(nextSet, id);
+                        sets.add(nextSet);
+                    }
+                    target = id;
+                }
+
+                int pos = d * k + c;
+                if (pos >= table.length) {
+                    table = Arrays.copyOf(table, table.length * 2);
+                }
+                table[pos] = target;
+            }
+        }
+
+        int size = sets.size();
+        BitSet accept = new BitSet(size);
+        for (int d = 0; d < size; d++) {
+            if (sets.get(d).get(dfa.initial)) {
+                accept.set(d);
+            }
+        }
+        return new DfaTable(dfa.alphabet, size, 0, Arrays.copyOf(table, size
+                * k), accept, null);
+    }
+
+    @Override
+    public String toString() {
+        return "brzozowski";
+    }
+
+}
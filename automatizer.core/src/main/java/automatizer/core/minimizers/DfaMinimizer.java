@@ -0,0 +1,20 @@
+package automatizer.core.minimizers;
+
+/**
+ * DFA 最小化算法
+ * 
+ * @author wxz
+ * 
+ */
+public interface DfaMinimizer {
+
+    /**
+     * 最小化给定 DFA
+     * 
+     * @param dfa
+     *            可以是不完全的 DFA，可以含不能到达 accept 状态的状态
+     * @return 接受相同语言、状态数最少且不含 dead 状态的（不完全）DFA
+     */
+    DfaTable minimize(DfaTable dfa);
+
+}
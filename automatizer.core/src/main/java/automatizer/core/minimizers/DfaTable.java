@@ -0,0 +1,446 @@
+package automatizer.core.minimizers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import automatizer.core.models.AlphabetPartition;
+import automatizer.core.models.Budget;
+import automatizer.core.models.BudgetExceededException;
+import automatizer.core.models.EpsilonClosure;
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.profiling.Stage;
+
+/**
+ * 以 int[] 稠密转移表表示的 DFA，供各最小化算法使用。
+ *
+ * 字符集按全部转移边划分为若干字符类（见 {@link AlphabetPartition}），
+ * 状态 s 在字符类 c 上的目标状态为 next[s * classCount + c]，{@link #NONE} 表示无转移（即转移至省略的 dead 状态）。
+ *
+ * @author wxz
+ *
+ */
+public final class DfaTable {
+
+    /**
+     * 无转移
+     */
+    public static final int NONE = -1;
+
+    /**
+     * 确定化时允许生成的状态数上限
+     */
+    public static final int MAX_STATES = 100000;
+
+    final AlphabetPartition alphabet;
+    final int classCount;
+    final int stateCount;
+    final int initial;
+    final int[] next;
+    final BitSet accept;
+    private final int[][] stateSets; // 确定化得到的各状态对应的原状态机状态编号
+
+    DfaTable(AlphabetPartition alphabet, int stateCount, int initial,
+            int[] next, BitSet accept, int[][] stateSets) {
+        this.alphabet = alphabet;
+        classCount = alphabet.getClassCount();
+        this.stateCount = stateCount;
+        this.initial = initial;
+        this.next = next;
+        this.accept = accept;
+        this.stateSets = stateSets;
+    }
+
+    /**
+     * 通过子集构造确定化状态机（含 ε-NFA），只生成从 init 状态可达的非空状态集合
+     *
+     * @param atm
+     * @param maxStates
+     *            允许生成的状态数上限
+     * @return
+     * @throws IllegalStateException
+     *             确定化后的状态数超过 maxStates
+     */
+    public static DfaTable determinize(IndexedAutomaton atm, int maxStates) {
+        return determinize(atm, maxStates, Budget.UNLIMITED);
+    }
+
+    /**
+     * 通过子集构造确定化状态机，每生成一个状态检查一次 DFA 状态数、转移边数及耗时
+     *
+     * @param atm
+     * @param budget
+     * @return
+     * @throws BudgetExceededException
+     *             超出 budget 的限制，超限阶段记为 {@link Stage#REDUCE}
+     * @throws IllegalStateException
+     *             确定化后的状态数超过 {@link #MAX_STATES}
+     */
+    public static DfaTable determinize(IndexedAutomaton atm, Budget budget) {
+        return determinize(atm, MAX_STATES, budget);
+    }
+
+    private static DfaTable determinize(IndexedAutomaton atm, int maxStates,
+            Budget budget) {
+        AlphabetPartition alphabet = AlphabetPartition.of(atm);
+        int k = alphabet.getClassCount();
+        Moves moves = moves(atm, alphabet);
+
+        // 子集构造
+        EpsilonClosure closure = atm.hasEpsilons() ? new EpsilonClosure(atm)
+                : null;
+        Map<BitSet, Integer> dfaIds = new HashMap<BitSet, Integer>();
+        List<BitSet> dfaStates = new ArrayList<BitSet>();
+        BitSet init = initialSet(atm, closure);
+        dfaIds.put(init, 0);
+        dfaStates.add(init);
+
+        int[] table = new int[16 * k];
+        int edges = 0;
+        for (int d = 0; d < dfaStates.size(); d++) {
+            BitSet cur = dfaStates.get(d);
+            for (int cls = 0; cls < k; cls++) {
+                BitSet nextSet = successor(cur, cls, moves, closure);
+                int target = NONE;
+                if (nextSet != null) {
+                    Integer id = dfaIds.get(nextSet);
+                    if (id == null) {
+                        if (dfaStates.size() >= maxStates) {
+                            throw tooManyStates(maxStates);
+                        }
+                        id = dfaStates.size();
+                        dfaIds.put(nextSet, id);
+                        dfaStates.add(nextSet);
+                        budget.checkDfa(Stage.REDUCE, dfaStates.size(), edges);
+                    }
+                    target = id;
+                    edges++;
+                }
+
+                int pos = d * k + cls;
+                if (pos >= table.length) {
+                    table = Arrays.copyOf(table, table.length * 2);
+                }
+                table[pos] = target;
+            }
+        }
+
+        return assemble(atm, alphabet, dfaStates, table);
+    }
+
+    /**
+     * 各 NFA 状态在每个字符类上的目标状态，以 CSR 形式存放：状态 s 在字符类 c 上的目标状态为
+     * targets[start[s * k + c] .. start[s * k + c + 1])，可能有重复
+     */
+    static final class Moves {
+        final int classCount;
+        final int[] start;
+        final int[] targets;
+
+        Moves(int classCount, int[] start, int[] targets) {
+            this.classCount = classCount;
+            this.start = start;
+            this.targets = targets;
+        }
+    }
+
+    /**
+     * @param atm
+     * @param alphabet
+     * @return 各 NFA 状态在每个字符类上的目标状态
+     */
+    static Moves moves(IndexedAutomaton atm, AlphabetPartition alphabet) {
+        int n = atm.getStateCount();
+        int k = alphabet.getClassCount();
+        int intervals = alphabet.getIntervalCount();
+        // 先统计每个 (状态, 字符类) 的目标数，再按前缀和填写
+        int[] start = new int[n * k + 1];
+        for (int s = 0; s < n; s++) {
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                for (int iv = alphabet.intervalOf(atm.getMin(t)); iv < intervals
+                        && alphabet.getIntervalStart(iv) <= atm.getMax(t); iv++) {
+                    start[s * k + alphabet.getIntervalClass(iv) + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < n * k; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] targets = new int[start[n * k]];
+        int[] fill = Arrays.copyOf(start, n * k);
+        for (int s = 0; s < n; s++) {
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                for (int iv = alphabet.intervalOf(atm.getMin(t)); iv < intervals
+                        && alphabet.getIntervalStart(iv) <= atm.getMax(t); iv++) {
+                    targets[fill[s * k + alphabet.getIntervalClass(iv)]++] = atm
+                            .getDest(t);
+                }
+            }
+        }
+        return new Moves(k, start, targets);
+    }
+
+    /**
+     * @param atm
+     * @param closure
+     *            无 ε 转移边时为 null
+     * @return init 状态的 ε 闭包
+     */
+    static BitSet initialSet(IndexedAutomaton atm, EpsilonClosure closure) {
+        BitSet init = new BitSet(atm.getStateCount());
+        init.set(atm.getInitialState());
+        if (closure != null) {
+            closure.close(init);
+        }
+        return init;
+    }
+
+    /**
+     * 计算状态集合在字符类上的后继（含 ε 闭包），只读取参数，可在多个线程中同时调用
+     *
+     * @param cur
+     * @param cls
+     * @param moves
+     * @param closure
+     *            无 ε 转移边时为 null
+     * @return 后继集合，为空时返回 null
+     */
+    static BitSet successor(BitSet cur, int cls, Moves moves,
+            EpsilonClosure closure) {
+        BitSet nextSet = null;
+        int k = moves.classCount;
+        for (int s = cur.nextSetBit(0); s >= 0; s = cur.nextSetBit(s + 1)) {
+            int cell = s * k + cls;
+            for (int i = moves.start[cell]; i < moves.start[cell + 1]; i++) {
+                if (nextSet == null) {
+                    nextSet = new BitSet();
+                }
+                nextSet.set(moves.targets[i]);
+            }
+        }
+        if (nextSet != null && closure != null) {
+            closure.close(nextSet);
+        }
+        return nextSet;
+    }
+
+    /**
+     * @param maxStates
+     * @return 确定化后的状态数超过 maxStates 时抛出的异常，按超出 DFA 状态数限制报告，以便与资源限制同样展示
+     */
+    static BudgetExceededException tooManyStates(int maxStates) {
+        return new BudgetExceededException(Stage.REDUCE, "DFA states",
+                maxStates, maxStates + 1L, maxStates, 0, 0);
+    }
+
+    /**
+     * 由子集构造的结果生成 DFA
+     *
+     * @param atm
+     * @param alphabet
+     * @param dfaStates
+     *            按编号排列的各 DFA 状态对应的 NFA 状态集合
+     * @param table
+     *            转移表，长度不小于 状态数 * 字符类数
+     * @return
+     */
+    static DfaTable assemble(IndexedAutomaton atm, AlphabetPartition alphabet,
+            List<BitSet> dfaStates, int[] table) {
+        int size = dfaStates.size();
+        BitSet accept = new BitSet(size);
+        int[][] stateSets = new int[size][];
+        for (int d = 0; d < size; d++) {
+            BitSet set = dfaStates.get(d);
+            int[] nums = new int[set.cardinality()];
+            int i = 0;
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                nums[i++] = s;
+                if (atm.isAccept(s)) {
+                    accept.set(d);
+                }
+            }
+            stateSets[d] = nums;
+        }
+
+        return new DfaTable(alphabet, size, 0, Arrays.copyOf(table, size
+                * alphabet.getClassCount()), accept, stateSets);
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getInitialState() {
+        return initial;
+    }
+
+    public boolean isAccept(int state) {
+        return accept.get(state);
+    }
+
+    /**
+     * @return 转移表各列对应的字符类划分
+     */
+    public AlphabetPartition getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * @param state
+     * @param cls
+     * @return 目标状态，无转移时为 {@link #NONE}
+     */
+    public int getNext(int state, int cls) {
+        return next[state * classCount + cls];
+    }
+
+    /**
+     * @return 有目标状态的 (状态, 字符类) 对数
+     */
+    public int getTransitionCount() {
+        int m = 0;
+        for (int t : next) {
+            if (t != NONE) {
+                m++;
+            }
+        }
+        return m;
+    }
+
+    /**
+     * @param state
+     * @return 确定化得到的状态对应的原状态机状态编号，最小化结果中为 null
+     */
+    public int[] getStateSet(int state) {
+        return stateSets != null ? stateSets[state] : null;
+    }
+
+    /**
+     * 去除不能到达 accept 状态的状态，指向这些状态的转移变为无转移
+     *
+     * @return 无此类状态时返回自身
+     */
+    public DfaTable trim() {
+        int k = classCount;
+        int[] inStart = new int[stateCount + 1];
+        for (int t : next) {
+            if (t != NONE) {
+                inStart[t + 1]++;
+            }
+        }
+        for (int s = 0; s < stateCount; s++) {
+            inStart[s + 1] += inStart[s];
+        }
+        int[] pred = new int[inStart[stateCount]];
+        int[] fill = Arrays.copyOf(inStart, stateCount);
+        for (int i = 0; i < next.length; i++) {
+            if (next[i] != NONE) {
+                pred[fill[next[i]]++] = i / k;
+            }
+        }
+
+        BitSet live = (BitSet) accept.clone();
+        int[] queue = new int[stateCount];
+        int tail = 0;
+        for (int s = live.nextSetBit(0); s >= 0; s = live.nextSetBit(s + 1)) {
+            queue[tail++] = s;
+        }
+        for (int head = 0; head < tail; head++) {
+            int s = queue[head];
+            for (int i = inStart[s]; i < inStart[s + 1]; i++) {
+                if (!live.get(pred[i])) {
+                    live.set(pred[i]);
+                    queue[tail++] = pred[i];
+                }
+            }
+        }
+        if (tail == stateCount) {
+            return this;
+        }
+        if (!live.get(initial)) {
+            // 空语言，只保留 init 状态
+            int[] empty = new int[k];
+            Arrays.fill(empty, NONE);
+            return new DfaTable(alphabet, 1, 0, empty, new BitSet(), null);
+        }
+
+        int[] block = new int[stateCount];
+        int count = 0;
+        for (int s = 0; s < stateCount; s++) {
+            block[s] = live.get(s) ? count++ : NONE;
+        }
+        return quotient(block, count);
+    }
+
+    /**
+     * 按给定划分合并状态，同一块中的状态须相互等价，转移边取自各块中编号最小的状态
+     *
+     * @param block
+     *            各状态所属的块，{@link #NONE} 表示丢弃该状态及指向它的转移边
+     * @param count
+     *            块数
+     * @return
+     */
+    DfaTable quotient(int[] block, int count) {
+        int k = classCount;
+        int[] table = new int[count * k];
+        BitSet acc = new BitSet(count);
+        boolean[] done = new boolean[count];
+        for (int s = 0; s < stateCount; s++) {
+            int b = block[s];
+            if (b == NONE || done[b]) {
+                continue;
+            }
+            done[b] = true;
+            if (accept.get(s)) {
+                acc.set(b);
+            }
+            for (int c = 0; c < k; c++) {
+                int t = next[s * k + c];
+                table[b * k + c] = t == NONE ? NONE : block[t];
+            }
+        }
+        return new DfaTable(alphabet, count, block[initial], table, acc, null);
+    }
+
+    /**
+     * 转换为状态机快照，按字符顺序扫描各基本区间，同一状态指向同一目标状态的相邻区间合并为一条转移边
+     *
+     * @return
+     */
+    public IndexedAutomaton toAutomaton() {
+        int k = classCount;
+        int intervals = alphabet.getIntervalCount();
+        IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+        for (int s = 0; s < stateCount; s++) {
+            b.addState(accept.get(s));
+        }
+        b.setInitialState(initial);
+        for (int s = 0; s < stateCount; s++) {
+            for (int i = 0; i < intervals;) {
+                int t = next[s * k + alphabet.getIntervalClass(i)];
+                int e = i + 1;
+                while (e < intervals
+                        && next[s * k + alphabet.getIntervalClass(e)] == t) {
+                    e++;
+                }
+                if (t != NONE) {
+                    b.addTransition(s, alphabet.getIntervalStart(i),
+                            alphabet.getIntervalEnd(e - 1), t);
+                }
+                i = e;
+            }
+        }
+        return b.build();
+    }
+
+}
@@ -0,0 +1,120 @@
+package automatizer.core.minimizers;
+
+import java.util.Arrays;
+
+/**
+ * Hopcroft 划分细化算法，时间复杂度 O(kn log n)，k 为字符类数。
+ *
+ * 先补充一个 sink 状态使 DFA 完全，以 (块, 字符类) 为分裂器逐个细化；块分裂时只需将较小的一半加入待处理集合。
+ * 转移表越稠密，补充 sink 状态带来的额外转移越少。
+ *
+ * @author wxz
+ *
+ */
+public class HopcroftMinimizer implements DfaMinimizer {
+
+    @Override
+    public DfaTable minimize(DfaTable dfa) {
+        dfa = dfa.trim();
+        if (dfa.accept.isEmpty()) {
+            return dfa;
+        }
+        int n = dfa.stateCount;
+        int k = dfa.classCount;
+        int total = n + 1;
+        int sink = n;
+
+        // 各 (目标状态, 字符类) 的来源状态
+        int[] inStart = new int[total * k + 1];
+        for (int s = 0; s < total; s++) {
+            for (int c = 0; c < k; c++) {
+                inStart[target(dfa, s, c) * k + c + 1]++;
+            }
+        }
+        for (int i = 0; i < total * k; i++) {
+            inStart[i + 1] += inStart[i];
+        }
+        int[] pred = new int[total * k];
+        int[] fill = Arrays.copyOf(inStart, total * k);
+        for (int s = 0; s < total; s++) {
+            for (int c = 0; c < k; c++) {
+                pred[fill[target(dfa, s, c) * k + c]++] = s;
+            }
+        }
+
+        Partition p = new Partition(total);
+        for (int s = dfa.accept.nextSetBit(0); s >= 0; s = dfa.accept
+                .nextSetBit(s + 1)) {
+            p.mark(s);
+        }
+        p.split();
+
+        // 待处理的分裂器，以 块 * k + 字符类 表示
+        boolean[] pending = new boolean[total * k];
+        int[] work = new int[16];
+        int top = 0;
+        for (int b = 1; b < p.size; b++) {
+            for (int c = 0; c < k; c++) {
+                if (top == work.length) {
+                    work = Arrays.copyOf(work, top * 2);
+                }
+                work[top++] = b * k + c;
+                pending[b * k + c] = true;
+            }
+        }
+
+        int[] members = new int[total];
+        while (top > 0) {
+            int splitter = work[--top];
+            pending[splitter] = false;
+            int b = splitter / k;
+            int c = splitter % k;
+            // 标记会重排块内元素，先复制分裂器块的成员
+            int count = p.past[b] - p.first[b];
+            System.arraycopy(p.elems, p.first[b], members, 0, count);
+            for (int m = 0; m < count; m++) {
+                int q = members[m];
+                for (int i = inStart[q * k + c]; i < inStart[q * k + c + 1]; i++) {
+                    p.mark(pred[i]);
+                }
+            }
+
+            int before = p.size;
+            p.split();
+            for (int z = before; z < p.size; z++) {
+                for (int a = 0; a < k; a++) {
+                    if (!pending[z * k + a]) {
+                        if (top == work.length) {
+                            work = Arrays.copyOf(work, top * 2);
+                        }
+                        work[top++] = z * k + a;
+                        pending[z * k + a] = true;
+                    }
+                }
+            }
+        }
+
+        // 去掉 sink 状态所在的块，其余状态均能到达 accept 状态，不会与 sink 状态等价
+        int sinkBlock = p.set[sink];
+        int[] block = new int[n];
+        for (int s = 0; s < n; s++) {
+            int b = p.set[s];
+            block[s] = b < sinkBlock ? b : b - 1;
+        }
+        return dfa.quotient(block, p.size - 1);
+    }
+
+    private static int target(DfaTable dfa, int s, int c) {
+        if (s == dfa.stateCount) {
+            return s;
+        }
+        int t = dfa.next[s * dfa.classCount + c];
+        return t == DfaTable.NONE ? dfa.stateCount : t;
+    }
+
+    @Override
+    public String toString() {
+        return "hopcroft";
+    }
+
+}
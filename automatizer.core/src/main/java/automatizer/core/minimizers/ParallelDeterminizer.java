@@ -0,0 +1,213 @@
+package automatizer.core.minimizers;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import automatizer.core.models.AlphabetPartition;
+import automatizer.core.models.Budget;
+import automatizer.core.models.BudgetExceededException;
+import automatizer.core.models.EpsilonClosure;
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.profiling.Stage;
+
+/**
+ * 在 ForkJoinPool 上逐层进行的子集构造。
+ *
+ * 每层的全部 (DFA 状态, 字符类) 对分块并行计算后继状态集合，并在 {@link StateSetInterner} 中查找或加入；
+ * 层末由调用线程按发现位置为新状态集合编号并填写转移表，因此结果（状态编号、转移表及各状态对应的 NFA 状态）与
+ * {@link DfaTable#determinize(IndexedAutomaton, Budget)} 完全相同。转移对数不足 {@link #GRAIN} 的层直接在调用线程中计算。
+ *
+ * 资源限制在每层结束时检查，超限时已生成的状态数可能超出上限一层。
+ *
+ * @author wxz
+ *
+ */
+public final class ParallelDeterminizer {
+
+    /**
+     * 每个子任务至少处理的 (DFA 状态, 字符类) 对数
+     */
+    public static final int GRAIN = 1024;
+
+    private static ForkJoinPool defaultPool;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * 使用 {@link #getDefaultPool()}
+     */
+    public ParallelDeterminizer() {
+        this(getDefaultPool());
+    }
+
+    public ParallelDeterminizer(ForkJoinPool forkJoinPool) {
+        pool = forkJoinPool;
+    }
+
+    /**
+     * @return 按 CPU 数创建的共享 ForkJoinPool，其工作线程为守护线程
+     */
+    public static synchronized ForkJoinPool getDefaultPool() {
+        if (defaultPool == null) {
+            defaultPool = new ForkJoinPool(Runtime.getRuntime()
+                    .availableProcessors());
+        }
+        return defaultPool;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @param atm
+     * @param maxStates
+     * @return
+     * @throws IllegalStateException
+     *             确定化后的状态数超过 maxStates
+     */
+    public DfaTable determinize(IndexedAutomaton atm, int maxStates) {
+        return determinize(atm, maxStates, Budget.UNLIMITED);
+    }
+
+    /**
+     * @param atm
+     * @param budget
+     * @return
+     * @throws BudgetExceededException
+     *             超出 budget 的限制，超限阶段记为 {@link Stage#REDUCE}
+     * @throws IllegalStateException
+     *             确定化后的状态数超过 {@link DfaTable#MAX_STATES}
+     */
+    public DfaTable determinize(IndexedAutomaton atm, Budget budget) {
+        return determinize(atm, DfaTable.MAX_STATES, budget);
+    }
+
+    private DfaTable determinize(IndexedAutomaton atm, int maxStates,
+            Budget budget) {
+        AlphabetPartition alphabet = AlphabetPartition.of(atm);
+        int k = alphabet.getClassCount();
+        DfaTable.Moves moves = DfaTable.moves(atm, alphabet);
+        EpsilonClosure closure = atm.hasEpsilons() ? new EpsilonClosure(atm)
+                : null;
+        StateSetInterner interner = new StateSetInterner(
+                pool.getParallelism());
+
+        List<BitSet> dfaStates = new ArrayList<BitSet>();
+        BitSet init = DfaTable.initialSet(atm, closure);
+        interner.intern(init, 0).id = 0;
+        interner.drainFresh();
+        dfaStates.add(init);
+
+        int[] table = new int[16 * k];
+        int edges = 0;
+        for (int from = 0; from < dfaStates.size();) {
+            int to = dfaStates.size();
+            Level level = new Level(dfaStates.subList(from, to).toArray(
+                    new BitSet[to - from]), from, k, moves, closure, interner);
+            Expand task = new Expand(level, 0, to - from);
+            if (level.cells.length <= GRAIN) {
+                task.expand();
+            } else {
+                pool.invoke(task);
+            }
+
+            List<StateSetInterner.Entry> found = interner.drainFresh();
+            if (dfaStates.size() + found.size() > maxStates) {
+                throw DfaTable.tooManyStates(maxStates);
+            }
+            for (StateSetInterner.Entry e : found) {
+                e.id = dfaStates.size();
+                dfaStates.add(e.set);
+            }
+
+            if (dfaStates.size() * k > table.length) {
+                int[] grown = new int[Math.max(table.length * 2,
+                        dfaStates.size() * k)];
+                System.arraycopy(table, 0, grown, 0, from * k);
+                table = grown;
+            }
+            for (int i = 0; i < level.cells.length; i++) {
+                StateSetInterner.Entry e = level.cells[i];
+                table[from * k + i] = e != null ? e.id : DfaTable.NONE;
+                if (e != null) {
+                    edges++;
+                }
+            }
+            budget.checkDfa(Stage.REDUCE, dfaStates.size(), edges);
+            from = to;
+        }
+
+        return DfaTable.assemble(atm, alphabet, dfaStates, table);
+    }
+
+    /**
+     * 一层子集构造的输入及结果
+     */
+    private static final class Level {
+        final BitSet[] states;
+        final int base; // 本层第一个状态的编号
+        final int classCount;
+        final DfaTable.Moves moves;
+        final EpsilonClosure closure;
+        final StateSetInterner interner;
+        final StateSetInterner.Entry[] cells; // 以 (本层序号 * 字符类数 + 字符类) 索引，无转移时为 null
+
+        Level(BitSet[] states, int base, int classCount,
+                DfaTable.Moves moves, EpsilonClosure closure,
+                StateSetInterner interner) {
+            this.states = states;
+            this.base = base;
+            this.classCount = classCount;
+            this.moves = moves;
+            this.closure = closure;
+            this.interner = interner;
+            cells = new StateSetInterner.Entry[states.length * classCount];
+        }
+    }
+
+    /**
+     * 计算本层 [from, to) 范围内各状态的后继，范围过大时二分后并行处理
+     */
+    @SuppressWarnings("serial")
+    private static final class Expand extends RecursiveAction {
+        private final Level level;
+        private final int from;
+        private final int to;
+
+        Expand(Level level, int from, int to) {
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && (long) (to - from) * level.classCount > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Expand(level, from, mid), new Expand(level, mid,
+                        to));
+            } else {
+                expand();
+            }
+        }
+
+        void expand() {
+            int k = level.classCount;
+            for (int d = from; d < to; d++) {
+                for (int cls = 0; cls < k; cls++) {
+                    BitSet next = DfaTable.successor(level.states[d], cls,
+                            level.moves, level.closure);
+                    if (next != null) {
+                        level.cells[d * k + cls] = level.interner.intern(next,
+                                (long) (level.base + d) * k + cls);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+package automatizer.core.minimizers;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 在 ForkJoinPool 上并行的 Moore 划分细化算法。
+ *
+ * 每轮按 (所在块, 各字符类上目标状态所在块) 细分每个块，各块互不相关，按成员数分组后并行处理；块内按状态编号顺序分配子块，
+ * 新块编号为各块子块数的前缀和加子块序号，因此结果与线程调度无关。块数不再增加时得到最小 DFA，经
+ * {@link DfaTable#toAutomaton()} 转换后与各顺序算法的结果相同。
+ *
+ * 所需轮数等于区分状态所需的最长字符串长度，链状 DFA 可能接近状态数；超过 {@link #MAX_ROUNDS} 轮仍未稳定时改用
+ * {@link HopcroftMinimizer}，使耗时不超过 O(MAX_ROUNDS · kn / 线程数) 加上顺序算法的耗时。
+ *
+ * @author wxz
+ *
+ */
+public class ParallelMinimizer implements DfaMinimizer {
+
+    /**
+     * 改用顺序算法前的最多细化轮数
+     */
+    public static final int MAX_ROUNDS = 64;
+
+    /**
+     * 每个子任务至少处理的状态数
+     */
+    public static final int GRAIN = 2048;
+
+    private final ForkJoinPool pool;
+    private final DfaMinimizer fallback = new HopcroftMinimizer();
+
+    /**
+     * 使用 {@link ParallelDeterminizer#getDefaultPool()}
+     */
+    public ParallelMinimizer() {
+        this(ParallelDeterminizer.getDefaultPool());
+    }
+
+    public ParallelMinimizer(ForkJoinPool forkJoinPool) {
+        pool = forkJoinPool;
+    }
+
+    @Override
+    public DfaTable minimize(DfaTable dfa) {
+        dfa = dfa.trim();
+        if (dfa.accept.isEmpty()) {
+            return dfa;
+        }
+        int n = dfa.stateCount;
+
+        // 初始划分：accept 与非 accept 状态，按首次出现的顺序编号
+        int[] block = new int[n];
+        boolean firstAccept = dfa.accept.get(0);
+        int count = 1;
+        for (int s = 0; s < n; s++) {
+            if (dfa.accept.get(s) != firstAccept) {
+                block[s] = 1;
+                count = 2;
+            }
+        }
+
+        Round round = new Round(dfa, n);
+        for (int r = 0;; r++) {
+            if (r == MAX_ROUNDS) {
+                return fallback.minimize(dfa);
+            }
+            round.prepare(block, count);
+            if (n <= GRAIN) {
+                round.refine(0, count);
+            } else {
+                pool.invoke(new Refine(round, 0, count));
+            }
+            int total = round.renumber();
+            if (total == count) {
+                break;
+            }
+            count = total;
+        }
+        return dfa.quotient(block, count);
+    }
+
+    @Override
+    public String toString() {
+        return "parallel";
+    }
+
+    /**
+     * 一轮细化的输入及结果
+     */
+    private static final class Round {
+        final DfaTable dfa;
+        final int[] memberStart; // 块 b 的成员为 members[memberStart[b] .. memberStart[b+1])，按状态编号升序
+        final int[] members;
+        final int[] sub; // 各状态在所在块中的子块序号
+        int[] block;
+        int[] subCount; // 各块的子块数
+        int count;
+
+        Round(DfaTable dfa, int n) {
+            this.dfa = dfa;
+            memberStart = new int[n + 1];
+            members = new int[n];
+            sub = new int[n];
+        }
+
+        void prepare(int[] blockOf, int blocks) {
+            block = blockOf;
+            count = blocks;
+            subCount = new int[blocks];
+            Arrays.fill(memberStart, 0, blocks + 1, 0);
+            for (int b : block) {
+                memberStart[b + 1]++;
+            }
+            for (int b = 0; b < blocks; b++) {
+                memberStart[b + 1] += memberStart[b];
+            }
+            int[] fill = Arrays.copyOf(memberStart, blocks);
+            for (int s = 0; s < block.length; s++) {
+                members[fill[block[s]]++] = s;
+            }
+        }
+
+        /**
+         * 细分 [from, to) 范围内的块
+         */
+        void refine(int from, int to) {
+            int[] slots = new int[16];
+            for (int b = from; b < to; b++) {
+                int first = memberStart[b];
+                int m = memberStart[b + 1] - first;
+                if (m == 1) {
+                    sub[members[first]] = 0;
+                    subCount[b] = 1;
+                    continue;
+                }
+                // 以开放寻址的散列表按目标块序列分组，表中保存各子块的代表状态
+                int size = Integer.highestOneBit(2 * m - 1) << 1;
+                if (slots.length < size) {
+                    slots = new int[size];
+                }
+                Arrays.fill(slots, 0, size, -1);
+                int subs = 0;
+                for (int j = first; j < first + m; j++) {
+                    int s = members[j];
+                    int i = hash(s) & (size - 1);
+                    while (true) {
+                        int rep = slots[i];
+                        if (rep < 0) {
+                            slots[i] = s;
+                            sub[s] = subs++;
+                            break;
+                        }
+                        if (sameTargets(s, rep)) {
+                            sub[s] = sub[rep];
+                            break;
+                        }
+                        i = (i + 1) & (size - 1);
+                    }
+                }
+                subCount[b] = subs;
+            }
+        }
+
+        private int target(int s, int c) {
+            int t = dfa.next[s * dfa.classCount + c];
+            return t == DfaTable.NONE ? -1 : block[t];
+        }
+
+        private int hash(int s) {
+            int h = 1;
+            for (int c = 0; c < dfa.classCount; c++) {
+                h = 31 * h + target(s, c);
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private boolean sameTargets(int s, int t) {
+            for (int c = 0; c < dfa.classCount; c++) {
+                if (target(s, c) != target(t, c)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 按子块重新编号各状态所在的块
+         *
+         * @return 新的块数
+         */
+        int renumber() {
+            int[] base = new int[count];
+            int total = 0;
+            for (int b = 0; b < count; b++) {
+                base[b] = total;
+                total += subCount[b];
+            }
+            if (total != count) {
+                for (int s = 0; s < block.length; s++) {
+                    block[s] = base[block[s]] + sub[s];
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * 细分 [from, to) 范围内的块，成员数过多时二分后并行处理
+     */
+    @SuppressWarnings("serial")
+    private static final class Refine extends RecursiveAction {
+        private final Round round;
+        private final int from;
+        private final int to;
+
+        Refine(Round round, int from, int to) {
+            this.round = round;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int[] start = round.memberStart;
+            if (to - from > 1 && start[to] - start[from] > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Refine(round, from, mid), new Refine(round, mid,
+                        to));
+            } else {
+                round.refine(from, to);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package automatizer.core.minimizers;
+
+/**
+ * 可细化的划分（refinable partition），元素按块连续存放于数组中，标记及分裂的代价只与被标记元素数成正比。
+ *
+ * 块 s 的元素为 elems[first[s]] 至 elems[past[s] - 1]，其中前 marked[s] 个为已标记元素。分裂时已标记与未标记部分中较小的一个成为新块，
+ * 原块保留较大的部分。
+ *
+ * @author wxz
+ *
+ */
+final class Partition {
+
+    int size; // 块数
+    final int[] elems;
+    final int[] loc; // 元素在 elems 中的位置
+    final int[] set; // 元素所属的块
+    final int[] first;
+    final int[] past;
+    private final int[] marked;
+    private final int[] touched; // 含已标记元素的块
+    private int touchedCount;
+
+    /**
+     * 初始只有一个包含全部元素的块，元素数为 0 时没有块
+     *
+     * @param n
+     *            元素数
+     */
+    Partition(int n) {
+        elems = new int[n];
+        loc = new int[n];
+        set = new int[n];
+        first = new int[n + 1];
+        past = new int[n + 1];
+        marked = new int[n + 1];
+        touched = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            elems[i] = loc[i] = i;
+        }
+        if (n > 0) {
+            past[0] = n;
+            size = 1;
+        }
+    }
+
+    /**
+     * 标记元素，重复标记无效
+     *
+     * @param e
+     */
+    void mark(int e) {
+        int s = set[e];
+        int i = loc[e];
+        int j = first[s] + marked[s];
+        if (i < j) {
+            return;
+        }
+        elems[i] = elems[j];
+        loc[elems[i]] = i;
+        elems[j] = e;
+        loc[e] = j;
+        if (marked[s]++ == 0) {
+            touched[touchedCount++] = s;
+        }
+    }
+
+    /**
+     * 将含已标记元素的块分裂为已标记与未标记两部分，并清除全部标记
+     */
+    void split() {
+        while (touchedCount > 0) {
+            int s = touched[--touchedCount];
+            int j = first[s] + marked[s];
+            if (j == past[s]) {
+                marked[s] = 0;
+                continue;
+            }
+            int z = size++;
+            if (marked[s] <= past[s] - j) {
+                first[z] = first[s];
+                past[z] = first[s] = j;
+            } else {
+                past[z] = past[s];
+                first[z] = past[s] = j;
+            }
+            for (int i = first[z]; i < past[z]; i++) {
+                set[elems[i]] = z;
+            }
+            marked[s] = marked[z] = 0;
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package automatizer.core.minimizers;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 并行子集构造使用的 NFA 状态集合到 DFA 状态的并发映射。
+ *
+ * 按状态集合的哈希值分为若干段，每段是一个由自身加锁的 HashMap，不同段上的查找互不阻塞。同一状态集合只保留一个 {@link Entry}，
+ * 各线程得到的是同一对象（intern）。新加入的状态集合暂不编号，只记录发现它的最小转移位置，由调用者在每层结束时按该位置统一编号，
+ * 使编号与顺序子集构造的结果相同。
+ *
+ * @author wxz
+ *
+ */
+final class StateSetInterner {
+
+    /**
+     * 状态集合及其 DFA 状态编号
+     */
+    static final class Entry {
+        final BitSet set;
+        int id = -1; // 尚未编号时为 -1，只在各层之间由单个线程赋值
+        long pos; // 发现该状态集合的最小转移位置（来源状态 * 字符类数 + 字符类）
+
+        Entry(BitSet set, long pos) {
+            this.set = set;
+            this.pos = pos;
+        }
+    }
+
+    private static final Comparator<Entry> BY_POS = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return a.pos < b.pos ? -1 : (a.pos > b.pos ? 1 : 0);
+        }
+    };
+
+    private final List<Map<BitSet, Entry>> stripes;
+    private final List<List<Entry>> fresh; // 各段中尚未编号的状态集合
+    private final int mask;
+
+    /**
+     * @param concurrency
+     *            预计同时访问的线程数，段数取不小于其 4 倍的 2 的幂
+     */
+    StateSetInterner(int concurrency) {
+        int n = Integer.highestOneBit(Math.max(1, concurrency * 4 - 1)) << 1;
+        stripes = new ArrayList<Map<BitSet, Entry>>(n);
+        fresh = new ArrayList<List<Entry>>(n);
+        for (int i = 0; i < n; i++) {
+            stripes.add(new HashMap<BitSet, Entry>());
+            fresh.add(new ArrayList<Entry>());
+        }
+        mask = n - 1;
+    }
+
+    /**
+     * 查找状态集合，不存在时加入
+     *
+     * @param set
+     *            调用后不应再修改
+     * @param pos
+     *            发现该状态集合的转移位置
+     * @return 该状态集合唯一的 Entry，尚未编号时 id 为 -1
+     */
+    Entry intern(BitSet set, long pos) {
+        int h = set.hashCode();
+        int i = (h ^ (h >>> 16)) & mask;
+        Map<BitSet, Entry> map = stripes.get(i);
+        synchronized (map) {
+            Entry e = map.get(set);
+            if (e == null) {
+                e = new Entry(set, pos);
+                map.put(set, e);
+                fresh.get(i).add(e);
+            } else if (e.id < 0 && pos < e.pos) {
+                e.pos = pos;
+            }
+            return e;
+        }
+    }
+
+    /**
+     * 取出上次调用以来新加入的状态集合，只能在没有其他线程调用 {@link #intern(BitSet, long)} 时调用
+     *
+     * @return 按发现位置升序排列
+     */
+    List<Entry> drainFresh() {
+        List<Entry> res = new ArrayList<Entry>();
+        for (List<Entry> list : fresh) {
+            res.addAll(list);
+            list.clear();
+        }
+        Collections.sort(res, BY_POS);
+        return res;
+    }
+
+}
@@ -0,0 +1,101 @@
+package automatizer.core.minimizers;
+
+/**
+ * Valmari-Lehtinen 算法，同时细化状态划分与转移边划分，时间复杂度 O(m log n)，m 为实际存在的转移边数。
+ *
+ * 不需要补充 sink 状态，适合转移表稀疏的不完全 DFA：转移边按字符类分组后，每次以一组转移边的来源状态细化状态划分，
+ * 再以新分出的状态块的入边细化转移边划分，直至两者都不再变化。
+ *
+ * @author wxz
+ *
+ */
+public class ValmariMinimizer implements DfaMinimizer {
+
+    @Override
+    public DfaTable minimize(DfaTable dfa) {
+        dfa = dfa.trim();
+        if (dfa.accept.isEmpty()) {
+            return dfa;
+        }
+        int n = dfa.stateCount;
+        int k = dfa.classCount;
+        int m = dfa.getTransitionCount();
+
+        // 转移边按字符类顺序编号，初始时每个字符类为一块
+        int[] tail = new int[m];
+        int[] inStart = new int[n + 1];
+        Partition cords = new Partition(m);
+        cords.size = 0;
+        int t = 0;
+        for (int c = 0; c < k; c++) {
+            int from = t;
+            for (int s = 0; s < n; s++) {
+                int d = dfa.next[s * k + c];
+                if (d != DfaTable.NONE) {
+                    tail[t] = s;
+                    cords.set[t] = cords.size;
+                    inStart[d + 1]++;
+                    t++;
+                }
+            }
+            if (t > from) {
+                cords.first[cords.size] = from;
+                cords.past[cords.size] = t;
+                cords.size++;
+            }
+        }
+
+        // 各状态的入边
+        for (int s = 0; s < n; s++) {
+            inStart[s + 1] += inStart[s];
+        }
+        int[] in = new int[m];
+        int[] fill = new int[n];
+        System.arraycopy(inStart, 0, fill, 0, n);
+        t = 0;
+        for (int c = 0; c < k; c++) {
+            for (int s = 0; s < n; s++) {
+                int d = dfa.next[s * k + c];
+                if (d != DfaTable.NONE) {
+                    in[fill[d]++] = t++;
+                }
+            }
+        }
+
+        Partition blocks = new Partition(n);
+        for (int s = dfa.accept.nextSetBit(0); s >= 0; s = dfa.accept
+                .nextSetBit(s + 1)) {
+            blocks.mark(s);
+        }
+        blocks.split();
+
+        // 划分已稳定的部分无需再处理，除第一个状态块外每块只需处理一次
+        int b = 1;
+        int c = 0;
+        while (c < cords.size) {
+            for (int i = cords.first[c]; i < cords.past[c]; i++) {
+                blocks.mark(tail[cords.elems[i]]);
+            }
+            blocks.split();
+            c++;
+            while (b < blocks.size) {
+                for (int i = blocks.first[b]; i < blocks.past[b]; i++) {
+                    int q = blocks.elems[i];
+                    for (int j = inStart[q]; j < inStart[q + 1]; j++) {
+                        cords.mark(in[j]);
+                    }
+                }
+                cords.split();
+                b++;
+            }
+        }
+
+        return dfa.quotient(blocks.set, blocks.size);
+    }
+
+    @Override
+    public String toString() {
+        return "valmari";
+    }
+
+}
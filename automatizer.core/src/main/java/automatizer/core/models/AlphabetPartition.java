@@ -0,0 +1,311 @@
+package automatizer.core.models;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 字符集按状态机全部转移边划分得到的最粗字符类：任意两个字符属于同一字符类，当且仅当每条转移边的字符范围要么同时包含、要么同时不包含它们。
+ * 因此以字符类为单位处理转移（确定化、最小化、匹配、生成标签等）与逐个字符处理的结果完全相同。
+ *
+ * 划分分两步：先对全部范围边界排序去重，一次扫描得到若干互不相交的基本区间；再对每个不同的字符范围，
+ * 将其覆盖的基本区间中被该范围拆开的字符类分裂为新的字符类（每个字符类只在部分区间被覆盖时才分裂），
+ * 总开销为 O(边界数 log 边界数 + 各范围覆盖的区间数之和)。字符类可以不连续，如只有 [a] 及 [c] 两条转移边时 b 与其余字符同属一类。
+ * 字符类按其最小字符升序编号，0 号字符类总是包含字符 0。
+ *
+ * @author wxz
+ *
+ */
+public final class AlphabetPartition {
+
+    // 字符类直接索引数组覆盖的最大字符范围
+    private static final int DENSE_LIMIT = 0x800;
+
+    private final char[] starts; // 第 i 个基本区间覆盖 [starts[i], starts[i+1])，最后一个区间延伸至字符集末尾
+    private final int[] intervalClass; // 各基本区间所属的字符类
+    private final int classCount;
+    private final int[] classStart; // 第 c 个字符类的基本区间为 classIntervals[classStart[c] .. classStart[c+1])
+    private final int[] classIntervals;
+    private final int[] denseClasses; // 字符 c < denseLimit 时所属的字符类
+    private final int denseLimit;
+
+    private AlphabetPartition(char[] starts, int[] intervalClass, int classCount) {
+        this.starts = starts;
+        this.intervalClass = intervalClass;
+        this.classCount = classCount;
+
+        int k = starts.length;
+        classStart = new int[classCount + 1];
+        for (int i = 0; i < k; i++) {
+            classStart[intervalClass[i] + 1]++;
+        }
+        for (int c = 0; c < classCount; c++) {
+            classStart[c + 1] += classStart[c];
+        }
+        classIntervals = new int[k];
+        int[] fill = Arrays.copyOf(classStart, classCount);
+        for (int i = 0; i < k; i++) {
+            classIntervals[fill[intervalClass[i]]++] = i;
+        }
+
+        // 最后一个区间延伸至字符集末尾，只需直接索引到其起点为止
+        denseLimit = Math.min(starts[k - 1] + 1, DENSE_LIMIT);
+        denseClasses = new int[denseLimit];
+        int i = 0;
+        for (int c = 0; c < denseLimit; c++) {
+            while (i + 1 < k && starts[i + 1] <= c) {
+                i++;
+            }
+            denseClasses[c] = intervalClass[i];
+        }
+    }
+
+    /**
+     * 按状态机的全部转移边划分字符集
+     *
+     * @param atm
+     * @return
+     */
+    public static AlphabetPartition of(IndexedAutomaton atm) {
+        int m = atm.getTransitionCount();
+        char[] mins = new char[m];
+        char[] maxs = new char[m];
+        for (int t = 0; t < m; t++) {
+            mins[t] = atm.getMin(t);
+            maxs[t] = atm.getMax(t);
+        }
+        return of(mins, maxs, m);
+    }
+
+    /**
+     * 按给定的字符范围划分字符集
+     *
+     * @param mins
+     *            各范围的最小字符
+     * @param maxs
+     *            各范围的最大字符（含）
+     * @param count
+     *            范围个数
+     * @return
+     */
+    public static AlphabetPartition of(char[] mins, char[] maxs, int count) {
+        // 范围去重，并收集全部边界
+        long[] keys = new long[count];
+        BitSet points = new BitSet(0x10000);
+        points.set(0);
+        for (int r = 0; r < count; r++) {
+            keys[r] = (long) mins[r] << 16 | maxs[r];
+            points.set(mins[r]);
+            if (maxs[r] < Character.MAX_VALUE) {
+                points.set(maxs[r] + 1);
+            }
+        }
+        Arrays.sort(keys);
+
+        // 一次扫描得到基本区间
+        char[] starts = new char[points.cardinality()];
+        for (int c = points.nextSetBit(0), i = 0; c >= 0; c = points
+                .nextSetBit(c + 1)) {
+            starts[i++] = (char) c;
+        }
+        int k = starts.length;
+
+        // 逐个范围分裂被其部分覆盖的字符类，字符类总数不超过区间数
+        int[] color = new int[k];
+        int[] size = new int[k];
+        int[] touched = new int[k];
+        int[] remap = new int[k];
+        int[] stamp = new int[k];
+        Arrays.fill(stamp, -1);
+        size[0] = k;
+        int colors = 1;
+        for (int r = 0; r < count; r++) {
+            if (r > 0 && keys[r] == keys[r - 1]) {
+                continue;
+            }
+            int from = Arrays.binarySearch(starts, (char) (keys[r] >>> 16));
+            int max = (int) (keys[r] & 0xffff);
+            int to = from;
+            while (to < k && starts[to] <= max) {
+                touched[color[to++]]++;
+            }
+            for (int i = from; i < to; i++) {
+                int c = color[i];
+                if (stamp[c] != r) {
+                    stamp[c] = r;
+                    if (touched[c] == size[c]) {
+                        remap[c] = c;
+                    } else {
+                        remap[c] = colors;
+                        size[colors++] = touched[c];
+                        size[c] -= touched[c];
+                    }
+                    touched[c] = 0;
+                }
+                color[i] = remap[c];
+            }
+        }
+
+        // 按各字符类首次出现的顺序重新编号
+        int[] renum = new int[colors];
+        Arrays.fill(renum, -1);
+        int classes = 0;
+        for (int i = 0; i < k; i++) {
+            if (renum[color[i]] < 0) {
+                renum[color[i]] = classes++;
+            }
+            color[i] = renum[color[i]];
+        }
+        return new AlphabetPartition(starts, color, classes);
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * @param c
+     * @return 字符所属的字符类
+     */
+    public int classOf(char c) {
+        return c < denseLimit ? denseClasses[c] : intervalClass[intervalOf(c)];
+    }
+
+    /**
+     * @return 基本区间个数
+     */
+    public int getIntervalCount() {
+        return starts.length;
+    }
+
+    /**
+     * @param i
+     * @return 第 i 个基本区间的起始字符
+     */
+    public char getIntervalStart(int i) {
+        return starts[i];
+    }
+
+    /**
+     * @param i
+     * @return 第 i 个基本区间的结束字符（含）
+     */
+    public char getIntervalEnd(int i) {
+        return i + 1 < starts.length ? (char) (starts[i + 1] - 1)
+                : Character.MAX_VALUE;
+    }
+
+    /**
+     * @param i
+     * @return 第 i 个基本区间所属的字符类
+     */
+    public int getIntervalClass(int i) {
+        return intervalClass[i];
+    }
+
+    /**
+     * @param c
+     * @return 包含字符 c 的基本区间。转移边的 min 总是某个基本区间的起点，从该区间开始依次处理到起点大于 max 的区间为止即可遍历转移边覆盖的全部区间
+     */
+    public int intervalOf(char c) {
+        int idx = Arrays.binarySearch(starts, c);
+        return idx >= 0 ? idx : -idx - 2;
+    }
+
+    /**
+     * 将字符范围 [min, max] 覆盖的字符类加入 classes
+     *
+     * @param min
+     * @param max
+     * @param classes
+     */
+    public void addClasses(char min, char max, BitSet classes) {
+        for (int i = intervalOf(min); i < starts.length && starts[i] <= max; i++) {
+            classes.set(intervalClass[i]);
+        }
+    }
+
+    /**
+     * @param cls
+     * @return 字符类中的最小字符
+     */
+    public char getRepresentative(int cls) {
+        return starts[classIntervals[classStart[cls]]];
+    }
+
+    /**
+     * @param cls
+     * @return 字符类包含的字符范围，按 min, max 成对升序存放。同一字符类的基本区间互不相邻，无需合并
+     */
+    public char[] getRanges(int cls) {
+        int from = classStart[cls];
+        int to = classStart[cls + 1];
+        char[] ranges = new char[2 * (to - from)];
+        for (int j = from; j < to; j++) {
+            int i = classIntervals[j];
+            ranges[2 * (j - from)] = starts[i];
+            ranges[2 * (j - from) + 1] = getIntervalEnd(i);
+        }
+        return ranges;
+    }
+
+    /**
+     * @param cls
+     * @return 字符类的名称，如 “c1”
+     */
+    public static String getName(int cls) {
+        return "c" + cls;
+    }
+
+    /**
+     * 生成以字符类表示的转移条件标签：只覆盖一个字符类时为 c1 形式，否则为 {c0,c2} 形式
+     *
+     * @param ranges
+     *            转移字符范围，按 min, max 成对存放，每个范围的端点须为基本区间的边界
+     * @return 范围为空时返回 {@link ConnectionData#EPSILON_LABEL}
+     */
+    public String makeLabel(char[] ranges) {
+        if (ranges.length == 0) {
+            return ConnectionData.EPSILON_LABEL;
+        }
+        BitSet classes = new BitSet(classCount);
+        for (int i = 0; i < ranges.length; i += 2) {
+            addClasses(ranges[i], ranges[i + 1], classes);
+        }
+        if (classes.cardinality() == 1) {
+            return getName(classes.nextSetBit(0));
+        }
+        StringBuilder sb = new StringBuilder("{");
+        for (int c = classes.nextSetBit(0); c >= 0; c = classes
+                .nextSetBit(c + 1)) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(getName(c));
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * @return 每个字符类一行的说明，如 “c1 = [a-cx]”
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < classCount; c++) {
+            if (c > 0) {
+                sb.append('\n');
+            }
+            sb.append(getName(c)).append(" = ")
+                    .append(ConnectionData.makeLabel(getRanges(c)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return 估算的内存占用字节数
+     */
+    public long estimateSize() {
+        return 2L * starts.length + 8L * intervalClass.length + 4L
+                * classStart.length + 4L * denseClasses.length;
+    }
+
+}
@@ -0,0 +1,11 @@
+package automatizer.core.models;
+
+/**
+ * 选中文本转换的目标状态机类型
+ * 
+ * @author wxz
+ * 
+ */
+public enum AutomataType {
+    EPS_NFA, EPS_FREE_NFA, REDUCED_NFA, MIN_DFA, LAZY_DFA
+}
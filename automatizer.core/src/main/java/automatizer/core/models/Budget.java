@@ -0,0 +1,202 @@
+package automatizer.core.models;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import automatizer.core.profiling.Stage;
+
+import com.etao.lz.automaton.Automaton;
+import com.etao.lz.automaton.State;
+import com.etao.lz.automaton.Transition;
+
+/**
+ * 一次转换允许使用的资源上限：NFA 状态数、DFA 状态数、转移边数及耗时，超出时抛出 {@link BudgetExceededException}。
+ *
+ * 各上限为非正数时表示不限制。耗时从 {@link #start()} 开始计算，未调用 start() 的实例不检查耗时。
+ *
+ * @author wxz
+ *
+ */
+public final class Budget {
+
+    public static final int DEFAULT_NFA_STATES = 20000;
+    public static final int DEFAULT_DFA_STATES = 20000;
+    public static final int DEFAULT_TRANSITIONS = 200000;
+    public static final long DEFAULT_MILLIS = 10000;
+
+    /**
+     * 不限制任何资源
+     */
+    public static final Budget UNLIMITED = new Budget(0, 0, 0, 0);
+
+    private final int maxNfaStates;
+    private final int maxDfaStates;
+    private final int maxTransitions;
+    private final long maxMillis;
+    private final long startNanos; // 为 0 时不检查耗时
+
+    /**
+     * @param nfaStates
+     *            NFA 状态数上限
+     * @param dfaStates
+     *            DFA 状态数上限
+     * @param transitions
+     *            转移边数上限
+     * @param millis
+     *            耗时上限
+     */
+    public Budget(int nfaStates, int dfaStates, int transitions, long millis) {
+        this(nfaStates, dfaStates, transitions, millis, 0L);
+    }
+
+    private Budget(int nfaStates, int dfaStates, int transitions,
+            long millis, long start) {
+        maxNfaStates = nfaStates;
+        maxDfaStates = dfaStates;
+        maxTransitions = transitions;
+        maxMillis = millis;
+        startNanos = start;
+    }
+
+    /**
+     * @return 从现在开始计算耗时的副本
+     */
+    public Budget start() {
+        return new Budget(maxNfaStates, maxDfaStates, maxTransitions,
+                maxMillis, System.nanoTime() | 1L);
+    }
+
+    /**
+     * 检查 NFA 的状态数、转移边数及耗时
+     *
+     * @param stage
+     *            当前处理阶段
+     * @param states
+     * @param transitions
+     * @throws BudgetExceededException
+     */
+    public void checkNfa(Stage stage, int states, int transitions) {
+        if (exceeds(states, maxNfaStates)) {
+            throw exceeded(stage, "NFA states", maxNfaStates, states,
+                    transitions);
+        }
+        checkTransitions(stage, states, transitions);
+    }
+
+    /**
+     * 检查 DFA 的状态数、转移边数及耗时
+     *
+     * @param stage
+     * @param states
+     * @param transitions
+     * @throws BudgetExceededException
+     */
+    public void checkDfa(Stage stage, int states, int transitions) {
+        if (exceeds(states, maxDfaStates)) {
+            throw exceeded(stage, "DFA states", maxDfaStates, states,
+                    transitions);
+        }
+        checkTransitions(stage, states, transitions);
+    }
+
+    private void checkTransitions(Stage stage, int states, int transitions) {
+        if (exceeds(transitions, maxTransitions)) {
+            throw exceeded(stage, "transitions", maxTransitions, transitions,
+                    states, transitions);
+        }
+        checkTime(stage, states, transitions);
+    }
+
+    /**
+     * 检查耗时
+     *
+     * @param stage
+     * @param states
+     *            目前已生成的状态数，只用于说明
+     * @param transitions
+     *            目前已生成的转移边数，只用于说明
+     * @throws BudgetExceededException
+     */
+    public void checkTime(Stage stage, int states, int transitions) {
+        if (startNanos != 0L && maxMillis > 0) {
+            long millis = getElapsedMillis();
+            if (millis > maxMillis) {
+                throw exceeded(stage, "time (ms)", maxMillis, millis, states,
+                        transitions);
+            }
+        }
+    }
+
+    /**
+     * 遍历 Automaton 对象检查其状态数及转移边数，超出上限时立即停止遍历
+     *
+     * @param stage
+     * @param atm
+     * @throws BudgetExceededException
+     */
+    public void checkNfa(Stage stage, Automaton atm) {
+        Map<State, Boolean> seen = new IdentityHashMap<State, Boolean>();
+        Deque<State> queue = new ArrayDeque<State>();
+        State init = atm.getInitialState();
+        seen.put(init, Boolean.TRUE);
+        queue.add(init);
+        int transitions = 0;
+        while (!queue.isEmpty()) {
+            State s = queue.poll();
+            for (Transition t : s.getTransitions()) {
+                transitions++;
+                if (!seen.containsKey(t.getDest())) {
+                    seen.put(t.getDest(), Boolean.TRUE);
+                    queue.add(t.getDest());
+                }
+            }
+            if (exceeds(seen.size(), maxNfaStates)
+                    || exceeds(transitions, maxTransitions)) {
+                break;
+            }
+        }
+        checkNfa(stage, seen.size(), transitions);
+    }
+
+    private static boolean exceeds(long value, long limit) {
+        return limit > 0 && value > limit;
+    }
+
+    private BudgetExceededException exceeded(Stage stage, String resource,
+            long limit, int states, int transitions) {
+        return exceeded(stage, resource, limit, states, states, transitions);
+    }
+
+    private BudgetExceededException exceeded(Stage stage, String resource,
+            long limit, long reached, int states, int transitions) {
+        return new BudgetExceededException(stage, resource, limit, reached,
+                states, transitions, getElapsedMillis());
+    }
+
+    /**
+     * @return 自 {@link #start()} 以来的毫秒数，未调用 start() 时为 0
+     */
+    public long getElapsedMillis() {
+        return startNanos != 0L ? (System.nanoTime() - startNanos) / 1000000
+                : 0;
+    }
+
+    public int getMaxNfaStates() {
+        return maxNfaStates;
+    }
+
+    public int getMaxDfaStates() {
+        return maxDfaStates;
+    }
+
+    public int getMaxTransitions() {
+        return maxTransitions;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+}
@@ -0,0 +1,89 @@
+package automatizer.core.models;
+
+import automatizer.core.profiling.Stage;
+
+/**
+ * 转换过程超出 {@link Budget} 限制时抛出，记录超限的阶段、资源及当时已生成的规模
+ *
+ * @author wxz
+ *
+ */
+public class BudgetExceededException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Stage stage;
+    private final String resource;
+    private final long limit;
+    private final long reached;
+    private final int states;
+    private final int transitions;
+    private final long elapsedMillis;
+
+    public BudgetExceededException(Stage stage, String resource, long limit,
+            long reached, int states, int transitions, long elapsedMillis) {
+        super("Budget exceeded in " + stage.getLabel() + " stage: "
+                + resource + " more than " + limit);
+        this.stage = stage;
+        this.resource = resource;
+        this.limit = limit;
+        this.reached = reached;
+        this.states = states;
+        this.transitions = transitions;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return 超限的处理阶段
+     */
+    public Stage getStage() {
+        return stage;
+    }
+
+    /**
+     * @return 超限的资源，如 “NFA states”
+     */
+    public String getResource() {
+        return resource;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return 超限时该资源的用量
+     */
+    public long getReached() {
+        return reached;
+    }
+
+    /**
+     * @return 超限时已生成的状态数
+     */
+    public int getStates() {
+        return states;
+    }
+
+    /**
+     * @return 超限时已生成的转移边数
+     */
+    public int getTransitions() {
+        return transitions;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return 多行摘要：超限阶段、资源用量及已生成的规模
+     */
+    public String getSummary() {
+        return "Stage: " + stage.getLabel() + "\n" + "Limit: " + resource
+                + " " + limit + " (reached " + reached + ")\n" + "Reached: "
+                + states + " states, " + transitions + " transitions, "
+                + elapsedMillis + " ms";
+    }
+
+}
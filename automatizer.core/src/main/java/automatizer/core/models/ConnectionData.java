@@ -1,23 +1,46 @@
 package automatizer.core.models;
 
-import com.etao.lz.automaton.Transition;
-
 /**
- * 用于封装 Automaton 转移边和来源状态的 model
+ * 用于封装两个状态之间全部转移边的 model，同一对 (src, dst) 状态间的多条转移边合并为一条连线
  * 
  * @author wxz
  * 
  */
 public class ConnectionData {
 
+    /**
+     * ε 转移边的标签
+     */
+    public static final String EPSILON_LABEL = "\u03b5";
+
     StateData source;
     StateData target;
-    Transition transition;
+    char[] ranges;
+    String label;
+
+    /**
+     * @param src
+     * @param dst
+     * @param charRanges
+     *            src 到 dst 的全部转移字符范围，按 min, max 成对存放，须已升序排列且互不相邻；为空数组时表示 ε 转移边
+     */
+    public ConnectionData(StateData src, StateData dst, char[] charRanges) {
+        this(src, dst, charRanges, makeLabel(charRanges));
+    }
 
-    public ConnectionData(StateData src, StateData dst, Transition trans) {
+    /**
+     * @param src
+     * @param dst
+     * @param charRanges
+     * @param text
+     *            显示的标签，如以字符类表示的转移条件
+     */
+    public ConnectionData(StateData src, StateData dst, char[] charRanges,
+            String text) {
         source = src;
         target = dst;
-        transition = trans;
+        ranges = charRanges;
+        label = text;
     }
 
     public StateData getSource() {
@@ -29,36 +52,97 @@ public class ConnectionData {
     }
 
     public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return 转移字符范围，按 min, max 成对存放
+     */
+    public char[] getRanges() {
+        return ranges;
+    }
+
+    /**
+     * @return 以字符范围表示的转移条件，标签以字符类表示时可作为其说明
+     */
+    public String getRangeLabel() {
+        return makeLabel(ranges);
+    }
+
+    /**
+     * @return 是否为 ε 转移边
+     */
+    public boolean isEpsilon() {
+        return ranges.length == 0;
+    }
+
+    /**
+     * 生成合并后的转移条件标签：只有一个连续字符范围时为 ch 或 ch1-ch2 形式，否则为 [...] 形式的字符类。
+     * 生成的标签可由 {@link automatizer.core.utils.DotReader} 解析还原。
+     * 
+     * @param ranges
+     *            同一对状态间的转移字符范围，按 min, max 成对存放，须已升序排列并合并相邻范围
+     * @return 范围为空时返回 {@link #EPSILON_LABEL}
+     */
+    public static String makeLabel(char[] ranges) {
+        if (ranges.length == 0) {
+            return EPSILON_LABEL;
+        }
         StringBuilder sb = new StringBuilder();
-        char min = transition.getMin();
-        char max = transition.getMax();
-        appendCharString(min, sb);
+        if (ranges.length == 2) {
+            appendRange(ranges[0], ranges[1], false, sb);
+        } else {
+            sb.append('[');
+            for (int i = 0; i < ranges.length; i += 2) {
+                appendRange(ranges[i], ranges[i + 1], true, sb);
+            }
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+
+    static void appendRange(char min, char max, boolean inClass,
+            StringBuilder sb) {
+        appendLabelChar(min, inClass, sb);
         if (min != max) {
             sb.append("-");
-            appendCharString(max, sb);
+            appendLabelChar(max, inClass, sb);
         }
-        return sb.toString();
     }
 
-    public Transition getTransition() {
-        return transition;
+    /**
+     * 追加标签中的一个字符，字符类中的 '-'、'[' 及 ']' 和作为标签开头的 '[' 需转义以免产生歧义
+     * 
+     * @param c
+     * @param inClass
+     * @param sb
+     */
+    static void appendLabelChar(char c, boolean inClass, StringBuilder sb) {
+        if (c == '[' || (inClass && (c == ']' || c == '-'))) {
+            appendEscapedChar(c, sb);
+        } else {
+            appendCharString(c, sb);
+        }
     }
 
-    static void appendCharString(char c, StringBuilder sb) {
+    public static void appendCharString(char c, StringBuilder sb) {
         if (c >= 0x21 && c <= 0x7e && c != '\\' && c != '"')
             sb.append(c);
-        else {
-            sb.append("\\u");
-            String s = Integer.toHexString(c);
-            if (c < 0x10)
-                sb.append("000").append(s);
-            else if (c < 0x100)
-                sb.append("00").append(s);
-            else if (c < 0x1000)
-                sb.append("0").append(s);
-            else
-                sb.append(s);
-        }
+        else
+            appendEscapedChar(c, sb);
+    }
+
+    static void appendEscapedChar(char c, StringBuilder sb) {
+        sb.append("\\u");
+        String s = Integer.toHexString(c);
+        if (c < 0x10)
+            sb.append("000").append(s);
+        else if (c < 0x100)
+            sb.append("00").append(s);
+        else if (c < 0x1000)
+            sb.append("0").append(s);
+        else
+            sb.append(s);
     }
 
 }
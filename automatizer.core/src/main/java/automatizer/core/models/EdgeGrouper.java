@@ -0,0 +1,100 @@
+package automatizer.core.models;
+
+import java.util.Arrays;
+
+/**
+ * 将状态的出边按目标状态分组，并合并组内相邻或重叠的字符范围。分组所用的辅助数组在多次调用间复用，
+ * 对整个状态机分组的总开销与转移边数成线性关系。
+ * 
+ * @author wxz
+ * 
+ */
+public final class EdgeGrouper {
+
+    private final IndexedAutomaton atm;
+    private final int[] groupOf; // 目标状态对应的组序号
+    private final int[] stamp; // groupOf 中各项对应的状态，用于免清零复用
+    private int groupCount;
+    private int[] groupDest = new int[8];
+    private char[][] groupRanges = new char[8][];
+    private int[] groupSize = new int[8];
+
+    public EdgeGrouper(IndexedAutomaton automaton) {
+        atm = automaton;
+        groupOf = new int[atm.getStateCount()];
+        stamp = new int[atm.getStateCount()];
+        Arrays.fill(stamp, -1);
+    }
+
+    /**
+     * 对给定状态的出边分组，组按其最小字符升序排列
+     * 
+     * @param state
+     * @return 组数
+     */
+    public int group(int state) {
+        groupCount = 0;
+        int end = atm.getTransitionEnd(state);
+        for (int t = atm.getTransitionStart(state); t < end; t++) {
+            int dst = atm.getDest(t);
+            int g;
+            if (stamp[dst] == state) {
+                g = groupOf[dst];
+            } else {
+                g = newGroup(dst);
+                stamp[dst] = state;
+                groupOf[dst] = g;
+            }
+            addRange(g, atm.getMin(t), atm.getMax(t));
+        }
+        return groupCount;
+    }
+
+    public int getDest(int group) {
+        return groupDest[group];
+    }
+
+    /**
+     * @param group
+     * @return 组内合并后的字符范围，按 min, max 成对存放
+     */
+    public char[] getRanges(int group) {
+        return Arrays.copyOf(groupRanges[group], groupSize[group]);
+    }
+
+    private int newGroup(int dst) {
+        if (groupCount == groupDest.length) {
+            int cap = groupCount * 2;
+            groupDest = Arrays.copyOf(groupDest, cap);
+            groupRanges = Arrays.copyOf(groupRanges, cap);
+            groupSize = Arrays.copyOf(groupSize, cap);
+        }
+        int g = groupCount++;
+        groupDest[g] = dst;
+        if (groupRanges[g] == null) {
+            groupRanges[g] = new char[4];
+        }
+        groupSize[g] = 0;
+        return g;
+    }
+
+    private void addRange(int g, char min, char max) {
+        char[] ranges = groupRanges[g];
+        int size = groupSize[g];
+        // 同一状态的转移边按 min 升序排列，只需与组内最后一个范围比较
+        if (size > 0 && min <= ranges[size - 1] + 1) {
+            if (max > ranges[size - 1]) {
+                ranges[size - 1] = max;
+            }
+            return;
+        }
+        if (size + 2 > ranges.length) {
+            ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            groupRanges[g] = ranges;
+        }
+        ranges[size] = min;
+        ranges[size + 1] = max;
+        groupSize[g] = size + 2;
+    }
+
+}
@@ -0,0 +1,228 @@
+package automatizer.core.models;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 一次性计算 ε-NFA 快照中全部状态的 ε 闭包。
+ *
+ * 先用迭代的 Tarjan 算法求 ε 转移图的强连通分量，同一分量中的状态闭包相同，只保存一份以状态编号为下标的 BitSet；Tarjan
+ * 算法按逆拓扑顺序输出分量，每个分量的闭包即为其成员与各后继分量闭包的并集，因此整个计算只需遍历一遍 ε 转移边，
+ * 不必对每个状态单独做深度优先遍历。
+ *
+ * 没有通往其他分量的 ε 转移边的单状态分量（Thompson 式 NFA 中的大多数状态）闭包即为 {s}，不生成 BitSet；其余分量的
+ * BitSet 不预先分配 n 位，只在有 ε 后继时合并后继分量的闭包。
+ *
+ * @author wxz
+ *
+ */
+public final class EpsilonClosure {
+
+    private final int[] component; // 状态所属的强连通分量
+    private final BitSet[] closures; // 各分量的 ε 闭包，闭包只含分量中唯一状态时为 null
+
+    public EpsilonClosure(IndexedAutomaton atm) {
+        int n = atm.getStateCount();
+        component = new int[n];
+        Arrays.fill(component, -1);
+
+        int[] index = new int[n];
+        int[] low = new int[n];
+        Arrays.fill(index, -1);
+        int[] stack = new int[n]; // Tarjan 算法的分量栈
+        boolean[] onStack = new boolean[n];
+        int sp = 0;
+        int[] callState = new int[n]; // 模拟递归的调用栈
+        int[] callEdge = new int[n];
+        int cp = 0;
+        int counter = 0;
+        BitSet[] comps = new BitSet[16];
+        int compCount = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            index[root] = low[root] = counter++;
+            stack[sp++] = root;
+            onStack[root] = true;
+            callState[cp] = root;
+            callEdge[cp++] = atm.getEpsilonStart(root);
+
+            while (cp > 0) {
+                int s = callState[cp - 1];
+                int e = callEdge[cp - 1];
+                if (e < atm.getEpsilonEnd(s)) {
+                    callEdge[cp - 1] = e + 1;
+                    int d = atm.getEpsilonDest(e);
+                    if (index[d] < 0) {
+                        index[d] = low[d] = counter++;
+                        stack[sp++] = d;
+                        onStack[d] = true;
+                        callState[cp] = d;
+                        callEdge[cp++] = atm.getEpsilonStart(d);
+                    } else if (onStack[d]) {
+                        low[s] = Math.min(low[s], index[d]);
+                    }
+                    continue;
+                }
+
+                cp--;
+                if (cp > 0) {
+                    int parent = callState[cp - 1];
+                    low[parent] = Math.min(low[parent], low[s]);
+                }
+                if (low[s] != index[s]) {
+                    continue;
+                }
+
+                // s 为分量的根，其后继分量均已完成；分量成员为栈中 [bottom, sp) 部分
+                int c = compCount;
+                int bottom = sp;
+                do {
+                    bottom--;
+                    onStack[stack[bottom]] = false;
+                    component[stack[bottom]] = c;
+                } while (stack[bottom] != s);
+                BitSet closure = null;
+                if (sp - bottom > 1) {
+                    closure = new BitSet();
+                    for (int i = bottom; i < sp; i++) {
+                        closure.set(stack[i]);
+                    }
+                }
+                for (int j = bottom; j < sp; j++) {
+                    int x = stack[j];
+                    for (int i = atm.getEpsilonStart(x); i < atm
+                            .getEpsilonEnd(x); i++) {
+                        int d = atm.getEpsilonDest(i);
+                        int dc = component[d];
+                        if (dc == c) {
+                            continue;
+                        }
+                        if (closure == null) {
+                            closure = new BitSet();
+                            closure.set(s);
+                        }
+                        if (comps[dc] != null) {
+                            closure.or(comps[dc]);
+                        } else {
+                            closure.set(d);
+                        }
+                    }
+                }
+                sp = bottom;
+                if (compCount == comps.length) {
+                    comps = Arrays.copyOf(comps, compCount * 2);
+                }
+                comps[compCount++] = closure;
+            }
+        }
+        closures = Arrays.copyOf(comps, compCount);
+    }
+
+    /**
+     * @param state
+     * @return 给定状态的 ε 闭包（含其自身）。同一强连通分量中的状态共享同一对象，调用者不得修改；闭包只含 state
+     *         自身时每次返回新建的 BitSet
+     */
+    public BitSet get(int state) {
+        BitSet res = closures[component[state]];
+        if (res == null) {
+            res = new BitSet();
+            res.set(state);
+        }
+        return res;
+    }
+
+    /**
+     * @param state
+     * @return 给定状态的 ε 闭包是否只含其自身
+     */
+    public boolean isTrivial(int state) {
+        return closures[component[state]] == null;
+    }
+
+    /**
+     * 将状态集合扩展为其 ε 闭包
+     *
+     * @param states
+     */
+    public void close(BitSet states) {
+        BitSet res = null;
+        for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+            BitSet cl = closures[component[s]];
+            if (cl == null) {
+                continue;
+            }
+            if (res == null) {
+                res = (BitSet) cl.clone();
+            } else {
+                res.or(cl);
+            }
+        }
+        if (res != null) {
+            states.or(res);
+        }
+    }
+
+    /**
+     * @return ε 转移图的强连通分量数
+     */
+    public int getComponentCount() {
+        return closures.length;
+    }
+
+    /**
+     * 消除 ε 转移边：每个状态获得其 ε 闭包中全部状态的普通转移边，闭包中含 accept 状态时其自身也成为 accept 状态。
+     * 结果按广度优先顺序重新编号，只经 ε 转移边可达的状态若不再可达会被去除。
+     *
+     * @param atm
+     * @return 不含 ε 转移边的快照，atm 本身没有 ε 转移边时直接返回 atm
+     */
+    public static IndexedAutomaton removeEpsilons(IndexedAutomaton atm) {
+        if (!atm.hasEpsilons()) {
+            return atm;
+        }
+
+        EpsilonClosure closure = new EpsilonClosure(atm);
+        int n = atm.getStateCount();
+        BitSet accept = atm.getAcceptStates();
+        IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+        for (int s = 0; s < n; s++) {
+            b.addState(closure.isTrivial(s) ? accept.get(s) : closure.get(s)
+                    .intersects(accept));
+        }
+        b.setInitialState(atm.getInitialState());
+
+        long[] keys = new long[16];
+        for (int s = 0; s < n; s++) {
+            // 收集闭包中全部状态的转移边，打包排序后去重
+            BitSet cl = closure.isTrivial(s) ? null : closure.get(s);
+            int k = 0;
+            for (int x = cl != null ? cl.nextSetBit(0) : s; x >= 0; x = cl != null ? cl
+                    .nextSetBit(x + 1) : -1) {
+                int from = atm.getTransitionStart(x);
+                int to = atm.getTransitionEnd(x);
+                if (k + to - from > keys.length) {
+                    keys = Arrays.copyOf(keys,
+                            Math.max(keys.length * 2, k + to - from));
+                }
+                for (int t = from; t < to; t++) {
+                    keys[k++] = ((long) atm.getMin(t) << 48)
+                            | ((long) atm.getMax(t) << 32) | atm.getDest(t);
+                }
+            }
+            Arrays.sort(keys, 0, k);
+            for (int i = 0; i < k; i++) {
+                if (i > 0 && keys[i] == keys[i - 1]) {
+                    continue;
+                }
+                b.addTransition(s, (char) (keys[i] >>> 48),
+                        (char) (keys[i] >>> 32), (int) keys[i]);
+            }
+        }
+        return b.build();
+    }
+
+}
@@ -0,0 +1,73 @@
+package automatizer.core.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将状态机快照转换为转移图 model：每个状态只生成一个 StateData，同一对状态间的转移边合并为一个
+ * ConnectionData，ε 转移边单独生成标签为 ε 的 ConnectionData。给定字符类划分时转移条件以字符类表示（见
+ * {@link AlphabetPartition#makeLabel(char[])}）
+ * 
+ * @author wxz
+ * 
+ */
+public class GraphModelBuilder {
+
+    private static final char[] NO_RANGES = new char[0];
+
+    /**
+     * 生成给定状态机的全部连线
+     * 
+     * @param atm
+     * @return
+     */
+    public static List<ConnectionData> build(IndexedAutomaton atm) {
+        return build(atm, null);
+    }
+
+    /**
+     * 生成给定状态机的全部连线
+     * 
+     * @param atm
+     * @param alphabet
+     *            atm 的字符类划分，为 null 时转移条件以字符范围表示
+     * @return
+     */
+    public static List<ConnectionData> build(IndexedAutomaton atm,
+            AlphabetPartition alphabet) {
+        int n = atm.getStateCount();
+        List<ConnectionData> results = new ArrayList<ConnectionData>(n);
+        StateData[] nodes = new StateData[n];
+        EdgeGrouper grouper = new EdgeGrouper(atm);
+
+        for (int s = 0; s < n; s++) {
+            StateData src = intern(nodes, atm, s);
+            int groups = grouper.group(s);
+            for (int g = 0; g < groups; g++) {
+                StateData dst = intern(nodes, atm, grouper.getDest(g));
+                char[] ranges = grouper.getRanges(g);
+                results.add(alphabet != null ? new ConnectionData(src, dst,
+                        ranges, alphabet.makeLabel(ranges))
+                        : new ConnectionData(src, dst, ranges));
+            }
+            for (int e = atm.getEpsilonStart(s); e < atm.getEpsilonEnd(s); e++) {
+                StateData dst = intern(nodes, atm, atm.getEpsilonDest(e));
+                results.add(new ConnectionData(src, dst, NO_RANGES));
+            }
+        }
+
+        return results;
+    }
+
+    private static StateData intern(StateData[] nodes, IndexedAutomaton atm,
+            int state) {
+        StateData data = nodes[state];
+        if (data == null) {
+            data = new StateData(state, atm.isInitial(state),
+                    atm.isAccept(state));
+            nodes[state] = data;
+        }
+        return data;
+    }
+
+}
@@ -0,0 +1,603 @@
+package automatizer.core.models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.etao.lz.automaton.Automaton;
+import com.etao.lz.automaton.State;
+import com.etao.lz.automaton.Transition;
+
+/**
+ * 状态机的不可变索引快照。
+ *
+ * 状态按从起始状态开始的广度优先顺序编号为 0..n-1（起始状态恒为 0），转移边以 CSR 形式存放：状态 s 的转移边序号为
+ * [getTransitionStart(s), getTransitionEnd(s))，每条边记录字符范围 [min, max] 及目标状态编号，同一状态的转移边按
+ * (min, max, dest) 升序排列。转移图、DOT 导出及匹配器等均只读取此快照，不再各自遍历 Automaton 对象图。
+ *
+ * ε-NFA 快照另以 CSR 形式存放 ε 转移边：状态 s 的 ε 转移边序号为 [getEpsilonStart(s), getEpsilonEnd(s))，
+ * 按目标状态升序排列；其他快照没有 ε 转移边。广度优先编号同时沿普通转移边及 ε 转移边进行。
+ *
+ * @author wxz
+ *
+ */
+public final class IndexedAutomaton {
+
+    private final int stateCount;
+    private final BitSet accept;
+    private final int[] transStart;
+    private final char[] transMin;
+    private final char[] transMax;
+    private final int[] transDest;
+    private final int[] epsStart; // 没有 ε 转移边时为 null
+    private final int[] epsDest;
+
+    IndexedAutomaton(int n, BitSet acc, int[] start, char[] min, char[] max,
+            int[] dest, int[] eStart, int[] eDest) {
+        stateCount = n;
+        accept = acc;
+        transStart = start;
+        transMin = min;
+        transMax = max;
+        transDest = dest;
+        epsStart = eDest != null && eDest.length > 0 ? eStart : null;
+        epsDest = epsStart != null ? eDest : null;
+    }
+
+    /**
+     * 单遍广度优先遍历给定状态机生成快照，同时按相同顺序设置各 State 对象的编号
+     *
+     * @param atm
+     * @return
+     */
+    public static IndexedAutomaton fromAutomaton(Automaton atm) {
+        return fromAutomaton(atm, null);
+    }
+
+    /**
+     * 单遍广度优先遍历给定状态机及其 ε 转移边生成 ε-NFA 快照。
+     *
+     * @param atm
+     * @param epsilons
+     *            各状态的 ε 转移目标状态，为 null 或空时等同于 {@link #fromAutomaton(Automaton)}
+     * @return
+     */
+    public static IndexedAutomaton fromAutomaton(Automaton atm,
+            Map<State, List<State>> epsilons) {
+        if (epsilons != null && epsilons.isEmpty()) {
+            epsilons = null;
+        }
+        Map<State, Integer> ids = new IdentityHashMap<State, Integer>();
+        State[] queue = new State[16];
+        int head = 0;
+        int tail = 0;
+
+        int[] start = new int[17];
+        char[] min = new char[16];
+        char[] max = new char[16];
+        int[] dest = new int[16];
+        int count = 0;
+        BitSet acc = new BitSet();
+        int[] eStart = epsilons != null ? new int[17] : null;
+        int[] eDest = epsilons != null ? new int[16] : null;
+        int eCount = 0;
+
+        State init = atm.getInitialState();
+        ids.put(init, 0);
+        queue[tail++] = init;
+        while (head < tail) {
+            int id = head;
+            State state = queue[head++];
+            state.setNumber(id);
+            if (state.isAccept()) {
+                acc.set(id);
+            }
+
+            List<Transition> trans = state.getSortedTransitions(false);
+            if (count + trans.size() > dest.length) {
+                int cap = Math.max(dest.length * 2, count + trans.size());
+                min = Arrays.copyOf(min, cap);
+                max = Arrays.copyOf(max, cap);
+                dest = Arrays.copyOf(dest, cap);
+            }
+            for (Transition tran : trans) {
+                State dst = tran.getDest();
+                Integer dstId = ids.get(dst);
+                if (dstId == null) {
+                    dstId = tail;
+                    ids.put(dst, dstId);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                    queue[tail++] = dst;
+                }
+                min[count] = tran.getMin();
+                max[count] = tran.getMax();
+                dest[count] = dstId;
+                count++;
+            }
+            sortTransitions(min, max, dest, count - trans.size(), count);
+
+            if (id + 2 > start.length) {
+                start = Arrays.copyOf(start, start.length * 2);
+            }
+            start[id + 1] = count;
+
+            if (epsilons != null) {
+                List<State> eps = epsilons.get(state);
+                if (eps == null) {
+                    eps = Collections.emptyList();
+                }
+                if (eCount + eps.size() > eDest.length) {
+                    eDest = Arrays.copyOf(eDest,
+                            Math.max(eDest.length * 2, eCount + eps.size()));
+                }
+                for (State dst : eps) {
+                    Integer dstId = ids.get(dst);
+                    if (dstId == null) {
+                        dstId = tail;
+                        ids.put(dst, dstId);
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, tail * 2);
+                        }
+                        queue[tail++] = dst;
+                    }
+                    eDest[eCount++] = dstId;
+                }
+                Arrays.sort(eDest, eCount - eps.size(), eCount);
+                if (id + 2 > eStart.length) {
+                    eStart = Arrays.copyOf(eStart, eStart.length * 2);
+                }
+                eStart[id + 1] = eCount;
+            }
+        }
+
+        int n = tail;
+        if (eCount > 0) {
+            return new IndexedAutomaton(n, acc, Arrays.copyOf(start, n + 1),
+                    Arrays.copyOf(min, count), Arrays.copyOf(max, count),
+                    Arrays.copyOf(dest, count), Arrays.copyOf(eStart, n + 1),
+                    Arrays.copyOf(eDest, eCount));
+        }
+        return new IndexedAutomaton(n, acc, Arrays.copyOf(start, n + 1),
+                Arrays.copyOf(min, count), Arrays.copyOf(max, count),
+                Arrays.copyOf(dest, count), null, null);
+    }
+
+    /**
+     * 对 [from, to) 区间内的转移边按 (min, max, dest) 升序排序，边数较少时直接插入排序，否则将三元组打包为 long
+     * 后排序
+     */
+    static void sortTransitions(char[] min, char[] max, int[] dest, int from,
+            int to) {
+        if (to - from > 16) {
+            long[] keys = new long[to - from];
+            for (int i = from; i < to; i++) {
+                keys[i - from] = ((long) min[i] << 48) | ((long) max[i] << 32)
+                        | (dest[i] & 0xffffffffL);
+            }
+            Arrays.sort(keys);
+            for (int i = from; i < to; i++) {
+                long k = keys[i - from];
+                min[i] = (char) (k >>> 48);
+                max[i] = (char) (k >>> 32);
+                dest[i] = (int) k;
+            }
+            return;
+        }
+
+        for (int i = from + 1; i < to; i++) {
+            char mi = min[i];
+            char ma = max[i];
+            int d = dest[i];
+            int j = i - 1;
+            while (j >= from
+                    && compare(min[j], max[j], dest[j], mi, ma, d) > 0) {
+                min[j + 1] = min[j];
+                max[j + 1] = max[j];
+                dest[j + 1] = dest[j];
+                j--;
+            }
+            min[j + 1] = mi;
+            max[j + 1] = ma;
+            dest[j + 1] = d;
+        }
+    }
+
+    private static int compare(char min1, char max1, int dest1, char min2,
+            char max2, int dest2) {
+        if (min1 != min2) {
+            return min1 - min2;
+        }
+        if (max1 != max2) {
+            return max1 - max2;
+        }
+        return dest1 < dest2 ? -1 : (dest1 == dest2 ? 0 : 1);
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getTransitionCount() {
+        return transDest.length;
+    }
+
+    /**
+     * @return 起始状态编号，恒为 0
+     */
+    public int getInitialState() {
+        return 0;
+    }
+
+    public boolean isInitial(int state) {
+        return state == 0;
+    }
+
+    public boolean isAccept(int state) {
+        return accept.get(state);
+    }
+
+    /**
+     * @return accept 状态集合的副本
+     */
+    public BitSet getAcceptStates() {
+        return (BitSet) accept.clone();
+    }
+
+    public int getTransitionStart(int state) {
+        return transStart[state];
+    }
+
+    public int getTransitionEnd(int state) {
+        return transStart[state + 1];
+    }
+
+    public char getMin(int transition) {
+        return transMin[transition];
+    }
+
+    public char getMax(int transition) {
+        return transMax[transition];
+    }
+
+    public int getDest(int transition) {
+        return transDest[transition];
+    }
+
+    /**
+     * @return 是否含有 ε 转移边
+     */
+    public boolean hasEpsilons() {
+        return epsStart != null;
+    }
+
+    public int getEpsilonCount() {
+        return epsDest != null ? epsDest.length : 0;
+    }
+
+    public int getEpsilonStart(int state) {
+        return epsStart != null ? epsStart[state] : 0;
+    }
+
+    public int getEpsilonEnd(int state) {
+        return epsStart != null ? epsStart[state + 1] : 0;
+    }
+
+    public int getEpsilonDest(int epsilon) {
+        return epsDest[epsilon];
+    }
+
+    /**
+     * 重新构造等价的 Automaton 对象，含 ε 转移边时先消除 ε 转移边。快照不保留生成它的 Automaton 对象，
+     * 需要原对象的调用者应自行保存其引用
+     *
+     * @return
+     */
+    public Automaton toAutomaton() {
+        if (epsStart != null) {
+            return EpsilonClosure.removeEpsilons(this).toAutomaton();
+        }
+
+        State[] states = new State[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            states[s] = new State();
+            states[s].setNumber(s);
+            states[s].setAccept(accept.get(s));
+        }
+        for (int s = 0; s < stateCount; s++) {
+            for (int t = transStart[s]; t < transStart[s + 1]; t++) {
+                states[s].addTransition(new Transition(transMin[t],
+                        transMax[t], states[transDest[t]]));
+            }
+        }
+        Automaton atm = new Automaton();
+        atm.setInitialState(states[0]);
+        return atm;
+    }
+
+    /**
+     * 以紧凑的二进制格式写出快照：状态数、accept 状态位图、各状态出度及转移边 (min, max, dest)，有 ε 转移边时再写出
+     * 各状态的 ε 出度及目标状态
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(stateCount);
+        long[] words = accept.toLongArray();
+        out.writeInt(words.length);
+        for (long w : words) {
+            out.writeLong(w);
+        }
+        out.writeInt(transDest.length);
+        for (int s = 0; s < stateCount; s++) {
+            out.writeInt(transStart[s + 1] - transStart[s]);
+        }
+        for (int t = 0; t < transDest.length; t++) {
+            out.writeChar(transMin[t]);
+            out.writeChar(transMax[t]);
+            out.writeInt(transDest[t]);
+        }
+        out.writeInt(epsStart != null ? epsDest.length : 0);
+        if (epsStart != null) {
+            for (int s = 0; s < stateCount; s++) {
+                out.writeInt(epsStart[s + 1] - epsStart[s]);
+            }
+            for (int d : epsDest) {
+                out.writeInt(d);
+            }
+        }
+    }
+
+    /**
+     * 读入 {@link #write(DataOutput)} 写出的快照，状态编号保持不变
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     *             读取失败或数据不一致
+     */
+    public static IndexedAutomaton read(DataInput in) throws IOException {
+        int n = in.readInt();
+        int words = in.readInt();
+        if (n <= 0 || words < 0 || words > (n + 63) / 64) {
+            throw new IOException("Corrupted automaton header");
+        }
+        long[] bits = new long[words];
+        for (int i = 0; i < words; i++) {
+            bits[i] = in.readLong();
+        }
+        int m = in.readInt();
+        int[] start = readDegrees(in, n, m);
+        char[] min = new char[m];
+        char[] max = new char[m];
+        int[] dest = new int[m];
+        for (int t = 0; t < m; t++) {
+            min[t] = in.readChar();
+            max[t] = in.readChar();
+            dest[t] = readState(in, n);
+        }
+        int e = in.readInt();
+        int[] eStart = null;
+        int[] eDest = null;
+        if (e != 0) {
+            eStart = readDegrees(in, n, e);
+            eDest = new int[e];
+            for (int i = 0; i < e; i++) {
+                eDest[i] = readState(in, n);
+            }
+        }
+        return new IndexedAutomaton(n, BitSet.valueOf(bits), start, min, max,
+                dest, eStart, eDest);
+    }
+
+    /**
+     * 读入各状态的出度并累加为 CSR 起始序号
+     */
+    private static int[] readDegrees(DataInput in, int n, int total)
+            throws IOException {
+        if (total < 0) {
+            throw new IOException("Corrupted automaton edge count");
+        }
+        int[] start = new int[n + 1];
+        for (int s = 0; s < n; s++) {
+            int d = in.readInt();
+            if (d < 0 || d > total - start[s]) {
+                throw new IOException("Corrupted automaton out-degree");
+            }
+            start[s + 1] = start[s] + d;
+        }
+        if (start[n] != total) {
+            throw new IOException("Corrupted automaton out-degree");
+        }
+        return start;
+    }
+
+    private static int readState(DataInput in, int n) throws IOException {
+        int s = in.readInt();
+        if (s < 0 || s >= n) {
+            throw new IOException("Corrupted automaton state " + s);
+        }
+        return s;
+    }
+
+    /**
+     * 估算快照占用的内存字节数
+     *
+     * @return
+     */
+    public long estimateSize() {
+        long size = 64 + 4L * transStart.length + 8L * transDest.length
+                + stateCount / 8;
+        if (epsStart != null) {
+            size += 4L * epsStart.length + 4L * epsDest.length;
+        }
+        return size;
+    }
+
+    /**
+     * 用于由其他算法直接构造快照，状态编号可任意分配，build() 时会按广度优先顺序重新编号并去除不可达状态
+     *
+     * @author wxz
+     *
+     */
+    public static final class Builder {
+
+        private int stateCount;
+        private final BitSet accept = new BitSet();
+        private int initial;
+
+        private int count;
+        private int[] src = new int[16];
+        private char[] min = new char[16];
+        private char[] max = new char[16];
+        private int[] dest = new int[16];
+
+        private int epsCount;
+        private int[] epsSrc = new int[16];
+        private int[] epsDst = new int[16];
+
+        /**
+         * 增加一个状态
+         *
+         * @param isAccept
+         * @return 新状态的临时编号
+         */
+        public int addState(boolean isAccept) {
+            if (isAccept) {
+                accept.set(stateCount);
+            }
+            return stateCount++;
+        }
+
+        public void setInitialState(int state) {
+            initial = state;
+        }
+
+        public void setAccept(int state, boolean isAccept) {
+            accept.set(state, isAccept);
+        }
+
+        public int getStateCount() {
+            return stateCount;
+        }
+
+        public void addTransition(int from, char lo, char hi, int to) {
+            if (count == src.length) {
+                int cap = count * 2;
+                src = Arrays.copyOf(src, cap);
+                min = Arrays.copyOf(min, cap);
+                max = Arrays.copyOf(max, cap);
+                dest = Arrays.copyOf(dest, cap);
+            }
+            src[count] = from;
+            min[count] = lo;
+            max[count] = hi;
+            dest[count] = to;
+            count++;
+        }
+
+        public void addEpsilon(int from, int to) {
+            if (epsCount == epsSrc.length) {
+                epsSrc = Arrays.copyOf(epsSrc, epsCount * 2);
+                epsDst = Arrays.copyOf(epsDst, epsCount * 2);
+            }
+            epsSrc[epsCount] = from;
+            epsDst[epsCount] = to;
+            epsCount++;
+        }
+
+        public IndexedAutomaton build() {
+            // 按来源状态对转移边做计数排序
+            int[] outStart = new int[stateCount + 1];
+            for (int t = 0; t < count; t++) {
+                outStart[src[t] + 1]++;
+            }
+            for (int s = 0; s < stateCount; s++) {
+                outStart[s + 1] += outStart[s];
+            }
+            int[] order = new int[count];
+            int[] fill = Arrays.copyOf(outStart, stateCount);
+            for (int t = 0; t < count; t++) {
+                order[fill[src[t]]++] = t;
+            }
+            int[] epsOut = new int[stateCount + 1];
+            for (int e = 0; e < epsCount; e++) {
+                epsOut[epsSrc[e] + 1]++;
+            }
+            for (int s = 0; s < stateCount; s++) {
+                epsOut[s + 1] += epsOut[s];
+            }
+            int[] epsOrder = new int[epsCount];
+            fill = Arrays.copyOf(epsOut, stateCount);
+            for (int e = 0; e < epsCount; e++) {
+                epsOrder[fill[epsSrc[e]]++] = e;
+            }
+
+            // 广度优先重新编号
+            int[] newId = new int[stateCount];
+            Arrays.fill(newId, -1);
+            int[] queue = new int[stateCount];
+            int tail = 0;
+            newId[initial] = 0;
+            queue[tail++] = initial;
+
+            int[] start = new int[stateCount + 1];
+            char[] nmin = new char[count];
+            char[] nmax = new char[count];
+            int[] ndest = new int[count];
+            BitSet acc = new BitSet();
+            int[] eStart = new int[stateCount + 1];
+            int[] eDest = new int[epsCount];
+            int n = 0;
+            int en = 0;
+            for (int head = 0; head < tail; head++) {
+                int s = queue[head];
+                if (accept.get(s)) {
+                    acc.set(head);
+                }
+                int from = n;
+                for (int i = outStart[s]; i < outStart[s + 1]; i++) {
+                    int t = order[i];
+                    int d = dest[t];
+                    if (newId[d] < 0) {
+                        newId[d] = tail;
+                        queue[tail++] = d;
+                    }
+                    nmin[n] = min[t];
+                    nmax[n] = max[t];
+                    ndest[n] = newId[d];
+                    n++;
+                }
+                sortTransitions(nmin, nmax, ndest, from, n);
+                start[head + 1] = n;
+
+                int efrom = en;
+                for (int i = epsOut[s]; i < epsOut[s + 1]; i++) {
+                    int d = epsDst[epsOrder[i]];
+                    if (newId[d] < 0) {
+                        newId[d] = tail;
+                        queue[tail++] = d;
+                    }
+                    eDest[en++] = newId[d];
+                }
+                Arrays.sort(eDest, efrom, en);
+                eStart[head + 1] = en;
+            }
+
+            return new IndexedAutomaton(tail, acc, Arrays.copyOf(start,
+                    tail + 1), Arrays.copyOf(nmin, n), Arrays.copyOf(nmax, n),
+                    Arrays.copyOf(ndest, n), Arrays.copyOf(eStart, tail + 1),
+                    Arrays.copyOf(eDest, en));
+        }
+
+    }
+
+}
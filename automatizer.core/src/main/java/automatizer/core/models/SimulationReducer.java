@@ -0,0 +1,479 @@
+package automatizer.core.models;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import automatizer.core.profiling.Stage;
+
+/**
+ * 基于模拟关系的 NFA 状态约简，不做确定化。
+ *
+ * NFA 最小化是 PSPACE-complete 的，这里采用多项式时间的启发式方法：先用 partition-relation 方式求 ε-free NFA
+ * 的最大前向直接模拟关系（以 BitSet 保存每个状态的上集，同一轮中相互模拟的状态组成一个块，块内状态的上集相同，
+ * 求前像时按“字符类-块”缓存），合并相互模拟的状态，并删除目标状态被同一字符下另一目标状态严格模拟的转移边；
+ * 再以同样方式求后向直接模拟关系并合并相互模拟的状态。重复上述过程直至状态数及转移边数不再减少，约简结果与原状态机接受相同的语言。
+ *
+ * 转移边按字符类（见 {@link AlphabetPartition}）展开；状态数超过 {@link #MAX_STATES} 或展开后的转移边数超过 {@link #MAX_EDGES}
+ * 时不做约简。模拟关系占用 O(n²) 位，每轮细化同时保留新旧两份；前像缓存超过 {@link #MAX_CACHED_BITS} 位时清空重建。
+ *
+ * @author wxz
+ *
+ */
+public final class SimulationReducer {
+
+    /**
+     * 按字符类展开后的转移边数上限
+     */
+    public static final int MAX_EDGES = 1 << 20;
+
+    /**
+     * 状态数上限，此时两份模拟关系共占约 16 MB
+     */
+    public static final int MAX_STATES = 8192;
+
+    /**
+     * 每轮细化中缓存的前像总位数上限（8 MB）
+     */
+    public static final long MAX_CACHED_BITS = 1L << 26;
+
+    private final IndexedAutomaton atm;
+    private final int n;
+    private final Budget budget;
+    private AlphabetPartition alphabet;
+    private int edgeCount;
+    private int[] outStart; // 按字符类展开的后继表，各状态内按 (字符类, 目标状态) 排序
+    private int[] outSym;
+    private int[] outNode;
+    private int[] inStart; // 按字符类展开的前驱表，各状态内按 (字符类, 来源状态) 排序
+    private int[] inSym;
+    private int[] inNode;
+
+    private SimulationReducer(IndexedAutomaton atm, Budget budget) {
+        this.atm = atm;
+        this.budget = budget;
+        n = atm.getStateCount();
+        expand();
+    }
+
+    /**
+     * 约简 NFA 状态数，含 ε 转移边时先消除 ε 转移边
+     *
+     * @param atm
+     * @return 与 atm 接受相同语言的约简结果，无法进一步约简时返回 ε-free 的 atm
+     */
+    public static IndexedAutomaton reduce(IndexedAutomaton atm) {
+        return reduce(atm, Budget.UNLIMITED);
+    }
+
+    /**
+     * 在给定资源限制内约简 NFA 状态数，每轮细化及每次重复约简前检查耗时
+     *
+     * @param atm
+     * @param budget
+     * @return 与 atm 接受相同语言的约简结果，无法进一步约简或状态数超过 {@link #MAX_STATES} 时返回 ε-free 的 atm
+     * @throws BudgetExceededException
+     *             超出耗时限制，超限阶段记为 {@link Stage#REDUCE}
+     */
+    public static IndexedAutomaton reduce(IndexedAutomaton atm, Budget budget) {
+        atm = EpsilonClosure.removeEpsilons(atm);
+        while (true) {
+            if (atm.getStateCount() > MAX_STATES) {
+                return atm;
+            }
+            budget.checkTime(Stage.REDUCE, atm.getStateCount(),
+                    atm.getTransitionCount());
+            SimulationReducer r = new SimulationReducer(atm, budget);
+            if (r.edgeCount > MAX_EDGES) {
+                return atm;
+            }
+            IndexedAutomaton res = r.quotient(r.simulate(true), true);
+            r = new SimulationReducer(res, budget);
+            res = r.quotient(r.simulate(false), false);
+
+            if (res.getStateCount() >= atm.getStateCount()
+                    && res.getTransitionCount() >= atm.getTransitionCount()) {
+                return atm;
+            }
+            atm = res;
+        }
+    }
+
+    /**
+     * 去除不能到达 accept 状态的转移边，并按字符类展开其余转移边
+     */
+    private void expand() {
+        alphabet = AlphabetPartition.of(atm);
+        int intervals = alphabet.getIntervalCount();
+
+        // 按转移边覆盖的基本区间数估计展开后的转移边数，同一字符类的多个区间在排序去重时合并
+        BitSet live = liveStates();
+        long total = 0;
+        for (int s = 0; s < n; s++) {
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                if (live.get(atm.getDest(t))) {
+                    total += alphabet.intervalOf(atm.getMax(t))
+                            - alphabet.intervalOf(atm.getMin(t)) + 1;
+                }
+            }
+        }
+        if (total > MAX_EDGES) {
+            edgeCount = (int) Math.min(total, Integer.MAX_VALUE);
+            return;
+        }
+
+        // 打包为 (字符类 << 32 | 目标状态) 后逐状态排序去重
+        long[] keys = new long[(int) total];
+        outStart = new int[n + 1];
+        int e = 0;
+        for (int s = 0; s < n; s++) {
+            int from = e;
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                int d = atm.getDest(t);
+                if (!live.get(d)) {
+                    continue;
+                }
+                for (int i = alphabet.intervalOf(atm.getMin(t)); i < intervals
+                        && alphabet.getIntervalStart(i) <= atm.getMax(t); i++) {
+                    keys[e++] = ((long) alphabet.getIntervalClass(i) << 32)
+                            | d;
+                }
+            }
+            Arrays.sort(keys, from, e);
+            int m = from;
+            for (int i = from; i < e; i++) {
+                if (m == from || keys[i] != keys[m - 1]) {
+                    keys[m++] = keys[i];
+                }
+            }
+            e = m;
+            outStart[s + 1] = e;
+        }
+        edgeCount = e;
+        outSym = new int[e];
+        outNode = new int[e];
+        long[] rev = new long[e];
+        inStart = new int[n + 1];
+        for (int i = 0; i < e; i++) {
+            outSym[i] = (int) (keys[i] >>> 32);
+            outNode[i] = (int) keys[i];
+            inStart[outNode[i] + 1]++;
+        }
+        for (int s = 0; s < n; s++) {
+            inStart[s + 1] += inStart[s];
+        }
+        int[] fill = Arrays.copyOf(inStart, n);
+        for (int s = 0; s < n; s++) {
+            for (int i = outStart[s]; i < outStart[s + 1]; i++) {
+                rev[fill[outNode[i]]++] = ((long) outSym[i] << 32) | s;
+            }
+        }
+        inSym = new int[e];
+        inNode = new int[e];
+        for (int s = 0; s < n; s++) {
+            Arrays.sort(rev, inStart[s], inStart[s + 1]);
+        }
+        for (int i = 0; i < e; i++) {
+            inSym[i] = (int) (rev[i] >>> 32);
+            inNode[i] = (int) rev[i];
+        }
+    }
+
+    /**
+     * @return 能到达 accept 状态的状态集合
+     */
+    private BitSet liveStates() {
+        int[] start = new int[n + 1];
+        for (int t = 0; t < atm.getTransitionCount(); t++) {
+            start[atm.getDest(t) + 1]++;
+        }
+        for (int s = 0; s < n; s++) {
+            start[s + 1] += start[s];
+        }
+        int[] pred = new int[atm.getTransitionCount()];
+        int[] fill = Arrays.copyOf(start, n);
+        for (int s = 0; s < n; s++) {
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                pred[fill[atm.getDest(t)]++] = s;
+            }
+        }
+
+        BitSet live = (BitSet) atm.getAcceptStates().clone();
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int s = live.nextSetBit(0); s >= 0; s = live.nextSetBit(s + 1)) {
+            queue[tail++] = s;
+        }
+        for (int head = 0; head < tail; head++) {
+            int s = queue[head];
+            for (int i = start[s]; i < start[s + 1]; i++) {
+                if (!live.get(pred[i])) {
+                    live.set(pred[i]);
+                    queue[tail++] = pred[i];
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * 求最大直接模拟关系
+     *
+     * @param forward
+     *            为 true 时求前向模拟，否则求后向模拟
+     * @return 下标为状态编号，sim[p] 为模拟 p 的状态集合
+     */
+    private BitSet[] simulate(boolean forward) {
+        int[] start = forward ? outStart : inStart;
+        int[] sym = forward ? outSym : inSym;
+        int[] node = forward ? outNode : inNode;
+        int[] preStart = forward ? inStart : outStart;
+        int[] preSym = forward ? inSym : outSym;
+        int[] preNode = forward ? inNode : outNode;
+
+        // 初始关系：accept 状态只能被 accept 状态模拟，后向模拟中 init 状态只能被 init 状态模拟
+        BitSet accept = atm.getAcceptStates();
+        BitSet all = new BitSet(n);
+        all.set(0, n);
+        BitSet[] sim = new BitSet[n];
+        for (int p = 0; p < n; p++) {
+            if (!forward && atm.isInitial(p)) {
+                sim[p] = new BitSet(n);
+                sim[p].set(p);
+            } else {
+                sim[p] = (BitSet) (accept.get(p) ? accept : all).clone();
+            }
+        }
+
+        int[] block = new int[n];
+        // 前像缓存最多保存的条目数
+        int maxCached = (int) Math.max(1, MAX_CACHED_BITS / Math.max(n, 64));
+        boolean changed = true;
+        while (changed) {
+            budget.checkTime(Stage.REDUCE, n, edgeCount);
+            changed = false;
+            int blocks = partition(sim, block);
+            Map<Long, BitSet> pres = new HashMap<Long, BitSet>();
+            BitSet[] next = new BitSet[n];
+            for (int p = 0; p < n; p++) {
+                BitSet r = (BitSet) sim[p].clone();
+                for (int i = start[p]; i < start[p + 1]; i++) {
+                    Long key = Long.valueOf((long) sym[i] * blocks
+                            + block[node[i]]);
+                    BitSet pre = pres.get(key);
+                    if (pre == null) {
+                        pre = preImage(sym[i], sim[node[i]], preStart,
+                                preSym, preNode);
+                        if (pres.size() >= maxCached) {
+                            pres.clear();
+                        }
+                        pres.put(key, pre);
+                    }
+                    r.and(pre);
+                }
+                if (r.cardinality() != sim[p].cardinality()) {
+                    changed = true;
+                }
+                next[p] = r;
+            }
+            sim = next;
+        }
+        return sim;
+    }
+
+    /**
+     * 将相互模拟的状态划分为块
+     *
+     * @param sim
+     * @param block
+     *            输出各状态所属的块
+     * @return 块数
+     */
+    private int partition(BitSet[] sim, int[] block) {
+        Arrays.fill(block, -1);
+        int blocks = 0;
+        for (int p = 0; p < n; p++) {
+            if (block[p] >= 0) {
+                continue;
+            }
+            for (int q = sim[p].nextSetBit(p); q >= 0; q = sim[p]
+                    .nextSetBit(q + 1)) {
+                if (block[q] < 0 && sim[q].get(p)) {
+                    block[q] = blocks;
+                }
+            }
+            blocks++;
+        }
+        return blocks;
+    }
+
+    /**
+     * @return 经字符类 a 可转移到 states 中某状态的状态集合
+     */
+    private BitSet preImage(int a, BitSet states, int[] start, int[] sym,
+            int[] node) {
+        BitSet res = new BitSet(n);
+        for (int q = states.nextSetBit(0); q >= 0; q = states.nextSetBit(q + 1)) {
+            int lo = start[q];
+            int hi = start[q + 1];
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sym[mid] < a) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            for (int i = lo; i < start[q + 1] && sym[i] == a; i++) {
+                res.set(node[i]);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * 合并相互模拟的状态，各字符类下重新合并为最长的连续字符区间
+     *
+     * @param sim
+     * @param prune
+     *            是否删除目标状态被同一字符类下另一目标状态严格模拟的转移边，只适用于前向模拟
+     * @return
+     */
+    private IndexedAutomaton quotient(BitSet[] sim, boolean prune) {
+        int[] block = new int[n];
+        int blocks = partition(sim, block);
+        int[] rep = new int[blocks];
+        Arrays.fill(rep, -1);
+        IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+        for (int s = 0; s < n; s++) {
+            if (rep[block[s]] < 0) {
+                rep[block[s]] = s;
+                b.addState(atm.isAccept(s));
+            }
+        }
+        b.setInitialState(block[atm.getInitialState()]);
+
+        int[] members = new int[n];
+        int[] memberStart = new int[blocks + 1];
+        for (int s = 0; s < n; s++) {
+            memberStart[block[s] + 1]++;
+        }
+        for (int i = 0; i < blocks; i++) {
+            memberStart[i + 1] += memberStart[i];
+        }
+        int[] fill = Arrays.copyOf(memberStart, blocks);
+        for (int s = 0; s < n; s++) {
+            members[fill[block[s]]++] = s;
+        }
+
+        long[] keys = new long[16];
+        BitSet classes = new BitSet(alphabet.getClassCount());
+        for (int c = 0; c < blocks; c++) {
+            int k = 0;
+            for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+                int s = members[m];
+                int len = outStart[s + 1] - outStart[s];
+                if (k + len > keys.length) {
+                    keys = Arrays.copyOf(keys, Math.max(keys.length * 2, k
+                            + len));
+                }
+                for (int i = outStart[s]; i < outStart[s + 1]; i++) {
+                    keys[k++] = ((long) outSym[i] << 32) | block[outNode[i]];
+                }
+            }
+            Arrays.sort(keys, 0, k);
+            int m = 0;
+            for (int i = 0; i < k; i++) {
+                if (m == 0 || keys[i] != keys[m - 1]) {
+                    keys[m++] = keys[i];
+                }
+            }
+            k = m;
+
+            if (prune) {
+                k = pruneLittleBrothers(keys, k, sim, rep);
+            }
+
+            // 改按 (目标块, 字符类) 排序，按字符顺序扫描基本区间，合并属于同一目标块的相邻区间
+            for (int i = 0; i < k; i++) {
+                keys[i] = ((keys[i] & 0xffffffffL) << 32) | (keys[i] >>> 32);
+            }
+            Arrays.sort(keys, 0, k);
+            for (int i = 0; i < k;) {
+                int dest = (int) (keys[i] >>> 32);
+                classes.clear();
+                while (i < k && (int) (keys[i] >>> 32) == dest) {
+                    classes.set((int) keys[i++]);
+                }
+                addTransitions(b, c, classes, dest);
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * 按字符顺序扫描基本区间，为属于给定字符类的每段连续区间添加一条转移边
+     *
+     * @param b
+     * @param src
+     * @param classes
+     * @param dest
+     */
+    private void addTransitions(IndexedAutomaton.Builder b, int src,
+            BitSet classes, int dest) {
+        int intervals = alphabet.getIntervalCount();
+        for (int i = 0; i < intervals;) {
+            if (!classes.get(alphabet.getIntervalClass(i))) {
+                i++;
+                continue;
+            }
+            int e = i + 1;
+            while (e < intervals && classes.get(alphabet.getIntervalClass(e))) {
+                e++;
+            }
+            b.addTransition(src, alphabet.getIntervalStart(i),
+                    alphabet.getIntervalEnd(e - 1), dest);
+            i = e;
+        }
+    }
+
+    /**
+     * 删除同一字符类下目标块被另一目标块严格模拟的转移边
+     *
+     * @param keys
+     *            按 (字符类, 目标块) 排序的转移边
+     * @param k
+     * @param sim
+     * @param rep
+     *            各块的代表状态
+     * @return 剩余转移边数
+     */
+    private static int pruneLittleBrothers(long[] keys, int k, BitSet[] sim,
+            int[] rep) {
+        int m = 0;
+        for (int i = 0; i < k;) {
+            int j = i;
+            while (j < k && keys[j] >>> 32 == keys[i] >>> 32) {
+                j++;
+            }
+            for (int x = i; x < j; x++) {
+                int p = rep[(int) keys[x]];
+                boolean dominated = false;
+                for (int y = i; y < j && !dominated; y++) {
+                    int q = rep[(int) keys[y]];
+                    dominated = y != x && sim[p].get(q) && !sim[q].get(p);
+                }
+                if (!dominated) {
+                    keys[m++] = keys[x];
+                }
+            }
+            i = j;
+        }
+        return m;
+    }
+
+}
@@ -1,19 +1,30 @@
 package automatizer.core.models;
 
-import com.etao.lz.automaton.State;
-
+/**
+ * 用于封装状态机状态的 model，每个状态只对应一个实例
+ * 
+ * @author wxz
+ * 
+ */
 public class StateData {
 
-    State state;
+    int id;
     boolean init;
+    boolean accept;
+    String label;
 
-    public StateData(State st, boolean isInit) {
-        state = st;
+    public StateData(int stateId, boolean isInit, boolean isAccept) {
+        id = stateId;
         init = isInit;
+        accept = isAccept;
+        label = String.valueOf(stateId);
     }
 
-    public State getState() {
-        return state;
+    /**
+     * @return 状态在 {@link IndexedAutomaton} 中的编号
+     */
+    public int getId() {
+        return id;
     }
 
     public boolean isInit() {
@@ -21,19 +32,16 @@ public class StateData {
     }
 
     public boolean isAccept() {
-        return state.isAccept();
+        return accept;
     }
 
     public String getLabel() {
-        return String.valueOf(state.getNumber());
+        return label;
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((state == null) ? 0 : state.hashCode());
-        return state.hashCode();
+        return id;
     }
 
     @Override
@@ -45,12 +53,7 @@ public class StateData {
         if (getClass() != obj.getClass())
             return false;
         StateData other = (StateData) obj;
-        if (state == null) {
-            if (other.state != null)
-                return false;
-        } else if (!state.equals(other.state))
-            return false;
-        return true;
+        return id == other.id;
     }
 
 }
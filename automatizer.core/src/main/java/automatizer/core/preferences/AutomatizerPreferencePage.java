@@ -0,0 +1,46 @@
+package automatizer.core.preferences;
+
+import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchPreferencePage;
+
+import automatizer.core.AutomatizerActivator;
+
+/**
+ * 调整构造状态机时资源限制的首选项页面，各项为 0 时表示不限制
+ * 
+ * @author wxz
+ * 
+ */
+public class AutomatizerPreferencePage extends FieldEditorPreferencePage
+        implements IWorkbenchPreferencePage {
+
+    public AutomatizerPreferencePage() {
+        super(GRID);
+        setPreferenceStore(AutomatizerActivator.getDefault()
+                .getPreferenceStore());
+        setDescription("Limits applied while building automata for the view (0 means unlimited). "
+                + "Selections exceeding them show a summary instead of a diagram.");
+    }
+
+    @Override
+    public void init(IWorkbench workbench) {
+    }
+
+    @Override
+    protected void createFieldEditors() {
+        addLimit(PreferenceConstants.MAX_NFA_STATES, "Max &NFA states:");
+        addLimit(PreferenceConstants.MAX_DFA_STATES, "Max &DFA states:");
+        addLimit(PreferenceConstants.MAX_TRANSITIONS, "Max &transitions:");
+        addLimit(PreferenceConstants.MAX_MILLIS, "Max build &time (ms):");
+    }
+
+    private void addLimit(String name, String label) {
+        IntegerFieldEditor editor = new IntegerFieldEditor(name, label,
+                getFieldEditorParent());
+        editor.setValidRange(0, Integer.MAX_VALUE);
+        addField(editor);
+    }
+
+}
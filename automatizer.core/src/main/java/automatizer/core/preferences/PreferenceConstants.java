@@ -0,0 +1,47 @@
+package automatizer.core.preferences;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import automatizer.core.models.Budget;
+
+/**
+ * 插件首选项的键名
+ * 
+ * @author wxz
+ * 
+ */
+public class PreferenceConstants {
+
+    /**
+     * NFA 状态数上限
+     */
+    public static final String MAX_NFA_STATES = "maxNfaStates";
+
+    /**
+     * DFA 状态数上限
+     */
+    public static final String MAX_DFA_STATES = "maxDfaStates";
+
+    /**
+     * 转移边数上限
+     */
+    public static final String MAX_TRANSITIONS = "maxTransitions";
+
+    /**
+     * 构造状态机的耗时上限（毫秒）
+     */
+    public static final String MAX_MILLIS = "maxMillis";
+
+    /**
+     * 按首选项生成资源限制
+     * 
+     * @param store
+     * @return
+     */
+    public static Budget getBudget(IPreferenceStore store) {
+        return new Budget(store.getInt(MAX_NFA_STATES),
+                store.getInt(MAX_DFA_STATES), store.getInt(MAX_TRANSITIONS),
+                store.getLong(MAX_MILLIS));
+    }
+
+}
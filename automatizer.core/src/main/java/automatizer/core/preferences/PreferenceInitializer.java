@@ -0,0 +1,30 @@
+package automatizer.core.preferences;
+
+import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import automatizer.core.AutomatizerActivator;
+import automatizer.core.models.Budget;
+
+/**
+ * 设置插件首选项的默认值
+ * 
+ * @author wxz
+ * 
+ */
+public class PreferenceInitializer extends AbstractPreferenceInitializer {
+
+    @Override
+    public void initializeDefaultPreferences() {
+        IPreferenceStore store = AutomatizerActivator.getDefault()
+                .getPreferenceStore();
+        store.setDefault(PreferenceConstants.MAX_NFA_STATES,
+                Budget.DEFAULT_NFA_STATES);
+        store.setDefault(PreferenceConstants.MAX_DFA_STATES,
+                Budget.DEFAULT_DFA_STATES);
+        store.setDefault(PreferenceConstants.MAX_TRANSITIONS,
+                Budget.DEFAULT_TRANSITIONS);
+        store.setDefault(PreferenceConstants.MAX_MILLIS, Budget.DEFAULT_MILLIS);
+    }
+
+}
@@ -0,0 +1,130 @@
+package automatizer.core.profiling;
+
+import java.util.Arrays;
+
+/**
+ * 只保留最近若干个样本的耗时分布，样本按 2 的幂划分区间统计，并可计算窗口内的分位数
+ *
+ * @author wxz
+ *
+ */
+public class RollingHistogram {
+
+    /**
+     * 默认保留的样本数
+     */
+    public static final int DEFAULT_WINDOW = 256;
+
+    private final long[] samples; // 环形缓冲区
+    private long total; // 累计样本数，含已移出窗口的样本
+
+    public RollingHistogram() {
+        this(DEFAULT_WINDOW);
+    }
+
+    public RollingHistogram(int window) {
+        samples = new long[window];
+    }
+
+    public synchronized void add(long value) {
+        samples[(int) (total % samples.length)] = value;
+        total++;
+    }
+
+    public synchronized void clear() {
+        total = 0;
+    }
+
+    /**
+     * @return 累计样本数
+     */
+    public synchronized long getTotalCount() {
+        return total;
+    }
+
+    /**
+     * @return 窗口内样本升序排列的副本
+     */
+    public synchronized long[] getSortedSamples() {
+        long[] res = Arrays.copyOf(samples,
+                (int) Math.min(total, samples.length));
+        Arrays.sort(res);
+        return res;
+    }
+
+    /**
+     * @param q
+     *            0 到 1 之间的分位
+     * @return 窗口内样本的分位数，没有样本时为 -1
+     */
+    public long getPercentile(double q) {
+        return percentile(getSortedSamples(), q);
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        int i = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+
+    /**
+     * 生成窗口内样本的文字描述：分位数及按 [2^i, 2^(i+1)) 纳秒区间统计的条形图，每个非空区间一行
+     *
+     * @param name
+     * @return
+     */
+    public String format(String name) {
+        long[] sorted = getSortedSamples();
+        StringBuilder sb = new StringBuilder();
+        sb.append(name).append(": ").append(getTotalCount()).append(" samples");
+        if (sorted.length == 0) {
+            return sb.toString();
+        }
+        sb.append(", p50 ").append(formatNanos(percentile(sorted, 0.5)));
+        sb.append(", p90 ").append(formatNanos(percentile(sorted, 0.9)));
+        sb.append(", p99 ").append(formatNanos(percentile(sorted, 0.99)));
+        sb.append(", max ").append(formatNanos(sorted[sorted.length - 1]));
+
+        int[] buckets = new int[64];
+        int maxCount = 0;
+        for (long v : sorted) {
+            int b = 63 - Long.numberOfLeadingZeros(Math.max(v, 1));
+            maxCount = Math.max(maxCount, ++buckets[b]);
+        }
+        for (int b = 0; b < buckets.length; b++) {
+            if (buckets[b] == 0) {
+                continue;
+            }
+            sb.append("\n  >= ");
+            String lower = formatNanos(1L << b);
+            for (int i = lower.length(); i < 8; i++) {
+                sb.append(' ');
+            }
+            sb.append(lower).append(' ');
+            int bar = Math.max(1, buckets[b] * 40 / maxCount);
+            for (int i = 0; i < bar; i++) {
+                sb.append('#');
+            }
+            sb.append(' ').append(buckets[b]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param nanos
+     * @return 以合适单位表示的时长
+     */
+    public static String formatNanos(long nanos) {
+        if (nanos < 1000) {
+            return nanos + "ns";
+        } else if (nanos < 1000000) {
+            return String.format("%.1fus", nanos / 1e3);
+        } else if (nanos < 1000000000) {
+            return String.format("%.1fms", nanos / 1e6);
+        }
+        return String.format("%.2fs", nanos / 1e9);
+    }
+
+}
@@ -0,0 +1,74 @@
+package automatizer.core.profiling;
+
+/**
+ * 选中文本转换为转移图的各处理阶段
+ *
+ * @author wxz
+ *
+ */
+public enum Stage {
+
+    /**
+     * 从磁盘缓存读取转换结果
+     */
+    DISK("disk"),
+
+    /**
+     * 正则表达式（JavaRegExp.toAutomaton）或 DOT 文本解析
+     */
+    PARSE("parse"),
+
+    /**
+     * Converter.transformAutomaton 转换
+     */
+    TRANSFORM("transform"),
+
+    /**
+     * 生成按层次顺序编号的状态机快照
+     */
+    SNAPSHOT("snapshot"),
+
+    /**
+     * NFA 约简、DFA 最小化或按需确定化
+     */
+    REDUCE("reduce"),
+
+    /**
+     * 后台计算转移图布局
+     */
+    LAYOUT("layout"),
+
+    /**
+     * 状态机转换为正则表达式
+     */
+    REGEXP("regexp"),
+
+    /**
+     * 编译测试输入用的匹配器
+     */
+    MATCHER("matcher"),
+
+    /**
+     * 状态机快照转换为转移图 model
+     */
+    CONTENT("content"),
+
+    /**
+     * 在 UI 线程中生成图形并绘制
+     */
+    RENDER("render");
+
+    private final String label;
+
+    private Stage(String name) {
+        label = name;
+    }
+
+    /**
+     * @return 在统计信息中显示的简称
+     */
+    public String getLabel() {
+        return label;
+    }
+
+}
@@ -0,0 +1,193 @@
+package automatizer.core.profiling;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 各处理阶段的纳秒计时及状态数、转移边数等计数。
+ *
+ * 用法为 {@code long t = StageProfiler.start(); ...; StageProfiler.stop(Stage.PARSE, t);}。关闭时 start() 只读取一次 volatile 标志并返回 0，
+ * stop() 见到 0 直接返回，因此可一直保留在代码中。开启时记录每个阶段最近一次的耗时（供视图状态栏显示）并加入该阶段的
+ * {@link RollingHistogram}；{@link #beginRun()} 清除最近一次的耗时及计数，使摘要只包含本次刷新实际执行的阶段。
+ * 所有方法均可在任意线程中调用。
+ *
+ * 系统属性 {@code automatizer.profiling=true} 时默认开启。
+ *
+ * @author wxz
+ *
+ */
+public final class StageProfiler {
+
+    /**
+     * 随转换过程记录的计数
+     */
+    public enum Counter {
+        STATES("states"), TRANSITIONS("transitions"), EDGES("edges");
+
+        private final String label;
+
+        private Counter(String name) {
+            label = name;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final int NONE = -1;
+
+    private static volatile boolean enabled = Boolean
+            .getBoolean("automatizer.profiling");
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final AtomicLongArray lastNanos = new AtomicLongArray(
+            STAGES.length);
+    private static final AtomicLongArray lastCounts = new AtomicLongArray(
+            COUNTERS.length);
+    private static final RollingHistogram[] histograms = new RollingHistogram[STAGES.length];
+
+    static {
+        for (int i = 0; i < STAGES.length; i++) {
+            histograms[i] = new RollingHistogram();
+        }
+        clearLast();
+    }
+
+    private StageProfiler() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * @return 计时起点，关闭时为 0
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 记录从 start 开始到现在的耗时
+     *
+     * @param stage
+     * @param start
+     *            {@link #start()} 的返回值，为 0 时不记录
+     */
+    public static void stop(Stage stage, long start) {
+        if (start == 0L) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        lastNanos.set(stage.ordinal(), nanos);
+        histograms[stage.ordinal()].add(nanos);
+    }
+
+    /**
+     * @param counter
+     * @param value
+     */
+    public static void count(Counter counter, long value) {
+        if (enabled) {
+            lastCounts.set(counter.ordinal(), value);
+        }
+    }
+
+    /**
+     * 开始一次新的刷新，清除最近一次的耗时及计数
+     */
+    public static void beginRun() {
+        if (enabled) {
+            clearLast();
+        }
+    }
+
+    /**
+     * 清除全部统计数据
+     */
+    public static void reset() {
+        clearLast();
+        for (RollingHistogram h : histograms) {
+            h.clear();
+        }
+    }
+
+    private static void clearLast() {
+        for (int i = 0; i < STAGES.length; i++) {
+            lastNanos.set(i, NONE);
+        }
+        for (int i = 0; i < COUNTERS.length; i++) {
+            lastCounts.set(i, NONE);
+        }
+    }
+
+    /**
+     * @param stage
+     * @return 最近一次刷新中该阶段的耗时，未执行时为 -1
+     */
+    public static long getLastNanos(Stage stage) {
+        return lastNanos.get(stage.ordinal());
+    }
+
+    /**
+     * @param counter
+     * @return 最近一次刷新中记录的计数，未记录时为 -1
+     */
+    public static long getLastCount(Counter counter) {
+        return lastCounts.get(counter.ordinal());
+    }
+
+    public static RollingHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * @return 最近一次刷新中各阶段耗时及计数的单行摘要，如 “parse 1.2ms · layout 8.0ms | 12 states, 20 transitions”
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage stage : STAGES) {
+            long nanos = getLastNanos(stage);
+            if (nanos == NONE) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(" · ");
+            }
+            sb.append(stage.getLabel()).append(' ')
+                    .append(RollingHistogram.formatNanos(nanos));
+        }
+        String sep = sb.length() > 0 ? " | " : "";
+        for (Counter counter : COUNTERS) {
+            long value = getLastCount(counter);
+            if (value == NONE) {
+                continue;
+            }
+            sb.append(sep).append(value).append(' ')
+                    .append(counter.getLabel());
+            sep = ", ";
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return 全部阶段的耗时分布，每个阶段占若干行，没有样本的阶段省略
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder("Stage timings (last "
+                + RollingHistogram.DEFAULT_WINDOW + " samples per stage)");
+        for (Stage stage : STAGES) {
+            RollingHistogram h = histograms[stage.ordinal()];
+            if (h.getTotalCount() > 0) {
+                sb.append('\n').append(h.format(stage.getLabel()));
+            }
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,29 @@
+package automatizer.core.regexps;
+
+/**
+ * 状态消去顺序的启发式策略：每一步消去代价最小的状态（代价相同时取编号最小者）。状态被消去后，只有其前驱和后继状态的代价会被重新计算。
+ * 
+ * @author wxz
+ * 
+ */
+public interface EliminationOrder {
+
+    /**
+     * 估算消去给定状态的代价，参数均不计自环
+     * 
+     * @param inDegree
+     *            入边数
+     * @param outDegree
+     *            出边数
+     * @param inWeight
+     *            全部入边表达式长度之和
+     * @param outWeight
+     *            全部出边表达式长度之和
+     * @param loopWeight
+     *            自环表达式长度，无自环时为 0
+     * @return
+     */
+    long cost(int inDegree, int outDegree, long inWeight, long outWeight,
+            long loopWeight);
+
+}
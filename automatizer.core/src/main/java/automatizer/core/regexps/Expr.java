@@ -0,0 +1,180 @@
+package automatizer.core.regexps;
+
+/**
+ * 状态消去过程中转移边上的正则表达式，以 Java 正则语法的文本及其最外层运算符优先级表示。
+ * 
+ * 构造时做少量化简：ε 是连接的单位元，字符集之间的并合并为一个字符类，与 ε 的并改写为 ?，已是闭包的表达式不再重复闭包。
+ * 
+ * @author wxz
+ * 
+ */
+final class Expr {
+
+    static final int UNION = 0;
+    static final int CONCAT = 1;
+    static final int POSTFIX = 2; // 以 *、? 结尾
+    static final int ATOM = 3;
+
+    static final Expr EPSILON = new Expr("", ATOM, null, false);
+
+    final String text;
+    final int prec;
+    final char[] ranges; // 表达式为单个字符集时按 min, max 成对存放的字符范围，否则为 null
+    final boolean starred;
+
+    private Expr(String text, int prec, char[] ranges, boolean starred) {
+        this.text = text;
+        this.prec = prec;
+        this.ranges = ranges;
+        this.starred = starred;
+    }
+
+    int length() {
+        return text.length();
+    }
+
+    boolean isEpsilon() {
+        return this == EPSILON;
+    }
+
+    static Expr chars(char min, char max) {
+        return chars(new char[] { min, max });
+    }
+
+    /**
+     * @param ranges
+     *            已升序排列且互不相邻的字符范围
+     * @return
+     */
+    private static Expr chars(char[] ranges) {
+        StringBuilder sb = new StringBuilder();
+        if (ranges.length == 2 && ranges[0] == ranges[1]) {
+            appendChar(ranges[0], false, sb);
+        } else {
+            sb.append('[');
+            for (int i = 0; i < ranges.length; i += 2) {
+                appendChar(ranges[i], true, sb);
+                if (ranges[i + 1] != ranges[i]) {
+                    if (ranges[i + 1] > ranges[i] + 1) {
+                        sb.append('-');
+                    }
+                    appendChar(ranges[i + 1], true, sb);
+                }
+            }
+            sb.append(']');
+        }
+        return new Expr(sb.toString(), ATOM, ranges, false);
+    }
+
+    /**
+     * a | b，任一参数为 null（空语言）时返回另一个
+     */
+    static Expr union(Expr a, Expr b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null || a.text.equals(b.text)) {
+            return a;
+        }
+        if (a.ranges != null && b.ranges != null) {
+            return chars(mergeRanges(a.ranges, b.ranges));
+        }
+        if (a.isEpsilon()) {
+            return optional(b);
+        }
+        if (b.isEpsilon()) {
+            return optional(a);
+        }
+        return new Expr(a.text + "|" + b.text, UNION, null, false);
+    }
+
+    /**
+     * a b
+     */
+    static Expr concat(Expr a, Expr b) {
+        if (a.isEpsilon()) {
+            return b;
+        }
+        if (b.isEpsilon()) {
+            return a;
+        }
+        return new Expr(wrap(a, CONCAT) + wrap(b, CONCAT), CONCAT, null,
+                false);
+    }
+
+    /**
+     * a*，参数为 null 时返回 ε
+     */
+    static Expr star(Expr a) {
+        if (a == null || a.isEpsilon()) {
+            return EPSILON;
+        }
+        if (a.starred) {
+            return a;
+        }
+        return new Expr(wrap(a, ATOM) + "*", POSTFIX, null, true);
+    }
+
+    private static Expr optional(Expr a) {
+        if (a.starred || a.text.endsWith("?") && a.prec == POSTFIX) {
+            return a;
+        }
+        return new Expr(wrap(a, ATOM) + "?", POSTFIX, null, false);
+    }
+
+    private static String wrap(Expr a, int prec) {
+        return a.prec < prec ? "(" + a.text + ")" : a.text;
+    }
+
+    private static char[] mergeRanges(char[] a, char[] b) {
+        char[] out = new char[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            char min;
+            char max;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                min = a[i];
+                max = a[i + 1];
+                i += 2;
+            } else {
+                min = b[j];
+                max = b[j + 1];
+                j += 2;
+            }
+            if (n > 0 && min <= out[n - 1] + 1) {
+                if (max > out[n - 1]) {
+                    out[n - 1] = max;
+                }
+            } else {
+                out[n++] = min;
+                out[n++] = max;
+            }
+        }
+        if (n == out.length) {
+            return out;
+        }
+        char[] merged = new char[n];
+        System.arraycopy(out, 0, merged, 0, n);
+        return merged;
+    }
+
+    private static void appendChar(char c, boolean inClass, StringBuilder sb) {
+        if (c >= 0x21 && c <= 0x7e) {
+            if (inClass ? "\\[]^-&".indexOf(c) >= 0 : "\\.[]{}()*+?^$|"
+                    .indexOf(c) >= 0) {
+                sb.append('\\');
+            }
+            sb.append(c);
+        } else {
+            String s = Integer.toHexString(c);
+            sb.append("\\u");
+            for (int i = s.length(); i < 4; i++) {
+                sb.append('0');
+            }
+            sb.append(s);
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package automatizer.core.regexps;
+
+/**
+ * 优先消去入度与出度之积最小，即消去后新增边最少的状态
+ * 
+ * @author wxz
+ * 
+ */
+public class MinDegreeOrder implements EliminationOrder {
+
+    @Override
+    public long cost(int inDegree, int outDegree, long inWeight,
+            long outWeight, long loopWeight) {
+        return (long) inDegree * outDegree;
+    }
+
+    @Override
+    public String toString() {
+        return "min-degree";
+    }
+
+}
@@ -0,0 +1,264 @@
+package automatizer.core.regexps;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 以状态消去法将状态机转换为正则表达式，消去顺序由 {@link EliminationOrder} 决定。
+ * 
+ * 转换过程受表达式长度和耗时两项预算限制，任一超出时抛出带说明信息的 IllegalStateException，不会长时间占用调用线程。
+ * 
+ * @author wxz
+ * 
+ */
+public class StateEliminator {
+
+    /**
+     * 默认的表达式长度上限（字符数）
+     */
+    public static final int DEFAULT_MAX_LENGTH = 2048;
+
+    /**
+     * 默认的耗时上限（毫秒）
+     */
+    public static final long DEFAULT_TIMEOUT = 2000;
+
+    /**
+     * 不接受任何字符串的正则表达式
+     */
+    public static final String EMPTY_LANGUAGE = "[^\\u0000-\\uffff]";
+
+    private final EliminationOrder order;
+    private final int maxLength;
+    private final long timeout;
+
+    // 以下为单次转换过程中的图，状态 n 为新增的起始状态，n + 1 为新增的唯一接受状态
+    private Map<Integer, Expr>[] out;
+    private Map<Integer, Expr>[] in;
+    private Expr[] loop;
+    private long deadline;
+
+    public StateEliminator() {
+        this(new WeightOrder(), DEFAULT_MAX_LENGTH, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param order
+     *            消去顺序
+     * @param maxLength
+     *            中间及最终表达式的长度上限，不大于 0 时不限制
+     * @param timeout
+     *            耗时上限（毫秒），不大于 0 时不限制
+     */
+    public StateEliminator(EliminationOrder order, int maxLength, long timeout) {
+        this.order = order;
+        this.maxLength = maxLength > 0 ? maxLength : Integer.MAX_VALUE;
+        this.timeout = timeout;
+    }
+
+    /**
+     * 转换给定状态机
+     * 
+     * @param atm
+     * @return 对应的正则表达式，状态机不接受任何字符串时为 {@link #EMPTY_LANGUAGE}
+     * @throws IllegalStateException
+     *             超出长度或耗时预算
+     */
+    public synchronized String toRegexp(IndexedAutomaton atm) {
+        deadline = timeout > 0 ? System.nanoTime() + timeout * 1000000L : 0;
+        try {
+            return eliminate(atm);
+        } finally {
+            out = null;
+            in = null;
+            loop = null;
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private String eliminate(IndexedAutomaton atm) {
+        int n = atm.getStateCount();
+        int start = n;
+        int end = n + 1;
+        BitSet live = liveStates(atm);
+        if (!live.get(atm.getInitialState())) {
+            return EMPTY_LANGUAGE;
+        }
+
+        out = new Map[n + 2];
+        in = new Map[n + 2];
+        loop = new Expr[n];
+        for (int s = 0; s < n + 2; s++) {
+            out[s] = new HashMap<Integer, Expr>();
+            in[s] = new HashMap<Integer, Expr>();
+        }
+        addEdge(start, atm.getInitialState(), Expr.EPSILON);
+        for (int s = live.nextSetBit(0); s >= 0; s = live.nextSetBit(s + 1)) {
+            if (atm.isAccept(s)) {
+                addEdge(s, end, Expr.EPSILON);
+            }
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                int d = atm.getDest(t);
+                if (live.get(d)) {
+                    addEdge(s, d, Expr.chars(atm.getMin(t), atm.getMax(t)));
+                }
+            }
+            for (int e = atm.getEpsilonStart(s); e < atm.getEpsilonEnd(s); e++) {
+                int d = atm.getEpsilonDest(e);
+                if (live.get(d)) {
+                    addEdge(s, d, Expr.EPSILON);
+                }
+            }
+        }
+
+        long[] costs = new long[n];
+        for (int s = live.nextSetBit(0); s >= 0; s = live.nextSetBit(s + 1)) {
+            costs[s] = cost(s);
+        }
+
+        BitSet remaining = live;
+        while (!remaining.isEmpty()) {
+            checkTime();
+            int q = -1;
+            for (int s = remaining.nextSetBit(0); s >= 0; s = remaining
+                    .nextSetBit(s + 1)) {
+                if (q < 0 || costs[s] < costs[q]) {
+                    q = s;
+                }
+            }
+            remaining.clear(q);
+            eliminateState(q);
+            for (Integer p : in[q].keySet()) {
+                if (p < n) {
+                    costs[p] = cost(p);
+                }
+            }
+            for (Integer r : out[q].keySet()) {
+                if (r < n) {
+                    costs[r] = cost(r);
+                }
+            }
+            in[q] = null;
+            out[q] = null;
+        }
+
+        Expr result = out[start].get(end);
+        return result == null ? EMPTY_LANGUAGE : result.text;
+    }
+
+    /**
+     * 消去状态 q，将经过 q 的路径合并到其前驱与后继之间的边上
+     * 
+     * @param q
+     */
+    private void eliminateState(int q) {
+        Expr loopStar = Expr.star(loop[q]);
+        for (Map.Entry<Integer, Expr> pe : in[q].entrySet()) {
+            int p = pe.getKey();
+            out[p].remove(q);
+            Expr head = Expr.concat(pe.getValue(), loopStar);
+            for (Map.Entry<Integer, Expr> re : out[q].entrySet()) {
+                checkTime();
+                addEdge(p, re.getKey(), Expr.concat(head, re.getValue()));
+            }
+        }
+        for (Integer r : out[q].keySet()) {
+            in[r].remove(q);
+        }
+    }
+
+    private void addEdge(int from, int to, Expr e) {
+        if (from == to) {
+            e = Expr.union(loop[from], e);
+            loop[from] = check(e);
+            return;
+        }
+        e = check(Expr.union(out[from].get(to), e));
+        out[from].put(to, e);
+        in[to].put(from, e);
+    }
+
+    private long cost(int s) {
+        long inWeight = 0;
+        for (Expr e : in[s].values()) {
+            inWeight += e.length();
+        }
+        long outWeight = 0;
+        for (Expr e : out[s].values()) {
+            outWeight += e.length();
+        }
+        return order.cost(in[s].size(), out[s].size(), inWeight, outWeight,
+                loop[s] == null ? 0 : loop[s].length());
+    }
+
+    private Expr check(Expr e) {
+        if (e.length() > maxLength) {
+            throw new IllegalStateException("Regexp too long (more than "
+                    + maxLength + " chars)");
+        }
+        return e;
+    }
+
+    private void checkTime() {
+        if (deadline != 0 && System.nanoTime() - deadline > 0) {
+            throw new IllegalStateException(
+                    "Regexp conversion timed out (more than " + timeout
+                            + " ms)");
+        }
+    }
+
+    /**
+     * 求能够到达接受状态的全部状态
+     * 
+     * @param atm
+     * @return
+     */
+    private static BitSet liveStates(IndexedAutomaton atm) {
+        int n = atm.getStateCount();
+        int[] predStart = new int[n + 1];
+        for (int t = 0; t < atm.getTransitionCount(); t++) {
+            predStart[atm.getDest(t) + 1]++;
+        }
+        for (int e = 0; e < atm.getEpsilonCount(); e++) {
+            predStart[atm.getEpsilonDest(e) + 1]++;
+        }
+        for (int s = 0; s < n; s++) {
+            predStart[s + 1] += predStart[s];
+        }
+        int[] preds = new int[atm.getTransitionCount()
+                + atm.getEpsilonCount()];
+        int[] fill = new int[n];
+        System.arraycopy(predStart, 0, fill, 0, n);
+        for (int s = 0; s < n; s++) {
+            for (int t = atm.getTransitionStart(s); t < atm
+                    .getTransitionEnd(s); t++) {
+                preds[fill[atm.getDest(t)]++] = s;
+            }
+            for (int e = atm.getEpsilonStart(s); e < atm.getEpsilonEnd(s); e++) {
+                preds[fill[atm.getEpsilonDest(e)]++] = s;
+            }
+        }
+
+        BitSet live = atm.getAcceptStates();
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int s = live.nextSetBit(0); s >= 0; s = live.nextSetBit(s + 1)) {
+            queue[tail++] = s;
+        }
+        for (int head = 0; head < tail; head++) {
+            int s = queue[head];
+            for (int i = predStart[s]; i < predStart[s + 1]; i++) {
+                if (!live.get(preds[i])) {
+                    live.set(preds[i]);
+                    queue[tail++] = preds[i];
+                }
+            }
+        }
+        return live;
+    }
+
+}
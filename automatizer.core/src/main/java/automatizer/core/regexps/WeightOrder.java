@@ -0,0 +1,30 @@
+package automatizer.core.regexps;
+
+/**
+ * Delgado 与 Morais 提出的权重启发式：优先消去使全部表达式总长度增加最少的状态。
+ * 
+ * 消去状态 q 后，每条入边表达式被复制到 out 条新边上，每条出边表达式被复制到 in 条新边上，自环表达式被复制到 in * out
+ * 条新边上，其权重为总长度的增量：
+ * 
+ * <pre>
+ * W(q) = inWeight * (out - 1) + outWeight * (in - 1) + loopWeight * (in * out - 1)
+ * </pre>
+ * 
+ * @author wxz
+ * 
+ */
+public class WeightOrder implements EliminationOrder {
+
+    @Override
+    public long cost(int inDegree, int outDegree, long inWeight,
+            long outWeight, long loopWeight) {
+        return inWeight * (outDegree - 1) + outWeight * (inDegree - 1)
+                + loopWeight * ((long) inDegree * outDegree - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "weight";
+    }
+
+}
@@ -0,0 +1,723 @@
+package automatizer.core.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import automatizer.core.models.EpsilonClosure;
+import automatizer.core.models.IndexedAutomaton;
+
+import com.etao.lz.automaton.Automaton;
+import com.etao.lz.automaton.State;
+import com.etao.lz.automaton.Transition;
+
+/**
+ * 单遍流式读取 Graphviz DOT 格式描述的状态机，边分词边构造 State/Transition 对象，不生成中间语法树。
+ *
+ * 支持的 DOT 子集与 {@link GraphvizUtils#dotToFsa(Reader)} 的约定相同:
+ * <ul>
+ * <li>initial 状态: 用名为 initial 的结点指向某个节点即表示目标结点是 initial 状态</li>
+ * <li>accept 状态: 结点的 shape 属性（含 node [...] 设置的默认值）为 doublecircle 即表示其为
+ * accept 状态</li>
+ * <li>转移边条件: 以 edge 的 label 属性为转移条件，可以是单个裸字符或 \\uXXXX 的转义序列、ch1-ch2
+ * 形式的字符范围，或是由二者组成的 [...] 形式字符类，label 为空时表示 epsilon 转移边</li>
+ * </ul>
+ *
+ * 子图会被展开到所在的图中，图属性、端口和其他结点/边属性均被忽略。同一输入中可包含多个图，每次调用
+ * {@link #read()} 或 {@link #readEpsilonNfa()} 返回下一个图对应的状态机。
+ *
+ * @author wxz
+ *
+ */
+public class DotReader {
+
+    // 词法单元类型
+    private static final int T_EOF = -1;
+    private static final int T_ID = 0;
+    private static final int T_LBRACE = 1;
+    private static final int T_RBRACE = 2;
+    private static final int T_LBRACKET = 3;
+    private static final int T_RBRACKET = 4;
+    private static final int T_SEMI = 5;
+    private static final int T_COMMA = 6;
+    private static final int T_EQUAL = 7;
+    private static final int T_EDGEOP = 8;
+    private static final int T_COLON = 9;
+
+    private static final String INITIAL_NODE = "initial";
+    private static final String ACCEPT_SHAPE = "doublecircle";
+
+    private final Reader in;
+    private final char[] buf = new char[8192];
+    private int pos;
+    private int limit;
+    private int line = 1;
+
+    // 当前词法单元
+    private int tokType;
+    private boolean tokQuoted;
+    private final StringBuilder tokText = new StringBuilder();
+    private boolean pushedBack;
+
+    // 当前图的构造状态
+    private Map<String, State> states;
+    private Map<State, List<State>> epsEdges; // 各状态的 ε 转移目标状态
+    private int epsCount;
+    private State initState;
+    private String defaultShape;
+    private String defaultLabel;
+
+    // 最近一次解析的属性列表中的 shape/label 属性
+    private String attrShape;
+    private String attrLabel;
+
+    // 最近一次解析的边标签中的字符范围，按 min, max 成对存放
+    private char[] ranges = new char[16];
+
+    public DotReader(Reader reader) {
+        in = reader;
+    }
+
+    /**
+     * 以 UTF-8 编码从字节通道中读取 DOT 文本
+     *
+     * @param channel
+     */
+    public DotReader(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, "UTF-8"));
+    }
+
+    /**
+     * 读取下一个图并转换为 ε-free 状态机，ε 转移边按 ε 闭包消除
+     *
+     * @return 转换得到的状态机，输入已结束时返回 null
+     * @throws IOException
+     * @throws ParseException
+     *             输入不符合 DOT 语法或不满足状态机描述约定
+     */
+    public Automaton read() throws IOException, ParseException {
+        try {
+            if (!parseGraph()) {
+                return null;
+            }
+            Automaton atm = new Automaton();
+            atm.setInitialState(initState);
+            if (epsCount > 0) {
+                atm = EpsilonClosure.removeEpsilons(
+                        IndexedAutomaton.fromAutomaton(atm, epsEdges))
+                        .toAutomaton();
+            }
+            Automaton.setStateNumbers(atm.getStates());
+            return atm;
+        } finally {
+            reset();
+        }
+    }
+
+    /**
+     * 读取下一个图并转换为保留 ε 转移边的状态机快照
+     *
+     * @return 转换得到的状态机快照，输入已结束时返回 null
+     * @throws IOException
+     * @throws ParseException
+     *             输入不符合 DOT 语法或不满足状态机描述约定
+     */
+    public IndexedAutomaton readEpsilonNfa() throws IOException,
+            ParseException {
+        try {
+            if (!parseGraph()) {
+                return null;
+            }
+            Automaton atm = new Automaton();
+            atm.setInitialState(initState);
+            return IndexedAutomaton.fromAutomaton(atm, epsEdges);
+        } finally {
+            reset();
+        }
+    }
+
+    /**
+     * 解析下一个图，结果存放在 initState 及 epsEdges 中
+     *
+     * @return 输入已结束时返回 false
+     * @throws IOException
+     * @throws ParseException
+     */
+    private boolean parseGraph() throws IOException, ParseException {
+        int t = next();
+        if (t == T_EOF) {
+            return false;
+        }
+        if (t == T_ID && !tokQuoted && isKeyword("strict")) {
+            t = next();
+        }
+        if (t != T_ID || tokQuoted
+                || !(isKeyword("digraph") || isKeyword("graph"))) {
+            throw error("Expected digraph");
+        }
+        t = next();
+        if (t == T_ID) {
+            t = next();
+        }
+        if (t != T_LBRACE) {
+            throw error("Expected '{'");
+        }
+
+        states = new HashMap<String, State>();
+        epsEdges = new IdentityHashMap<State, List<State>>();
+        epsCount = 0;
+        initState = null;
+        defaultShape = null;
+        defaultLabel = null;
+        parseStmtList();
+
+        if (initState == null) {
+            throw error("No initial state found");
+        }
+        return true;
+    }
+
+    private void reset() {
+        states = null;
+        epsEdges = null;
+        initState = null;
+    }
+
+    /**
+     * 解析语句列表直到遇到与之匹配的 '}'
+     *
+     * @throws IOException
+     * @throws ParseException
+     */
+    private void parseStmtList() throws IOException, ParseException {
+        while (true) {
+            int t = next();
+            if (t == T_RBRACE) {
+                return;
+            }
+            if (t == T_SEMI) {
+                continue;
+            }
+            if (t == T_LBRACE) {
+                // 匿名子图
+                parseStmtList();
+                continue;
+            }
+            if (t != T_ID) {
+                throw error("Unexpected token");
+            }
+
+            if (!tokQuoted) {
+                if (isKeyword("subgraph")) {
+                    t = next();
+                    if (t == T_ID) {
+                        t = next();
+                    }
+                    if (t != T_LBRACE) {
+                        throw error("Expected '{'");
+                    }
+                    parseStmtList();
+                    continue;
+                }
+                if (isKeyword("graph") || isKeyword("node")
+                        || isKeyword("edge")) {
+                    parseDefaultAttrStmt();
+                    continue;
+                }
+            }
+
+            String name = tokText.toString();
+            t = nextSkipPort();
+            if (t == T_EQUAL) {
+                // 图属性 ID = ID
+                if (next() != T_ID) {
+                    throw error("Expected attribute value");
+                }
+            } else if (t == T_EDGEOP) {
+                parseEdgeStmt(name);
+            } else {
+                pushBack();
+                parseNodeStmt(name);
+            }
+        }
+    }
+
+    private void parseDefaultAttrStmt() throws IOException, ParseException {
+        boolean isNode = isKeyword("node");
+        boolean isEdge = isKeyword("edge");
+        attrShape = null;
+        attrLabel = null;
+        if (next() != T_LBRACKET) {
+            pushBack();
+            return;
+        }
+        parseAttrLists();
+        if (isNode && attrShape != null) {
+            defaultShape = attrShape;
+        }
+        if (isEdge && attrLabel != null) {
+            defaultLabel = attrLabel;
+        }
+    }
+
+    private void parseNodeStmt(String name) throws IOException,
+            ParseException {
+        attrShape = null;
+        attrLabel = null;
+        if (next() == T_LBRACKET) {
+            parseAttrLists();
+        } else {
+            pushBack();
+        }
+
+        if (INITIAL_NODE.equalsIgnoreCase(name)) {
+            return;
+        }
+        State st = states.get(name);
+        if (st == null) {
+            st = newState(name);
+        }
+        if (attrShape != null) {
+            st.setAccept(ACCEPT_SHAPE.equalsIgnoreCase(attrShape));
+        }
+    }
+
+    private void parseEdgeStmt(String firstName) throws IOException,
+            ParseException {
+        List<String> names = new ArrayList<String>(2);
+        names.add(firstName);
+        int t;
+        do {
+            if (next() != T_ID) {
+                throw error("Expected node id after edge operator");
+            }
+            names.add(tokText.toString());
+            t = nextSkipPort();
+        } while (t == T_EDGEOP);
+
+        attrShape = null;
+        attrLabel = null;
+        if (t == T_LBRACKET) {
+            parseAttrLists();
+        } else {
+            pushBack();
+        }
+        String label = attrLabel != null ? attrLabel : defaultLabel;
+
+        for (int i = 1; i < names.size(); i++) {
+            String srcName = names.get(i - 1);
+            State dstSt = state(names.get(i));
+            if (INITIAL_NODE.equalsIgnoreCase(srcName)) {
+                // 找到了 init 状态
+                initState = dstSt;
+                continue;
+            }
+            addTransitions(state(srcName), dstSt, label);
+        }
+    }
+
+    /**
+     * 解析一个或多个相邻的 [...] 属性列表，调用时 '[' 已被读取
+     *
+     * @throws IOException
+     * @throws ParseException
+     */
+    private void parseAttrLists() throws IOException, ParseException {
+        do {
+            while (true) {
+                int t = next();
+                if (t == T_RBRACKET) {
+                    break;
+                }
+                if (t == T_COMMA || t == T_SEMI) {
+                    continue;
+                }
+                if (t != T_ID) {
+                    throw error("Expected attribute name");
+                }
+                String key = tokText.toString();
+                if (next() != T_EQUAL) {
+                    pushBack();
+                    continue;
+                }
+                if (next() != T_ID) {
+                    throw error("Expected attribute value");
+                }
+                if ("shape".equals(key)) {
+                    attrShape = tokText.toString();
+                } else if ("label".equals(key)) {
+                    attrLabel = tokText.toString();
+                }
+            }
+        } while (next() == T_LBRACKET);
+        pushBack();
+    }
+
+    private State state(String name) {
+        State st = states.get(name);
+        if (st == null) {
+            st = newState(name);
+        }
+        return st;
+    }
+
+    private State newState(String name) {
+        State st = new State();
+        if (defaultShape != null) {
+            st.setAccept(ACCEPT_SHAPE.equalsIgnoreCase(defaultShape));
+        }
+        states.put(name, st);
+        return st;
+    }
+
+    private void addTransitions(State srcSt, State dstSt, String label)
+            throws ParseException {
+        int n = parseEdgeLabel(label);
+        if (n == 0) {
+            // 无边标签，增加 epsilon 边
+            List<State> eps = epsEdges.get(srcSt);
+            if (eps == null) {
+                eps = new ArrayList<State>(2);
+                epsEdges.put(srcSt, eps);
+            }
+            eps.add(dstSt);
+            epsCount++;
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            char min = ranges[2 * i];
+            char max = ranges[2 * i + 1];
+            if (min == max) {
+                srcSt.addTransition(new Transition(min, dstSt));
+            } else {
+                srcSt.addTransition(new Transition(min, max, dstSt));
+            }
+        }
+    }
+
+    /**
+     * 解析 DOT 边上的转移规则，形如:
+     *
+     * <ul>
+     * <li>ch - 单字符形式</li>
+     * <li>ch1-ch2 - 字符范围形式</li>
+     * <li>[...] - 字符类形式，其中可包含单字符及字符范围</li>
+     * </ul>
+     *
+     * 所有形式中 ch 如果是可见字符就是原样显示，非可见字符则是 \\uXXXX 转义序列
+     *
+     * @param label
+     * @return 解析出的字符范围数，结果存放在 ranges 中；返回 0 表示 epsilon 边
+     * @throws ParseException
+     */
+    private int parseEdgeLabel(String label) throws ParseException {
+        if (label == null || label.isEmpty()) {
+            return 0;
+        }
+
+        int len = label.length();
+        if (len == 1) {
+            return addRange(0, label.charAt(0), label.charAt(0));
+        }
+
+        int n = 0;
+        int[] idx = new int[1];
+        if (label.charAt(0) == '[' && label.charAt(len - 1) == ']') {
+            // [...] 形式
+            idx[0] = 1;
+            int end = len - 1;
+            while (idx[0] < end) {
+                char min = readLabelChar(label, idx);
+                char max = min;
+                if (idx[0] + 1 < end && label.charAt(idx[0]) == '-') {
+                    idx[0]++;
+                    max = readLabelChar(label, idx);
+                }
+                n = addRange(n, min, max);
+            }
+            return n;
+        }
+
+        char min = readLabelChar(label, idx);
+        if (idx[0] == len) {
+            // 转义的单字符形式
+            return addRange(0, min, min);
+        }
+        if (label.charAt(idx[0]) == '-' && idx[0] + 1 < len) {
+            // min-max 形式
+            idx[0]++;
+            char max = readLabelChar(label, idx);
+            if (idx[0] == len) {
+                return addRange(0, min, max);
+            }
+        }
+        throw error("Unknown edge label: " + label);
+    }
+
+    private int addRange(int n, char min, char max) throws ParseException {
+        if (min > max) {
+            throw error("Invalid char range: " + min + "-" + max);
+        }
+        if (2 * n + 2 > ranges.length) {
+            char[] newRanges = new char[ranges.length * 2];
+            System.arraycopy(ranges, 0, newRanges, 0, ranges.length);
+            ranges = newRanges;
+        }
+        ranges[2 * n] = min;
+        ranges[2 * n + 1] = max;
+        return n + 1;
+    }
+
+    /**
+     * 读取标签中的一个字符，可以是字面字符或 \\uXXXX 转义序列
+     *
+     * @param s
+     * @param idx
+     *            读取位置，返回时指向下一字符
+     * @return
+     * @throws ParseException
+     */
+    private char readLabelChar(String s, int[] idx) throws ParseException {
+        int i = idx[0];
+        char c = s.charAt(i);
+        if (c == '\\' && i + 1 < s.length()
+                && (s.charAt(i + 1) == 'u' || s.charAt(i + 1) == 'U')) {
+            if (i + 6 > s.length()) {
+                throw error("Unknown char escape sequence: " + s.substring(i));
+            }
+            try {
+                idx[0] = i + 6;
+                return (char) Integer.parseInt(s.substring(i + 2, i + 6), 16);
+            } catch (NumberFormatException e) {
+                throw error("Unknown char escape sequence: "
+                        + s.substring(i, i + 6));
+            }
+        }
+        idx[0] = i + 1;
+        return c;
+    }
+
+    private boolean isKeyword(String kw) {
+        int len = kw.length();
+        if (tokText.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (Character.toLowerCase(tokText.charAt(i)) != kw.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ParseException error(String msg) {
+        return new ParseException(msg + " (line " + line + ")", line);
+    }
+
+    // ---- 词法分析 ----
+
+    private void pushBack() {
+        pushedBack = true;
+    }
+
+    /**
+     * 读取下一个词法单元，并跳过结点 ID 后可能出现的端口说明（:port[:compass]）
+     *
+     * @return
+     * @throws IOException
+     * @throws ParseException
+     */
+    private int nextSkipPort() throws IOException, ParseException {
+        int t = next();
+        while (t == T_COLON) {
+            if (next() != T_ID) {
+                throw error("Expected port");
+            }
+            t = next();
+        }
+        return t;
+    }
+
+    private int next() throws IOException, ParseException {
+        if (pushedBack) {
+            pushedBack = false;
+            return tokType;
+        }
+
+        tokText.setLength(0);
+        tokQuoted = false;
+        tokType = scan();
+        return tokType;
+    }
+
+    private int scan() throws IOException, ParseException {
+        int c = skipSpacesAndComments();
+        switch (c) {
+        case -1:
+            return T_EOF;
+        case '{':
+            return T_LBRACE;
+        case '}':
+            return T_RBRACE;
+        case '[':
+            return T_LBRACKET;
+        case ']':
+            return T_RBRACKET;
+        case ';':
+            return T_SEMI;
+        case ',':
+            return T_COMMA;
+        case '=':
+            return T_EQUAL;
+        case ':':
+            return T_COLON;
+        case '"':
+            scanQuoted();
+            return T_ID;
+        case '<':
+            scanHtml();
+            return T_ID;
+        case '-':
+            int c2 = peekChar();
+            if (c2 == '>' || c2 == '-') {
+                readChar();
+                return T_EDGEOP;
+            }
+            // 负数形式的 ID
+            tokText.append('-');
+            while (isIdChar(peekChar())) {
+                tokText.append((char) readChar());
+            }
+            return T_ID;
+        default:
+            break;
+        }
+
+        if (!isIdChar(c)) {
+            throw error("Unexpected character '" + (char) c + "'");
+        }
+        tokText.append((char) c);
+        while (isIdChar(peekChar())) {
+            tokText.append((char) readChar());
+        }
+        return T_ID;
+    }
+
+    private static boolean isIdChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9') || c == '_' || c == '.' || c >= 0x80;
+    }
+
+    private int skipSpacesAndComments() throws IOException, ParseException {
+        while (true) {
+            int c = readChar();
+            if (c == '/' && peekChar() == '/') {
+                skipLine();
+            } else if (c == '/' && peekChar() == '*') {
+                readChar();
+                int prev = 0;
+                while (true) {
+                    c = readChar();
+                    if (c == -1) {
+                        throw error("Unterminated comment");
+                    }
+                    if (prev == '*' && c == '/') {
+                        break;
+                    }
+                    prev = c;
+                }
+            } else if (c == '#') {
+                skipLine();
+            } else if (c == -1 || !Character.isWhitespace(c)) {
+                return c;
+            }
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = readChar();
+        } while (c != -1 && c != '\n');
+    }
+
+    private void scanQuoted() throws IOException, ParseException {
+        tokQuoted = true;
+        while (true) {
+            int c = readChar();
+            if (c == -1) {
+                throw error("Unterminated string");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                int c2 = peekChar();
+                if (c2 == '"') {
+                    readChar();
+                    tokText.append('"');
+                    continue;
+                }
+                if (c2 == '\n') {
+                    // 续行
+                    readChar();
+                    continue;
+                }
+            }
+            tokText.append((char) c);
+        }
+    }
+
+    private void scanHtml() throws IOException, ParseException {
+        tokQuoted = true;
+        int depth = 1;
+        while (true) {
+            int c = readChar();
+            if (c == -1) {
+                throw error("Unterminated HTML string");
+            }
+            if (c == '<') {
+                depth++;
+            } else if (c == '>' && --depth == 0) {
+                return;
+            }
+            tokText.append((char) c);
+        }
+    }
+
+    private int readChar() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        char c = buf[pos++];
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private int peekChar() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+}
@@ -0,0 +1,86 @@
+package automatizer.core.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import automatizer.core.models.ConnectionData;
+import automatizer.core.models.EdgeGrouper;
+import automatizer.core.models.IndexedAutomaton;
+
+/**
+ * 将状态机以 Graphviz DOT 格式逐个状态地流式写出，不在内存中生成完整文档。
+ *
+ * 同一对状态间的转移边合并为一条边，标签格式与转移图中显示的一致，ε 转移边以空标签表示，输出结果可由
+ * {@link GraphvizUtils#dotToFsa(java.io.Reader)} 重新读入。
+ *
+ * @author wxz
+ *
+ */
+public class DotWriter {
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder();
+
+    public DotWriter(Writer writer) {
+        out = writer instanceof BufferedWriter ? writer : new BufferedWriter(
+                writer);
+    }
+
+    /**
+     * 以 UTF-8 编码写入字节通道
+     *
+     * @param channel
+     */
+    public DotWriter(WritableByteChannel channel) {
+        this(Channels.newWriter(channel, "UTF-8"));
+    }
+
+    /**
+     * 写出给定状态机，状态以其编号命名
+     *
+     * @param atm
+     * @throws IOException
+     */
+    public void write(IndexedAutomaton atm) throws IOException {
+        out.write("digraph Automaton {\n");
+        out.write("  rankdir = LR;\n");
+        out.write("  initial [shape=plaintext,label=\"\"];\n");
+        writeLine(line.append("  initial -> ").append(atm.getInitialState()));
+
+        EdgeGrouper grouper = new EdgeGrouper(atm);
+        for (int s = 0; s < atm.getStateCount(); s++) {
+            writeLine(line.append("  ").append(s).append(" [shape=")
+                    .append(atm.isAccept(s) ? "doublecircle" : "circle")
+                    .append(",label=\"").append(s).append("\"];"));
+
+            int groups = grouper.group(s);
+            for (int g = 0; g < groups; g++) {
+                writeLine(line.append("  ").append(s).append(" -> ")
+                        .append(grouper.getDest(g)).append(" [label=\"")
+                        .append(ConnectionData.makeLabel(grouper.getRanges(g)))
+                        .append("\"];"));
+            }
+            for (int e = atm.getEpsilonStart(s); e < atm.getEpsilonEnd(s); e++) {
+                writeLine(line.append("  ").append(s).append(" -> ")
+                        .append(atm.getEpsilonDest(e)).append(" [label=\"\"];"));
+            }
+        }
+
+        out.write("}\n");
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeLine(StringBuilder sb) throws IOException {
+        sb.append('\n');
+        out.append(sb);
+        sb.setLength(0);
+    }
+
+}
@@ -1,21 +1,54 @@
 package automatizer.core.utils;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Writer;
+import java.util.List;
 
+import org.eclipse.draw2d.ColorConstants;
+import org.eclipse.draw2d.IFigure;
 import org.eclipse.draw2d.SWTGraphics;
 import org.eclipse.draw2d.geometry.Dimension;
 import org.eclipse.draw2d.geometry.Point;
 import org.eclipse.draw2d.geometry.Rectangle;
+import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.zest.core.widgets.Graph;
+import org.eclipse.zest.core.widgets.GraphConnection;
+import org.eclipse.zest.core.widgets.GraphNode;
+
+import automatizer.core.figures.StateFigure;
+import automatizer.core.figures.VirtualGraphFigure;
+import automatizer.core.layouts.GraphLayout;
+import automatizer.core.models.ConnectionData;
+import automatizer.core.models.EdgeGrouper;
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.models.StateData;
 
 public class FileUtils {
 
     /**
-     * 将当前 Zest 图像控件的内容另存为给定格式的图像
+     * 分块导出 PNG 时每块的边长（像素）
+     */
+    public static final int TILE_SIZE = 512;
+
+    /**
+     * 分块导出 PNG 时一行图块的像素缓冲区上限（字节），图像较宽时相应减小图块高度
+     */
+    public static final int MAX_BAND_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * 将当前 Zest 图像控件的内容另存为给定格式的图像。
+     * 
+     * PNG 格式按 {@link #TILE_SIZE} 大小分块绘制并逐行编码，像素缓冲区不超过 {@link #MAX_BAND_BYTES}
+     * （宽度超过该值的图像至少保存一行像素），与图像高度无关；其他格式由 SWT 编码，需要生成完整图像。所有 SWT
+     * 资源及压缩器在返回前释放。
      * 
      * @param g
      * @param stream
@@ -29,25 +62,255 @@ public class FileUtils {
      *            <li>SWT.IMAGE_JPEG</li>
      *            <li>SWT.IMAGE_PNG</li>
      *            </ul>
+     * @throws IOException
      */
     public static void saveImageToStream(Graph g, OutputStream stream,
-            int format) {
-        Rectangle bounds = g.getContents().getBounds();
-        Dimension dim = g.getContents().getSize();
-        Point viewLocation = g.getViewport().getViewLocation();
+            int format) throws IOException {
+        saveImageToStream(g.getContents(), g.getDisplay(), stream, format);
+    }
 
-        final Image image = new Image(null, dim.width(), dim.height());
+    /**
+     * 将图形内容另存为给定格式的图像，格式说明见 {@link #saveImageToStream(Graph, OutputStream, int)}。
+     * 
+     * 对 {@link VirtualGraphFigure} 逐块生成所绘区域的图形，导出完成后恢复原可见区域。
+     * 
+     * @param contents
+     * @param display
+     * @param stream
+     * @param format
+     * @throws IOException
+     */
+    public static void saveImageToStream(IFigure contents, Display display,
+            OutputStream stream, int format) throws IOException {
+        Rectangle visible = null;
+        if (contents instanceof VirtualGraphFigure) {
+            visible = ((VirtualGraphFigure) contents).getVisibleArea();
+        }
+        try {
+            if (format == SWT.IMAGE_PNG) {
+                savePngTiled(contents, display, stream);
+            } else {
+                saveImage(contents, display, stream, format);
+            }
+        } finally {
+            if (visible != null) {
+                ((VirtualGraphFigure) contents).setVisibleArea(visible);
+            }
+        }
+    }
+
+    private static void saveImage(IFigure contents, Display display,
+            OutputStream stream, int format) {
+        Rectangle bounds = contents.getBounds();
+        Image image = new Image(display, Math.max(bounds.width, 1),
+                Math.max(bounds.height, 1));
+        try {
+            paintArea(contents, image, bounds.x, bounds.y);
+            ImageLoader loader = new ImageLoader();
+            loader.data = new ImageData[] { image.getImageData() };
+            loader.save(stream, format);
+        } finally {
+            image.dispose();
+        }
+    }
+
+    /**
+     * 逐块绘制图像内容，每绘制完一行图块即将其像素编码写出。图块高度按 {@link #MAX_BAND_BYTES} 限制
+     * 
+     * @param contents
+     * @param display
+     * @param stream
+     * @throws IOException
+     */
+    private static void savePngTiled(IFigure contents, Display display,
+            OutputStream stream) throws IOException {
+        Rectangle bounds = contents.getBounds();
+        int width = Math.max(bounds.width, 1);
+        int height = Math.max(bounds.height, 1);
+
+        int bandHeight = (int) Math.max(1, Math.min(
+                Math.min(TILE_SIZE, height), MAX_BAND_BYTES / (3L * width)));
+
+        PngWriter png = new PngWriter(stream, width, height);
+        try {
+            byte[] band = new byte[3 * width * bandHeight];
+            int[] pixels = new int[TILE_SIZE];
+            Image tile = new Image(display, TILE_SIZE, bandHeight);
+            try {
+                for (int ty = 0; ty < height; ty += bandHeight) {
+                    int th = Math.min(bandHeight, height - ty);
+                    for (int tx = 0; tx < width; tx += TILE_SIZE) {
+                        int tw = Math.min(TILE_SIZE, width - tx);
+                        paintArea(contents, tile, bounds.x + tx, bounds.y
+                                + ty);
+                        copyPixels(tile.getImageData(), tw, th, pixels, band,
+                                tx, width);
+                    }
+                    for (int y = 0; y < th; y++) {
+                        png.writeRow(band, 3 * width * y);
+                    }
+                }
+            } finally {
+                tile.dispose();
+            }
+            png.finish();
+        } finally {
+            // 绘制或编码出错时同样及时释放压缩器的本地内存
+            png.close();
+        }
+    }
+
+    /**
+     * 在白色背景上绘制图形中以 (x, y) 为左上角、与图像等大的区域
+     * 
+     * @param figure
+     * @param image
+     * @param x
+     * @param y
+     */
+    private static void paintArea(IFigure figure, Image image, int x, int y) {
+        org.eclipse.swt.graphics.Rectangle r = image.getBounds();
+        if (figure instanceof VirtualGraphFigure) {
+            ((VirtualGraphFigure) figure).setVisibleArea(new Rectangle(x, y,
+                    r.width, r.height));
+        }
         GC gc = new GC(image);
-        SWTGraphics swtGraphics = new SWTGraphics(gc);
-        swtGraphics.translate(-1 * bounds.x + viewLocation.x, -1 * bounds.y
-                + viewLocation.y);
-        g.getViewport().paint(swtGraphics);
-        gc.copyArea(image, 0, 0);
-        gc.dispose();
-
-        ImageLoader loader = new ImageLoader();
-        loader.data = new ImageData[] { image.getImageData() };
-        loader.save(stream, format);
+        try {
+            gc.setBackground(ColorConstants.white);
+            gc.fillRectangle(r);
+            SWTGraphics graphics = new SWTGraphics(gc);
+            try {
+                graphics.translate(-x, -y);
+                figure.paint(graphics);
+            } finally {
+                graphics.dispose();
+            }
+        } finally {
+            gc.dispose();
+        }
+    }
+
+    /**
+     * 将图块左上角 w * h 区域的像素以 RGB 顺序复制到整行图块缓冲区的 x 列处
+     */
+    private static void copyPixels(ImageData data, int w, int h,
+            int[] pixels, byte[] band, int x, int bandWidth) {
+        PaletteData palette = data.palette;
+        for (int y = 0; y < h; y++) {
+            data.getPixels(0, y, w, pixels, 0);
+            int pos = 3 * (bandWidth * y + x);
+            for (int i = 0; i < w; i++) {
+                int p = pixels[i];
+                if (palette.isDirect) {
+                    band[pos++] = (byte) shift(p & palette.redMask,
+                            palette.redShift);
+                    band[pos++] = (byte) shift(p & palette.greenMask,
+                            palette.greenShift);
+                    band[pos++] = (byte) shift(p & palette.blueMask,
+                            palette.blueShift);
+                } else {
+                    RGB rgb = palette.colors[p];
+                    band[pos++] = (byte) rgb.red;
+                    band[pos++] = (byte) rgb.green;
+                    band[pos++] = (byte) rgb.blue;
+                }
+            }
+        }
+    }
+
+    private static int shift(int v, int shift) {
+        return shift < 0 ? v >>> -shift : v << shift;
+    }
+
+    /**
+     * 将当前 Zest 图像控件中已布局的转移图写为 SVG 矢量图像，直接使用节点的位置和 model，不经过绘制
+     * 
+     * @param g
+     * @param writer
+     * @throws IOException
+     */
+    @SuppressWarnings("unchecked")
+    public static void saveSvgToWriter(Graph g, Writer writer)
+            throws IOException {
+        Rectangle bounds = g.getContents().getBounds();
+        SvgWriter svg = new SvgWriter(writer);
+        svg.begin(bounds.width, bounds.height);
+
+        for (GraphConnection conn : (List<GraphConnection>) g.getConnections()) {
+            if (!(conn.getData() instanceof ConnectionData)) {
+                continue;
+            }
+            GraphNode src = conn.getSource();
+            GraphNode dst = conn.getDestination();
+            Dimension srcSize = src.getSize();
+            Dimension dstSize = dst.getSize();
+            Point srcLoc = src.getLocation();
+            Point dstLoc = dst.getLocation();
+            svg.writeConnection((ConnectionData) conn.getData(), srcLoc.x
+                    + srcSize.width - srcSize.height / 2.0 - bounds.x,
+                    srcLoc.y + srcSize.height / 2.0 - bounds.y, dstLoc.x
+                            + dstSize.width - dstSize.height / 2.0 - bounds.x,
+                    dstLoc.y + dstSize.height / 2.0 - bounds.y,
+                    dstSize.height / 2.0 - 1);
+        }
+        for (GraphNode node : (List<GraphNode>) g.getNodes()) {
+            if (!(node.getData() instanceof StateData)) {
+                continue;
+            }
+            Point loc = node.getLocation();
+            Dimension size = node.getSize();
+            svg.writeState((StateData) node.getData(), loc.x - bounds.x,
+                    loc.y - bounds.y, size.width, size.height);
+        }
+
+        svg.end();
+    }
+
+    /**
+     * 将状态机按给定布局写为 SVG 矢量图像，不需要生成图形，用于 {@link VirtualGraphFigure} 展示的大型转移图
+     * 
+     * @param atm
+     * @param layout
+     * @param writer
+     * @throws IOException
+     */
+    public static void saveSvgToWriter(IndexedAutomaton atm,
+            GraphLayout layout, Writer writer) throws IOException {
+        SvgWriter svg = new SvgWriter(writer);
+        svg.begin((int) Math.ceil(layout.getWidth()),
+                (int) Math.ceil(layout.getHeight()));
+
+        int n = atm.getStateCount();
+        StateData[] states = new StateData[n];
+        for (int s = 0; s < n; s++) {
+            states[s] = new StateData(s, atm.isInitial(s), atm.isAccept(s));
+        }
+        double r = StateFigure.SIZE / 2.0 - 1;
+        EdgeGrouper grouper = new EdgeGrouper(atm);
+        for (int s = 0; s < n; s++) {
+            int groups = grouper.group(s);
+            for (int g = 0; g < groups; g++) {
+                int d = grouper.getDest(g);
+                svg.writeConnection(new ConnectionData(states[s], states[d],
+                        grouper.getRanges(g)), layout.getX(s), layout.getY(s),
+                        layout.getX(d), layout.getY(d), r);
+            }
+            for (int e = atm.getEpsilonStart(s); e < atm.getEpsilonEnd(s); e++) {
+                int d = atm.getEpsilonDest(e);
+                svg.writeConnection(new ConnectionData(states[s], states[d],
+                        new char[0]), layout.getX(s), layout.getY(s),
+                        layout.getX(d), layout.getY(d), r);
+            }
+        }
+        for (int s = 0; s < n; s++) {
+            int w = StateFigure.getWidth(atm.isInitial(s));
+            int h = StateFigure.SIZE;
+            svg.writeState(states[s],
+                    (int) Math.round(layout.getX(s) - (w - h / 2.0)),
+                    (int) Math.round(layout.getY(s) - h / 2.0), w, h);
+        }
+
+        svg.end();
     }
 
 }
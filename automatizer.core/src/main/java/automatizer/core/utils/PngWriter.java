@@ -0,0 +1,180 @@
+package automatizer.core.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 逐行写出 24 位 RGB PNG 图像的编码器，不需要在内存中保存完整图像，占用内存只与单行宽度有关。
+ * 
+ * 每行使用 Sub 滤波，压缩后的数据按固定大小切分为多个 IDAT 块写出。压缩器占用本地内存，无论是否写完都应调用
+ * {@link #close()} 释放。
+ * 
+ * @author wxz
+ * 
+ */
+public class PngWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G',
+            '\r', '\n', 0x1a, '\n' };
+
+    // 单个 IDAT 块的最大数据长度
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final byte[] filtered;
+    private final Deflater deflater;
+    private final DeflaterOutputStream idat;
+    private int rows;
+
+    /**
+     * 写出文件头，之后须按从上到下的顺序调用 height 次 {@link #writeRow(byte[], int)}
+     * 
+     * @param stream
+     * @param width
+     * @param height
+     * @throws IOException
+     */
+    public PngWriter(OutputStream stream, int width, int height)
+            throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image size " + width
+                    + "x" + height);
+        }
+        out = new DataOutputStream(stream);
+        this.width = width;
+        this.height = height;
+        filtered = new byte[1 + 3 * width];
+        filtered[0] = 1; // Sub 滤波
+
+        out.write(SIGNATURE);
+        ByteArrayOutputStream ihdr = new ByteArrayOutputStream(13);
+        DataOutputStream d = new DataOutputStream(ihdr);
+        d.writeInt(width);
+        d.writeInt(height);
+        d.writeByte(8); // 位深
+        d.writeByte(2); // RGB
+        d.writeByte(0);
+        d.writeByte(0);
+        d.writeByte(0);
+        writeChunk("IHDR", ihdr.toByteArray(), 0, ihdr.size());
+
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        idat = new DeflaterOutputStream(new ChunkOutputStream(), deflater,
+                CHUNK_SIZE);
+    }
+
+    /**
+     * 写出一行像素
+     * 
+     * @param rgb
+     *            按 R, G, B 顺序存放的像素数据
+     * @param offset
+     *            本行第一个像素在 rgb 中的起始位置
+     * @throws IOException
+     */
+    public void writeRow(byte[] rgb, int offset) throws IOException {
+        if (rows >= height) {
+            throw new IllegalStateException("All " + height
+                    + " rows already written");
+        }
+        int len = 3 * width;
+        System.arraycopy(rgb, offset, filtered, 1, Math.min(3, len));
+        for (int i = 3; i < len; i++) {
+            filtered[i + 1] = (byte) (rgb[offset + i] - rgb[offset + i - 3]);
+        }
+        idat.write(filtered);
+        rows++;
+    }
+
+    /**
+     * 结束图像数据并写出文件尾，不关闭底层输出流
+     * 
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (rows != height) {
+            throw new IllegalStateException("Only " + rows + " of " + height
+                    + " rows written");
+        }
+        try {
+            idat.close();
+        } finally {
+            deflater.end();
+        }
+        writeChunk("IEND", new byte[0], 0, 0);
+        out.flush();
+    }
+
+    /**
+     * 释放压缩器占用的本地内存，可重复调用。未调用 {@link #finish()} 时写出的图像不完整；不关闭底层输出流
+     */
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    private void writeChunk(String type, byte[] data, int off, int len)
+            throws IOException {
+        byte[] t = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(t);
+        crc.update(data, off, len);
+        out.writeInt(len);
+        out.write(t);
+        out.write(data, off, len);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * 将压缩数据切分为 IDAT 块，close() 时写出剩余数据但不关闭底层输出流
+     */
+    private class ChunkOutputStream extends OutputStream {
+
+        private final byte[] buf = new byte[CHUNK_SIZE];
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buf.length) {
+                flushChunk();
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buf.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, buf.length - count);
+                System.arraycopy(b, off, buf, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushChunk();
+        }
+
+        private void flushChunk() throws IOException {
+            if (count > 0) {
+                writeChunk("IDAT", buf, 0, count);
+                count = 0;
+            }
+        }
+
+    }
+
+}
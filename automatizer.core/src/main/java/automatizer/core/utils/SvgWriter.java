@@ -0,0 +1,192 @@
+package automatizer.core.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import automatizer.core.models.ConnectionData;
+import automatizer.core.models.StateData;
+
+/**
+ * 将已布局的转移图以 SVG 矢量格式逐个元素地流式写出，不经过位图渲染。
+ * 
+ * 状态按 StateFigure 的样式绘制：圆位于节点区域右侧边长为节点高度的正方形内，起始状态左侧带箭头，接受状态为双圆。
+ * 
+ * @author wxz
+ * 
+ */
+public class SvgWriter {
+
+    private static final int GAP = 5;
+    private static final int ARROW_SIZE = 8;
+    private static final int LOOP_SIZE = 12;
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder();
+
+    public SvgWriter(Writer writer) {
+        out = writer instanceof BufferedWriter ? writer : new BufferedWriter(
+                writer);
+    }
+
+    /**
+     * 写出文件头，之后依次写出连线和状态，最后调用 {@link #end()}
+     * 
+     * @param width
+     * @param height
+     * @throws IOException
+     */
+    public void begin(int width, int height) throws IOException {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writeLine(line.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"")
+                .append(width).append("\" height=\"").append(height)
+                .append("\" viewBox=\"0 0 ").append(width).append(' ')
+                .append(height).append("\">"));
+        writeLine(line.append("<defs><marker id=\"arrow\" markerWidth=\"")
+                .append(ARROW_SIZE).append("\" markerHeight=\"")
+                .append(ARROW_SIZE).append("\" refX=\"").append(ARROW_SIZE)
+                .append("\" refY=\"").append(ARROW_SIZE / 2)
+                .append("\" orient=\"auto\" markerUnits=\"userSpaceOnUse\">")
+                .append("<path d=\"M0,0 L").append(ARROW_SIZE).append(',')
+                .append(ARROW_SIZE / 2).append(" L0,").append(ARROW_SIZE)
+                .append("\" fill=\"none\" stroke=\"black\"/></marker></defs>"));
+        out.write("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+        out.write("<g font-family=\"sans-serif\" font-size=\"11\""
+                + " text-anchor=\"middle\" stroke-width=\"1\">\n");
+    }
+
+    /**
+     * 写出一个状态
+     * 
+     * @param state
+     * @param x
+     * @param y
+     * @param width
+     * @param height
+     *            节点区域，与转移图中状态图形的位置和大小一致
+     * @throws IOException
+     */
+    public void writeState(StateData state, int x, int y, int width,
+            int height) throws IOException {
+        double r = round(height / 2.0 - 1);
+        double cx = round(x + width - height / 2.0);
+        double cy = round(y + height / 2.0);
+        writeLine(line.append("<circle cx=\"").append(cx).append("\" cy=\"")
+                .append(cy).append("\" r=\"").append(r).append("\" fill=\"")
+                .append(state.isAccept() ? "lightgray" : "white")
+                .append("\" stroke=\"black\"/>"));
+        if (state.isAccept()) {
+            writeLine(line.append("<circle cx=\"").append(cx)
+                    .append("\" cy=\"").append(cy).append("\" r=\"")
+                    .append(r - GAP).append("\" fill=\"none\" stroke=\"black\"/>"));
+        }
+        if (state.isInit()) {
+            writeLine(line.append("<line x1=\"").append(x).append("\" y1=\"")
+                    .append(cy).append("\" x2=\"").append(cx - r)
+                    .append("\" y2=\"").append(cy)
+                    .append("\" stroke=\"black\" marker-end=\"url(#arrow)\"/>"));
+        }
+        line.append("<text x=\"").append(cx).append("\" y=\"")
+                .append(cy + 4).append("\">");
+        appendEscaped(state.getLabel(), line);
+        writeLine(line.append("</text>"));
+    }
+
+    /**
+     * 写出一条连线，端点为两个状态圆的圆心，线段在圆周处截断；自环绘制在状态圆上方
+     * 
+     * @param conn
+     * @param x1
+     * @param y1
+     * @param x2
+     * @param y2
+     *            源和目标状态圆的圆心
+     * @param r
+     *            状态圆的半径
+     * @throws IOException
+     */
+    public void writeConnection(ConnectionData conn, double x1, double y1,
+            double x2, double y2, double r) throws IOException {
+        double lx;
+        double ly;
+        if (conn.getSource() == conn.getTarget()) {
+            double dx = r * 0.6;
+            double top = y1 - r * 0.8;
+            line.append("<path d=\"M").append(round(x1 - dx)).append(',')
+                    .append(round(top)).append(" C")
+                    .append(round(x1 - dx - LOOP_SIZE)).append(',')
+                    .append(round(top - 2 * LOOP_SIZE)).append(' ')
+                    .append(round(x1 + dx + LOOP_SIZE)).append(',')
+                    .append(round(top - 2 * LOOP_SIZE)).append(' ')
+                    .append(round(x1 + dx)).append(',').append(round(top));
+            lx = x1;
+            ly = top - 1.5 * LOOP_SIZE - 2;
+        } else {
+            double len = Math.hypot(x2 - x1, y2 - y1);
+            double ux = len > 0 ? (x2 - x1) / len : 0;
+            double uy = len > 0 ? (y2 - y1) / len : 0;
+            line.append("<path d=\"M").append(round(x1 + ux * r)).append(',')
+                    .append(round(y1 + uy * r)).append(" L")
+                    .append(round(x2 - ux * r)).append(',')
+                    .append(round(y2 - uy * r));
+            lx = (x1 + x2) / 2;
+            ly = (y1 + y2) / 2 - 3;
+        }
+        writeLine(line.append("\" fill=\"none\" stroke=\"black\"")
+                .append(" marker-end=\"url(#arrow)\"/>"));
+        line.append("<text x=\"").append(round(lx)).append("\" y=\"")
+                .append(round(ly)).append("\">");
+        appendEscaped(conn.getLabel(), line);
+        writeLine(line.append("</text>"));
+    }
+
+    /**
+     * 写出文件尾并刷新输出
+     * 
+     * @throws IOException
+     */
+    public void end() throws IOException {
+        out.write("</g>\n</svg>\n");
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * 坐标保留一位小数
+     */
+    private static double round(double v) {
+        return Math.round(v * 10) / 10.0;
+    }
+
+    private static void appendEscaped(String s, StringBuilder sb) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '<':
+                sb.append("&lt;");
+                break;
+            case '>':
+                sb.append("&gt;");
+                break;
+            case '&':
+                sb.append("&amp;");
+                break;
+            case '"':
+                sb.append("&quot;");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+
+    private void writeLine(StringBuilder sb) throws IOException {
+        sb.append('\n');
+        out.append(sb);
+        sb.setLength(0);
+    }
+
+}
@@ -1,27 +1,40 @@
 package automatizer.core.views;
 
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.BitSet;
+
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.draw2d.ColorConstants;
+import org.eclipse.draw2d.FigureCanvas;
+import org.eclipse.draw2d.MouseEvent;
+import org.eclipse.draw2d.MouseListener;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.IMenuListener;
 import org.eclipse.jface.action.IMenuManager;
 import org.eclipse.jface.action.MenuManager;
 import org.eclipse.jface.action.Separator;
+import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.text.TextSelection;
+import org.eclipse.jface.viewers.DoubleClickEvent;
+import org.eclipse.jface.viewers.IDoubleClickListener;
 import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StackLayout;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.IActionBars;
@@ -32,40 +45,44 @@ import org.eclipse.ui.IWorkbenchActionConstants;
 import org.eclipse.ui.IWorkbenchPart;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.part.ViewPart;
+import org.eclipse.ui.progress.IWorkbenchSiteProgressService;
 import org.eclipse.zest.core.viewers.GraphViewer;
 import org.eclipse.zest.core.widgets.Graph;
-import org.eclipse.zest.layouts.LayoutStyles;
-import org.eclipse.zest.layouts.algorithms.HorizontalTreeLayoutAlgorithm;
 
 import automatizer.core.AutomatizerActivator;
 import automatizer.core.adapters.AutomataGraphContentProvider;
 import automatizer.core.adapters.AutomataLabelProvider;
+import automatizer.core.adapters.PrecomputedLayoutAlgorithm;
+import automatizer.core.compilers.CompiledAutomata;
+import automatizer.core.compilers.CompiledAutomataCache;
+import automatizer.core.compilers.DiskAutomataCache;
+import automatizer.core.figures.VirtualGraphFigure;
+import automatizer.core.jobs.CompileAutomataJob;
+import automatizer.core.layouts.GraphLayout;
+import automatizer.core.layouts.LayoutCache;
+import automatizer.core.matchers.AutomataMatcher;
+import automatizer.core.matchers.DfaExplorer;
+import automatizer.core.matchers.LazyDfa;
+import automatizer.core.models.AlphabetPartition;
+import automatizer.core.models.AutomataType;
+import automatizer.core.models.BudgetExceededException;
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.models.StateData;
+import automatizer.core.preferences.PreferenceConstants;
+import automatizer.core.profiling.Stage;
+import automatizer.core.profiling.StageProfiler;
+import automatizer.core.utils.DotWriter;
 import automatizer.core.utils.FileUtils;
-import automatizer.core.utils.GraphvizUtils;
 import automatizer.core.utils.Logger;
 
-import com.etao.lz.automaton.Automaton;
-import com.etao.lz.automaton.State;
-import com.etao.lz.automaton.Transition;
-import com.etao.lz.recollection.JavaRegExp;
-import com.etao.lz.recollection.ast.Converter;
-import com.etao.lz.recollection.utils.AutomatonTool;
-
 /**
  * 以可视化方式显示状态机转移图
  * 
  * TODO 整合某种 Regexp minimization 算法（不可能是高效算法，因该问题是 PSPACE-complete
  * 的），并实现简化选中正则表达式的功能
  * 
- * TODO 整合某种 NFA minimization 算法（不可能是高效算法，因该问题是 PSPACE-complete 的），并实现显示 min NFA
- * 的功能
- * 
- * TODO 更改 Automaton 的 transition 实现使其支持 ε-transition，并实现显示 ε-NFA 的功能
- * 
  * LATER 覆盖 Zest 默认的 ChopBoxAnchor 锚点计算方法，让转移边能连接到状态圈上
  * 
- * LATER 使用其他布局算法替代 Zest 内置算法，希望能达到接近 Graphviz 布局的效果
- * 
  * LATER 更新 StateFigure 使其能像内置形状一样可以通过 LabelProvider 的 getText()
  * 方法提供标签，而非像现在这样在生成 Figure 对象时绑定标签（Zest 1.x 的自定义形状 bug，暂无法解决，等 Zest 2.x 成熟后再说）
  * 
@@ -77,6 +94,22 @@ import com.etao.lz.recollection.utils.AutomatonTool;
  * 
  * DONE 支持将 DOT 语法描述的状态机转换为 regexp（通过 state elimination/removal 算法）
  * 
+ * DONE 使用其他布局算法替代 Zest 内置算法，希望能达到接近 Graphviz 布局的效果
+ * 
+ * DONE 按前向/后向模拟关系约简 NFA（NFA minimization 是 PSPACE-complete 的，以此作为启发式替代），并实现显示约简 NFA 的功能
+ * 
+ * DONE 限制构造状态机时的状态数、转移边数及耗时（可在首选项页面中调整），超限时以说明代替转移图
+ * 
+ * DONE 记录各处理阶段耗时，在状态栏显示摘要，并可将耗时分布写入插件日志
+ * 
+ * DONE 可选以字符类（按全部转移边划分的最粗字符等价类）表示转移条件，转移边的提示信息显示其字符范围
+ * 
+ * DONE 按需确定化 DFA，从 init 状态开始逐步展开（双击边界状态或展开全部边界），状态缓存有上限，超出时清空重建
+ * 
+ * DONE 状态机快照支持 ε 转移边，并实现显示 ε-NFA 的功能（正则表达式按 Glushkov 方式构造，本身不含 ε 转移边）
+ * 
+ * DONE 转换结果及布局保存在插件状态目录的磁盘缓存中，重新打开视图时直接展示上次选中文本的转移图
+ * 
  * @author wxz
  * 
  */
@@ -87,34 +120,67 @@ public class AutomataView extends ViewPart {
      */
     public static final String ID = "automatizer.core.views.AutomataView";
 
-    // 用于识别 Graphviz DOT 格式文本的正则模式
-    private static final Pattern GRAPHVIZ_PATTERN = Pattern
-            .compile("^\\s*digraph\\s+\\w+\\s*\\{");
+    // 选中文本变化后延迟启动转换任务的毫秒数，期间的新选中事件会取代尚未开始的任务
+    private static final long COMPILE_DELAY = 200;
+
+    // 状态数超过此值时改用只为可见区域生成图形的转移图
+    private static final int VIRTUAL_THRESHOLD = 500;
+
+    // 字符类数不超过此值时在提示信息中逐个列出各字符类的字符范围
+    private static final int MAX_LEGEND_CLASSES = 32;
+
+    // 对话框设置中保存上次选中文本的键名
+    private static final String LAST_SELECTION = "lastSelection";
 
     private Action actionStreaming; // 切换流式/非流式匹配状态机
+    private Action actionShowEpsNFA; // 切换至 ε-NFA 显示方式
     private Action actionShowMinNFA; // 切换至 ε-free NFA 显示方式
+    private Action actionShowReducedNFA; // 切换至约简 NFA 显示方式
     private Action actionShowMinDFA; // 切换至最小化 DFA 显示方式
+    private Action actionShowLazyDFA; // 切换至按需确定化 DFA 显示方式
+    private Action actionExpandFrontier; // 展开按需确定化 DFA 的全部边界状态
     private Action actionExportAsImage; // 保存成图片
     private Action actionExportAsDot; // 保存成 Graphviz DOT 文件
     private Action actionToggleRegexp; // 显示从状态机转换出的正则表达式
+    private Action actionToggleTiming; // 开启/关闭各处理阶段计时
+    private Action actionDumpTiming; // 将各处理阶段耗时分布写入插件日志
+    private Action actionClassLabels; // 以字符类表示转移条件
 
     private ISelectionListener pageSelectionListener;
-
-    enum AutomataType {
-        EPS_FREE_NFA, MIN_DFA
-    };
+    private CompileAutomataJob compileJob; // 最近一次提交的状态机转换任务
+    private final CompiledAutomataCache atmCache; // 已转换状态机的缓存，切换显示方式时可直接复用
+    private final DiskAutomataCache diskCache; // 插件状态目录中的转换结果缓存，跨视图实例及重启保留
+    private final LayoutCache layoutCache; // 按结构缓存的布局，使相同或相近状态机的状态位置保持稳定
 
     private boolean streamingMode; // 是否转换为可流式匹配的状态机
     private boolean showRegexp; // 是否同步显示状态机对应的正则表达式
+    private boolean classLabels; // 是否以字符类表示转移条件
     private AutomataType automataType; // 转换目标状态机类型
     private GraphViewer viewer; // Zest 自动布局图展示控件
+    private AutomataGraphContentProvider contentProvider;
+    private AutomataLabelProvider labelProvider;
+    private PrecomputedLayoutAlgorithm layoutAlgorithm; // 应用后台计算好的布局坐标
+    private StackLayout diagramStack; // 在 Zest 转移图、虚拟化转移图及超限说明之间切换
+    private Text overflowText; // 构造状态机超出资源限制时代替转移图的说明
+    private FigureCanvas surfaceCanvas; // 展示大型状态机的画布
+    private VirtualGraphFigure surface; // 只为可见区域生成图形的转移图
+    private IndexedAutomaton shownAutomaton; // 当前展示的状态机
+    private GraphLayout shownLayout; // 当前展示的状态机布局
+    private AlphabetPartition shownAlphabet; // 以字符类表示转移条件时当前状态机的字符类划分
     private Text regexArea; // 显示当前状态机对应的正则表达式
+    private Text testInput; // 待用当前状态机匹配的测试输入
+    private Label testResult; // 显示测试输入的匹配结果
+    private CompiledAutomata curResult; // 当前展示的转换结果
+    private boolean matcherRequested; // 当前展示的转换结果是否已尝试编译匹配器
     private String curSelTxt; // 当前选中的文本
 
     public AutomataView() {
         streamingMode = false;
         showRegexp = false;
         automataType = AutomataType.EPS_FREE_NFA;
+        atmCache = new CompiledAutomataCache();
+        diskCache = AutomatizerActivator.getDefault().getDiskCache();
+        layoutCache = new LayoutCache();
     }
 
     /**
@@ -136,7 +202,18 @@ public class AutomataView extends ViewPart {
 
     @Override
     public void dispose() {
-        setModel(null);
+        if (compileJob != null) {
+            compileJob.cancel();
+            compileJob = null;
+        }
+        setModel(null, null);
+        if (curSelTxt != null) {
+            // 对话框设置在插件停止时写入状态目录，重新打开视图或重启后据此恢复转移图
+            AutomatizerActivator.getDefault().getDialogSettings()
+                    .put(LAST_SELECTION, curSelTxt);
+        }
+        atmCache.clear();
+        layoutCache.clear();
 
         // 销毁视图时移除之前注册的文本选中事件处理逻辑
         if (pageSelectionListener != null) {
@@ -147,59 +224,274 @@ public class AutomataView extends ViewPart {
         super.dispose();
     }
 
+    /**
+     * 在后台任务中重新转换当前选中文本，完成后再刷新状态机转移图及对应的正则表达式
+     * 
+     * 尚未完成的旧任务会被取消，短时间内连续触发时只有最后一次会真正执行
+     */
     public void refreshDiagram() {
-        // 刷新当前状态机转移图
-        Automaton atm = txtToAutomaton(curSelTxt);
-        setModel(atm);
-
-        // 刷新当前状态机对应的正则表达式
-        if (showRegexp) {
-            String regex = AutomatonTool.aToRe(atm);
-            regexArea.setText(regex);
+        refreshDiagram(COMPILE_DELAY);
+    }
+
+    /**
+     * @param delay
+     *            延迟启动转换任务的毫秒数
+     */
+    private void refreshDiagram(long delay) {
+        if (compileJob != null) {
+            compileJob.cancel();
+        }
+        StageProfiler.beginRun();
+
+        final Display display = viewer.getControl().getDisplay();
+        final CompileAutomataJob job = new CompileAutomataJob(curSelTxt,
+                automataType, streamingMode, showRegexp, !testInput.getText()
+                        .isEmpty(), atmCache, diskCache, layoutCache,
+                PreferenceConstants.getBudget(AutomatizerActivator.getDefault()
+                        .getPreferenceStore()));
+        job.addJobChangeListener(new JobChangeAdapter() {
+            @Override
+            public void done(IJobChangeEvent event) {
+                if (display.isDisposed()) {
+                    return;
+                }
+                if (!event.getResult().isOK()) {
+                    // 被取消或失败的任务不再展示，但需清除其引用，否则之后不会再触发重新转换
+                    display.asyncExec(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (job == compileJob) {
+                                compileJob = null;
+                            }
+                        }
+                    });
+                    return;
+                }
+                display.asyncExec(new Runnable() {
+                    @Override
+                    public void run() {
+                        showCompiledAutomata(job);
+                    }
+                });
+            }
+        });
+        compileJob = job;
+
+        // 通过视图的进度服务调度任务，以便转换期间在视图上显示忙碌状态
+        IWorkbenchSiteProgressService progressService = (IWorkbenchSiteProgressService) getSite()
+                .getAdapter(IWorkbenchSiteProgressService.class);
+        if (progressService != null) {
+            progressService.schedule(job, delay, true);
         } else {
-            regexArea.setText("");
+            job.schedule(delay);
         }
     }
 
-    private Automaton txtToAutomaton(String txt) {
-        Automaton atm = null;
-        boolean minimize = false;
-
-        if (automataType == AutomataType.MIN_DFA) {
-            minimize = true;
+    /**
+     * 在 UI 线程中展示转换任务的结果，已被更新任务取代的结果直接丢弃
+     * 
+     * @param job
+     */
+    private void showCompiledAutomata(CompileAutomataJob job) {
+        if (job != compileJob || regexArea.isDisposed()) {
+            return;
         }
+        compileJob = null;
+
+        CompiledAutomata result = job.getCompiledAutomata();
+        curResult = result;
+        matcherRequested = job.isBuildMatcher();
+        setModel(result.getAutomaton(), result.getLayout());
+        showOverflow(result);
+        showReduction(result);
+        regexArea.setText(result.getRegexp());
+        updateRegexpToolTip();
+        testInputChanged();
+        showTiming();
+    }
 
-        if (txt != null && !txt.isEmpty()) {
-            Matcher matcher = GRAPHVIZ_PATTERN.matcher(txt);
-            if (matcher.find()) {
-                // 选中文本作为 Graphviz DOT 处理
-                try {
-                    atm = GraphvizUtils.dotToFsa(new StringBuffer(txt));
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    return null;
-                }
-            } else {
-                // 选中文本作为正则表达式处理
-                JavaRegExp jre = new JavaRegExp(txt);
-                atm = jre.toAutomaton(false);
+    /**
+     * 构造状态机超出资源限制或意外失败时以说明代替转移图，否则恢复显示转移图
+     * 
+     * @param result
+     */
+    private void showOverflow(CompiledAutomata result) {
+        BudgetExceededException overflow = result.getOverflow();
+        if (result.getFailure() != null) {
+            Logger.warn("Failed to build automaton: " + result.getFailure());
+            overflowText.setText("Failed to build automaton\n\n"
+                    + result.getFailure()
+                    + "\n\nChange the selection or display mode to try again.");
+            diagramStack.topControl = overflowText;
+            overflowText.getParent().layout();
+            return;
+        }
+        if (overflow == null) {
+            if (diagramStack.topControl == overflowText) {
+                diagramStack.topControl = isVirtual() ? surfaceCanvas : viewer
+                        .getControl();
+                overflowText.getParent().layout();
             }
+            return;
+        }
+
+        String hint;
+        if (overflow.getResource().startsWith("DFA")) {
+            hint = "Try \"Explore lazy DFA\" or \"Show reduced NFA\", which do not build the whole DFA.";
+        } else if (overflow.getResource().startsWith("time")) {
+            hint = "Try \"Show ε-free NFA\", select a shorter text, or raise the time limit.";
+        } else {
+            hint = "Select a shorter text, or try \"Show ε-free NFA\" without streaming match.";
+        }
+        overflowText.setText("Automaton too large to display\n\n"
+                + overflow.getSummary() + "\n\n" + hint
+                + "\nLimits can be changed in Preferences > Automatizer.");
+        diagramStack.topControl = overflowText;
+        overflowText.getParent().layout();
+    }
+
+    /**
+     * 在状态栏显示最近一次刷新中各处理阶段的耗时，计时关闭时清空
+     */
+    private void showTiming() {
+        getViewSite().getActionBars().getStatusLineManager().setMessage(
+                StageProfiler.isEnabled() ? StageProfiler.summary() : null);
+    }
 
-            atm = Converter.transformAutomaton(atm, minimize, streamingMode);
-            setStateNumbers(atm);
+    /**
+     * 用当前状态机匹配测试输入并显示结果，尚未编译匹配器时触发一次带匹配器的重新转换
+     */
+    private void testInputChanged() {
+        String input = testInput.getText();
+        if (input.isEmpty()) {
+            testResult.setText("");
+            return;
+        }
+        if (curResult == null || curResult.getAutomaton() == null) {
+            testResult.setText("No automaton");
+            return;
+        }
+
+        AutomataMatcher matcher = curResult.getMatcher();
+        if (matcher == null) {
+            if (matcherRequested) {
+                testResult.setText("Too many states to test input");
+            } else if (compileJob == null) {
+                testResult.setText("Compiling matcher...");
+                refreshDiagram();
+            }
+            return;
         }
+        testResult.setText(matcher.match(input).toString());
+    }
 
-        return atm;
+    /**
+     * 在视图描述中显示约简前后的状态数，按需确定化的 DFA 显示展开进度及状态缓存使用情况，未经约简时清空描述
+     * 
+     * @param result
+     */
+    private void showReduction(CompiledAutomata result) {
+        IndexedAutomaton atm = result.getAutomaton();
+        if (atm == null || result.getSourceStateCount() < 0) {
+            setContentDescription("");
+            return;
+        }
+        DfaExplorer explorer = result.getExplorer();
+        if (explorer != null) {
+            LazyDfa dfa = explorer.getLazyDfa();
+            setContentDescription(result.getReduction() + ": "
+                    + explorer.getExpandedCount() + " expanded, "
+                    + explorer.getFrontier().cardinality() + " on frontier"
+                    + " (cache " + dfa.getStateCount() + "/"
+                    + dfa.getCapacity() + ", " + dfa.getFlushCount()
+                    + " flushes)");
+            return;
+        }
+        setContentDescription(result.getReduction() + ": "
+                + result.getSourceStateCount() + " → "
+                + atm.getStateCount() + " states");
     }
 
-    private void setModel(Automaton newAutomata) {
+    private void setModel(IndexedAutomaton newAutomata, GraphLayout layout) {
         if (viewer != null
                 && (viewer.getControl() != null && !viewer.getControl()
                         .isDisposed())) {
-            viewer.setInput(newAutomata);
+            // 仅切换正则表达式显示等情况下状态机及布局均未变化，保留现有图形，不重建节点
+            if (newAutomata == shownAutomaton && layout == shownLayout) {
+                return;
+            }
+            shownAutomaton = newAutomata;
+            shownLayout = layout;
+            shownAlphabet = classLabels && newAutomata != null ? AlphabetPartition
+                    .of(newAutomata) : null;
+
+            DfaExplorer explorer = getShownExplorer();
+            BitSet frontier = explorer != null ? explorer.getFrontier() : null;
+            long t = StageProfiler.start();
+            if (isVirtual()) {
+                // 大型状态机不交给 Zest，避免为每个状态和转移边生成图形
+                layoutAlgorithm.setLayout(null);
+                viewer.setInput(null);
+                surface.setAlphabet(shownAlphabet);
+                surface.setModel(newAutomata, layout, frontier);
+                diagramStack.topControl = surfaceCanvas;
+            } else {
+                surface.setModel(null, null);
+                layoutAlgorithm.setLayout(layout);
+                labelProvider.setFrontier(frontier);
+                contentProvider.setAlphabet(shownAlphabet);
+                viewer.setInput(newAutomata);
+                diagramStack.topControl = viewer.getControl();
+            }
+            surfaceCanvas.getParent().layout();
+            if (t != 0L) {
+                // 计时开启时立即完成绘制，使耗时包含绘制部分
+                diagramStack.topControl.update();
+            }
+            StageProfiler.stop(Stage.RENDER, t);
+        }
+    }
+
+    /**
+     * @return 当前展示的状态机所属的 DFA 展开过程；展开后新快照尚未展示时也返回 null，以免按旧快照的状态编号展开
+     */
+    private DfaExplorer getShownExplorer() {
+        DfaExplorer explorer = curResult != null ? curResult.getExplorer()
+                : null;
+        if (explorer == null || shownAutomaton == null
+                || explorer.getAutomaton() != shownAutomaton) {
+            return null;
+        }
+        return explorer;
+    }
+
+    /**
+     * 展开当前展示的按需确定化 DFA 中的边界状态，并按新快照重新布局
+     * 
+     * @param state
+     *            状态编号，为 -1 时展开全部边界状态
+     */
+    private void expandState(int state) {
+        DfaExplorer explorer = getShownExplorer();
+        if (explorer == null) {
+            return;
+        }
+        boolean changed = state < 0 ? explorer.expandFrontier() > 0
+                : explorer.expand(state);
+        if (changed) {
+            // 转换结果缓存中保存着同一个展开过程，重新转换时会发现快照已变化并重新计算布局
+            refreshDiagram();
         }
     }
 
+    /**
+     * @return 当前状态机是否由虚拟化转移图展示
+     */
+    private boolean isVirtual() {
+        return shownAutomaton != null && shownLayout != null
+                && shownAutomaton.getStateCount() > VIRTUAL_THRESHOLD;
+    }
+
     private void createDiagram(Composite parent) {
         parent.setLayout(new GridLayout(1, true));
 
@@ -207,14 +499,72 @@ public class AutomataView extends ViewPart {
         regexArea.setText("");
         regexArea.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
 
-        viewer = new GraphViewer(parent, SWT.NONE);
-        viewer.setContentProvider(new AutomataGraphContentProvider());
-        viewer.setLabelProvider(new AutomataLabelProvider());
-        int styles = LayoutStyles.NO_LAYOUT_NODE_RESIZING;
-        viewer.setLayoutAlgorithm(new HorizontalTreeLayoutAlgorithm(styles));
+        // 测试输入栏
+        Composite testArea = new Composite(parent, SWT.NONE);
+        GridLayout testLayout = new GridLayout(3, false);
+        testLayout.marginWidth = 0;
+        testLayout.marginHeight = 0;
+        testArea.setLayout(testLayout);
+        testArea.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+
+        Label testLabel = new Label(testArea, SWT.NONE);
+        testLabel.setText("Test input:");
+        testInput = new Text(testArea, SWT.SINGLE | SWT.BORDER);
+        testInput.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+        testInput.addModifyListener(new ModifyListener() {
+            @Override
+            public void modifyText(ModifyEvent e) {
+                testInputChanged();
+            }
+        });
+        testResult = new Label(testArea, SWT.NONE);
+        GridData resultData = new GridData();
+        resultData.widthHint = 280;
+        testResult.setLayoutData(resultData);
+
+        Composite diagramArea = new Composite(parent, SWT.NONE);
+        diagramStack = new StackLayout();
+        diagramArea.setLayout(diagramStack);
+        diagramArea.setLayoutData(new GridData(GridData.FILL_BOTH));
+
+        viewer = new GraphViewer(diagramArea, SWT.NONE);
+        contentProvider = new AutomataGraphContentProvider();
+        viewer.setContentProvider(contentProvider);
+        labelProvider = new AutomataLabelProvider();
+        viewer.setLabelProvider(labelProvider);
+        layoutAlgorithm = new PrecomputedLayoutAlgorithm();
+        viewer.setLayoutAlgorithm(layoutAlgorithm);
+        viewer.addDoubleClickListener(new IDoubleClickListener() {
+            @Override
+            public void doubleClick(DoubleClickEvent event) {
+                Object element = ((IStructuredSelection) event.getSelection())
+                        .getFirstElement();
+                if (element instanceof StateData) {
+                    expandState(((StateData) element).getId());
+                }
+            }
+        });
+
+        overflowText = new Text(diagramArea, SWT.MULTI | SWT.READ_ONLY
+                | SWT.WRAP | SWT.V_SCROLL);
+
+        surfaceCanvas = new FigureCanvas(diagramArea, SWT.DOUBLE_BUFFERED);
+        surfaceCanvas.setBackground(ColorConstants.white);
+        surface = new VirtualGraphFigure();
+        surfaceCanvas.setContents(surface);
+        surface.hookViewport(surfaceCanvas.getViewport());
+        surface.addMouseListener(new MouseListener.Stub() {
+            @Override
+            public void mouseDoubleClicked(MouseEvent me) {
+                int state = surface.getStateAt(me.getLocation());
+                if (state >= 0) {
+                    expandState(state);
+                }
+            }
+        });
 
         Control ctrl = viewer.getControl();
-        ctrl.setLayoutData(new GridData(GridData.FILL_BOTH));
+        diagramStack.topControl = ctrl;
     }
 
     /**
@@ -230,11 +580,17 @@ public class AutomataView extends ViewPart {
         };
         getSite().getPage().addPostSelectionListener(pageSelectionListener);
 
-        // 用当前选中内容初始化状态图
+        // 用当前选中内容初始化状态图，没有选中文本时恢复上次关闭视图时的选中文本；其转换结果通常已在磁盘缓存中，
+        // 不必等待延迟即可展示
         ISelectionService selectionService = getSite().getWorkbenchWindow()
                 .getSelectionService();
         updateCurText(selectionService.getSelection());
-        refreshDiagram();
+        if (curSelTxt == null) {
+            IDialogSettings settings = AutomatizerActivator.getDefault()
+                    .getDialogSettings();
+            curSelTxt = settings.get(LAST_SELECTION);
+        }
+        refreshDiagram(0);
     }
 
     /**
@@ -260,31 +616,6 @@ public class AutomataView extends ViewPart {
         curSelTxt = txtSel.getText();
     }
 
-    /**
-     * 从起始状态开始逐级给自动机状态重新编号，以便展现美观
-     * 
-     * @param atm
-     */
-    private final void setStateNumbers(Automaton atm) {
-        int num = 0;
-        Set<State> accSet = new HashSet<State>();
-        List<State> workQ = new ArrayList<State>();
-        State initState = atm.getInitialState();
-        workQ.add(initState);
-        accSet.add(initState);
-        while (!workQ.isEmpty()) {
-            State state = workQ.remove(0);
-            state.setNumber(num++);
-            for (Transition tran : state.getSortedTransitions(false)) {
-                State dst = tran.getDest();
-                if (!accSet.contains(dst)) {
-                    workQ.add(dst);
-                    accSet.add(dst);
-                }
-            }
-        }
-    }
-
     /**
      * 修改视图右键快捷菜单
      */
@@ -300,6 +631,7 @@ public class AutomataView extends ViewPart {
         });
         Menu menu = menuMgr.createContextMenu(viewer.getControl());
         viewer.getControl().setMenu(menu);
+        surfaceCanvas.setMenu(menu);
         getSite().registerContextMenu(menuMgr, viewer);
     }
 
@@ -321,11 +653,18 @@ public class AutomataView extends ViewPart {
 
     private void addAutomatizerMenuItems(IMenuManager manager) {
         manager.add(actionStreaming);
+        manager.add(actionShowEpsNFA);
         manager.add(actionShowMinNFA);
+        manager.add(actionShowReducedNFA);
         manager.add(actionShowMinDFA);
+        manager.add(actionShowLazyDFA);
+        manager.add(actionExpandFrontier);
         manager.add(actionToggleRegexp);
+        manager.add(actionClassLabels);
         manager.add(actionExportAsImage);
         manager.add(actionExportAsDot);
+        manager.add(actionToggleTiming);
+        manager.add(actionDumpTiming);
         // 允许其他插件在此之后继续添加新条目
         manager.add(new Separator(IWorkbenchActionConstants.MB_ADDITIONS));
     }
@@ -368,6 +707,20 @@ public class AutomataView extends ViewPart {
                 .getSharedImages()
                 .getImageDescriptor(ISharedImages.IMG_OBJS_INFO_TSK));
 
+        actionShowEpsNFA = new Action() {
+            @Override
+            public void run() {
+                automataType = AutomataType.EPS_NFA;
+                refreshDiagram();
+            }
+        };
+        actionShowEpsNFA.setText("Show ε-NFA");
+        actionShowEpsNFA
+                .setToolTipText("Show NFA with ε-transitions kept as written");
+        actionShowEpsNFA.setImageDescriptor(PlatformUI.getWorkbench()
+                .getSharedImages()
+                .getImageDescriptor(ISharedImages.IMG_OBJS_INFO_TSK));
+
         actionShowMinNFA = new Action() {
             @Override
             public void run() {
@@ -382,6 +735,20 @@ public class AutomataView extends ViewPart {
                 .getSharedImages()
                 .getImageDescriptor(ISharedImages.IMG_OBJS_INFO_TSK));
 
+        actionShowReducedNFA = new Action() {
+            @Override
+            public void run() {
+                automataType = AutomataType.REDUCED_NFA;
+                refreshDiagram();
+            }
+        };
+        actionShowReducedNFA.setText("Show reduced NFA");
+        actionShowReducedNFA
+                .setToolTipText("Show NFA with states merged by simulation");
+        actionShowReducedNFA.setImageDescriptor(PlatformUI.getWorkbench()
+                .getSharedImages()
+                .getImageDescriptor(ISharedImages.IMG_OBJS_INFO_TSK));
+
         actionShowMinDFA = new Action() {
             @Override
             public void run() {
@@ -395,6 +762,33 @@ public class AutomataView extends ViewPart {
                 .getSharedImages()
                 .getImageDescriptor(ISharedImages.IMG_OBJS_INFO_TSK));
 
+        actionShowLazyDFA = new Action() {
+            @Override
+            public void run() {
+                automataType = AutomataType.LAZY_DFA;
+                refreshDiagram();
+            }
+        };
+        actionShowLazyDFA.setText("Explore lazy DFA");
+        actionShowLazyDFA
+                .setToolTipText("Determinize on demand, double-click a dashed state to expand it");
+        actionShowLazyDFA.setImageDescriptor(PlatformUI.getWorkbench()
+                .getSharedImages()
+                .getImageDescriptor(ISharedImages.IMG_OBJS_INFO_TSK));
+
+        actionExpandFrontier = new Action() {
+            @Override
+            public void run() {
+                expandState(-1);
+            }
+        };
+        actionExpandFrontier.setText("Expand frontier");
+        actionExpandFrontier
+                .setToolTipText("Expand all dashed states of the lazy DFA");
+        actionExpandFrontier.setImageDescriptor(PlatformUI.getWorkbench()
+                .getSharedImages()
+                .getImageDescriptor(ISharedImages.IMG_OBJS_INFO_TSK));
+
         actionToggleRegexp = new Action() {
             @Override
             public void run() {
@@ -417,36 +811,110 @@ public class AutomataView extends ViewPart {
         actionToggleRegexp.setImageDescriptor(PlatformUI.getWorkbench()
                 .getSharedImages()
                 .getImageDescriptor(ISharedImages.IMG_OBJS_INFO_TSK));
+
+        actionToggleTiming = new Action("Stage timing", Action.AS_CHECK_BOX) {
+            @Override
+            public void run() {
+                StageProfiler.setEnabled(isChecked());
+                refreshDiagram();
+            }
+        };
+        actionToggleTiming.setChecked(StageProfiler.isEnabled());
+        actionToggleTiming
+                .setToolTipText("Time each compile stage and show a summary in the status line");
+
+        actionDumpTiming = new Action() {
+            @Override
+            public void run() {
+                Logger.info(StageProfiler.dump());
+            }
+        };
+        actionDumpTiming.setText("Log stage timings");
+        actionDumpTiming
+                .setToolTipText("Write rolling stage timing histograms to the plugin log");
+        actionDumpTiming.setImageDescriptor(automatizerIconDesc);
+
+        actionClassLabels = new Action("Label edges by character class",
+                Action.AS_CHECK_BOX) {
+            @Override
+            public void run() {
+                classLabels = isChecked();
+                // 状态机及布局均未变化，清除当前展示的状态机以强制重建图形
+                IndexedAutomaton atm = shownAutomaton;
+                GraphLayout layout = shownLayout;
+                shownAutomaton = null;
+                shownLayout = null;
+                setModel(atm, layout);
+                updateRegexpToolTip();
+            }
+        };
+        actionClassLabels
+                .setToolTipText("Label transitions with character classes c0, c1, ... instead of character ranges");
+    }
+
+    /**
+     * 在正则表达式的提示信息中展示缓存命中情况，以字符类表示转移条件时附带各字符类的字符范围
+     */
+    private void updateRegexpToolTip() {
+        String tip = atmCache + "\n" + diskCache + "\n" + layoutCache;
+        if (shownAlphabet != null) {
+            int k = shownAlphabet.getClassCount();
+            tip += "\n\n"
+                    + (k <= MAX_LEGEND_CLASSES ? shownAlphabet.describe() : k
+                            + " character classes");
+        }
+        regexArea.setToolTipText(tip);
     }
 
     private void exportGraphToImage() {
         FileDialog dialog = new FileDialog(getViewSite().getShell(), SWT.SAVE);
         String[] filterNames = new String[] { "PNG Files (*.png)",
-                "JPG Files (*.jpg)", "GIF Files (*.gif)", "BMP Files (*.bmp)",
-                "All Files (*)" };
-        String[] filterExtensions = new String[] { "*.png", "*.jpg", "*.gif",
-                "*.bmp", "*" };
+                "SVG Files (*.svg)", "JPG Files (*.jpg)", "GIF Files (*.gif)",
+                "BMP Files (*.bmp)", "All Files (*)" };
+        String[] filterExtensions = new String[] { "*.png", "*.svg", "*.jpg",
+                "*.gif", "*.bmp", "*" };
         dialog.setFilterNames(filterNames);
         dialog.setFilterExtensions(filterExtensions);
         dialog.setFileName("automata");
         String filePath = dialog.open();
         if (filePath != null) {
             try {
-                int format = SWT.IMAGE_PNG;
+                Graph g = (Graph) viewer.getControl();
+                boolean virtual = isVirtual();
                 String lowerFilePath = filePath.toLowerCase();
-                if (lowerFilePath.endsWith("gif")) {
-                    format = SWT.IMAGE_GIF;
-                } else if (lowerFilePath.endsWith("png")) {
-                    format = SWT.IMAGE_PNG;
-                } else if (lowerFilePath.endsWith("bmp")) {
-                    format = SWT.IMAGE_BMP_RLE;
-                } else if (lowerFilePath.endsWith("jpg")) {
-                    format = SWT.IMAGE_JPEG;
+                OutputStream os = new BufferedOutputStream(
+                        new FileOutputStream(filePath));
+                try {
+                    if (lowerFilePath.endsWith("svg")) {
+                        OutputStreamWriter writer = new OutputStreamWriter(os,
+                                "UTF-8");
+                        if (virtual) {
+                            FileUtils.saveSvgToWriter(shownAutomaton,
+                                    shownLayout, writer);
+                        } else {
+                            FileUtils.saveSvgToWriter(g, writer);
+                        }
+                    } else {
+                        int format = SWT.IMAGE_PNG;
+                        if (lowerFilePath.endsWith("gif")) {
+                            format = SWT.IMAGE_GIF;
+                        } else if (lowerFilePath.endsWith("png")) {
+                            format = SWT.IMAGE_PNG;
+                        } else if (lowerFilePath.endsWith("bmp")) {
+                            format = SWT.IMAGE_BMP_RLE;
+                        } else if (lowerFilePath.endsWith("jpg")) {
+                            format = SWT.IMAGE_JPEG;
+                        }
+                        if (virtual) {
+                            FileUtils.saveImageToStream(surface,
+                                    surfaceCanvas.getDisplay(), os, format);
+                        } else {
+                            FileUtils.saveImageToStream(g, os, format);
+                        }
+                    }
+                } finally {
+                    os.close();
                 }
-                Graph g = (Graph) viewer.getControl();
-                FileOutputStream fos = new FileOutputStream(filePath);
-                FileUtils.saveImageToStream(g, fos, format);
-                fos.close();
             } catch (Exception e) {
                 Logger.err(e.getLocalizedMessage());
             }
@@ -454,7 +922,7 @@ public class AutomataView extends ViewPart {
     }
 
     private void exportGraphToDot() {
-        Automaton atm = (Automaton) viewer.getInput();
+        IndexedAutomaton atm = shownAutomaton;
         if (atm == null) {
             return;
         }
@@ -470,9 +938,12 @@ public class AutomataView extends ViewPart {
         if (filePath != null) {
             try {
                 FileOutputStream fos = new FileOutputStream(filePath);
-                String dot = atm.toDot();
-                fos.write(dot.getBytes("UTF-8"));
-                fos.close();
+                DotWriter writer = new DotWriter(fos.getChannel());
+                try {
+                    writer.write(atm);
+                } finally {
+                    writer.close();
+                }
             } catch (Exception e) {
                 Logger.err(e.getLocalizedMessage());
             }
@@ -0,0 +1,111 @@
+package automatizer.core.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchConverterTest {
+
+	private File dir;
+	private ByteArrayOutputStream buf;
+	private PrintStream out;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("batch").toFile();
+		buf = new ByteArrayOutputStream();
+		out = new PrintStream(buf, true, "UTF-8");
+	}
+
+	@After
+	public void tearDown() {
+		delete(dir);
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File c : children) {
+				delete(c);
+			}
+		}
+		f.delete();
+	}
+
+	private String output() throws IOException {
+		return buf.toString("UTF-8");
+	}
+
+	private int run(String... args) {
+		return BatchConverter.run(args, out);
+	}
+
+	@Test
+	public void rejectsBadArguments() throws IOException {
+		String in = dir.getPath();
+		String res = new File(dir, "out").getPath();
+		assertEquals(2, run("-bogus", in, res));
+		assertTrue(output().contains("Unknown option -bogus"));
+		assertTrue(output().contains("Usage:"));
+		assertEquals(2, run(in));
+		assertEquals(2, run("-threads", "x", in, res));
+		assertEquals(2, run(in, res, "-timeout"));
+		assertTrue(output().contains("Missing value for -timeout"));
+		assertEquals(2, run(new File(dir, "missing").getPath(), res));
+		assertTrue(output().contains("Input not found"));
+	}
+
+	@Test
+	public void reportsFailedFilesWithoutAbortingBatch() throws IOException {
+		File in = new File(dir, "in");
+		File res = new File(dir, "out");
+		in.mkdirs();
+		// 空目录中没有输入文件，视为全部成功
+		assertEquals(0, run(in.getPath(), res.getPath()));
+
+		Files.write(new File(in, "bad.dot").toPath(),
+				"digraph G { 0 -> }\n".getBytes("UTF-8"));
+		Files.write(new File(in, "big.re").toPath(),
+				"(a{100}){100}\n".getBytes("UTF-8"));
+		Files.write(new File(in, "skipped.txt").toPath(),
+				"a\n".getBytes("UTF-8"));
+		assertEquals(1, run("-max-nfa", "1000", "-threads", "2",
+				in.getPath(), res.getPath()));
+		String report = output();
+		assertTrue(report.contains("bad.dot  FAILED"));
+		// 超出每个文件的资源限制时不解析，同样记为失败
+		assertTrue(report.contains("big.re  FAILED BudgetExceededException"));
+		assertTrue(report.contains("2 files (2 failed)"));
+	}
+
+	@Test
+	public void reportsRegexpFailureSeparately() throws IOException {
+		File in = new File(dir, "in");
+		File res = new File(dir, "out");
+		in.mkdirs();
+		Files.write(new File(in, "ab.dot").toPath(), ("digraph G {\n"
+				+ "initial [shape=plaintext,label=\"\"];\n" + "initial -> 0\n"
+				+ "0 -> 1 [label=\"a\"]\n" + "1 -> 2 [label=\"b\"]\n"
+				+ "2 [shape=doublecircle];\n" + "}\n").getBytes("UTF-8"));
+		// 正则表达式超出长度上限时照常写出 DOT 文件，不记为失败
+		assertEquals(0, run("-regexp", "-max-regexp", "1", in.getPath(),
+				res.getPath()));
+		String report = output();
+		assertTrue(report.contains("no regexp: Regexp too long"));
+		assertTrue(report.contains("1 files converted without regexp"));
+		assertTrue(report.contains("1 files (0 failed)"));
+		assertFalse(new File(res, "ab.regexp").exists());
+		assertEquals(1, res.list().length);
+	}
+
+}
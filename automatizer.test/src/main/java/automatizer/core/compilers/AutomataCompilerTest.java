@@ -0,0 +1,43 @@
+package automatizer.core.compilers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import automatizer.core.models.AutomataType;
+import automatizer.core.models.Budget;
+import automatizer.core.models.BudgetExceededException;
+import automatizer.core.profiling.Stage;
+
+public class AutomataCompilerTest {
+
+	@Test
+	public void estimatesPositionsOfRegexp() {
+		assertEquals(3, AutomataCompiler.estimatePositions("abc", 100));
+		assertEquals(3, AutomataCompiler.estimatePositions("[a-z\\]]x\\d", 100));
+		assertEquals(2, AutomataCompiler.estimatePositions("^(?:a|b)*$", 100));
+		assertEquals(5, AutomataCompiler.estimatePositions("a{2,5}", 100));
+		assertEquals(21, AutomataCompiler.estimatePositions("(ab){10}c", 100));
+		// 不是合法重复次数的 { 按普通字符计
+		assertEquals(4, AutomataCompiler.estimatePositions("a{x}", 100));
+		// 超出上限时立即返回
+		assertTrue(AutomataCompiler.estimatePositions("((a{1000}){1000}){1000}b",
+				100) > 100);
+	}
+
+	@Test
+	public void rejectsLargeRegexpBeforeParsing() {
+		try {
+			AutomataCompiler.compile("(a{1000}){1000}",
+					AutomataType.EPS_FREE_NFA, false, new Budget(100, 0, 0, 0));
+			fail();
+		} catch (BudgetExceededException e) {
+			assertEquals(Stage.PARSE, e.getStage());
+			assertEquals("NFA states", e.getResource());
+			assertEquals(100, e.getLimit());
+		}
+	}
+
+}
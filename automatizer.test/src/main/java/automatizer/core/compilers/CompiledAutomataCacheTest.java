@@ -0,0 +1,96 @@
+package automatizer.core.compilers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import automatizer.core.models.AutomataType;
+import automatizer.core.models.IndexedAutomaton;
+
+public class CompiledAutomataCacheTest {
+
+	private static IndexedAutomaton chain(int states) {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int prev = b.addState(false);
+		for (int i = 1; i < states; i++) {
+			int cur = b.addState(i == states - 1);
+			b.addTransition(prev, 'a', 'a', cur);
+			prev = cur;
+		}
+		return b.build();
+	}
+
+	private static CompileKey key(String txt) {
+		return new CompileKey(txt, AutomataType.EPS_FREE_NFA, false);
+	}
+
+	/**
+	 * @return 条目在缓存中的估算占用，其中包括键的文本
+	 */
+	private static long weightOf(String txt, CompiledAutomata value) {
+		CompiledAutomataCache probe = new CompiledAutomataCache(Long.MAX_VALUE);
+		probe.put(key(txt), value);
+		return probe.getWeight();
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedByWeight() {
+		CompiledAutomata a = new CompiledAutomata(chain(4), null);
+		CompiledAutomata b = new CompiledAutomata(chain(4), null);
+		CompiledAutomata c = new CompiledAutomata(chain(4), null);
+		long w = weightOf("x", a);
+		CompiledAutomataCache cache = new CompiledAutomataCache(3 * w - 1);
+
+		cache.put(key("x"), a);
+		cache.put(key("y"), b);
+		assertEquals(2 * w, cache.getWeight());
+		// 访问 x 后 y 成为最久未使用的条目
+		assertSame(a, cache.get(key("x")));
+		cache.put(key("z"), c);
+
+		assertEquals(2, cache.size());
+		assertEquals(2 * w, cache.getWeight());
+		assertNull(cache.get(key("y")));
+		assertSame(a, cache.get(key("x")));
+		assertSame(c, cache.get(key("z")));
+		assertEquals(3, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getEvictionCount());
+
+		// 同一键重新放入时替换原条目，不计淘汰
+		cache.put(key("x"), b);
+		assertEquals(2, cache.size());
+		assertEquals(2 * w, cache.getWeight());
+		assertSame(b, cache.get(key("x")));
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	public void rejectsEntryLargerThanCapacity() {
+		CompiledAutomata small = new CompiledAutomata(chain(2), null);
+		CompiledAutomata large = new CompiledAutomata(chain(200), null);
+		CompiledAutomataCache cache = new CompiledAutomataCache(
+				weightOf("large", large) - 1);
+
+		cache.put(key("small"), small);
+		cache.put(key("large"), large);
+		assertEquals(1, cache.size());
+		assertEquals(weightOf("small", small), cache.getWeight());
+		assertNull(cache.get(key("large")));
+		assertSame(small, cache.get(key("small")));
+		assertEquals(0, cache.getEvictionCount());
+
+		// 状态机为 null 的结果不缓存
+		cache.put(key("invalid"), new CompiledAutomata(null, ""));
+		assertNull(cache.get(key("invalid")));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+}
@@ -0,0 +1,127 @@
+package automatizer.core.compilers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import automatizer.core.layouts.GraphLayout;
+import automatizer.core.layouts.LayeredLayout;
+import automatizer.core.models.AutomataType;
+import automatizer.core.models.IndexedAutomaton;
+
+public class DiskAutomataCacheTest {
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("automata").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	/**
+	 * a(ε|b)c，带 ε 转移边
+	 */
+	private static IndexedAutomaton sample() {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		int s1 = b.addState(false);
+		int s2 = b.addState(false);
+		int s3 = b.addState(true);
+		b.addTransition(s0, 'a', 'a', s1);
+		b.addTransition(s1, 'b', 'b', s2);
+		b.addEpsilon(s1, s2);
+		b.addTransition(s2, 'c', 'c', s3);
+		return b.build();
+	}
+
+	@Test
+	public void restoresEntryInNewInstance() {
+		IndexedAutomaton atm = sample();
+		GraphLayout layout = new LayeredLayout().layout(atm);
+		CompileKey key = new CompileKey("a(|b)c", AutomataType.EPS_NFA, false);
+		DiskAutomataCache cache = new DiskAutomataCache(dir, 1 << 20, "1.0");
+		cache.put(key, new CompiledAutomata(atm, "ab?c", null, layout, 5,
+				"Reduced NFA"));
+		cache.close();
+
+		DiskAutomataCache reopened = new DiskAutomataCache(dir, 1 << 20, "1.0");
+		CompiledAutomata res = reopened.get(key);
+		IndexedAutomaton copy = res.getAutomaton();
+		assertEquals(atm.getStateCount(), copy.getStateCount());
+		assertEquals(atm.getAcceptStates(), copy.getAcceptStates());
+		assertEquals(atm.getTransitionCount(), copy.getTransitionCount());
+		for (int t = 0; t < atm.getTransitionCount(); t++) {
+			assertEquals(atm.getMin(t), copy.getMin(t));
+			assertEquals(atm.getMax(t), copy.getMax(t));
+			assertEquals(atm.getDest(t), copy.getDest(t));
+		}
+		assertEquals(1, copy.getEpsilonCount());
+		assertEquals(atm.getEpsilonDest(0), copy.getEpsilonDest(0));
+		for (int s = 0; s < atm.getStateCount(); s++) {
+			assertEquals(atm.getEpsilonStart(s), copy.getEpsilonStart(s));
+			assertEquals(layout.getX(s), res.getLayout().getX(s), 1e-3);
+			assertEquals(layout.getY(s), res.getLayout().getY(s), 1e-3);
+		}
+		assertEquals("ab?c", res.getRegexp());
+		assertEquals(5, res.getSourceStateCount());
+		assertEquals("Reduced NFA", res.getReduction());
+		assertNull(res.getMatcher());
+
+		// 其他插件版本、类型或文本不命中
+		assertNull(new DiskAutomataCache(dir, 1 << 20, "1.1").get(key));
+		assertNull(reopened.get(new CompileKey("a(|b)c", AutomataType.EPS_NFA,
+				true)));
+		reopened.close();
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedFiles() {
+		IndexedAutomaton atm = sample();
+		DiskAutomataCache probe = new DiskAutomataCache(dir, 1 << 20, "1.0");
+		probe.put(new CompileKey("x", AutomataType.EPS_NFA, false),
+				new CompiledAutomata(atm, null));
+		probe.flush();
+		long size = probe.getWeight();
+		probe.clear();
+		probe.close();
+
+		DiskAutomataCache cache = new DiskAutomataCache(dir, 2 * size + size
+				/ 2, "1.0");
+		CompileKey k1 = new CompileKey("x", AutomataType.EPS_NFA, false);
+		CompileKey k2 = new CompileKey("y", AutomataType.EPS_NFA, false);
+		CompileKey k3 = new CompileKey("z", AutomataType.EPS_NFA, false);
+		cache.put(k1, new CompiledAutomata(atm, null));
+		cache.put(k2, new CompiledAutomata(atm, null));
+		cache.flush();
+		assertTrue(cache.get(k1) != null);
+		cache.put(k3, new CompiledAutomata(atm, null));
+		cache.flush();
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(cache.get(k2));
+		assertTrue(cache.get(k1) != null);
+		assertTrue(cache.get(k3) != null);
+		cache.close();
+	}
+
+}
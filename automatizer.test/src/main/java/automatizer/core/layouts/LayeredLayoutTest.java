@@ -0,0 +1,52 @@
+package automatizer.core.layouts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import automatizer.core.models.IndexedAutomaton;
+
+public class LayeredLayoutTest {
+
+	/**
+	 * a?b(cd)*e
+	 */
+	private static IndexedAutomaton sample() {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		int s1 = b.addState(false);
+		int s2 = b.addState(false);
+		int s3 = b.addState(false);
+		int s4 = b.addState(true);
+		b.addTransition(s0, 'a', 'a', s1);
+		b.addTransition(s0, 'b', 'b', s2);
+		b.addTransition(s1, 'b', 'b', s2);
+		b.addTransition(s2, 'c', 'c', s3);
+		b.addTransition(s3, 'd', 'd', s2);
+		b.addTransition(s2, 'e', 'e', s4);
+		return b.build();
+	}
+
+	@Test
+	public void placesLongestPathLayersLeftToRight() {
+		GraphLayout l = new LayeredLayout().layout(sample());
+		assertEquals(5, l.getStateCount());
+		// 0 -> 1 -> 2 -> {3, 4}，0 -> 2 的捷径不缩短 2 所在层
+		assertTrue(l.getX(0) < l.getX(1));
+		assertTrue(l.getX(1) < l.getX(2));
+		assertEquals(l.getX(3), l.getX(4), 0);
+		assertTrue(Math.abs(l.getY(3) - l.getY(4)) >= LayeredLayout.NODE_SPACING);
+	}
+
+	@Test
+	public void keepsAllStatesInsideBounds() {
+		GraphLayout l = new LayeredLayout().layout(sample());
+		int r = LayeredLayout.NODE_SIZE / 2;
+		for (int s = 0; s < l.getStateCount(); s++) {
+			assertTrue(l.getX(s) - r >= 0 && l.getX(s) + r <= l.getWidth());
+			assertTrue(l.getY(s) - r >= 0 && l.getY(s) + r <= l.getHeight());
+		}
+	}
+
+}
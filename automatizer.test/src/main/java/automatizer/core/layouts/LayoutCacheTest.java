@@ -0,0 +1,59 @@
+package automatizer.core.layouts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import automatizer.core.models.IndexedAutomaton;
+
+public class LayoutCacheTest {
+
+	/**
+	 * ab(cd)*e，extended 时在末尾追加 f
+	 */
+	private static IndexedAutomaton sample(boolean extended) {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		int s1 = b.addState(false);
+		int s2 = b.addState(false);
+		int s3 = b.addState(false);
+		int s4 = b.addState(!extended);
+		b.addTransition(s0, 'a', 'a', s1);
+		b.addTransition(s1, 'b', 'b', s2);
+		b.addTransition(s2, 'c', 'c', s3);
+		b.addTransition(s3, 'd', 'd', s2);
+		b.addTransition(s2, 'e', 'e', s4);
+		if (extended) {
+			int s5 = b.addState(true);
+			b.addTransition(s4, 'f', 'f', s5);
+		}
+		return b.build();
+	}
+
+	@Test
+	public void reusesLayoutOfSameStructure() {
+		LayoutCache cache = new LayoutCache();
+		GraphLayout l = cache.layout(sample(false));
+		assertSame(l, cache.layout(sample(false)));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void keepsPositionsOfSharedStates() {
+		LayoutCache cache = new LayoutCache();
+		GraphLayout before = cache.layout(sample(false));
+		GraphLayout after = cache.layout(sample(true));
+		assertEquals(1, cache.getIncrementalCount());
+		assertEquals(6, after.getStateCount());
+		for (int s = 0; s < before.getStateCount(); s++) {
+			assertEquals(before.getX(s), after.getX(s), 0);
+			assertEquals(before.getY(s), after.getY(s), 0);
+		}
+		assertTrue(after.getX(5) > after.getX(4));
+		assertTrue(after.getWidth() >= after.getX(5) + LayeredLayout.NODE_SIZE / 2);
+	}
+
+}
@@ -0,0 +1,62 @@
+package automatizer.core.matchers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.models.SampleAutomata;
+
+public class LazyDfaTest {
+
+	@Test
+	public void agreesWithTableMatcherWhileFlushing() {
+		IndexedAutomaton atm = SampleAutomata.suffixNfa();
+		TableMatcher t = TableMatcher.compile(atm);
+		LazyDfa lazy = new LazyDfa(atm, 3);
+		long maxSize = lazy.estimateMaxSize();
+		String[] inputs = { "", "a", "abab", "bbbabbb", "aaaaaaaa",
+				"abbbabab", "abc", "babababbbaaab" };
+		for (String in : inputs) {
+			MatchResult r = lazy.match(in);
+			MatchResult e = t.match(in);
+			assertEquals(in, e.isAccepted(), r.isAccepted());
+			assertEquals(in, e.getConsumed(), r.getConsumed());
+			assertArrayEquals(in, e.getStates(), r.getStates());
+			// 缓存放入时按上限估算，匹配过程中不会超出
+			assertTrue(in, lazy.estimateSize() <= maxSize);
+		}
+		assertEquals(maxSize, lazy.estimateMaxSize());
+		assertTrue(lazy.getFlushCount() > 0);
+		assertTrue(lazy.getStateCount() <= 3);
+	}
+
+	@Test
+	public void explorerExpandsFromInitialState() {
+		DfaExplorer explorer = new DfaExplorer(new LazyDfa(SampleAutomata.suffixNfa(), 4));
+		IndexedAutomaton atm = explorer.getAutomaton();
+		assertEquals(1, atm.getStateCount());
+		assertTrue(explorer.getFrontier().get(0));
+
+		assertTrue(explorer.expand(0));
+		atm = explorer.getAutomaton();
+		assertEquals(2, atm.getStateCount());
+		assertFalse(explorer.getFrontier().get(0));
+		assertTrue(explorer.getFrontier().get(1));
+		assertFalse(explorer.expand(0));
+
+		explorer.expandTo(Integer.MAX_VALUE);
+		atm = explorer.getAutomaton();
+		assertEquals(16, atm.getStateCount());
+		assertTrue(explorer.getFrontier().isEmpty());
+		assertEquals(16, explorer.getExpandedCount());
+		for (int s = 0; s < atm.getStateCount(); s++) {
+			assertEquals(explorer.getLazyDfa().isAccept(
+					explorer.getStateSet(s)), atm.isAccept(s));
+		}
+	}
+
+}
@@ -0,0 +1,48 @@
+package automatizer.core.matchers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import automatizer.core.models.IndexedAutomaton;
+import automatizer.core.models.SampleAutomata;
+
+public class ShiftAndMatcherTest {
+
+	@Test
+	public void agreesWithTableMatcher() {
+		IndexedAutomaton atm = SampleAutomata.wideClassNfa();
+		ShiftAndMatcher m = ShiftAndMatcher.compile(atm);
+		TableMatcher t = TableMatcher.compile(atm);
+		String[] inputs = { "", "a", "ab", "bbab", "ba", "a丁", "a￿",
+				"abcab", "aaaa" };
+		for (String in : inputs) {
+			MatchResult r = m.match(in);
+			MatchResult e = t.match(in);
+			assertEquals(in, e.isAccepted(), r.isAccepted());
+			assertEquals(in, e.getConsumed(), r.getConsumed());
+			assertArrayEquals(in, e.getStates(), r.getStates());
+		}
+		assertTrue(m.match("bbab").isAccepted());
+		assertFalse(m.match("ba").isAccepted());
+	}
+
+	@Test
+	public void rejectsTooManyPositions() {
+		// 长度为 64 的线性模式加上 init 状态共 65 个位置
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int prev = b.addState(false);
+		b.setInitialState(prev);
+		for (int i = 0; i < ShiftAndMatcher.MAX_POSITIONS; i++) {
+			int cur = b.addState(i == ShiftAndMatcher.MAX_POSITIONS - 1);
+			b.addTransition(prev, 'a', 'a', cur);
+			prev = cur;
+		}
+		assertNull(ShiftAndMatcher.compile(b.build()));
+	}
+
+}
@@ -0,0 +1,52 @@
+package automatizer.core.matchers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import automatizer.core.models.Budget;
+import automatizer.core.models.BudgetExceededException;
+import automatizer.core.models.SampleAutomata;
+
+public class TableMatcherTest {
+
+	@Test
+	public void determinizesAndMatches() {
+		TableMatcher m = TableMatcher.compile(SampleAutomata.wideClassNfa());
+
+		MatchResult r = m.match("bbab");
+		assertTrue(r.isAccepted());
+		assertArrayEquals(new int[] { 0, 2 }, r.getStates());
+
+		r = m.match("ba");
+		assertFalse(r.isAccepted());
+		assertArrayEquals(new int[] { 0, 1 }, r.getStates());
+
+		assertTrue(m.match("a丁").isAccepted());
+		assertTrue(m.match("a￿").isAccepted());
+	}
+
+	@Test
+	public void stopsAtFirstCharWithoutTransition() {
+		MatchResult r = TableMatcher.compile(SampleAutomata.wideClassNfa()).match("abcab");
+		assertFalse(r.isAccepted());
+		assertEquals(2, r.getConsumed());
+		assertEquals(0, r.getStates().length);
+	}
+
+	@Test
+	public void stopsDeterminizingAtBudget() {
+		try {
+			TableMatcher.compile(SampleAutomata.wideClassNfa(), new Budget(0, 2, 0, 0).start());
+			fail();
+		} catch (BudgetExceededException e) {
+			assertEquals("DFA states", e.getResource());
+			assertEquals(2, e.getLimit());
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+package automatizer.core.minimizers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import automatizer.core.matchers.TableMatcher;
+import automatizer.core.models.IndexedAutomaton;
+
+public class DfaMinimizerTest {
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+	private static final DfaMinimizer[] ENGINES = { new HopcroftMinimizer(),
+			new ValmariMinimizer(), new BrzozowskiMinimizer(),
+			new AutoMinimizer(), new ParallelMinimizer(POOL) };
+
+	/**
+	 * (a|b)*a(a|b) 的 NFA，另有一个不能到达 accept 状态的分支
+	 */
+	private static IndexedAutomaton sampleNfa() {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		int s1 = b.addState(false);
+		int s2 = b.addState(true);
+		int dead = b.addState(false);
+		b.setInitialState(s0);
+		b.addTransition(s0, 'a', 'b', s0);
+		b.addTransition(s0, 'a', 'a', s1);
+		b.addTransition(s1, 'a', 'b', s2);
+		b.addTransition(s0, 'c', 'c', dead);
+		b.addTransition(dead, 'a', 'c', dead);
+		return b.build();
+	}
+
+	@Test
+	public void enginesAgreeOnMinimalDfa() {
+		IndexedAutomaton nfa = sampleNfa();
+		DfaTable dfa = DfaTable.determinize(nfa, DfaTable.MAX_STATES);
+		TableMatcher expected = TableMatcher.compile(nfa);
+		String[] inputs = { "", "a", "aa", "ab", "ba", "bab", "abb", "aab",
+				"ac", "c", "bbbaa" };
+		for (DfaMinimizer engine : ENGINES) {
+			DfaTable min = engine.minimize(dfa);
+			assertEquals(engine.toString(), 4, min.getStateCount());
+
+			TableMatcher m = TableMatcher.compile(min.toAutomaton());
+			for (String in : inputs) {
+				assertEquals(engine + ": " + in, expected.match(in)
+						.isAccepted(), m.match(in).isAccepted());
+			}
+		}
+	}
+
+	@Test
+	public void parallelEnginesMatchSequential() {
+		// (a|b)*a(a|b){11}：确定化后有 4096 个状态，逐层展开及划分细化均会分块并行
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		b.setInitialState(s0);
+		b.addTransition(s0, 'a', 'b', s0);
+		int prev = b.addState(false);
+		b.addTransition(s0, 'a', 'a', prev);
+		for (int i = 0; i < 11; i++) {
+			int cur = b.addState(i == 10);
+			b.addTransition(prev, 'a', 'b', cur);
+			prev = cur;
+		}
+		IndexedAutomaton nfa = b.build();
+
+		DfaTable seq = DfaTable.determinize(nfa, DfaTable.MAX_STATES);
+		DfaTable par = new ParallelDeterminizer(POOL).determinize(nfa,
+				DfaTable.MAX_STATES);
+		assertEquals(4096, par.getStateCount());
+		for (int s = 0; s < seq.getStateCount(); s++) {
+			assertArrayEquals(seq.getStateSet(s), par.getStateSet(s));
+			assertEquals(seq.isAccept(s), par.isAccept(s));
+			for (int c = 0; c < seq.getClassCount(); c++) {
+				assertEquals(seq.getNext(s, c), par.getNext(s, c));
+			}
+		}
+
+		IndexedAutomaton expected = new HopcroftMinimizer().minimize(seq)
+				.toAutomaton();
+		IndexedAutomaton actual = new ParallelMinimizer(POOL).minimize(par)
+				.toAutomaton();
+		assertEquals(expected.getStateCount(), actual.getStateCount());
+		assertEquals(expected.getTransitionCount(),
+				actual.getTransitionCount());
+		for (int t = 0; t < expected.getTransitionCount(); t++) {
+			assertEquals(expected.getDest(t), actual.getDest(t));
+			assertEquals(expected.getMin(t), actual.getMin(t));
+		}
+		assertTrue(new AutoMinimizer(POOL).select(par) instanceof ParallelMinimizer);
+	}
+
+	@Test
+	public void emptyLanguageKeepsSingleState() {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		int s1 = b.addState(false);
+		b.setInitialState(s0);
+		b.addTransition(s0, 'a', 'z', s1);
+		b.addTransition(s1, 'a', 'z', s0);
+		DfaTable dfa = DfaTable.determinize(b.build(), DfaTable.MAX_STATES);
+		for (DfaMinimizer engine : ENGINES) {
+			DfaTable min = engine.minimize(dfa);
+			assertEquals(engine.toString(), 1, min.getStateCount());
+			assertEquals(0, min.getTransitionCount());
+			assertFalse(min.isAccept(0));
+		}
+		assertTrue(new AutoMinimizer().select(dfa) instanceof BrzozowskiMinimizer);
+	}
+
+}
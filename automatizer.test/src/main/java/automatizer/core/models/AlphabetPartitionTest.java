@@ -0,0 +1,59 @@
+package automatizer.core.models;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import automatizer.core.minimizers.DfaTable;
+
+public class AlphabetPartitionTest {
+
+	@Test
+	public void unaffectedCharsShareOneClass() {
+		// a|c：b 与 a、c 之外的字符同属一类
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		int s1 = b.addState(true);
+		b.setInitialState(s0);
+		b.addTransition(s0, 'a', 'a', s1);
+		b.addTransition(s0, 'c', 'c', s1);
+		AlphabetPartition p = AlphabetPartition.of(b.build());
+
+		assertEquals(3, p.getClassCount());
+		assertEquals(5, p.getIntervalCount());
+		assertEquals(0, p.classOf('\0'));
+		assertEquals(p.classOf('b'), p.classOf('\uffff'));
+		assertEquals(p.classOf('b'), p.classOf('0'));
+		assertEquals(1, p.classOf('a'));
+		assertEquals(2, p.classOf('c'));
+		assertArrayEquals(new char[] { '\0', '`', 'b', 'b', 'd', '\uffff' },
+				p.getRanges(0));
+		assertEquals("{c1,c2}", p.makeLabel(new char[] { 'a', 'a', 'c', 'c' }));
+	}
+
+	@Test
+	public void overlappingRangesSplitIntoClasses() {
+		// [a-z] 与 [m-p]、[x]：7 个基本区间，a-l、q-w、y-z 同属一类
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		int s1 = b.addState(false);
+		int s2 = b.addState(true);
+		b.setInitialState(s0);
+		b.addTransition(s0, 'a', 'z', s1);
+		b.addTransition(s1, 'm', 'p', s2);
+		b.addTransition(s1, 'x', 'x', s2);
+		IndexedAutomaton atm = b.build();
+		AlphabetPartition p = AlphabetPartition.of(atm);
+
+		assertEquals(7, p.getIntervalCount());
+		assertEquals(4, p.getClassCount());
+		assertEquals(p.classOf('a'), p.classOf('y'));
+		assertEquals('a', p.getRepresentative(p.classOf('q')));
+
+		DfaTable dfa = DfaTable.determinize(atm, DfaTable.MAX_STATES);
+		assertEquals(4, dfa.getClassCount());
+		assertEquals(3, dfa.toAutomaton().getTransitionCount());
+	}
+
+}
@@ -0,0 +1,42 @@
+package automatizer.core.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import automatizer.core.minimizers.DfaTable;
+import automatizer.core.profiling.Stage;
+
+public class BudgetTest {
+
+	@Test
+	public void determinizationStopsAtDfaStateLimit() {
+		IndexedAutomaton nfa = SampleAutomata.suffixNfa();
+		assertEquals(16, DfaTable.determinize(nfa, new Budget(0, 16, 0, 0))
+				.getStateCount());
+		try {
+			DfaTable.determinize(nfa, new Budget(0, 10, 0, 0).start());
+			fail();
+		} catch (BudgetExceededException e) {
+			assertEquals(Stage.REDUCE, e.getStage());
+			assertEquals(10, e.getLimit());
+			assertEquals(11, e.getReached());
+		}
+	}
+
+	@Test
+	public void zeroLimitsAreUnlimited() {
+		Budget.UNLIMITED.checkNfa(Stage.PARSE, Integer.MAX_VALUE,
+				Integer.MAX_VALUE);
+		try {
+			new Budget(100, 0, 5, 0).checkNfa(Stage.TRANSFORM, 50, 6);
+			fail();
+		} catch (BudgetExceededException e) {
+			assertEquals(Stage.TRANSFORM, e.getStage());
+			assertEquals("transitions", e.getResource());
+			assertEquals(50, e.getStates());
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package automatizer.core.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+import automatizer.core.matchers.TableMatcher;
+import automatizer.core.utils.DotReader;
+
+public class EpsilonClosureTest {
+
+	/**
+	 * (ab)*c，其中 1、2 两状态间有 ε 环
+	 */
+	private static final String EPS_DOT = "digraph G {\n"
+			+ "	4 [shape=doublecircle];\n" + "	initial -> 0;\n"
+			+ "	0 -> 1;\n" + "	1 -> 2;\n" + "	2 -> 1;\n"
+			+ "	1 -> 3 [label=\"a\"];\n" + "	3 -> 0 [label=\"b\"];\n"
+			+ "	2 -> 4 [label=\"c\"];\n" + "}\n";
+
+	private static IndexedAutomaton sample() throws Exception {
+		return new DotReader(new StringReader(EPS_DOT)).readEpsilonNfa();
+	}
+
+	@Test
+	public void condensesEpsilonCycles() throws Exception {
+		IndexedAutomaton atm = sample();
+		assertTrue(atm.hasEpsilons());
+		assertEquals(3, atm.getEpsilonCount());
+
+		EpsilonClosure closure = new EpsilonClosure(atm);
+		BitSet init = closure.get(0);
+		assertEquals(3, init.cardinality());
+		// 环上的两个状态属于同一分量，共享同一闭包
+		int one = atm.getEpsilonDest(atm.getEpsilonStart(0));
+		int two = atm.getEpsilonDest(atm.getEpsilonStart(one));
+		assertTrue(closure.get(one) == closure.get(two));
+		assertEquals(2, closure.get(one).cardinality());
+		// 没有 ε 转移边的状态闭包只含自身，不单独保存
+		int end = atm.getDest(atm.getTransitionStart(two));
+		assertTrue(closure.isTrivial(end));
+		assertFalse(closure.isTrivial(0));
+		assertEquals(1, closure.get(end).cardinality());
+		assertTrue(closure.get(end).get(end));
+	}
+
+	@Test
+	public void removalKeepsLanguage() throws Exception {
+		IndexedAutomaton atm = sample();
+		IndexedAutomaton free = EpsilonClosure.removeEpsilons(atm);
+		assertFalse(free.hasEpsilons());
+
+		TableMatcher eps = TableMatcher.compile(atm);
+		TableMatcher plain = TableMatcher.compile(free);
+		String[] inputs = { "", "c", "abc", "ababc", "ab", "abac", "cc" };
+		for (String in : inputs) {
+			assertEquals(in, eps.match(in).isAccepted(), plain.match(in)
+					.isAccepted());
+		}
+		assertTrue(eps.match("ababc").isAccepted());
+		assertFalse(eps.match("abab").isAccepted());
+	}
+
+}
@@ -0,0 +1,89 @@
+package automatizer.core.models;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class GraphModelBuilderTest {
+
+	/**
+	 * 0 到 1 有 a、b、x 三条平行转移边，0 到 2 有一条 c 转移边，1 到 2 有一条 ε 转移边
+	 */
+	private static IndexedAutomaton sample() {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		int s1 = b.addState(false);
+		int s2 = b.addState(true);
+		b.setInitialState(s0);
+		b.addTransition(s0, 'x', 'x', s1);
+		b.addTransition(s0, 'a', 'a', s1);
+		b.addTransition(s0, 'c', 'c', s2);
+		b.addTransition(s0, 'b', 'b', s1);
+		b.addEpsilon(s1, s2);
+		return b.build();
+	}
+
+	@Test
+	public void groupsParallelEdgesByDest() {
+		IndexedAutomaton atm = sample();
+		EdgeGrouper grouper = new EdgeGrouper(atm);
+		assertEquals(2, grouper.group(0));
+		// 组按最小字符升序排列，相邻范围合并
+		assertEquals(1, grouper.getDest(0));
+		assertArrayEquals(new char[] { 'a', 'b', 'x', 'x' },
+				grouper.getRanges(0));
+		assertEquals(2, grouper.getDest(1));
+		assertArrayEquals(new char[] { 'c', 'c' }, grouper.getRanges(1));
+		assertEquals(0, grouper.group(1));
+	}
+
+	@Test
+	public void mergesParallelEdgesAndInternsStates() {
+		IndexedAutomaton atm = sample();
+		List<ConnectionData> conns = GraphModelBuilder.build(atm);
+		assertEquals(3, conns.size());
+
+		ConnectionData ab = conns.get(0);
+		ConnectionData c = conns.get(1);
+		ConnectionData eps = conns.get(2);
+		assertEquals("[a-bx]", ab.getLabel());
+		assertEquals(1, ab.getTarget().getId());
+		assertEquals("c", c.getLabel());
+		assertEquals(2, c.getTarget().getId());
+		assertTrue(eps.isEpsilon());
+		assertEquals(ConnectionData.EPSILON_LABEL, eps.getLabel());
+
+		// 同一状态只生成一个 StateData
+		assertSame(ab.getSource(), c.getSource());
+		assertSame(ab.getTarget(), eps.getSource());
+		assertSame(c.getTarget(), eps.getTarget());
+		assertTrue(ab.getSource().isInit());
+		assertFalse(ab.getTarget().isAccept());
+		assertTrue(c.getTarget().isAccept());
+	}
+
+	@Test
+	public void labelsMergedEdgesWithCharacterClasses() {
+		IndexedAutomaton atm = sample();
+		AlphabetPartition alphabet = AlphabetPartition.of(atm);
+		List<ConnectionData> conns = GraphModelBuilder.build(atm, alphabet);
+		assertEquals(3, conns.size());
+
+		// a、b、x 各属一个字符类，合并后的连线以字符类集合为标签
+		ConnectionData ab = conns.get(0);
+		assertEquals("{" + AlphabetPartition.getName(alphabet.classOf('a'))
+				+ "," + AlphabetPartition.getName(alphabet.classOf('b')) + ","
+				+ AlphabetPartition.getName(alphabet.classOf('x')) + "}",
+				ab.getLabel());
+		assertEquals("[a-bx]", ab.getRangeLabel());
+		assertEquals(AlphabetPartition.getName(alphabet.classOf('c')), conns
+				.get(1).getLabel());
+	}
+
+}
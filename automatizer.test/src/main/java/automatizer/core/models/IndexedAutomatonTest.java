@@ -0,0 +1,55 @@
+package automatizer.core.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IndexedAutomatonTest {
+
+	@Test
+	public void builderRenumbersBreadthFirstAndDropsUnreachable() {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int dead = b.addState(false);
+		int last = b.addState(true);
+		int init = b.addState(false);
+		int mid = b.addState(false);
+		b.setInitialState(init);
+		b.addTransition(mid, 'x', 'y', last);
+		b.addTransition(init, 'b', 'b', last);
+		b.addTransition(init, 'a', 'a', mid);
+		b.addTransition(dead, 'z', 'z', init);
+		IndexedAutomaton atm = b.build();
+
+		assertEquals(3, atm.getStateCount());
+		assertEquals(3, atm.getTransitionCount());
+		assertFalse(atm.isAccept(0));
+		int t = atm.getTransitionStart(0);
+		assertEquals(t + 2, atm.getTransitionEnd(0));
+		assertEquals('a', atm.getMin(t));
+		assertEquals('b', atm.getMin(t + 1));
+		// 按原转移边加入顺序，last 先于 mid 被访问
+		assertEquals(2, atm.getDest(t));
+		assertEquals(1, atm.getDest(t + 1));
+		assertTrue(atm.isAccept(1));
+	}
+
+	@Test
+	public void roundTripsThroughAutomaton() {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		int s1 = b.addState(true);
+		b.setInitialState(s0);
+		b.addTransition(s0, 'a', 'c', s1);
+		b.addTransition(s1, 'd', 'd', s0);
+		IndexedAutomaton atm = b.build();
+
+		IndexedAutomaton copy = IndexedAutomaton.fromAutomaton(atm
+				.toAutomaton());
+		assertEquals(2, copy.getStateCount());
+		assertEquals('c', copy.getMax(copy.getTransitionStart(0)));
+		assertTrue(copy.isAccept(1));
+	}
+
+}
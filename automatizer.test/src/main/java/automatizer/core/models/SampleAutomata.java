@@ -0,0 +1,45 @@
+package automatizer.core.models;
+
+/**
+ * 多个测试共用的小型状态机
+ */
+public final class SampleAutomata {
+
+	private SampleAutomata() {
+	}
+
+	/**
+	 * Glushkov NFA for [ab]*a[ab一-￿]，状态 2 为 accept 状态
+	 */
+	public static IndexedAutomaton wideClassNfa() {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		int s1 = b.addState(false);
+		int s2 = b.addState(true);
+		b.setInitialState(s0);
+		b.addTransition(s0, 'a', 'b', s0);
+		b.addTransition(s0, 'a', 'a', s1);
+		b.addTransition(s1, 'a', 'b', s2);
+		b.addTransition(s1, '一', '￿', s2);
+		return b.build();
+	}
+
+	/**
+	 * NFA for [ab]*a[ab]{3}，确定化后有 16 个状态
+	 */
+	public static IndexedAutomaton suffixNfa() {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int s0 = b.addState(false);
+		b.setInitialState(s0);
+		b.addTransition(s0, 'a', 'b', s0);
+		int prev = b.addState(false);
+		b.addTransition(s0, 'a', 'a', prev);
+		for (int i = 0; i < 3; i++) {
+			int cur = b.addState(i == 2);
+			b.addTransition(prev, 'a', 'b', cur);
+			prev = cur;
+		}
+		return b.build();
+	}
+
+}
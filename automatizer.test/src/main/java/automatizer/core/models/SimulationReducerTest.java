@@ -0,0 +1,96 @@
+package automatizer.core.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import automatizer.core.matchers.TableMatcher;
+import automatizer.core.profiling.Stage;
+
+public class SimulationReducerTest {
+
+	/**
+	 * a(b|c)*d|a(b|c)*e 的 Glushkov 式 NFA，两个分支前缀相同
+	 */
+	private static IndexedAutomaton sample() {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int init = b.addState(false);
+		b.setInitialState(init);
+		for (char last = 'd'; last <= 'e'; last++) {
+			int a = b.addState(false);
+			int bc = b.addState(false);
+			int end = b.addState(true);
+			b.addTransition(init, 'a', 'a', a);
+			b.addTransition(a, 'b', 'c', bc);
+			b.addTransition(bc, 'b', 'b', bc);
+			b.addTransition(bc, 'c', 'c', bc);
+			b.addTransition(a, last, last, end);
+			b.addTransition(bc, last, last, end);
+		}
+		// 不能到达 accept 状态的分支
+		int dead = b.addState(false);
+		b.addTransition(init, 'x', 'x', dead);
+		return b.build();
+	}
+
+	@Test
+	public void mergesSimulatingStates() {
+		IndexedAutomaton atm = sample();
+		IndexedAutomaton reduced = SimulationReducer.reduce(atm);
+		assertEquals(8, atm.getStateCount());
+		assertTrue(reduced.getStateCount() < atm.getStateCount());
+		assertFalse(reduced.hasEpsilons());
+	}
+
+	@Test
+	public void reductionKeepsLanguage() {
+		IndexedAutomaton atm = sample();
+		TableMatcher orig = TableMatcher.compile(atm);
+		TableMatcher reduced = TableMatcher.compile(SimulationReducer
+				.reduce(atm));
+		Random rnd = new Random(17);
+		String alphabet = "abcdex";
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int len = rnd.nextInt(7);
+			for (int j = 0; j < len; j++) {
+				sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+			}
+			String in = sb.toString();
+			assertEquals(in, orig.match(in).isAccepted(), reduced.match(in)
+					.isAccepted());
+		}
+		assertTrue(reduced.match("abcbd").isAccepted());
+		assertFalse(reduced.match("ax").isAccepted());
+	}
+
+	@Test
+	public void largeOrSlowInputsAreBounded() throws InterruptedException {
+		// 状态数超出上限时原样返回
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		int prev = b.addState(false);
+		for (int i = 0; i < SimulationReducer.MAX_STATES; i++) {
+			int s = b.addState(i == SimulationReducer.MAX_STATES - 1);
+			b.addTransition(prev, 'a', 'a', s);
+			prev = s;
+		}
+		IndexedAutomaton chain = b.build();
+		assertSame(chain, SimulationReducer.reduce(chain));
+
+		Budget budget = new Budget(0, 0, 0, 1).start();
+		Thread.sleep(5);
+		try {
+			SimulationReducer.reduce(sample(), budget);
+			fail();
+		} catch (BudgetExceededException e) {
+			assertEquals(Stage.REDUCE, e.getStage());
+		}
+	}
+
+}
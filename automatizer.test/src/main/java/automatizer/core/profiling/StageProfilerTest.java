@@ -0,0 +1,50 @@
+package automatizer.core.profiling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class StageProfilerTest {
+
+	@After
+	public void tearDown() {
+		StageProfiler.setEnabled(false);
+		StageProfiler.reset();
+	}
+
+	@Test
+	public void histogramKeepsOnlyRecentSamples() {
+		RollingHistogram h = new RollingHistogram(4);
+		for (long v = 1; v <= 10; v++) {
+			h.add(v * 1000);
+		}
+		assertEquals(10, h.getTotalCount());
+		assertEquals(4, h.getSortedSamples().length);
+		assertEquals(7000, h.getSortedSamples()[0]);
+		assertEquals(8000, h.getPercentile(0.5));
+		assertEquals(10000, h.getPercentile(1));
+	}
+
+	@Test
+	public void recordsOnlyWhenEnabled() {
+		StageProfiler.setEnabled(false);
+		long t = StageProfiler.start();
+		assertEquals(0L, t);
+		StageProfiler.stop(Stage.PARSE, t);
+		StageProfiler.count(StageProfiler.Counter.STATES, 3);
+		assertEquals(-1, StageProfiler.getLastNanos(Stage.PARSE));
+		assertEquals(0, StageProfiler.getHistogram(Stage.PARSE).getTotalCount());
+
+		StageProfiler.setEnabled(true);
+		StageProfiler.beginRun();
+		StageProfiler.stop(Stage.PARSE, StageProfiler.start());
+		StageProfiler.count(StageProfiler.Counter.STATES, 3);
+		assertTrue(StageProfiler.getLastNanos(Stage.PARSE) >= 0);
+		assertEquals(1, StageProfiler.getHistogram(Stage.PARSE).getTotalCount());
+		assertTrue(StageProfiler.summary().startsWith("parse "));
+		assertTrue(StageProfiler.summary().endsWith("| 3 states"));
+	}
+
+}
@@ -0,0 +1,66 @@
+package automatizer.core.regexps;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import automatizer.core.matchers.TableMatcher;
+import automatizer.core.models.IndexedAutomaton;
+
+public class StateEliminatorTest {
+
+	private static IndexedAutomaton randomAutomaton(Random rnd, int n) {
+		IndexedAutomaton.Builder b = new IndexedAutomaton.Builder();
+		for (int i = 0; i < n; i++) {
+			b.addState(rnd.nextInt(3) == 0);
+		}
+		for (int s = 0; s < n; s++) {
+			for (char c = 'a'; c <= 'c'; c++) {
+				if (rnd.nextInt(4) != 0) {
+					b.addTransition(s, c, c, rnd.nextInt(n));
+				}
+			}
+		}
+		return b.build();
+	}
+
+	private static void assertSameLanguage(IndexedAutomaton atm, String re) {
+		Pattern p = Pattern.compile(re);
+		TableMatcher m = TableMatcher.compile(atm);
+		int total = 1;
+		for (int len = 0; len <= 6; len++, total *= 3) {
+			for (int k = 0; k < total; k++) {
+				StringBuilder sb = new StringBuilder();
+				for (int i = 0, v = k; i < len; i++, v /= 3) {
+					sb.append((char) ('a' + v % 3));
+				}
+				String s = sb.toString();
+				assertEquals(re + " on \"" + s + "\"", m.match(s)
+						.isAccepted(), p.matcher(s).matches());
+			}
+		}
+	}
+
+	@Test
+	public void producesEquivalentRegexpWithEachOrder() {
+		EliminationOrder[] orders = { new MinDegreeOrder(), new WeightOrder() };
+		Random rnd = new Random(42);
+		for (int i = 0; i < 30; i++) {
+			IndexedAutomaton atm = randomAutomaton(rnd, 2 + rnd.nextInt(5));
+			for (EliminationOrder order : orders) {
+				String re = new StateEliminator(order, 0, 0).toRegexp(atm);
+				assertSameLanguage(atm, re);
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void abortsWhenLengthBudgetExceeded() {
+		IndexedAutomaton atm = randomAutomaton(new Random(7), 12);
+		new StateEliminator(new WeightOrder(), 8, 0).toRegexp(atm);
+	}
+
+}
@@ -0,0 +1,95 @@
+package automatizer.core.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.text.ParseException;
+import java.util.List;
+
+import org.junit.Test;
+
+import automatizer.core.models.IndexedAutomaton;
+
+import com.etao.lz.automaton.Automaton;
+import com.etao.lz.automaton.State;
+import com.etao.lz.automaton.Transition;
+
+public class DotReaderTest {
+
+	private static final String README_DOT = "digraph G {\n"
+			+ "	2 [shape=doublecircle];\n" + "	initial -> 1;\n"
+			+ "	1 -> 2 [label=\"a-z\"];\n" + "	1 -> 2 [label=\"[234]\"];\n"
+			+ "	1 -> 2 [label=\"@\"];\n" + "	2 -> 1 [label=\"[01]\"];\n"
+			+ "}\n";
+
+	@Test
+	public void readsDocumentedSubset() throws Exception {
+		Automaton atm = new DotReader(new StringReader(README_DOT)).read();
+		State init = atm.getInitialState();
+		assertEquals(2, atm.getStates().size());
+		assertTrue(!init.isAccept());
+
+		List<Transition> trans = init.getSortedTransitions(false);
+		assertEquals(5, trans.size());
+		assertEquals('2', trans.get(0).getMin());
+		assertEquals('@', trans.get(3).getMin());
+		assertEquals('a', trans.get(4).getMin());
+		assertEquals('z', trans.get(4).getMax());
+		assertTrue(trans.get(0).getDest().isAccept());
+	}
+
+	@Test
+	public void readsMultipleGraphsAndClassLabels() throws Exception {
+		String dot = "digraph A { node [shape=doublecircle]; initial -> 0;"
+				+ " 0 -> 0 [label=\"[a-c\\u0041]\"] }\n"
+				+ "digraph B { initial -> x; x -> y [label=\"-\"] }";
+		DotReader reader = new DotReader(new StringReader(dot));
+
+		Automaton a = reader.read();
+		State s = a.getInitialState();
+		assertTrue(s.isAccept());
+		List<Transition> trans = s.getSortedTransitions(false);
+		assertEquals(2, trans.size());
+		assertEquals('A', trans.get(0).getMin());
+		assertEquals('a', trans.get(1).getMin());
+		assertEquals('c', trans.get(1).getMax());
+
+		Automaton b = reader.read();
+		assertEquals('-', b.getInitialState().getSortedTransitions(false)
+				.get(0).getMin());
+
+		assertNull(reader.read());
+	}
+
+	@Test
+	public void readsBackDotWriterOutput() throws Exception {
+		State s0 = new State();
+		State s1 = new State();
+		s1.setAccept(true);
+		s0.addTransition(new Transition('a', 'z', s1));
+		s0.addTransition(new Transition('-', s1));
+		s0.addTransition(new Transition('[', ']', s1));
+		s1.addTransition(new Transition('\u4e00', s0));
+		Automaton atm = new Automaton();
+		atm.setInitialState(s0);
+
+		StringWriter first = new StringWriter();
+		new DotWriter(first).write(IndexedAutomaton.fromAutomaton(atm));
+		Automaton copy = GraphvizUtils.dotToFsa(new StringReader(first
+				.toString()));
+		StringWriter second = new StringWriter();
+		new DotWriter(second).write(IndexedAutomaton.fromAutomaton(copy));
+
+		assertEquals(first.toString(), second.toString());
+	}
+
+	@Test(expected = ParseException.class)
+	public void rejectsGraphWithoutInitialState() throws Exception {
+		new DotReader(new StringReader("digraph G { 1 -> 2 [label=a] }"))
+				.read();
+	}
+
+}
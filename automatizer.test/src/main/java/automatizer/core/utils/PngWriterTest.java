@@ -0,0 +1,58 @@
+package automatizer.core.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class PngWriterTest {
+
+	@Test
+	public void writesDecodableImageRowByRow() throws Exception {
+		int w = 300;
+		int h = 70;
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		PngWriter png = new PngWriter(bos, w, h);
+		byte[] row = new byte[3 * w];
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				row[3 * x] = (byte) x;
+				row[3 * x + 1] = (byte) y;
+				row[3 * x + 2] = (byte) (x ^ y);
+			}
+			png.writeRow(row, 0);
+		}
+		png.finish();
+
+		BufferedImage img = ImageIO.read(new ByteArrayInputStream(bos
+				.toByteArray()));
+		assertEquals(w, img.getWidth());
+		assertEquals(h, img.getHeight());
+		for (int y = 0; y < h; y += 7) {
+			for (int x = 0; x < w; x += 13) {
+				int expected = ((x & 0xff) << 16) | ((y & 0xff) << 8)
+						| ((x ^ y) & 0xff);
+				assertEquals(expected, img.getRGB(x, y) & 0xffffff);
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsMissingRows() throws Exception {
+		PngWriter png = new PngWriter(new ByteArrayOutputStream(), 4, 2);
+		try {
+			png.writeRow(new byte[12], 0);
+			png.finish();
+		} finally {
+			// 未写完的图像同样需要释放压缩器，可重复调用
+			png.close();
+			png.close();
+		}
+	}
+
+}